@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package thredds.filesystem;
+
+import thredds.inventory.CollectionConfig;
+import thredds.inventory.MController;
+import thredds.inventory.MFile;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Implements an MController using a DirectoryInventory, so that subdirectories are listed concurrently,
+ * and directories that have not changed since the last scan are not reread.
+ * The results are the same as ControllerOS, though the order of files from different directories may differ.
+ * recheck is ignored; the directory last modified times are always checked.
+ * <p/>
+ * To use: MFileCollectionManager.setController(new ControllerParallel(DirectoryInventory.open(snapshot, nthreads)))
+ *
+ * @since 10/19/2026
+ */
+@ThreadSafe
+public class ControllerParallel implements MController {
+  private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(ControllerParallel.class);
+
+  private final DirectoryInventory inventory;
+
+  public ControllerParallel(DirectoryInventory inventory) {
+    this.inventory = inventory;
+  }
+
+  public DirectoryInventory getInventory() {
+    return inventory;
+  }
+
+  @Override
+  public Iterator<MFile> getInventoryAll(CollectionConfig mc, boolean recheck) {
+    Path dir = getDirectory(mc);
+    if (dir == null)
+      return null;
+
+    List<MFile> result = new ArrayList<>();
+    inventory.walk(dir, true, mfile -> {
+      if (mc.accept(mfile))
+        result.add(mfile);
+    });
+    writeSnapshot();
+    return result.iterator();
+  }
+
+  @Override
+  public Iterator<MFile> getInventoryTop(CollectionConfig mc, boolean recheck) throws IOException {
+    return listTop(mc, false);
+  }
+
+  @Override
+  public Iterator<MFile> getSubdirs(CollectionConfig mc, boolean recheck) {
+    try {
+      return listTop(mc, true);
+    } catch (IOException e) {
+      logger.warn("Failed to list subdirectories of {}", mc.getDirectoryName(), e);
+      return null;
+    }
+  }
+
+  private Iterator<MFile> listTop(CollectionConfig mc, boolean wantDirs) throws IOException {
+    Path dir = getDirectory(mc);
+    if (dir == null)
+      return null;
+
+    List<MFile> result = new ArrayList<>();
+    for (DirectoryInventory.Entry e : inventory.list(dir).entries) {
+      if (e.isDirectory != wantDirs)
+        continue;
+      MFile mfile = e.makeMFile(dir.resolve(e.name));
+      if (mc.accept(mfile))
+        result.add(mfile);
+    }
+    return result.iterator();
+  }
+
+  private Path getDirectory(CollectionConfig mc) {
+    String path = mc.getDirectoryName();
+    if (path.startsWith("file:")) {
+      path = path.substring(5);
+    }
+
+    Path dir = Paths.get(path);
+    if (!Files.isDirectory(dir))
+      return null;
+    return dir;
+  }
+
+  private void writeSnapshot() {
+    try {
+      inventory.write();
+    } catch (IOException e) {
+      logger.warn("Failed to write DirectoryInventory snapshot", e);
+    }
+  }
+
+  @Override
+  public void close() {
+    writeSnapshot();
+    inventory.close();
+  }
+
+}
@@ -0,0 +1,465 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package thredds.filesystem;
+
+import thredds.inventory.MFile;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A snapshot of directory listings (name, size, last modified of each entry), optionally persisted to a file.
+ * <p/>
+ * A directory's last modified time changes when entries are added, removed or renamed, so if it has not changed since
+ * the directory was listed, the saved listing is used and the entries are not stat'ed again. This makes rescans of
+ * large, mostly unchanging collections on network file systems much cheaper. Note that a file rewritten in place
+ * does not change its directory, and so is not seen until the directory itself changes.
+ * <p/>
+ * Directories are listed concurrently with a bounded pool when more than one thread is configured.
+ *
+ * @since 10/19/2026
+ */
+@ThreadSafe
+public class DirectoryInventory implements Closeable {
+  private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(DirectoryInventory.class);
+
+  private static final String MAGIC = "DirectoryInventory";
+  private static final int VERSION = 1;
+
+  // a listing is only reused if it was made this long after the directory's last modification,
+  // to allow for file systems with coarse modification times
+  private static final long MTIME_RESOLUTION_MSECS = 2000;
+
+  private static DirectoryInventory defaultInventory;
+
+  /**
+   * Set the inventory used by DirectoryCollection, DirectoryBuilder, CollectionGlob, CollectionPathMatcher and
+   * PartitionManagerFromIndexDirectory when scanning directories. Its snapshot is written when a top collection
+   * is closed, see writeDefault().
+   * Default is null, meaning always scan the file system.
+   *
+   * @param inventory use this DirectoryInventory, or null for none
+   */
+  public static synchronized void setDefault(DirectoryInventory inventory) {
+    defaultInventory = inventory;
+  }
+
+  public static synchronized DirectoryInventory getDefault() {
+    return defaultInventory;
+  }
+
+  /**
+   * Write the snapshot of the default inventory, if there is one and it changed. Failures are logged.
+   */
+  public static void writeDefault() {
+    DirectoryInventory inventory = getDefault();
+    if (inventory == null)
+      return;
+    try {
+      inventory.write();
+    } catch (IOException e) {
+      logger.warn("Failed to write DirectoryInventory snapshot", e);
+    }
+  }
+
+  /**
+   * Open an inventory, reading the snapshot file if it exists.
+   *
+   * @param snapshotFile persist the inventory in this file; may be null for in-memory only
+   * @param nthreads list directories with this many threads
+   * @return DirectoryInventory
+   */
+  public static DirectoryInventory open(Path snapshotFile, int nthreads) {
+    DirectoryInventory result = new DirectoryInventory(snapshotFile, nthreads);
+    if (snapshotFile != null && Files.exists(snapshotFile)) {
+      try {
+        result.read();
+      } catch (IOException e) {
+        logger.warn("Failed to read inventory snapshot {}; will rescan", snapshotFile, e);
+        result.dirs.clear();
+      }
+    }
+    return result;
+  }
+
+  ////////////////////////////////////////////////////////////////////////////////////
+
+  private final Path snapshotFile;
+  private final int nthreads;
+  private final ConcurrentHashMap<String, Listing> dirs = new ConcurrentHashMap<>();
+  private ExecutorService pool; // lazily created
+
+  private final AtomicBoolean dirty = new AtomicBoolean(); // a listing changed since the snapshot was read or written
+  private final AtomicInteger countListed = new AtomicInteger();
+  private final AtomicInteger countReused = new AtomicInteger();
+
+  private DirectoryInventory(Path snapshotFile, int nthreads) {
+    this.snapshotFile = snapshotFile;
+    this.nthreads = Math.max(1, nthreads);
+  }
+
+  /**
+   * Get the listing of one directory, reusing the saved listing if the directory has not changed.
+   *
+   * @param dir the directory
+   * @return its listing
+   * @throws IOException if the directory cant be read
+   */
+  public Listing list(Path dir) throws IOException {
+    String key = dir.toString();
+    BasicFileAttributes dirAttr = Files.readAttributes(dir, BasicFileAttributes.class);
+    long dirLastModified = dirAttr.lastModifiedTime().toMillis();
+
+    Listing saved = dirs.get(key);
+    if (saved != null && saved.dirLastModified == dirLastModified && isReusable(saved)) {
+      countReused.incrementAndGet();
+      return saved;
+    }
+
+    long listedAt = System.currentTimeMillis();
+    List<Entry> entries = new ArrayList<>();
+    try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir)) {
+      for (Path p : ds) {
+        try {
+          BasicFileAttributes attr = Files.readAttributes(p, BasicFileAttributes.class);
+          entries.add(new Entry(p.getFileName().toString(), attr.isDirectory(), attr.size(),
+              attr.lastModifiedTime().toMillis()));
+        } catch (IOException ioe) {
+          // catch error and skip file
+          logger.warn("Failed to read attributes of {}", p, ioe);
+        }
+      }
+    }
+
+    Listing listing = new Listing(dirLastModified, listedAt, entries);
+    dirs.put(key, listing);
+    if (saved == null || saved.dirLastModified != dirLastModified || !saved.entries.equals(listing.entries)
+        || !isReusable(saved) && isReusable(listing))
+      dirty.set(true);
+    countListed.incrementAndGet();
+    return listing;
+  }
+
+  private boolean isReusable(Listing listing) {
+    return listing.listedAt - listing.dirLastModified > MTIME_RESOLUTION_MSECS;
+  }
+
+  /**
+   * Get the listings of several directories, concurrently if more than one thread is configured.
+   *
+   * @param dirList the directories
+   * @return listings in the same order as dirList; null where the directory cant be read
+   */
+  public List<Listing> list(List<Path> dirList) {
+    List<Listing> result = new ArrayList<>(dirList.size());
+    ExecutorService exec = (dirList.size() > 1) ? getPool() : null;
+
+    if (exec == null) {
+      for (Path dir : dirList)
+        result.add(listOrNull(dir));
+      return result;
+    }
+
+    List<Future<Listing>> futures = new ArrayList<>(dirList.size());
+    for (Path dir : dirList)
+      futures.add(exec.submit(() -> listOrNull(dir)));
+    for (Future<Listing> f : futures) {
+      try {
+        result.add(f.get());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        result.add(null);
+      } catch (ExecutionException e) {
+        logger.warn("DirectoryInventory list failed", e.getCause());
+        result.add(null);
+      }
+    }
+    return result;
+  }
+
+  private Listing listOrNull(Path dir) {
+    try {
+      return list(dir);
+    } catch (IOException e) {
+      logger.warn("Failed to list directory {}", dir, e);
+      return null;
+    }
+  }
+
+  /**
+   * Visit all files under the top directory, listing each level of subdirectories concurrently.
+   * Directories are visited level by level, in the order they are listed, so the result is deterministic.
+   *
+   * @param top top directory
+   * @param recurse descend into subdirectories
+   * @param visit called for each file (not directory), on the calling thread
+   */
+  public void walk(Path top, boolean recurse, Visitor visit) {
+    walk(top, recurse ? Integer.MAX_VALUE : 0, visit);
+  }
+
+  /**
+   * Visit all files under the top directory, down to maxDepth levels of subdirectories.
+   *
+   * @param top top directory
+   * @param maxDepth number of subdirectory levels to descend into, 0 for only the files in top
+   * @param visit called for each file (not directory), on the calling thread
+   */
+  public void walk(Path top, int maxDepth, Visitor visit) {
+    Set<String> visited = new HashSet<>();
+    List<Path> level = Collections.singletonList(top);
+    for (int depth = 0; !level.isEmpty(); depth++) {
+      List<Listing> listings = list(level);
+      List<Path> nextLevel = new ArrayList<>();
+      for (int i = 0; i < level.size(); i++) {
+        Listing listing = listings.get(i);
+        if (listing == null)
+          continue;
+        Path dir = level.get(i);
+        visited.add(dir.toString());
+        for (Entry e : listing.entries) {
+          Path p = dir.resolve(e.name);
+          if (e.isDirectory) {
+            if (depth < maxDepth)
+              nextLevel.add(p);
+          } else {
+            visit.consume(e.makeMFile(p));
+          }
+        }
+      }
+      level = nextLevel;
+    }
+
+    if (maxDepth == Integer.MAX_VALUE) // forget directories under top that no longer exist
+      removeStale(top, visited);
+  }
+
+  private void removeStale(Path top, Set<String> visited) {
+    String prefix = top.toString() + File.separator;
+    if (dirs.keySet().removeIf(key -> key.startsWith(prefix) && !visited.contains(key)))
+      dirty.set(true);
+  }
+
+  public interface Visitor {
+    void consume(MFile mfile);
+  }
+
+  private synchronized ExecutorService getPool() {
+    if (nthreads <= 1)
+      return null;
+    if (pool == null) {
+      AtomicInteger count = new AtomicInteger();
+      pool = Executors.newFixedThreadPool(nthreads, r -> {
+        Thread t = new Thread(r, "DirectoryInventory-" + count.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+      });
+    }
+    return pool;
+  }
+
+  @Override
+  public synchronized void close() {
+    if (pool != null)
+      pool.shutdown();
+    pool = null;
+  }
+
+  ////////////////////////////////////////////////////////////////////////////////////
+  // persistence
+
+  /**
+   * Write the snapshot file, if there is one and a listing changed since it was read or written.
+   * The file is replaced atomically.
+   *
+   * @throws IOException on write error
+   */
+  public synchronized void write() throws IOException {
+    if (snapshotFile == null || !dirty.getAndSet(false))
+      return;
+    Path parent = snapshotFile.toAbsolutePath().getParent();
+    Files.createDirectories(parent);
+    // a unique temp file in the same directory, so JVMs sharing the snapshot dont collide
+    Path tmp = Files.createTempFile(parent, snapshotFile.getFileName().toString(), ".tmp");
+    try {
+      writeTo(tmp);
+      Files.move(tmp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException | RuntimeException e) {
+      dirty.set(true);
+      Files.deleteIfExists(tmp);
+      throw e;
+    }
+  }
+
+  /** True if a listing changed since the snapshot was read or written. */
+  public boolean isDirty() {
+    return dirty.get();
+  }
+
+  private void writeTo(Path tmp) throws IOException {
+    Map<String, Listing> copy = new TreeMap<>(dirs);
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+      out.writeUTF(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(copy.size());
+      for (Map.Entry<String, Listing> me : copy.entrySet()) {
+        Listing listing = me.getValue();
+        out.writeUTF(me.getKey());
+        out.writeLong(listing.dirLastModified);
+        out.writeLong(listing.listedAt);
+        out.writeInt(listing.entries.size());
+        for (Entry e : listing.entries) {
+          out.writeUTF(e.name);
+          out.writeBoolean(e.isDirectory);
+          out.writeLong(e.size);
+          out.writeLong(e.lastModified);
+        }
+      }
+    }
+  }
+
+  private void read() throws IOException {
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotFile)))) {
+      if (!MAGIC.equals(in.readUTF()) || in.readInt() != VERSION)
+        throw new IOException("Not a DirectoryInventory snapshot, or wrong version: " + snapshotFile);
+      int ndirs = in.readInt();
+      for (int i = 0; i < ndirs; i++) {
+        String dir = in.readUTF();
+        long dirLastModified = in.readLong();
+        long listedAt = in.readLong();
+        int n = in.readInt();
+        List<Entry> entries = new ArrayList<>(n);
+        for (int j = 0; j < n; j++)
+          entries.add(new Entry(in.readUTF(), in.readBoolean(), in.readLong(), in.readLong()));
+        dirs.put(dir, new Listing(dirLastModified, listedAt, entries));
+      }
+    }
+  }
+
+  ////////////////////////////////////////////////////////////////////////////////////
+
+  /** Number of directories read from the file system. */
+  public int getCountListed() {
+    return countListed.get();
+  }
+
+  /** Number of directories whose saved listing was used. */
+  public int getCountReused() {
+    return countReused.get();
+  }
+
+  public int getNumberOfDirectories() {
+    return dirs.size();
+  }
+
+  public void showStatus(Formatter f) {
+    f.format("DirectoryInventory %s ndirs=%d listed=%d reused=%d threads=%d%n", snapshotFile, dirs.size(),
+        countListed.get(), countReused.get(), nthreads);
+  }
+
+  /** The contents of one directory. */
+  public static class Listing {
+    public final long dirLastModified;
+    public final long listedAt;
+    public final List<Entry> entries;
+
+    Listing(long dirLastModified, long listedAt, List<Entry> entries) {
+      this.dirLastModified = dirLastModified;
+      this.listedAt = listedAt;
+      this.entries = Collections.unmodifiableList(entries);
+    }
+  }
+
+  /** One file or subdirectory in a directory. */
+  public static class Entry implements BasicFileAttributes {
+    public final String name;
+    public final boolean isDirectory;
+    public final long size;
+    public final long lastModified;
+
+    Entry(String name, boolean isDirectory, long size, long lastModified) {
+      this.name = name;
+      this.isDirectory = isDirectory;
+      this.size = size;
+      this.lastModified = lastModified;
+    }
+
+    public MFile makeMFile(Path path) {
+      return new MFileOS7(path, this);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o)
+        return true;
+      if (o == null || getClass() != o.getClass())
+        return false;
+      Entry entry = (Entry) o;
+      return isDirectory == entry.isDirectory && size == entry.size && lastModified == entry.lastModified
+          && name.equals(entry.name);
+    }
+
+    @Override
+    public int hashCode() {
+      int result = name.hashCode();
+      result = 31 * result + Long.hashCode(size);
+      result = 31 * result + Long.hashCode(lastModified);
+      return result;
+    }
+
+    @Override
+    public FileTime lastModifiedTime() {
+      return FileTime.fromMillis(lastModified);
+    }
+
+    @Override
+    public FileTime lastAccessTime() {
+      return lastModifiedTime();
+    }
+
+    @Override
+    public FileTime creationTime() {
+      return lastModifiedTime();
+    }
+
+    @Override
+    public boolean isRegularFile() {
+      return !isDirectory;
+    }
+
+    @Override
+    public boolean isDirectory() {
+      return isDirectory;
+    }
+
+    @Override
+    public boolean isSymbolicLink() {
+      return false;
+    }
+
+    @Override
+    public boolean isOther() {
+      return false;
+    }
+
+    @Override
+    public long size() {
+      return size;
+    }
+
+    @Override
+    public Object fileKey() {
+      return null;
+    }
+  }
+
+}
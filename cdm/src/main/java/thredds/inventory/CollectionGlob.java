@@ -6,6 +6,7 @@
 package thredds.inventory;
 
 import org.slf4j.Logger;
+import thredds.filesystem.DirectoryInventory;
 import thredds.filesystem.MFileOS7;
 import ucar.nc2.util.CloseableIterator;
 import java.io.IOException;
@@ -79,7 +80,7 @@ public class CollectionGlob extends CollectionAbstract {
 
   @Override
   public void close() {
-
+    DirectoryInventory.writeDefault();
   }
 
   @Override
@@ -89,6 +90,15 @@ public class CollectionGlob extends CollectionAbstract {
 
   @Override
   public CloseableIterator<MFile> getFileIterator() throws IOException {
+    DirectoryInventory inventory = DirectoryInventory.getDefault();
+    if (inventory != null) { // unchanged directories are not rescanned
+      List<MFile> result = new ArrayList<>();
+      inventory.walk(Paths.get(this.root), depth, mfile -> {
+        if (matcher.matches(Paths.get(mfile.getPath())))
+          result.add(mfile);
+      });
+      return new MFileIterator(result.iterator(), null);
+    }
     return new MyFileIterator(this.root);
   }
 
@@ -6,6 +6,7 @@ package thredds.inventory;
 
 import org.slf4j.Logger;
 import thredds.featurecollection.FeatureCollectionConfig;
+import thredds.filesystem.DirectoryInventory;
 import thredds.filesystem.MFileOS7;
 import ucar.nc2.util.CloseableIterator;
 import java.io.IOException;
@@ -45,7 +46,9 @@ public class CollectionPathMatcher extends CollectionAbstract {
   }
 
   @Override
-  public void close() {}
+  public void close() {
+    DirectoryInventory.writeDefault();
+  }
 
   @Override
   public Iterable<MFile> getFilesSorted() throws IOException {
@@ -54,9 +57,26 @@ public class CollectionPathMatcher extends CollectionAbstract {
 
   @Override
   public CloseableIterator<MFile> getFileIterator() throws IOException {
+    DirectoryInventory inventory = DirectoryInventory.getDefault();
+    if (inventory != null)
+      return new MFileIterator(listFromInventory(inventory).iterator(), null);
     return new AllFilesIterator();
   }
 
+  // use the saved listings of directories that havent changed, subject to specp and olderThan
+  private List<MFile> listFromInventory(DirectoryInventory inventory) {
+    List<MFile> result = new ArrayList<>();
+    long now = System.currentTimeMillis();
+    inventory.walk(rootPath, wantSubdirs, mfile -> {
+      if (!matcher.matches(Paths.get(mfile.getPath())))
+        return;
+      if (olderThanMillis > 0 && now - mfile.getLastModified() < olderThanMillis)
+        return;
+      result.add(mfile);
+    });
+    return result;
+  }
+
   // could also use Files.walkFileTree
   // returns everything defined by specp, checking olderThanMillis, descends into subdirs as needed
   private class AllFilesIterator implements CloseableIterator<MFile> {
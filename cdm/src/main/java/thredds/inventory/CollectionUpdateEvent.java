@@ -2,10 +2,15 @@
 package thredds.inventory;
 
 import javax.annotation.concurrent.Immutable;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * Events when a fc should be updated.
  * guava.EventBus wires together listeners and sources, and
+ * <p/>
+ * When the change comes from a CollectionWatcher, the files that were added, modified or removed are included,
+ * so the collection can be updated incrementally.
  *
  * @author caron
  * @since 6/30/2015
@@ -15,11 +20,22 @@ public class CollectionUpdateEvent {
   private final CollectionUpdateType type;
   private final String collectionName;
   private final String source;
+  private final List<MFile> added;
+  private final List<MFile> modified;
+  private final List<MFile> removed;
 
   public CollectionUpdateEvent(CollectionUpdateType type, String collectionName, String source) {
+    this(type, collectionName, source, Collections.emptyList(), Collections.emptyList(), Collections.emptyList());
+  }
+
+  public CollectionUpdateEvent(CollectionUpdateType type, String collectionName, String source, List<MFile> added,
+      List<MFile> modified, List<MFile> removed) {
     this.type = type;
     this.collectionName = collectionName;
     this.source = source;
+    this.added = Collections.unmodifiableList(added);
+    this.modified = Collections.unmodifiableList(modified);
+    this.removed = Collections.unmodifiableList(removed);
   }
 
   public CollectionUpdateType getType() {
@@ -30,8 +46,32 @@ public class CollectionUpdateEvent {
     return collectionName;
   }
 
+  public String getSource() {
+    return source;
+  }
+
+  /** Files added to the collection, may be empty */
+  public List<MFile> getAdded() {
+    return added;
+  }
+
+  /** Files in the collection that have been modified, may be empty */
+  public List<MFile> getModified() {
+    return modified;
+  }
+
+  /** Files removed from the collection, may be empty */
+  public List<MFile> getRemoved() {
+    return removed;
+  }
+
+  public boolean hasFileChanges() {
+    return !added.isEmpty() || !modified.isEmpty() || !removed.isEmpty();
+  }
+
   @Override
   public String toString() {
-    return collectionName + ": " + type + "source='" + source;
+    return collectionName + ": " + type + "source='" + source + "' added=" + added.size() + " modified="
+        + modified.size() + " removed=" + removed.size();
   }
 }
@@ -0,0 +1,293 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package thredds.inventory;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Watches the directories of an MFileCollectionManager with a java.nio.file.WatchService, and updates the collection
+ * incrementally as files are added, modified or deleted, instead of rescanning on a schedule.
+ * <p/>
+ * Changes are collected until no new events have arrived for settleMsecs, then applied with
+ * MFileCollectionManager.updateFiles(), and a CollectionUpdateEvent with the changed files is sent to the listeners.
+ * Since events can be lost (OVERFLOW, network file systems that dont report changes), a full scan is also done
+ * every fullScanMsecs, and whenever an OVERFLOW is seen.
+ * <p/>
+ * Call start() to process events on a background thread, or drive poll(), flush() and rescan() directly.
+ *
+ * @since 10/19/2026
+ */
+@ThreadSafe
+public class CollectionWatcher implements Closeable {
+  private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(CollectionWatcher.class);
+
+  public interface Listener {
+    void handleCollectionUpdate(CollectionUpdateEvent event);
+  }
+
+  private final MFileCollectionManager dcm;
+  private final long settleMsecs;
+  private final long fullScanMsecs;
+  private final WatchService watcher;
+  private final Map<WatchKey, Path> keys = new HashMap<>();
+  private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+  // guarded by this
+  private final Set<Path> pending = new LinkedHashSet<>();
+  private long lastEvent;
+  private long lastFullScan;
+  private boolean needFullScan;
+
+  private volatile Thread thread;
+
+  /**
+   * Constructor. Registers all the directories of the collection.
+   *
+   * @param dcm watch this collection
+   * @param settleMsecs wait until there have been no new events for this long before updating the collection
+   * @param fullScanMsecs do a full scan this often, in case events were missed; 0 for never
+   * @throws IOException if the WatchService cant be created
+   */
+  public CollectionWatcher(MFileCollectionManager dcm, long settleMsecs, long fullScanMsecs) throws IOException {
+    this.dcm = dcm;
+    this.settleMsecs = settleMsecs;
+    this.fullScanMsecs = fullScanMsecs;
+    this.watcher = FileSystems.getDefault().newWatchService();
+    this.lastFullScan = System.currentTimeMillis();
+
+    for (CollectionConfig mc : dcm.getScanList()) {
+      Path dir = MFileCollectionManager.getDirectory(mc);
+      if (Files.isDirectory(dir))
+        register(dir, mc.wantSubdirs(), false);
+      else
+        logger.warn("{}: CollectionWatcher cant watch {}", dcm.getCollectionName(), dir);
+    }
+  }
+
+  public void addListener(Listener l) {
+    listeners.add(l);
+  }
+
+  public void removeListener(Listener l) {
+    listeners.remove(l);
+  }
+
+  // register the directory, and its subdirectories if wanted. if addFiles, existing files are pending
+  private synchronized void register(Path dir, boolean recurse, boolean addFiles) throws IOException {
+    if (!recurse) {
+      keys.put(dir.register(watcher, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY), dir);
+      if (addFiles)
+        addFilesInDirectory(dir);
+      return;
+    }
+
+    Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult preVisitDirectory(Path d, BasicFileAttributes attrs) throws IOException {
+        keys.put(d.register(watcher, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY), d);
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+        if (addFiles) // files may have been created before the directory was registered
+          pending.add(file);
+        return FileVisitResult.CONTINUE;
+      }
+    });
+  }
+
+  private void addFilesInDirectory(Path dir) throws IOException {
+    try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir)) {
+      for (Path p : ds)
+        if (!Files.isDirectory(p))
+          pending.add(p);
+    }
+  }
+
+  /**
+   * Wait up to waitMsecs for file system events, and add them to the pending changes.
+   *
+   * @param waitMsecs wait this long for the first event
+   * @return number of events received
+   */
+  public int poll(long waitMsecs) throws InterruptedException {
+    WatchKey key = watcher.poll(waitMsecs, java.util.concurrent.TimeUnit.MILLISECONDS);
+    int count = 0;
+    while (key != null) {
+      count += processKey(key);
+      key = watcher.poll(); // anything else thats ready
+    }
+    return count;
+  }
+
+  private synchronized int processKey(WatchKey key) {
+    Path dir = keys.get(key);
+    if (dir == null) {
+      key.cancel();
+      return 0;
+    }
+
+    int count = 0;
+    for (WatchEvent<?> event : key.pollEvents()) {
+      count++;
+      if (event.kind() == OVERFLOW) {
+        needFullScan = true;
+        continue;
+      }
+      Path p = dir.resolve((Path) event.context());
+      if (event.kind() == ENTRY_CREATE && Files.isDirectory(p, LinkOption.NOFOLLOW_LINKS)) {
+        if (wantSubdirs(dir)) {
+          try {
+            register(p, true, true);
+          } catch (IOException e) {
+            logger.warn("{}: CollectionWatcher failed to register {}", dcm.getCollectionName(), p, e);
+            needFullScan = true;
+          }
+        }
+      } else {
+        pending.add(p);
+      }
+    }
+    lastEvent = System.currentTimeMillis();
+
+    if (!key.reset()) { // directory is gone; files in it were reported as deleted, or are found by a full scan
+      keys.remove(key);
+      needFullScan = true;
+    }
+    return count;
+  }
+
+  private boolean wantSubdirs(Path dir) {
+    for (CollectionConfig mc : dcm.getScanList())
+      if (mc.wantSubdirs() && dir.startsWith(MFileCollectionManager.getDirectory(mc)))
+        return true;
+    return false;
+  }
+
+  /** Number of files with changes that have not yet been applied */
+  public synchronized int getPendingCount() {
+    return pending.size();
+  }
+
+  /**
+   * Apply the pending changes to the collection, and notify the listeners.
+   *
+   * @return the changes, or null if nothing changed
+   */
+  public CollectionUpdateEvent flush() throws IOException {
+    List<Path> paths;
+    synchronized (this) {
+      if (pending.isEmpty())
+        return null;
+      paths = new ArrayList<>(pending);
+      pending.clear();
+    }
+
+    CollectionUpdateEvent event = dcm.updateFiles(paths, true);
+    if (event != null)
+      sendEvent(event);
+    return event;
+  }
+
+  /**
+   * Rescan the entire collection, and notify the listeners of any changes.
+   *
+   * @return the changes, or null if nothing changed
+   */
+  public CollectionUpdateEvent rescan() throws IOException {
+    synchronized (this) {
+      pending.clear(); // the scan sees them
+      needFullScan = false;
+      lastFullScan = System.currentTimeMillis();
+    }
+
+    Map<String, MFile> before = new HashMap<>();
+    for (MFile mfile : dcm.getFilesSorted())
+      before.put(mfile.getPath(), mfile);
+    if (!dcm.scan(true))
+      return null;
+
+    List<MFile> added = new ArrayList<>();
+    List<MFile> modified = new ArrayList<>();
+    for (MFile mfile : dcm.getFilesSorted()) {
+      MFile old = before.remove(mfile.getPath());
+      if (old == null)
+        added.add(mfile);
+      else if (mfile.getLastModified() > old.getLastModified())
+        modified.add(mfile);
+    }
+    List<MFile> removed = new ArrayList<>(before.values());
+
+    CollectionUpdateEvent event = new CollectionUpdateEvent(CollectionUpdateType.test, dcm.getCollectionName(),
+        "rescan", added, modified, removed);
+    sendEvent(event);
+    return event;
+  }
+
+  private void sendEvent(CollectionUpdateEvent event) {
+    for (Listener l : listeners) {
+      try {
+        l.handleCollectionUpdate(event);
+      } catch (Throwable t) {
+        logger.error("{}: CollectionWatcher listener failed", dcm.getCollectionName(), t);
+      }
+    }
+  }
+
+  ////////////////////////////////////////////////////////////////////////////////////////
+  // background thread
+
+  /** Process events on a background daemon thread, until close() is called. */
+  public synchronized void start() {
+    if (thread != null)
+      return;
+    thread = new Thread(this::run, "CollectionWatcher-" + dcm.getCollectionName());
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  private void run() {
+    while (thread != null) {
+      try {
+        poll(settleMsecs);
+        long now = System.currentTimeMillis();
+        boolean doFullScan, doFlush;
+        synchronized (this) {
+          doFullScan = needFullScan || (fullScanMsecs > 0 && now - lastFullScan >= fullScanMsecs);
+          doFlush = !pending.isEmpty() && now - lastEvent >= settleMsecs;
+        }
+        if (doFullScan)
+          rescan();
+        else if (doFlush)
+          flush();
+
+      } catch (InterruptedException | ClosedWatchServiceException e) {
+        break;
+      } catch (Throwable t) {
+        logger.error("{}: CollectionWatcher failed", dcm.getCollectionName(), t);
+      }
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    Thread t = thread;
+    thread = null;
+    if (t != null)
+      t.interrupt();
+    watcher.close();
+  }
+
+}
@@ -7,12 +7,17 @@ package thredds.inventory;
 
 import thredds.featurecollection.FeatureCollectionConfig;
 import thredds.filesystem.MFileOS;
+import thredds.filesystem.MFileOS7;
 import thredds.inventory.filter.*;
 import ucar.nc2.time.CalendarDate;
 import ucar.nc2.units.TimeDuration;
+import ucar.unidata.util.StringUtil2;
 import javax.annotation.concurrent.GuardedBy;
 import javax.annotation.concurrent.ThreadSafe;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -36,6 +41,7 @@ public class MFileCollectionManager extends CollectionManagerAbstract {
 
   /**
    * Set the MController used by scan. Defaults to thredds.filesystem.ControllerOS() if not set.
+   * Use thredds.filesystem.ControllerParallel for large directory trees.
    *
    * @param _controller use this MController
    */
@@ -421,6 +427,108 @@ public class MFileCollectionManager extends CollectionManagerAbstract {
     return changed;
   }
 
+  /**
+   * Update the collection from changes to individual files, without rescanning the directories.
+   * Each path is checked against the file system: if it exists and passes the collection filter it is added or
+   * (if its last modified time changed) replaced, otherwise it is removed.
+   * New files that are too recently modified (olderThan) are left out, to be found by a later update or scan.
+   * If anything changes and sendEvent is true, a TriggerEvent is sent, same as scan().
+   *
+   * @param paths files that may have been created, modified or deleted
+   * @param sendEvent send TriggerEvent if anything changed
+   * @return what changed, or null if nothing did
+   */
+  public synchronized CollectionUpdateEvent updateFiles(Collection<Path> paths, boolean sendEvent) throws IOException {
+    if (map == null) { // never scanned, so the first scan gets everything
+      scan(sendEvent);
+      return null;
+    }
+
+    long olderThan = (olderThanInMsecs <= 0) ? -1 : System.currentTimeMillis() - olderThanInMsecs;
+    Map<String, MFile> newMap = new HashMap<>(map);
+    List<MFile> added = new ArrayList<>();
+    List<MFile> modified = new ArrayList<>();
+    List<MFile> removed = new ArrayList<>();
+
+    for (Path p : paths) {
+      CollectionConfig mc = findCollectionConfig(p);
+      MFile newFile = null;
+      if (mc != null && Files.isRegularFile(p)) {
+        try {
+          newFile = new MFileOS7(p);
+          newFile.setAuxInfo(mc.getAuxInfo());
+          if (!mc.accept(newFile))
+            newFile = null;
+        } catch (IOException ioe) { // deleted in the meantime
+          newFile = null;
+        }
+      }
+
+      String path = StringUtil2.replace(p.toString(), '\\', "/");
+      MFile oldFile = newMap.get(path);
+      if (newFile == null) {
+        if (oldFile != null) {
+          newMap.remove(path);
+          removed.add(oldFile);
+          logger.debug("{}: update found deleted Dataset={}", collectionName, path);
+        }
+
+      } else if (oldFile == null) {
+        if (olderThan > 0 && newFile.getLastModified() > olderThan) {
+          logger.debug("{}: update found new Dataset but its too recently modified = {}", collectionName, path);
+        } else {
+          newMap.put(path, newFile);
+          added.add(newFile);
+          logger.debug("{}: update found new Dataset= {} ", collectionName, path);
+        }
+
+      } else if (newFile.getLastModified() > oldFile.getLastModified()) {
+        newMap.put(path, newFile);
+        modified.add(newFile);
+        logger.debug("{}: update found Dataset changed= {}", collectionName, path);
+      }
+    }
+
+    boolean changed = !added.isEmpty() || !modified.isEmpty() || !removed.isEmpty();
+    if (!changed)
+      return null;
+
+    if (logger.isInfoEnabled())
+      logger.info("{}: update found changes {}: nnew={}, nchange={}, ndelete={}", collectionName, new Date(),
+          added.size(), modified.size(), removed.size());
+    map = newMap;
+    this.lastChanged.set(System.currentTimeMillis());
+
+    if (sendEvent) // event is processed on this thread
+      sendEvent(new TriggerEvent(this, CollectionUpdateType.always));
+
+    return new CollectionUpdateEvent(CollectionUpdateType.test, collectionName, "updateFiles", added, modified,
+        removed);
+  }
+
+  // the scan that would find this file, or null if none
+  private CollectionConfig findCollectionConfig(Path p) {
+    Path parent = p.getParent();
+    for (CollectionConfig mc : scanList) {
+      Path dir = getDirectory(mc);
+      if (parent.equals(dir) || (mc.wantSubdirs() && parent.startsWith(dir)))
+        return mc;
+    }
+    return null;
+  }
+
+  static Path getDirectory(CollectionConfig mc) {
+    String dirName = mc.getDirectoryName();
+    if (dirName.startsWith("file:"))
+      dirName = dirName.substring(5);
+    return Paths.get(dirName);
+  }
+
+  // the directory scans, for CollectionWatcher
+  List<CollectionConfig> getScanList() {
+    return scanList;
+  }
+
   public void setFiles(Iterable<MFile> files) {
     Map<String, MFile> newMap = new HashMap<>();
     for (MFile file : files)
@@ -5,6 +5,7 @@
 package thredds.inventory.partition;
 
 import thredds.featurecollection.FeatureCollectionConfig;
+import thredds.filesystem.DirectoryInventory;
 import thredds.inventory.CollectionUpdateType;
 import thredds.inventory.MCollection;
 import thredds.inventory.MFile;
@@ -31,6 +32,7 @@ import java.util.List;
  * @since 11/10/13
  */
 public class DirectoryBuilder {
+  private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(DirectoryBuilder.class);
 
   // returns a DirectoryPartition or DirectoryCollection
   public static MCollection factory(FeatureCollectionConfig config, Path topDir, boolean isTop, IndexReader indexReader,
@@ -244,6 +246,22 @@ public class DirectoryBuilder {
       System.out.printf("DirectoryBuilder.scanForChildren on %s ", dir);
 
     int count = 0;
+    DirectoryInventory inventory = DirectoryInventory.getDefault();
+    if (inventory != null) { // unchanged directories are not rescanned
+      try {
+        List<DirectoryBuilder> found = new ArrayList<>();
+        for (DirectoryInventory.Entry e : inventory.list(dir).entries) {
+          if (e.isDirectory)
+            found.add(new DirectoryBuilder(topCollectionName, dir.resolve(e.name), e, suffix));
+        }
+        children.addAll(found);
+        childrenConstructed = true;
+        return;
+      } catch (IOException e) {
+        logger.warn("DirectoryInventory failed to list {}; scanning the directory", dir, e);
+      }
+    }
+
     try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir)) {
       for (Path p : ds) {
         BasicFileAttributes attr = Files.readAttributes(p, BasicFileAttributes.class);
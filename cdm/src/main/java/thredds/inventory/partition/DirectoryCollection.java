@@ -5,6 +5,7 @@
 
 package thredds.inventory.partition;
 
+import thredds.filesystem.DirectoryInventory;
 import thredds.filesystem.MFileOS7;
 import thredds.inventory.CollectionAbstract;
 import thredds.inventory.MFile;
@@ -99,13 +100,51 @@ public class DirectoryCollection extends CollectionAbstract {
 
   @Override
   public CloseableIterator<MFile> getFileIterator() throws IOException {
+    DirectoryInventory inventory = DirectoryInventory.getDefault();
+    if (inventory != null)
+      return new MFileListIterator(listFromInventory(inventory, olderThanMillis));
     return new MyFileIterator(collectionDir);
   }
 
+  // use the saved listing if the directory hasnt changed, subject to sfilter and olderThan
+  private List<MFile> listFromInventory(DirectoryInventory inventory, long olderThanMillis) throws IOException {
+    List<MFile> result = new ArrayList<>();
+    MyStreamFilter filter = new MyStreamFilter();
+    long now = System.currentTimeMillis();
+    for (DirectoryInventory.Entry e : inventory.list(collectionDir).entries) {
+      if (e.isDirectory || now - e.lastModified < olderThanMillis)
+        continue;
+      Path p = collectionDir.resolve(e.name);
+      if (filter.accept(p))
+        result.add(e.makeMFile(p));
+    }
+    return result;
+  }
+
+  private static class MFileListIterator implements CloseableIterator<MFile> {
+    private final Iterator<MFile> iter;
+
+    MFileListIterator(List<MFile> list) {
+      this.iter = list.iterator();
+    }
+
+    public boolean hasNext() {
+      return iter.hasNext();
+    }
+
+    public MFile next() {
+      return iter.next();
+    }
+
+    public void close() {}
+  }
+
   @Override
   public void close() {
     if (debug)
       System.out.printf("Close DirectoryCollection %s%n", collectionName);
+    if (isTop) // the scan is done, save the listings for the next one
+      DirectoryInventory.writeDefault();
   }
 
   // returns everything in the current directory, subject to sfilter
@@ -187,6 +226,13 @@ public class DirectoryCollection extends CollectionAbstract {
     if (debug)
       System.out.printf(" iterateOverMFileCollection %s ", collectionDir);
     int count = 0;
+    DirectoryInventory inventory = DirectoryInventory.getDefault();
+    if (inventory != null) {
+      for (MFile mfile : listFromInventory(inventory, 0))
+        visit.consume(mfile);
+      return;
+    }
+
     try (DirectoryStream<Path> ds = Files.newDirectoryStream(collectionDir, new MyStreamFilter())) {
       for (Path p : ds) {
         try {
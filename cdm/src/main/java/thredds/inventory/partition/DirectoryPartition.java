@@ -5,6 +5,7 @@
 package thredds.inventory.partition;
 
 import thredds.featurecollection.FeatureCollectionConfig;
+import thredds.filesystem.DirectoryInventory;
 import thredds.inventory.*;
 import ucar.nc2.util.CloseableIterator;
 import java.io.IOException;
@@ -111,7 +112,8 @@ public class DirectoryPartition extends CollectionAbstract implements PartitionM
 
   @Override
   public void close() {
-    // noop
+    if (isTop) // the scan is done, save the listings for the next one
+      DirectoryInventory.writeDefault();
   }
 
   /////////////////////////////////////////////////////////////
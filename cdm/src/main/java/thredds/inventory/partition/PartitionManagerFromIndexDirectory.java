@@ -6,6 +6,7 @@
 package thredds.inventory.partition;
 
 import thredds.featurecollection.FeatureCollectionConfig;
+import thredds.filesystem.DirectoryInventory;
 import thredds.filesystem.MFileOS7;
 import thredds.inventory.*;
 import ucar.nc2.util.CloseableIterator;
@@ -33,15 +34,33 @@ public class PartitionManagerFromIndexDirectory extends CollectionAbstract imple
     this.root = directory.getPath();
     this.partIndexFiles = new ArrayList<>();
 
-    File[] files = directory.listFiles((dir, name1) -> name1.endsWith(suffix));
-    if (files != null) {
-      Collections.addAll(partIndexFiles, files);
+    DirectoryInventory inventory = DirectoryInventory.getDefault();
+    if (inventory == null || !listFromInventory(inventory, directory, suffix)) {
+      File[] files = directory.listFiles((dir, name1) -> name1.endsWith(suffix));
+      if (files != null) {
+        Collections.addAll(partIndexFiles, files);
+      }
     }
 
     this.putAuxInfo(FeatureCollectionConfig.AUX_CONFIG, config);
 
   }
 
+  // use the saved listing if the directory hasnt changed
+  private boolean listFromInventory(DirectoryInventory inventory, File directory, String suffix) {
+    try {
+      for (DirectoryInventory.Entry e : inventory.list(directory.toPath()).entries) {
+        if (e.name.endsWith(suffix))
+          partIndexFiles.add(new File(directory, e.name));
+      }
+      return true;
+    } catch (IOException e) {
+      logger.warn("DirectoryInventory failed to list {}; scanning the directory", directory, e);
+      partIndexFiles.clear();
+      return false;
+    }
+  }
+
   public Iterable<MCollection> makePartitions(CollectionUpdateType forceCollection) {
     return new PartIterator();
   }
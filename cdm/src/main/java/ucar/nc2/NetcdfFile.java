@@ -14,6 +14,7 @@ import ucar.ma2.Section;
 import ucar.ma2.StructureDataIterator;
 import ucar.nc2.iosp.AbstractIOServiceProvider;
 import ucar.nc2.iosp.IOServiceProvider;
+import ucar.nc2.iosp.IospDispatcher;
 import ucar.nc2.iosp.IospHelper;
 import ucar.nc2.iosp.netcdf3.N3header;
 import ucar.nc2.iosp.netcdf3.N3iosp;
@@ -27,7 +28,7 @@ import ucar.nc2.util.Indent;
 import ucar.nc2.util.rc.RC;
 import ucar.unidata.io.InMemoryRandomAccessFile;
 import ucar.unidata.io.UncompressInputStream;
-import ucar.unidata.io.bzip2.CBZip2InputStream;
+import ucar.unidata.io.bzip2.BZip2InputStream;
 import ucar.unidata.util.StringUtil2;
 import java.io.*;
 import java.net.URI;
@@ -528,21 +529,7 @@ public class NetcdfFile implements ucar.nc2.util.cache.FileCacheable, Closeable
   }
 
   private static boolean canOpen(ucar.unidata.io.RandomAccessFile raf) throws IOException {
-    if (N3header.isValidFile(raf)) {
-      return true;
-    } else {
-      for (IOServiceProvider iosp : ServiceLoader.load(IOServiceProvider.class)) {
-        log.info("ServiceLoader IOServiceProvider {}", iosp.getClass().getName());
-        if (iosp.isValidFile(raf)) {
-          return true;
-        }
-      }
-      for (IOServiceProvider registeredSpi : registeredProviders) {
-        if (registeredSpi.isValidFile(raf))
-          return true;
-      }
-    }
-    return false;
+    return N3header.isValidFile(raf) || IospDispatcher.findProvider(raf, registeredProviders) != null;
   }
 
   /**
@@ -754,7 +741,7 @@ public class NetcdfFile implements ucar.nc2.util.cache.FileCacheable, Closeable
           }
 
         } else if (suffix.equalsIgnoreCase("bz2")) {
-          try (InputStream in = new CBZip2InputStream(new FileInputStream(filename), true)) {
+          try (InputStream in = new BZip2InputStream(new FileInputStream(filename), true)) {
             copy(in, fout, 100000);
           }
           if (debugCompress)
@@ -877,41 +864,21 @@ public class NetcdfFile implements ucar.nc2.util.cache.FileCacheable, Closeable
 
     } else {
 
-      // look for dynamically loaded IOSPs
-      for (IOServiceProvider currentSpi : ServiceLoader.load(IOServiceProvider.class)) {
-        if (currentSpi.isValidFile(raf)) {
-          Class c = currentSpi.getClass();
-          try {
-            spi = (IOServiceProvider) c.newInstance();
-          } catch (InstantiationException e) {
-            throw new IOException("IOServiceProvider " + c.getName() + "must have no-arg constructor."); // shouldnt
-                                                                                                         // happen
-          } catch (IllegalAccessException e) {
-            throw new IOException("IOServiceProvider " + c.getName() + " IllegalAccessException: " + e.getMessage()); // shouldnt
-                                                                                                                      // happen
-          }
-          break;
-        }
-      }
-
-      // look for registered providers
-      for (IOServiceProvider registeredSpi : registeredProviders) {
+      // registered providers first, then dynamically loaded IOSPs, skipping those whose signature doesnt match
+      IOServiceProvider found = IospDispatcher.findProvider(raf, registeredProviders);
+      if (found != null) {
         if (debugSPI)
-          log.info(" try iosp = {}", registeredSpi.getClass().getName());
-
-        if (registeredSpi.isValidFile(raf)) {
-          // need a new instance for thread safety
-          Class c = registeredSpi.getClass();
-          try {
-            spi = (IOServiceProvider) c.newInstance();
-          } catch (InstantiationException e) {
-            throw new IOException("IOServiceProvider " + c.getName() + "must have no-arg constructor."); // shouldnt
-                                                                                                         // happen
-          } catch (IllegalAccessException e) {
-            throw new IOException("IOServiceProvider " + c.getName() + " IllegalAccessException: " + e.getMessage()); // shouldnt
-                                                                                                                      // happen
-          }
-          break;
+          log.info(" found iosp = {}", found.getClass().getName());
+        // need a new instance for thread safety
+        Class c = found.getClass();
+        try {
+          spi = (IOServiceProvider) c.newInstance();
+        } catch (InstantiationException e) {
+          throw new IOException("IOServiceProvider " + c.getName() + "must have no-arg constructor."); // shouldnt
+                                                                                                       // happen
+        } catch (IllegalAccessException e) {
+          throw new IOException("IOServiceProvider " + c.getName() + " IllegalAccessException: " + e.getMessage()); // shouldnt
+                                                                                                                    // happen
         }
       }
     }
@@ -8,6 +8,7 @@ import ucar.ma2.*;
 import ucar.nc2.constants.CDM;
 import ucar.nc2.iosp.IOServiceProviderWriter;
 import ucar.nc2.iosp.hdf5.H5header;
+import ucar.nc2.iosp.hdf5.H5iospWriter;
 import ucar.nc2.iosp.netcdf3.N3header;
 import ucar.nc2.iosp.netcdf3.N3iosp;
 import ucar.nc2.iosp.netcdf3.N3raf;
@@ -99,6 +100,18 @@ public class NetcdfFileWriter implements Closeable {
     return new NetcdfFileWriter(null, location, true, null); // dont know the version yet
   }
 
+  private static volatile boolean useJavaNetcdf4Writer;
+
+  /**
+   * Write new netCDF-4 files with the pure Java H5iospWriter instead of the netCDF-C library.
+   * Default is false.
+   *
+   * @param useJava true to use the Java writer for netcdf4 and netcdf4_classic.
+   */
+  public static void setUseJavaNetcdf4Writer(boolean useJava) {
+    useJavaNetcdf4Writer = useJava;
+  }
+
   public static NetcdfFileWriter createNew(Version version, String location) throws IOException {
     return new NetcdfFileWriter(version, location, false, null);
   }
@@ -188,7 +201,11 @@ public class NetcdfFileWriter implements Closeable {
     this.version = version;
     this.location = location;
 
-    if (version.useJniIosp()) {
+    if (version.isNetdf4format() && !isExisting && useJavaNetcdf4Writer) {
+      H5iospWriter spi = new H5iospWriter(version);
+      spi.setChunker(chunker);
+      spiw = spi;
+    } else if (version.useJniIosp()) {
       IOServiceProviderWriter spi;
       try {
         // Nc4Iosp.setLibraryAndPath(path, name);
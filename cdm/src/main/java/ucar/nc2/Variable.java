@@ -10,6 +10,7 @@ import ucar.nc2.constants.CF;
 import ucar.nc2.iosp.IospHelper;
 import ucar.nc2.util.CancelTask;
 import ucar.nc2.util.Indent;
+import ucar.nc2.util.cache.SharedDataCache;
 import ucar.nc2.util.rc.RC;
 import java.io.OutputStream;
 import java.util.*;
@@ -86,6 +87,7 @@ public class Variable extends CDMNode implements VariableIF, ProxyReader, Attrib
 
   protected Cache cache = new Cache(); // cache cannot be null
   protected int sizeToCache = -1; // bytes
+  protected boolean sharedCaching = true; // may use the SharedDataCache
 
   protected ProxyReader proxyReader = this;
 
@@ -759,19 +761,32 @@ public class Variable extends CDMNode implements VariableIF, ProxyReader, Attrib
       return cache.data.copy();
     }
 
-    Array data = proxyReader.reallyRead(this, null);
-
     // optionally cache it
     if (isCaching()) {
+      // other files may have read it already
+      SharedDataCache shared = SharedDataCache.getInstance();
+      String sharedKey = getSharedCacheKey();
+      Array data = shared.get(sharedKey);
+      if (data == null)
+        data = shared.put(sharedKey, proxyReader.reallyRead(this, null));
       setCachedData(data);
       if (debugCaching)
         System.out.println("cache " + getFullName());
       return cache.data.copy(); // dont let users get their nasty hands on cached data
     } else {
-      return data;
+      return proxyReader.reallyRead(this, null);
     }
   }
 
+  // key in the SharedDataCache, or null if not used
+  private String getSharedCacheKey() {
+    if (!sharedCaching || ncfile == null || proxyReader != this || isMemberOfStructure()
+        || !SharedDataCache.getInstance().isEnabled())
+      return null;
+    return SharedDataCache.makeKey(ncfile.getLocation(), ncfile.getLastModified(), getFullName(),
+        getShapeAsSection().toString());
+  }
+
   /**
    * public by accident, do not call directly.
    *
@@ -1185,6 +1200,7 @@ public class Variable extends CDMNode implements VariableIF, ProxyReader, Attrib
     this.ncfile = from.ncfile;
     this.shape = from.getShape();
     this.sizeToCache = from.sizeToCache;
+    this.sharedCaching = from.sharedCaching;
     this.spiObject = from.spiObject;
   }
 
@@ -1536,6 +1552,20 @@ public class Variable extends CDMNode implements VariableIF, ProxyReader, Attrib
     return cache.isCaching;
   }
 
+  /**
+   * Set whether data cached by this Variable may be shared with other files through the SharedDataCache.
+   * Default is true; the SharedDataCache itself is disabled by default.
+   *
+   * @param sharedCaching false to opt out
+   */
+  public void setSharedCaching(boolean sharedCaching) {
+    this.sharedCaching = sharedCaching;
+  }
+
+  public boolean isSharedCaching() {
+    return sharedCaching;
+  }
+
   /**
    * Invalidate the data cache
    */
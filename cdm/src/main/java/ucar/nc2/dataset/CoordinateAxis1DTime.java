@@ -49,7 +49,7 @@ public class CoordinateAxis1DTime extends CoordinateAxis1D {
 
   ////////////////////////////////////////////////////////////////
   private final CoordinateAxisTimeHelper helper;
-  private List<CalendarDate> cdates;
+  private CalendarDateList cdates;
 
   // for section and slice
   @Override
@@ -67,13 +67,7 @@ public class CoordinateAxis1DTime extends CoordinateAxis1D {
   @Override
   public CoordinateAxis1DTime section(Range r) throws InvalidRangeException {
     CoordinateAxis1DTime s = (CoordinateAxis1DTime) super.section(r);
-    List<CalendarDate> cdates = getCalendarDates();
-
-    List<CalendarDate> cdateSection = new ArrayList<>(cdates.size());
-    for (int idx : r)
-      cdateSection.add(cdates.get(idx));
-
-    s.cdates = cdateSection;
+    s.cdates = cdates.section(r);
     return s;
   }
 
@@ -94,9 +88,8 @@ public class CoordinateAxis1DTime extends CoordinateAxis1D {
    * @return calendar date range
    */
   public CalendarDateRange getCalendarDateRange() {
-    List<CalendarDate> cd = getCalendarDates();
-    int last = cd.size();
-    return (last > 0) ? CalendarDateRange.of(cd.get(0), cd.get(last - 1)) : null;
+    int last = cdates.size();
+    return (last > 0) ? CalendarDateRange.of(cdates.get(0), cdates.get(last - 1)) : null;
   }
 
   @Override
@@ -136,14 +129,7 @@ public class CoordinateAxis1DTime extends CoordinateAxis1D {
    * @throws UnsupportedOperationException is no time axis or isDate() false
    */
   public int findTimeIndexFromCalendarDate(CalendarDate d) {
-    List<CalendarDate> cdates = getCalendarDates(); // LOOK linear search, switch to binary
-    int index = 0;
-    while (index < cdates.size()) {
-      if (d.compareTo(cdates.get(index)) < 0)
-        break;
-      index++;
-    }
-    return Math.max(0, index - 1);
+    return cdates.findIndex(d); // binary search if ascending
   }
 
   /**
@@ -153,16 +139,12 @@ public class CoordinateAxis1DTime extends CoordinateAxis1D {
    * @return true if equals a coordinate
    */
   public boolean hasCalendarDate(CalendarDate date) {
-    List<CalendarDate> cdates = getCalendarDates();
-    for (CalendarDate cd : cdates) { // LOOK linear search, switch to binary
-      if (date.equals(cd))
-        return true;
-    }
-    return false;
+    return cdates.contains(date); // binary search if ascending
   }
 
   /**
    * Get the list of datetimes in this coordinate as CalendarDate objects.
+   * The CalendarDates are created on demand from a compact representation.
    * 
    * @return list of CalendarDates.
    */
@@ -219,7 +201,7 @@ public class CoordinateAxis1DTime extends CoordinateAxis1D {
     }
   }
 
-  private List<CalendarDate> makeTimesFromChar(VariableDS org, Formatter errMessages) throws IOException {
+  private CalendarDateList makeTimesFromChar(VariableDS org, Formatter errMessages) throws IOException {
     int ncoords = (int) org.getSize();
     int rank = org.getRank();
     int strlen = org.getShape(rank - 1);
@@ -238,10 +220,10 @@ public class CoordinateAxis1DTime extends CoordinateAxis1D {
       result.add(cd);
     }
     setCachedData(sdata, true);
-    return result;
+    return CalendarDateList.of(result);
   }
 
-  private List<CalendarDate> makeTimesFromStrings(VariableDS org, Formatter errMessages) throws IOException {
+  private CalendarDateList makeTimesFromStrings(VariableDS org, Formatter errMessages) throws IOException {
 
     int ncoords = (int) org.getSize();
     List<CalendarDate> result = new ArrayList<>(ncoords);
@@ -254,7 +236,7 @@ public class CoordinateAxis1DTime extends CoordinateAxis1D {
       result.add(cd);
     }
 
-    return result;
+    return CalendarDateList.of(result);
   }
 
   private CalendarDate makeCalendarDateFromStringCoord(String coordValue, VariableDS org, Formatter errMessages) {
@@ -283,7 +265,7 @@ public class CoordinateAxis1DTime extends CoordinateAxis1D {
 
     // make the coordinates
     int ncoords = (int) org.getSize();
-    List<CalendarDate> result = new ArrayList<>(ncoords);
+    double[] result = new double[ncoords];
 
     Array data = org.read();
 
@@ -293,8 +275,7 @@ public class CoordinateAxis1DTime extends CoordinateAxis1D {
       double val = ii.getDoubleNext();
       if (Double.isNaN(val))
         continue; // WTF ??
-      result.add(helper.makeCalendarDateFromOffset(val));
-      count++;
+      result[count++] = val;
     }
 
     // if we encountered NaNs, shorten it up
@@ -320,7 +301,7 @@ public class CoordinateAxis1DTime extends CoordinateAxis1D {
       setCachedData(shortData, true);
     }
 
-    cdates = result;
+    cdates = helper.makeCalendarDates(count == ncoords ? result : Arrays.copyOf(result, count));
   }
 
   ///////////////////////////////////////////////////////
@@ -331,11 +312,9 @@ public class CoordinateAxis1DTime extends CoordinateAxis1D {
    * @deprecated use getCalendarDates() to correctly interpret calendars
    */
   public java.util.Date[] getTimeDates() {
-    List<CalendarDate> cdates = getCalendarDates();
     Date[] timeDates = new Date[cdates.size()];
-    int index = 0;
-    for (CalendarDate cd : cdates)
-      timeDates[index++] = cd.toDate();
+    for (int i = 0; i < timeDates.length; i++)
+      timeDates[i] = new Date(cdates.getMillis(i));
     return timeDates;
   }
 
@@ -373,9 +352,9 @@ public class CoordinateAxis1DTime extends CoordinateAxis1D {
    * @deprecated use hasCalendarDate
    */
   public boolean hasTime(Date date) {
-    List<CalendarDate> cdates = getCalendarDates();
-    for (CalendarDate cd : cdates) {
-      if (date.equals(cd.toDate()))
+    long want = date.getTime();
+    for (int i = 0; i < cdates.size(); i++) {
+      if (cdates.getMillis(i) == want)
         return true;
     }
     return false;
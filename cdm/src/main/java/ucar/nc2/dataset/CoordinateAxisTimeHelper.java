@@ -7,6 +7,7 @@ package ucar.nc2.dataset;
 
 import ucar.nc2.time.Calendar;
 import ucar.nc2.time.CalendarDate;
+import ucar.nc2.time.CalendarDateList;
 import ucar.nc2.time.CalendarDateFormatter;
 import ucar.nc2.time.CalendarDateUnit;
 
@@ -37,6 +38,10 @@ public class CoordinateAxisTimeHelper {
     return CalendarDateFormatter.isoStringToCalendarDate(calendar, offset);
   }
 
+  public CalendarDateList makeCalendarDates(double[] offsets) {
+    return CalendarDateList.of(dateUnit, offsets);
+  }
+
   public double offsetFromRefDate(CalendarDate date) {
     return dateUnit.makeOffsetFromRefDate(date);
   }
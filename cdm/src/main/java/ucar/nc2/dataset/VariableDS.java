@@ -382,6 +382,13 @@ public class VariableDS extends Variable implements VariableEnhanced, EnhanceSca
       orgVar.setCaching(true); // propagate down only if true
   }
 
+  @Override
+  public void setSharedCaching(boolean sharedCaching) {
+    super.setSharedCaching(sharedCaching);
+    if (orgVar != null)
+      orgVar.setSharedCaching(sharedCaching); // the data is cached in the original variable
+  }
+
   @Override
   protected Array _read() throws IOException {
     Array result;
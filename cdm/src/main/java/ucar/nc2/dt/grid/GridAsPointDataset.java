@@ -5,18 +5,32 @@
 
 package ucar.nc2.dt.grid;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 import ucar.ma2.Array;
+import ucar.ma2.Index;
+import ucar.ma2.InvalidRangeException;
+import ucar.nc2.Attribute;
+import ucar.nc2.Dimension;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.constants.CDM;
+import ucar.nc2.constants.DataFormatType;
 import ucar.nc2.dataset.CoordinateAxis1D;
 import ucar.nc2.dataset.CoordinateAxis1DTime;
+import ucar.nc2.dataset.VariableDS;
 import ucar.nc2.dt.GridCoordSystem;
 import ucar.nc2.dt.GridDatatype;
 import ucar.nc2.time.CalendarDate;
 import ucar.unidata.geoloc.EarthLocation;
 import ucar.unidata.geoloc.LatLonPoint;
+import ucar.unidata.geoloc.ProjectionImpl;
 
 /**
  * Add Point operations to a GridDataset.
@@ -24,6 +38,9 @@ import ucar.unidata.geoloc.LatLonPoint;
  * @author caron
  */
 public class GridAsPointDataset {
+  // contiguous data is read in row segments of this many values, so sparse points do not read whole rows
+  private static final int rowSegment = 256;
+
   private List<CalendarDate> dates;
 
   public GridAsPointDataset(List<GridDatatype> grids) {
@@ -213,6 +230,155 @@ public class GridAsPointDataset {
     return p;
   }
 
+  /**
+   * Read the data for many points at once.
+   * The queries are mapped to grid indices, then grouped by the storage unit they fall in: a chunk if the variable
+   * has _ChunkSizes (HDF5 / netCDF-4), a row segment for netCDF-3 and unchunked HDF5, otherwise one 2D horizontal
+   * slice (eg a GRIB record). Each group is read once, using the bounding box of its points, and the values are
+   * scattered back.
+   * The grid point nearest each query is used, as in readData(grid, date, ensCoord, zCoord, lat, lon).
+   *
+   * @param grid read data from here
+   * @param queries the points to read
+   * @return one Point for each query, in the same order. Points outside the grid, or at a time, vertical or
+   *         ensemble coordinate that is not found, have dataValue = NaN.
+   * @throws java.io.IOException on read error
+   */
+  public List<Point> readData(GridDatatype grid, List<Query> queries) throws java.io.IOException {
+    GridCoordSystem gcs = grid.getCoordinateSystem();
+    VariableDS vs = grid.getVariable();
+    List<Dimension> dims = vs.getDimensions();
+    int rank = dims.size();
+    int xdim = dims.indexOf(grid.getXDimension());
+    int ydim = dims.indexOf(grid.getYDimension());
+    int tdim = findDimension(dims, grid.getTimeDimension());
+    int zdim = findDimension(dims, grid.getZDimension());
+    int edim = findDimension(dims, grid.getEnsembleDimension());
+    CoordinateAxis1D zAxis = gcs.getVerticalAxis();
+    CoordinateAxis1D ensAxis = gcs.getEnsembleAxis();
+
+    // project all points, then find the nearest grid indices
+    int n = queries.size();
+    double[][] latlon = new double[2][n];
+    for (int i = 0; i < n; i++) {
+      latlon[0][i] = queries.get(i).lat;
+      latlon[1][i] = queries.get(i).lon;
+    }
+    ProjectionImpl proj = gcs.getProjection();
+    double[][] xy = proj.latLonToProj(latlon);
+
+    // size of the storage unit along each dimension: a chunk, a row segment, or one horizontal slice
+    int[] unit = new int[rank];
+    Arrays.fill(unit, 1);
+    Attribute chunkAtt = vs.findAttribute(CDM.CHUNK_SIZES);
+    if (chunkAtt != null && chunkAtt.getLength() == rank) {
+      for (int d = 0; d < rank; d++)
+        unit[d] = Math.max(1, chunkAtt.getNumericValue(d).intValue());
+    } else if (isContiguous(vs)) {
+      unit[xdim] = rowSegment;
+    } else {
+      unit[xdim] = dims.get(xdim).getLength();
+      unit[ydim] = dims.get(ydim).getLength();
+    }
+
+    List<Point> result = new ArrayList<>(n);
+    int[][] index = new int[n][];
+    Map<CalendarDate, Integer> timeIndex = new HashMap<>();
+    Map<int[], List<Integer>> units = new TreeMap<>(GridAsPointDataset::compare); // in storage order
+    int[] xyIndex = new int[2];
+    for (int i = 0; i < n; i++) {
+      Query q = queries.get(i);
+      Point p = new Point();
+      p.lat = q.lat;
+      p.lon = q.lon;
+      p.dataValue = Double.NaN;
+      result.add(p);
+
+      int[] idx = new int[rank];
+      gcs.findXYindexFromCoord(xy[0][i], xy[1][i], xyIndex);
+      if (xyIndex[0] < 0 || xyIndex[1] < 0)
+        continue;
+      idx[xdim] = xyIndex[0];
+      idx[ydim] = xyIndex[1];
+      // use actual grid midpoint
+      LatLonPoint gridPoint = gcs.getLatLon(xyIndex[0], xyIndex[1]);
+      p.lat = gridPoint.getLatitude();
+      p.lon = gridPoint.getLongitude();
+
+      if (tdim >= 0 && q.date != null) {
+        idx[tdim] = timeIndex.computeIfAbsent(q.date, date -> findTimeIndexForCalendarDate(gcs, date));
+        if (idx[tdim] < 0)
+          continue;
+      }
+      if (zdim >= 0 && zAxis != null && !Double.isNaN(q.zCoord)) {
+        idx[zdim] = zAxis.findCoordElement(q.zCoord);
+        if (idx[zdim] < 0)
+          continue;
+        p.z = zAxis.getCoordValue(idx[zdim]);
+      }
+      if (edim >= 0 && ensAxis != null && !Double.isNaN(q.ensCoord)) {
+        idx[edim] = ensAxis.findCoordElement(q.ensCoord);
+        if (idx[edim] < 0)
+          continue;
+        p.ens = ensAxis.getCoordValue(idx[edim]);
+      }
+
+      index[i] = idx;
+      int[] key = new int[rank];
+      for (int d = 0; d < rank; d++)
+        key[d] = idx[d] / unit[d];
+      units.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+    }
+
+    for (List<Integer> members : units.values()) {
+      int[] origin = index[members.get(0)].clone();
+      int[] last = origin.clone();
+      for (int i : members) {
+        for (int d = 0; d < rank; d++) {
+          origin[d] = Math.min(origin[d], index[i][d]);
+          last[d] = Math.max(last[d], index[i][d]);
+        }
+      }
+      int[] shape = new int[rank];
+      for (int d = 0; d < rank; d++)
+        shape[d] = last[d] - origin[d] + 1;
+
+      Array data;
+      try {
+        data = vs.read(origin, shape);
+      } catch (InvalidRangeException e) {
+        throw new IOException(e);
+      }
+      Index ima = data.getIndex();
+      int[] pos = new int[rank];
+      for (int i : members) {
+        for (int d = 0; d < rank; d++)
+          pos[d] = index[i][d] - origin[d];
+        result.get(i).dataValue = data.getDouble(ima.set(pos));
+      }
+    }
+    return result;
+  }
+
+  // netCDF-3 and unchunked HDF5 data can be read a row at a time, other formats decode a whole slice (eg a GRIB record)
+  private static boolean isContiguous(VariableDS vs) {
+    NetcdfFile ncfile = vs.getNetcdfFile();
+    DataFormatType type = (ncfile == null) ? null : DataFormatType.getType(ncfile.getFileTypeId());
+    return type == DataFormatType.NETCDF || type == DataFormatType.NETCDF4 || type == DataFormatType.HDF5;
+  }
+
+  private static int findDimension(List<Dimension> dims, Dimension want) {
+    return (want == null) ? -1 : dims.indexOf(want);
+  }
+
+  private static int compare(int[] a, int[] b) {
+    for (int d = 0; d < a.length; d++) {
+      if (a[d] != b[d])
+        return Integer.compare(a[d], b[d]);
+    }
+    return 0;
+  }
+
   private int findTimeIndexForCalendarDate(GridCoordSystem gcs, CalendarDate date) {
     CoordinateAxis1DTime timeAxis = gcs.getTimeAxis1D();
     return timeAxis.findTimeIndexFromCalendarDate(date);
@@ -221,4 +387,25 @@ public class GridAsPointDataset {
   public static class Point {
     double lat, lon, z, ens, dataValue;
   }
+
+  /**
+   * A point to read with readData(GridDatatype, List). Use a null date or NaN coordinates for dimensions the grid
+   * does not have, or to take the first index of that dimension.
+   */
+  public static class Query {
+    final CalendarDate date;
+    final double ensCoord, zCoord, lat, lon;
+
+    public Query(CalendarDate date, double ensCoord, double zCoord, double lat, double lon) {
+      this.date = date;
+      this.ensCoord = ensCoord;
+      this.zCoord = zCoord;
+      this.lat = lat;
+      this.lon = lon;
+    }
+
+    public Query(CalendarDate date, double lat, double lon) {
+      this(date, Double.NaN, Double.NaN, lat, lon);
+    }
+  }
 }
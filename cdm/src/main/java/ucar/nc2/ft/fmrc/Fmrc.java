@@ -5,6 +5,7 @@
 
 package ucar.nc2.ft.fmrc;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.jdom2.Element;
 import org.jdom2.Namespace;
 import thredds.featurecollection.FeatureCollectionConfig;
@@ -20,6 +21,13 @@ import javax.annotation.concurrent.ThreadSafe;
 import java.io.Closeable;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Forecast Model Run Collection, manages dynamic collections of GridDatasets.
@@ -93,6 +101,32 @@ public class Fmrc implements Closeable {
     return new Fmrc(config, errlog);
   }
 
+  private static int inventoryThreads = Runtime.getRuntime().availableProcessors();
+  private static ExecutorService inventoryPool;
+
+  /**
+   * Set the number of threads used to make the inventory of the files in a collection, shared by all Fmrc.
+   * Default is the number of processors.
+   *
+   * @param n number of threads; 0 or 1 makes the inventories on the calling thread
+   */
+  public static synchronized void setInventoryThreads(int n) {
+    inventoryThreads = n;
+    if (inventoryPool != null) {
+      inventoryPool.shutdown(); // running inventories finish; the rest are made on the calling thread
+      inventoryPool = null;
+    }
+  }
+
+  private static synchronized ExecutorService getInventoryPool() {
+    if (inventoryThreads <= 1)
+      return null;
+    if (inventoryPool == null)
+      inventoryPool = Executors.newFixedThreadPool(inventoryThreads,
+          new ThreadFactoryBuilder().setNameFormat("FmrcInventory-%d").setDaemon(true).build());
+    return inventoryPool;
+  }
+
   ////////////////////////////////////////////////////////////////////////
   private final MCollection manager;
   private final FeatureCollectionConfig config;
@@ -106,6 +140,7 @@ public class Fmrc implements Closeable {
   private volatile boolean forceProto;
   private volatile long lastInvChanged;
   private volatile long lastProtoChanged;
+  private volatile Map<String, GridDatasetInv> invMap = new HashMap<>(); // inventory of each file, from last update
 
   private Fmrc(String collectionSpec, Formatter errlog) {
     this.manager = MFileCollectionManager.open(collectionSpec, collectionSpec, null, errlog); // LOOK no name
@@ -265,32 +300,20 @@ public class Fmrc implements Closeable {
       List<FmrInv> fmrList = new ArrayList<>(); // an fmrc is a collection of fmr
 
       // get the inventory, sorted by path
-      for (MFile f : manager.getFilesSorted()) {
-        Map<String, String> filesRunDateMap = ((MFileCollectionManager) manager).getFilesRunDateMap();
-        CalendarDate runDate;
-
-        if (!filesRunDateMap.isEmpty()) {
-          // run time has been defined in NcML FMRC agg by the coord attribute,
-          // so explicitly set it in the dataset using the _Coordinate.ModelBaseDate
-          // global attribute, otherwise the run time offsets might be incorrectly
-          // computed if the incorrect run date is found in GridDatasetInv.java (line
-          // 177 with comment // Look: not really right )
-          runDate = CalendarDate.parseISOformat(null, filesRunDateMap.get(f.getPath()));
-          Element element = new Element("netcdf", ncNSHttps);
-          Element runDateAttr =
-              ncmlWriter.makeAttributeElement(new Attribute(_Coordinate.ModelRunDate, runDate.toString()));
-          config.innerNcml = element.addContent(runDateAttr);
-        }
-
-        GridDatasetInv inv;
-        try {
-          inv = GridDatasetInv.open(manager, f, config.innerNcml); // inventory is discovered for each GDS
-        } catch (IOException ioe) {
-          logger.warn("Error opening " + f.getPath() + "(skipped)", ioe);
+      List<MFile> files = new ArrayList<>();
+      for (MFile f : manager.getFilesSorted())
+        files.add(f);
+      List<GridDatasetInv> invs = makeInventories(files);
+
+      Map<String, GridDatasetInv> newInvMap = new HashMap<>();
+      for (int i = 0; i < files.size(); i++) {
+        MFile f = files.get(i);
+        GridDatasetInv inv = invs.get(i);
+        if (inv == null)
           continue; // skip
-        }
+        newInvMap.put(f.getPath(), inv);
 
-        runDate = inv.getRunDate();
+        CalendarDate runDate = inv.getRunDate();
         if (debug != null)
           debug.format("  opened %s rundate = %s%n", f.getPath(), inv.getRunDateString());
 
@@ -315,6 +338,7 @@ public class Fmrc implements Closeable {
               + fmr.getFiles().size());
       }
 
+      invMap = newInvMap; // only files still in the collection
       return new FmrcInv("fmrc:" + manager.getCollectionName(), fmrList, config.fmrcConfig.regularize);
 
     } catch (Throwable t) {
@@ -323,6 +347,78 @@ public class Fmrc implements Closeable {
     }
   }
 
+  // Get the inventory of each file, in the same order; null if the file cant be opened.
+  // Files unchanged since the last call reuse their inventory, the others are made on the inventory pool.
+  private List<GridDatasetInv> makeInventories(List<MFile> files) throws InterruptedException {
+    Map<String, String> filesRunDateMap = (manager instanceof MFileCollectionManager)
+        ? ((MFileCollectionManager) manager).getFilesRunDateMap() : Collections.emptyMap();
+    ExecutorService pool = getInventoryPool();
+    List<Future<GridDatasetInv>> futures = new ArrayList<>(files.size());
+    Map<String, GridDatasetInv> previousInvs = invMap;
+    Element ncml = config.innerNcml;
+    int nreused = 0;
+
+    for (MFile f : files) {
+      GridDatasetInv previous = previousInvs.get(f.getPath());
+      if (previous != null && previous.isCurrent(f)) {
+        futures.add(null);
+        nreused++;
+        continue;
+      }
+
+      if (!filesRunDateMap.isEmpty()) {
+        // run time has been defined in NcML FMRC agg by the coord attribute,
+        // so explicitly set it in the dataset using the _Coordinate.ModelBaseDate
+        // global attribute, otherwise the run time offsets might be incorrectly
+        // computed if the incorrect run date is found in GridDatasetInv.java (line
+        // 177 with comment // Look: not really right )
+        CalendarDate runDate = CalendarDate.parseISOformat(null, filesRunDateMap.get(f.getPath()));
+        Element element = new Element("netcdf", ncNSHttps);
+        Element runDateAttr =
+            ncmlWriter.makeAttributeElement(new Attribute(_Coordinate.ModelRunDate, runDate.toString()));
+        ncml = element.addContent(runDateAttr);
+      }
+
+      Callable<GridDatasetInv> task = makeInventoryTask(f, ncml); // inventory is discovered for each GDS
+      Future<GridDatasetInv> future = null;
+      if (pool != null) {
+        try {
+          future = pool.submit(task);
+        } catch (RejectedExecutionException e) { // pool was shut down by setInventoryThreads()
+          pool = null;
+        }
+      }
+      if (future == null) {
+        FutureTask<GridDatasetInv> inline = new FutureTask<>(task);
+        inline.run();
+        future = inline;
+      }
+      futures.add(future);
+    }
+    config.innerNcml = ncml;
+
+    List<GridDatasetInv> result = new ArrayList<>(files.size());
+    for (int i = 0; i < files.size(); i++) {
+      Future<GridDatasetInv> future = futures.get(i);
+      if (future == null) {
+        result.add(previousInvs.get(files.get(i).getPath()));
+        continue;
+      }
+      try {
+        result.add(future.get());
+      } catch (ExecutionException e) {
+        logger.warn("Error opening " + files.get(i).getPath() + "(skipped)", e.getCause());
+        result.add(null);
+      }
+    }
+    logger.debug("{}: {} files, {} inventories reused", config.name, files.size(), nreused);
+    return result;
+  }
+
+  private Callable<GridDatasetInv> makeInventoryTask(MFile f, Element ncml) {
+    return () -> GridDatasetInv.open(manager, f, ncml);
+  }
+
   public void showDetails(Formatter out) {
     checkNeeded(false);
     fmrcDataset.showDetails(out);
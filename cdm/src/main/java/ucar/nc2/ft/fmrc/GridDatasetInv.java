@@ -7,8 +7,14 @@ package ucar.nc2.ft.fmrc;
 
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import thredds.inventory.MCollection;
@@ -25,6 +31,7 @@ import ucar.nc2.dataset.CoordinateAxis1D;
 import ucar.nc2.time.CalendarDate;
 import ucar.nc2.time.CalendarDateFormatter;
 import ucar.nc2.units.DateUnit;
+import ucar.nc2.util.DiskCache2;
 import ucar.nc2.constants._Coordinate;
 import java.util.*;
 import java.io.*;
@@ -53,13 +60,38 @@ public class GridDatasetInv {
   private static final int REQ_VERSION = 2; // minimum required version, else regenerate XML
   private static final int CURR_VERSION = 2; // current version
 
-  // Cache the GridDatasetInv directly, not persisted to disk.
-  // TODO: Add persistence if thats shown to be needed.
+  private static final String SUFFIX = ".fmrInv";
+  private static final int MAGIC = 0x464d5249; // "FMRI"
+  private static final int BINARY_VERSION = 2;
+
+  // Cache the GridDatasetInv directly, and optionally persist to disk, see setDiskCache().
   private static Cache<String, GridDatasetInv> cache = CacheBuilder.newBuilder().maximumSize(100).build();
+  private static volatile DiskCache2 diskCache;
+  static final AtomicLong made = new AtomicLong(); // number of inventories made by opening the dataset
+
+  /**
+   * Where to persist inventories, so that reopening a collection does not open every file again.
+   * Set to null to turn off, the default. Cache files are keyed by the file's path, length and last modified time.
+   *
+   * @param dc use this DiskCache2, or null
+   */
+  public static void setDiskCache(DiskCache2 dc) {
+    diskCache = dc;
+  }
+
+  // for testing
+  static void clearCache() {
+    cache.invalidateAll();
+  }
 
   public static GridDatasetInv open(MCollection cm, MFile mfile, Element ncml) throws IOException {
+    String key = mfile.getPath() + "#fmrInv";
+    GridDatasetInv inv = cache.getIfPresent(key);
+    if (inv != null && !inv.isCurrent(mfile))
+      cache.invalidate(key); // file has changed
+
     try {
-      return cache.get(mfile.getPath() + "#fmrInv.xml", new GenerateInv(cm, mfile, ncml));
+      return cache.get(key, new GenerateInv(cm, mfile, ncml));
     } catch (ExecutionException e) {
       throw new IOException("Cache failed", e);
     }
@@ -78,6 +110,24 @@ public class GridDatasetInv {
 
     @Override
     public GridDatasetInv call() throws Exception {
+      CalendarDate runDate = cm.extractDate(mfile);
+      String ncmlString = (ncml == null) ? "" : new XMLOutputter().outputString(ncml);
+      DiskCache2 dc = diskCache;
+      File cacheFile = (dc == null) ? null : dc.getCacheFile(mfile.getPath() + SUFFIX);
+      if (cacheFile != null && cacheFile.exists()) {
+        GridDatasetInv inv = readBinary(cacheFile, mfile, ncmlString, runDate);
+        if (inv != null)
+          return inv;
+      }
+
+      GridDatasetInv inv = makeInv(runDate);
+      inv.lastModified = new Date(mfile.getLastModified());
+      if (cacheFile != null)
+        inv.writeBinary(cacheFile, mfile, ncmlString, runDate);
+      return inv;
+    }
+
+    private GridDatasetInv makeInv(CalendarDate runDate) throws IOException {
       GridDataset gds = null;
       try {
         if (ncml == null) {
@@ -90,7 +140,8 @@ public class GridDatasetInv {
           gds = new GridDataset(ncd);
         }
 
-        return new GridDatasetInv(gds, cm.extractDate(mfile));
+        made.incrementAndGet();
+        return new GridDatasetInv(gds, runDate);
       } finally {
         if (gds != null) {
           gds.close();
@@ -179,6 +230,11 @@ public class GridDatasetInv {
     return lastModified.getTime();
   }
 
+  // true if the inventory was made from this version of the file
+  boolean isCurrent(MFile mfile) {
+    return lastModified != null && lastModified.getTime() == mfile.getLastModified();
+  }
+
   /**
    * Get the date of the ForecastModelRun
    *
@@ -574,4 +630,161 @@ public class GridDatasetInv {
     return fmr;
   }
 
+  //////////////////////////////////////////////////////////////
+  // binary cache file: the key (path, length, lastModified, ncml, extracted run date), then the inventory
+
+  private void writeBinary(File cacheFile, MFile mfile, String ncmlString, CalendarDate extractedDate) {
+    File tempFile = null;
+    try {
+      // write to a temp file in the same directory, so the cache file is never seen partly written
+      tempFile = File.createTempFile(cacheFile.getName(), ".tmp", cacheFile.getAbsoluteFile().getParentFile());
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+        out.writeInt(MAGIC);
+        out.writeInt(BINARY_VERSION);
+        out.writeUTF(mfile.getPath());
+        out.writeLong(mfile.getLength());
+        out.writeLong(mfile.getLastModified());
+        out.write(digest(ncmlString));
+        out.writeUTF(extractedDate == null ? "" : extractedDate.toString());
+
+        out.writeUTF(location);
+        out.writeUTF(runTimeString);
+        out.writeInt(vaxes.size());
+        for (VertCoord vc : vaxes) {
+          out.writeInt(vc.getId());
+          out.writeUTF(vc.getName());
+          writeString(out, vc.getUnits());
+          writeDoubles(out, vc.getValues1());
+          writeDoubles(out, vc.getValues2());
+        }
+        out.writeInt(times.size());
+        for (TimeCoord tc : times) {
+          out.writeInt(tc.getId());
+          out.writeBoolean(tc.isInterval());
+          if (tc.isInterval()) {
+            writeDoubles(out, tc.getBound1());
+            writeDoubles(out, tc.getBound2());
+          } else {
+            writeDoubles(out, tc.getOffsetTimes());
+          }
+          List<Grid> grids = tc.getGridInventory();
+          out.writeInt(grids.size());
+          for (Grid grid : grids) {
+            out.writeUTF(grid.name);
+            out.writeInt(grid.vc == null ? -1 : vaxes.indexOf(grid.vc));
+          }
+        }
+      }
+      Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      logger.debug("GridDatasetInv wrote {}", cacheFile);
+
+    } catch (IOException | RuntimeException e) {
+      logger.warn("GridDatasetInv failed to write {}: {}", cacheFile, e.getMessage());
+      if (tempFile != null && tempFile.exists() && !tempFile.delete())
+        logger.warn("GridDatasetInv failed to delete {}", tempFile);
+    }
+  }
+
+  private static final int DIGEST_LEN = 32;
+
+  // SHA-256 of the NcML, so a cached inventory is never used with different NcML
+  private static byte[] digest(String ncmlString) {
+    try {
+      return MessageDigest.getInstance("SHA-256").digest(ncmlString.getBytes(StandardCharsets.UTF_8));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static byte[] readBytes(DataInputStream in, int n) throws IOException {
+    byte[] result = new byte[n];
+    in.readFully(result);
+    return result;
+  }
+
+  // return null if the cache file is out of date or unreadable
+  private static GridDatasetInv readBinary(File cacheFile, MFile mfile, String ncmlString, CalendarDate extractedDate) {
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)))) {
+      if (in.readInt() != MAGIC || in.readInt() != BINARY_VERSION || !in.readUTF().equals(mfile.getPath())
+          || in.readLong() != mfile.getLength() || in.readLong() != mfile.getLastModified()
+          || !Arrays.equals(readBytes(in, DIGEST_LEN), digest(ncmlString))
+          || !in.readUTF().equals(extractedDate == null ? "" : extractedDate.toString())) {
+        logger.debug("GridDatasetInv {} is out of date", cacheFile);
+        return null;
+      }
+
+      GridDatasetInv inv = new GridDatasetInv();
+      inv.version = CURR_VERSION;
+      inv.lastModified = new Date(mfile.getLastModified());
+      inv.location = in.readUTF();
+      inv.runTimeString = in.readUTF();
+      inv.runDate = DateUnit.parseCalendarDate(inv.runTimeString);
+
+      int nvert = in.readInt();
+      for (int i = 0; i < nvert; i++) {
+        VertCoord vc = new VertCoord();
+        vc.setId(in.readInt());
+        vc.setName(in.readUTF());
+        vc.setUnits(readString(in));
+        vc.setValues1(readDoubles(in));
+        vc.setValues2(readDoubles(in));
+        inv.vaxes.add(vc);
+      }
+
+      int ntimes = in.readInt();
+      for (int i = 0; i < ntimes; i++) {
+        TimeCoord tc = new TimeCoord(inv.runDate);
+        tc.setId(in.readInt());
+        if (in.readBoolean())
+          tc.setBounds(readDoubles(in), readDoubles(in));
+        else
+          tc.setOffsetTimes(readDoubles(in));
+        inv.times.add(tc);
+
+        int ngrids = in.readInt();
+        for (int j = 0; j < ngrids; j++) {
+          Grid grid = inv.makeGrid(in.readUTF());
+          int vert = in.readInt();
+          if (vert >= 0)
+            grid.vc = inv.vaxes.get(vert);
+          tc.addGridInventory(grid);
+          grid.tc = tc;
+        }
+      }
+      return inv;
+
+    } catch (IOException | RuntimeException e) {
+      logger.warn("GridDatasetInv failed to read {}: {}", cacheFile, e.getMessage());
+      return null;
+    }
+  }
+
+  private static void writeString(DataOutputStream out, String s) throws IOException {
+    out.writeBoolean(s != null);
+    if (s != null)
+      out.writeUTF(s);
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    return in.readBoolean() ? in.readUTF() : null;
+  }
+
+  private static void writeDoubles(DataOutputStream out, double[] vals) throws IOException {
+    out.writeInt(vals == null ? -1 : vals.length);
+    if (vals != null) {
+      for (double val : vals)
+        out.writeDouble(val);
+    }
+  }
+
+  private static double[] readDoubles(DataInputStream in) throws IOException {
+    int n = in.readInt();
+    if (n < 0)
+      return null;
+    double[] vals = new double[n];
+    for (int i = 0; i < n; i++)
+      vals[i] = in.readDouble();
+    return vals;
+  }
+
 }
@@ -5,6 +5,7 @@
 package ucar.nc2.ft2.coverage.writer;
 
 import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import ucar.ma2.Array;
 import ucar.ma2.DataType;
 import ucar.ma2.InvalidRangeException;
@@ -13,11 +14,20 @@ import ucar.nc2.*;
 import ucar.nc2.constants.*;
 import ucar.nc2.ft2.coverage.*;
 import ucar.nc2.time.CalendarDate;
+import ucar.nc2.util.Misc;
 import ucar.nc2.util.Optional;
 import ucar.unidata.geoloc.*;
 import ucar.unidata.geoloc.projection.LatLonProjection;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Write CF Compliant Grid file from a Coverage.
@@ -32,6 +42,61 @@ public class CFGridCoverageWriter2 {
   private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(CFGridCoverageWriter2.class);
   private static final boolean show = false;
 
+  private static volatile long memoryBudget = 256L * 1000 * 1000;
+  private static volatile int concurrentCoverages = 1;
+  private static ExecutorService coveragePool; // lazily created, shared by all requests
+  private static ExecutorService readAheadPool; // lazily created, shared by all requests
+
+  /**
+   * Set the memory used for coverage data while writing. A coverage larger than its share of this is read and
+   * written in slabs along its time, vertical and ensemble dimensions, reading the next slab while the current
+   * one is written. Default is 256 Mbytes.
+   *
+   * @param bytes memory budget in bytes
+   */
+  public static void setMemoryBudget(long bytes) {
+    memoryBudget = bytes;
+  }
+
+  /**
+   * Set the number of coverages that are read and written at the same time; the memory budget is divided among
+   * them. Only use more than 1 if the CoverageCollection can be read from several threads. Default is 1.
+   *
+   * @param n number of coverages processed concurrently
+   */
+  public static synchronized void setConcurrentCoverages(int n) {
+    concurrentCoverages = Math.max(1, n);
+    if (coveragePool != null)
+      coveragePool.shutdown(); // running coverages finish; coverages not yet submitted are written inline
+    coveragePool = null;
+  }
+
+  private static synchronized ExecutorService getCoveragePool() {
+    if (coveragePool == null)
+      coveragePool = Executors.newFixedThreadPool(concurrentCoverages,
+          new ThreadFactoryBuilder().setNameFormat("CFGridCoverageWriter2-%d").setDaemon(true).build());
+    return coveragePool;
+  }
+
+  // each coverage being written has at most one slab read outstanding, so this is bounded by the number of writers
+  private static synchronized ExecutorService getReadAheadPool() {
+    if (readAheadPool == null)
+      readAheadPool = Executors.newCachedThreadPool(
+          new ThreadFactoryBuilder().setNameFormat("CFGridCoverageWriter2-read-%d").setDaemon(true).build());
+    return readAheadPool;
+  }
+
+  // run the task in the pool, or on this thread if the pool has been shut down
+  private static <T> Future<T> submit(ExecutorService pool, Callable<T> task) {
+    try {
+      return pool.submit(task);
+    } catch (RejectedExecutionException e) {
+      FutureTask<T> inline = new FutureTask<>(task);
+      inline.run();
+      return inline;
+    }
+  }
+
   private static final String BOUNDS = "_bounds";
   private static final String BOUNDS_DIM = "bounds_dim"; // dimension of length 2, can be used by any bounds coordinate
 
@@ -392,19 +457,254 @@ public class CFGridCoverageWriter2 {
 
   private void writeCoverageData(CoverageCollection gdsOrg, SubsetParams subsetParams, CoverageCollection subsetDataset,
       NetcdfFileWriter writer) throws IOException, InvalidRangeException {
-    for (Coverage coverage : subsetDataset.getCoverages()) {
-      // we need to call readData on the original
-      Coverage coverageOrg = gdsOrg.findCoverage(coverage.getName());
-      GeoReferencedArray array = coverageOrg.readData(subsetParams);
+    List<Coverage> coverages = new ArrayList<>();
+    for (Coverage coverage : subsetDataset.getCoverages())
+      coverages.add(coverage);
+    if (coverages.isEmpty())
+      return;
+
+    int nthreads = Math.max(1, Math.min(concurrentCoverages, coverages.size()));
+    long slabBudget = Math.max(1, memoryBudget / (2 * nthreads)); // each coverage holds 2 slabs at most
+
+    long start = System.nanoTime();
+    long nbytes = 0;
+    if (nthreads == 1) {
+      for (Coverage coverage : coverages)
+        nbytes += writeCoverageData(gdsOrg, subsetParams, coverage, writer, slabBudget);
+
+    } else {
+      ExecutorService pool = getCoveragePool();
+      List<Future<Long>> futures = new ArrayList<>();
+      try {
+        for (Coverage coverage : coverages)
+          futures.add(submit(pool, () -> writeCoverageData(gdsOrg, subsetParams, coverage, writer, slabBudget)));
+        for (Future<Long> future : futures)
+          nbytes += getResult(future);
+      } finally {
+        for (Future<Long> future : futures) // after a failure, dont write the rest
+          future.cancel(true);
+      }
+    }
+
+    if (logger.isDebugEnabled()) {
+      double secs = (System.nanoTime() - start) / 1.0e9;
+      logger.debug("CFGridCoverageWriter2 wrote {} coverages from {}: {} Mbytes in {} secs = {} Mbytes/sec",
+          coverages.size(), gdsOrg.getName(), String.format("%.1f", nbytes / 1.0e6), String.format("%.3f", secs),
+          String.format("%.1f", nbytes / 1.0e6 / secs));
+    }
+  }
 
-      // test conform to whatever axis.getCoordsAsArray() returns
-      checkConformance(coverage, array, gdsOrg.getName());
+  // write one coverage, in slabs if its larger than slabBudget; return number of bytes written
+  private long writeCoverageData(CoverageCollection gdsOrg, SubsetParams subsetParams, Coverage coverage,
+      NetcdfFileWriter writer, long slabBudget) throws IOException, InvalidRangeException {
+    // we need to call readData on the original
+    Coverage coverageOrg = gdsOrg.findCoverage(coverage.getName());
+    Variable v = writer.findVariable(coverage.getName());
+    if (show)
+      System.out.printf("CFGridCoverageWriter2 write coverage %s%n", v.getNameAndDimensions());
+
+    List<Slab> slabs = (coverage.getSizeInBytes() > slabBudget) ? makeSlabs(coverage, v, subsetParams, slabBudget)
+        : null;
+    if (slabs != null) {
+      // read the next slab while writing the current one
+      boolean complete = true;
+      ExecutorService readAhead = getReadAheadPool();
+      Future<GeoReferencedArray> next = submit(readAhead, readSlab(coverageOrg, slabs.get(0)));
+      try {
+        for (int i = 0; i < slabs.size(); i++) {
+          GeoReferencedArray geo = getResult(next);
+          next = (i + 1 < slabs.size()) ? submit(readAhead, readSlab(coverageOrg, slabs.get(i + 1))) : null;
+
+          Slab slab = slabs.get(i);
+          Array data = slab.conform(geo);
+          if (data == null) { // fall back to reading the whole thing
+            logger.debug("CFGridCoverageWriter2 slab {} does not conform for {}, read all", i, coverage.getName());
+            complete = false;
+            break;
+          }
+          synchronized (writer) {
+            writer.write(v, slab.origin, data);
+          }
+        }
+      } finally {
+        if (next != null) // not read yet after a failure or fall back
+          next.cancel(true);
+      }
+      if (complete)
+        return coverage.getSizeInBytes();
+    }
 
-      Variable v = writer.findVariable(coverage.getName());
-      if (show)
-        System.out.printf("CFGridCoverageWriter2 write coverage %s%n", v.getNameAndDimensions());
+    GeoReferencedArray array = coverageOrg.readData(subsetParams);
+
+    // test conform to whatever axis.getCoordsAsArray() returns
+    checkConformance(coverage, array, gdsOrg.getName());
+
+    synchronized (writer) {
       writer.write(v, array.getData());
     }
+    return coverage.getSizeInBytes();
+  }
+
+  private Callable<GeoReferencedArray> readSlab(Coverage coverageOrg, Slab slab) {
+    return () -> coverageOrg.readData(slab.params);
+  }
+
+  private static <T> T getResult(Future<T> future) throws IOException, InvalidRangeException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException(e.getMessage());
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException)
+        throw (IOException) cause;
+      if (cause instanceof InvalidRangeException)
+        throw (InvalidRangeException) cause;
+      if (cause instanceof RuntimeException)
+        throw (RuntimeException) cause;
+      if (cause instanceof Error)
+        throw (Error) cause;
+      throw new IOException(cause);
+    }
+  }
+
+  /*
+   * Split a coverage into slabs of one coordinate value along its outer time, vertical or ensemble dimensions,
+   * using as few outer dimensions as needed to get under slabBudget.
+   * SubsetParams only selects by coordinate value, so a slab is a point subset, and the data that comes back
+   * is checked against the coordinate that was asked for. Return null if the coverage can't be split.
+   */
+  private List<Slab> makeSlabs(Coverage coverage, Variable v, SubsetParams subsetParams, long slabBudget) {
+    CoverageCoordSys csys = coverage.getCoordSys();
+    List<CoverageCoordAxis1D> sliced = new ArrayList<>();
+    long slabSize = coverage.getSizeInBytes();
+    for (Dimension dim : v.getDimensions()) {
+      if (slabSize <= slabBudget)
+        break;
+      CoverageCoordAxis axis = csys.getAxis(dim.getShortName());
+      if (!canSlice(csys, axis) || axis.getNcoords() != dim.getLength())
+        break;
+      sliced.add((CoverageCoordAxis1D) axis);
+      slabSize /= axis.getNcoords();
+    }
+    if (sliced.isEmpty())
+      return null;
+
+    int[] slabShape = v.getShape();
+    for (int i = 0; i < sliced.size(); i++)
+      slabShape[i] = 1;
+
+    List<Slab> slabs = new ArrayList<>();
+    Set<String> replaced = new HashSet<>();
+    for (CoverageCoordAxis1D axis : sliced)
+      replaced.addAll(getSubsetKeys(axis));
+
+    int[] index = new int[sliced.size()];
+    while (true) {
+      SubsetParams params = new SubsetParams();
+      for (Map.Entry<String, Object> entry : subsetParams.getEntries()) {
+        if (!replaced.contains(entry.getKey()))
+          params.set(entry.getKey(), entry.getValue());
+      }
+      for (int i = 0; i < sliced.size(); i++)
+        setCoordinate(params, sliced.get(i), index[i]);
+
+      int[] origin = new int[slabShape.length];
+      System.arraycopy(index, 0, origin, 0, index.length);
+      slabs.add(new Slab(params, sliced, origin, slabShape));
+
+      // increment, rightmost fastest
+      int k = index.length - 1;
+      while (k >= 0 && ++index[k] == sliced.get(k).getNcoords())
+        index[k--] = 0;
+      if (k < 0)
+        break;
+    }
+    return slabs;
+  }
+
+  private boolean canSlice(CoverageCoordSys csys, CoverageCoordAxis axis) {
+    if (!(axis instanceof CoverageCoordAxis1D))
+      return false;
+    if (axis.getDependenceType() != CoverageCoordAxis.DependenceType.independent)
+      return false;
+    switch (axis.getAxisType()) {
+      case Time:
+      case GeoZ:
+      case Pressure:
+      case Height:
+      case Ensemble:
+        break;
+      default:
+        return false;
+    }
+    for (CoverageCoordAxis other : csys.getAxes()) { // nothing may depend on it
+      String dependsOn = other.getDependsOn();
+      if (other != axis && dependsOn != null && Arrays.asList(dependsOn.split(" ")).contains(axis.getName()))
+        return false;
+    }
+    return true;
+  }
+
+  // the subset parameters that select along this axis
+  private List<String> getSubsetKeys(CoverageCoordAxis1D axis) {
+    switch (axis.getAxisType()) {
+      case Time:
+        return Arrays.asList(SubsetParams.time, SubsetParams.timeRange, SubsetParams.timeStride,
+            SubsetParams.timePresent, SubsetParams.timeAll, SubsetParams.timeWindow, SubsetParams.timeOffset,
+            SubsetParams.timeOffsetIntv);
+      case Ensemble:
+        return Collections.singletonList(SubsetParams.ensCoord);
+      default:
+        return Arrays.asList(SubsetParams.vertCoord, SubsetParams.vertIntv, SubsetParams.vertRange);
+    }
+  }
+
+  private void setCoordinate(SubsetParams params, CoverageCoordAxis1D axis, int index) {
+    double coord = axis.getCoordMidpoint(index);
+    switch (axis.getAxisType()) {
+      case Time:
+        params.setTime(axis.makeDate(coord));
+        break;
+      case Ensemble:
+        params.setEnsCoord(coord);
+        break;
+      default:
+        params.setVertCoord(coord);
+        break;
+    }
+  }
+
+  private static class Slab {
+    final SubsetParams params;
+    final List<CoverageCoordAxis1D> sliced;
+    final int[] origin;
+    final int[] shape;
+
+    Slab(SubsetParams params, List<CoverageCoordAxis1D> sliced, int[] origin, int[] shape) {
+      this.params = params;
+      this.sliced = sliced;
+      this.origin = origin;
+      this.shape = shape;
+    }
+
+    // return the data in the shape of the slab, or null if its not the slab we asked for
+    Array conform(GeoReferencedArray geo) {
+      Array data = geo.getData();
+      if (data.getSize() != new Section(shape).computeSize())
+        return null;
+      CoverageCoordSys csysData = geo.getCoordSysForData();
+      for (int i = 0; i < sliced.size(); i++) {
+        CoverageCoordAxis1D axis = sliced.get(i);
+        CoverageCoordAxis got = (csysData == null) ? null : csysData.getAxis(axis.getName());
+        if (!(got instanceof CoverageCoordAxis1D) || got.getNcoords() != 1)
+          return null;
+        if (!Misc.nearlyEquals(axis.getCoordMidpoint(origin[i]), ((CoverageCoordAxis1D) got).getCoordMidpoint(0)))
+          return null;
+      }
+      return Arrays.equals(data.getShape(), shape) ? data : data.reshapeNoCopy(shape);
+    }
   }
 
   private void writeLatLon2D(CoverageCollection subsetDataset, NetcdfFileWriter writer)
@@ -235,7 +235,87 @@ public class GeoTiff implements Closeable {
       buffer.flip();
       channel.write(buffer);
     }
-    writeIFD(channel, firstIFD);
+    writeIFD(channel, firstIFD, tags, 0);
+  }
+
+  /**
+   * Write a tiled image and its overviews in cloud optimized GeoTIFF layout: all the IFDs at the start of the file,
+   * then the overview tiles, smallest image first, then the full resolution tiles.
+   * The current tags describe the full resolution image.
+   *
+   * @param overviewTags tags for each reduced resolution image, largest first
+   * @param tiles encoded tiles for each image, full resolution first, then overviews; these fill in the
+   *        TileOffsets and TileByteCounts tags
+   */
+  void writeTiledImages(List<List<IFDEntry>> overviewTags, List<byte[][]> tiles) throws IOException {
+    if (file == null)
+      init();
+
+    // geokeys all get added at once
+    writeGeoKeys();
+
+    List<List<IFDEntry>> ifds = new ArrayList<>();
+    ifds.add(tags);
+    ifds.addAll(overviewTags);
+
+    // IFDs go first, on word boundaries
+    int[] ifdStart = new int[ifds.size()];
+    long pos = headerSize;
+    for (int i = 0; i < ifds.size(); i++) {
+      List<IFDEntry> ifdTags = ifds.get(i);
+      Collections.sort(ifdTags);
+      ifdStart[i] = (int) pos;
+      pos += sizeIFD(ifdTags);
+      pos += pos & 1;
+    }
+    long dataStart = pos;
+
+    // then the tiles, smallest image first
+    for (int i = ifds.size() - 1; i >= 0; i--) {
+      byte[][] imageTiles = tiles.get(i);
+      int[] offsets = new int[imageTiles.length];
+      int[] counts = new int[imageTiles.length];
+      for (int j = 0; j < imageTiles.length; j++) {
+        offsets[j] = (int) pos;
+        counts[j] = imageTiles[j].length;
+        pos += imageTiles[j].length;
+      }
+      if (pos > Integer.MAX_VALUE)
+        throw new IOException("Tiled GeoTIFF larger than 2 Gbytes is not supported");
+      findTag(ifds.get(i), Tag.TileOffsets).setValue(offsets);
+      findTag(ifds.get(i), Tag.TileByteCounts).setValue(counts);
+    }
+
+    firstIFD = headerSize;
+    writeHeader(channel);
+    for (int i = 0; i < ifds.size(); i++)
+      writeIFD(channel, ifdStart[i], ifds.get(i), (i < ifds.size() - 1) ? ifdStart[i + 1] : 0);
+
+    channel.position(dataStart);
+    for (int i = ifds.size() - 1; i >= 0; i--) {
+      for (byte[] tile : tiles.get(i))
+        channel.write(ByteBuffer.wrap(tile));
+    }
+    nextOverflowData = (int) pos;
+  }
+
+  // IFD size in bytes, including the values that dont fit in the entries
+  private int sizeIFD(List<IFDEntry> ifdTags) {
+    int size = 2 + 12 * ifdTags.size() + 4;
+    for (IFDEntry ifd : ifdTags) {
+      int vsize = ifd.count * ifd.type.size;
+      if (vsize > 4)
+        size += vsize;
+    }
+    return size;
+  }
+
+  private IFDEntry findTag(List<IFDEntry> ifdTags, Tag tag) {
+    for (IFDEntry ifd : ifdTags) {
+      if (ifd.tag == tag)
+        return ifd;
+    }
+    throw new IllegalStateException("Missing tag " + tag);
   }
 
   private int writeHeader(FileChannel channel) throws IOException {
@@ -266,7 +346,7 @@ public class GeoTiff implements Closeable {
     readonly = false;
   }
 
-  private void writeIFD(FileChannel channel, int start) throws IOException {
+  private void writeIFD(FileChannel channel, int start, List<IFDEntry> tags, int nextIFD) throws IOException {
     channel.position(start);
 
     ByteBuffer buffer = ByteBuffer.allocate(2);
@@ -290,7 +370,7 @@ public class GeoTiff implements Closeable {
     if (debugRead)
       System.out.println("pos before writing nextIFD= " + channel.position());
     buffer = ByteBuffer.allocate(4);
-    buffer.putInt(0);
+    buffer.putInt(nextIFD);
     buffer.flip();
     channel.write(buffer);
   }
@@ -5,8 +5,23 @@
 
 package ucar.nc2.geotiff;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.Deflater;
 import ucar.ma2.Array;
 import ucar.ma2.ArrayByte;
 import ucar.ma2.ArrayFloat;
@@ -40,10 +55,40 @@ import ucar.unidata.geoloc.projection.proj4.AlbersEqualAreaEllipse;
  * @author caron, yuan
  */
 public class GeotiffWriter implements Closeable {
+  private static int encodeThreads = Runtime.getRuntime().availableProcessors();
+  private static ExecutorService encodePool;
+  private static final ThreadLocal<Deflater> deflaters = new ThreadLocal<>();
+
+  /**
+   * Set the number of threads used to compress tiles, shared by all writers. Default is the number of processors.
+   *
+   * @param n number of threads; 1 compresses on the calling thread, smaller values are taken as 1
+   */
+  public static synchronized void setEncodeThreads(int n) {
+    encodeThreads = Math.max(1, n);
+    if (encodePool != null) {
+      encodePool.shutdown();
+      encodePool = null;
+    }
+  }
+
+  private static synchronized ExecutorService getEncodePool() {
+    if (encodeThreads <= 1)
+      return null;
+    if (encodePool == null)
+      encodePool = Executors.newFixedThreadPool(encodeThreads,
+          new ThreadFactoryBuilder().setNameFormat("GeotiffWriter-%d").setDaemon(true).build());
+    return encodePool;
+  }
 
   protected GeoTiff geotiff;
   protected short pageNumber = 1;
 
+  private int tileSize; // 0 = strips
+  private int deflateLevel;
+  private boolean predictor;
+  private boolean overviews;
+
   /**
    * Constructor
    *
@@ -57,6 +102,27 @@ public class GeotiffWriter implements Closeable {
     geotiff.close();
   }
 
+  /**
+   * Write tiled images instead of strips, in cloud optimized GeoTIFF (COG) layout: the IFDs are at the start of the
+   * file, followed by the overview tiles, smallest first, then the full resolution tiles. Tiles are compressed on a
+   * shared thread pool, see setEncodeThreads(). A tiled file holds one grid.
+   *
+   * @param tileSize tile width and height, a multiple of 16
+   * @param deflateLevel deflate compression level 1-9, or 0 for no compression
+   * @param predictor use the horizontal (greyscale) or floating point predictor before compressing
+   * @param overviews add reduced resolution images, each half the size of the one before, down to one tile
+   */
+  public void setTiled(int tileSize, int deflateLevel, boolean predictor, boolean overviews) {
+    if (tileSize <= 0 || tileSize % 16 != 0)
+      throw new IllegalArgumentException("Tile size must be a positive multiple of 16: " + tileSize);
+    if (deflateLevel < 0 || deflateLevel > 9)
+      throw new IllegalArgumentException("Deflate level must be 0-9: " + deflateLevel);
+    this.tileSize = tileSize;
+    this.deflateLevel = deflateLevel;
+    this.predictor = predictor && deflateLevel > 0;
+    this.overviews = overviews;
+  }
+
   /**
    * Write GridDatatype data to the geotiff file.
    *
@@ -127,7 +193,6 @@ public class GeotiffWriter implements Closeable {
   void writeGrid(GridDatatype grid, Array data, boolean greyScale, double xStart, double yStart, double xInc,
       double yInc, int imageNumber) throws IOException {
 
-    int nextStart;
     GridCoordSystem gcs = grid.getCoordinateSystem();
 
     // get rid of this when all projections are implemented
@@ -139,22 +204,33 @@ public class GeotiffWriter implements Closeable {
       throw new IllegalArgumentException("Unsupported projection = " + gcs.getProjection().getClass().getName());
     }
 
-    // write the data first
     MAMath.MinMax dataMinMax = grid.getMinMaxSkipMissingData(data);
+    Array result = greyScale ? replaceMissingValuesAndScale(grid, data, dataMinMax)
+        : replaceMissingValues(grid, data, dataMinMax);
+    writeImage(result, greyScale, xStart, yStart, xInc, yInc, imageNumber, dataMinMax, gcs.getProjection());
+  }
+
+  // result is the 2D YX data with missing values replaced, from replaceMissingValues or replaceMissingValuesAndScale
+  private void writeImage(Array result, boolean greyScale, double xStart, double yStart, double xInc, double yInc,
+      int imageNumber, MAMath.MinMax dataMinMax, Projection proj) throws IOException {
+    // set the width and the height
+    int height = result.getShape()[0]; // Y
+    int width = result.getShape()[1]; // X
+
+    if (tileSize > 0) {
+      writeTiledImage(result, greyScale, xStart, yStart, xInc, yInc, height, width, dataMinMax, proj);
+      return;
+    }
+
+    // write the data first
+    int nextStart;
     if (greyScale) {
-      ArrayByte result = replaceMissingValuesAndScale(grid, data, dataMinMax);
       nextStart = geotiff.writeData((byte[]) result.getStorage(), imageNumber);
     } else {
-      ArrayFloat result = replaceMissingValues(grid, data, dataMinMax);
       nextStart = geotiff.writeData((float[]) result.getStorage(), imageNumber);
     }
 
-    // set the width and the height
-    int height = data.getShape()[0]; // Y
-    int width = data.getShape()[1]; // X
-
-    writeMetadata(greyScale, xStart, yStart, xInc, yInc, height, width, imageNumber, nextStart, dataMinMax,
-        gcs.getProjection());
+    writeMetadata(greyScale, xStart, yStart, xInc, yInc, height, width, imageNumber, nextStart, dataMinMax, proj);
   }
 
   private void writeMetadata(boolean greyScale, double xStart, double yStart, double xInc, double yInc, int height,
@@ -198,35 +274,43 @@ public class GeotiffWriter implements Closeable {
     }
     geotiff.addTag(new IFDEntry(Tag.StripByteCounts, FieldType.LONG, width).setValue(sbytecount));
     geotiff.addTag(new IFDEntry(Tag.StripOffsets, FieldType.LONG, width).setValue(soffset));
-    // standard tags
-    geotiff.addTag(new IFDEntry(Tag.Orientation, FieldType.SHORT).setValue(1));
     geotiff.addTag(new IFDEntry(Tag.Compression, FieldType.SHORT).setValue(1)); // no compression
-    geotiff.addTag(new IFDEntry(Tag.Software, FieldType.ASCII).setValue("nc2geotiff"));
-    geotiff.addTag(new IFDEntry(Tag.PhotometricInterpretation, FieldType.SHORT).setValue(1)); // black is zero : not
-                                                                                              // used?
-    geotiff.addTag(new IFDEntry(Tag.PlanarConfiguration, FieldType.SHORT).setValue(1));
+    addImageTags(geotiff.getTags(), greyScale, dataMinMax);
+    addGeoTags(xStart, yStart, xInc, yInc, proj);
+
+    geotiff.writeMetadata(imageNumber);
+  }
+
+  // standard tags
+  private void addImageTags(List<IFDEntry> tags, boolean greyScale, MAMath.MinMax dataMinMax) {
+    tags.add(new IFDEntry(Tag.Orientation, FieldType.SHORT).setValue(1));
+    tags.add(new IFDEntry(Tag.Software, FieldType.ASCII).setValue("nc2geotiff"));
+    tags.add(new IFDEntry(Tag.PhotometricInterpretation, FieldType.SHORT).setValue(1)); // black is zero : not used?
+    tags.add(new IFDEntry(Tag.PlanarConfiguration, FieldType.SHORT).setValue(1));
 
     if (greyScale) {
       // standard tags for Greyscale images ( see TIFF spec, section 4)
-      geotiff.addTag(new IFDEntry(Tag.BitsPerSample, FieldType.SHORT).setValue(8)); // 8 bits per sample
-      geotiff.addTag(new IFDEntry(Tag.SamplesPerPixel, FieldType.SHORT).setValue(1));
+      tags.add(new IFDEntry(Tag.BitsPerSample, FieldType.SHORT).setValue(8)); // 8 bits per sample
+      tags.add(new IFDEntry(Tag.SamplesPerPixel, FieldType.SHORT).setValue(1));
 
-      geotiff.addTag(new IFDEntry(Tag.XResolution, FieldType.RATIONAL).setValue(1, 1));
-      geotiff.addTag(new IFDEntry(Tag.YResolution, FieldType.RATIONAL).setValue(1, 1));
-      geotiff.addTag(new IFDEntry(Tag.ResolutionUnit, FieldType.SHORT).setValue(1));
+      tags.add(new IFDEntry(Tag.XResolution, FieldType.RATIONAL).setValue(1, 1));
+      tags.add(new IFDEntry(Tag.YResolution, FieldType.RATIONAL).setValue(1, 1));
+      tags.add(new IFDEntry(Tag.ResolutionUnit, FieldType.SHORT).setValue(1));
 
     } else {
       // standard tags for SampleFormat ( see TIFF spec, section 19)
-      geotiff.addTag(new IFDEntry(Tag.BitsPerSample, FieldType.SHORT).setValue(32)); // 32 bits per sample
-      geotiff.addTag(new IFDEntry(Tag.SampleFormat, FieldType.SHORT).setValue(3)); // Sample Format
-      geotiff.addTag(new IFDEntry(Tag.SamplesPerPixel, FieldType.SHORT).setValue(1));
+      tags.add(new IFDEntry(Tag.BitsPerSample, FieldType.SHORT).setValue(32)); // 32 bits per sample
+      tags.add(new IFDEntry(Tag.SampleFormat, FieldType.SHORT).setValue(3)); // Sample Format
+      tags.add(new IFDEntry(Tag.SamplesPerPixel, FieldType.SHORT).setValue(1));
       float min = (float) (dataMinMax.min);
       float max = (float) (dataMinMax.max);
-      geotiff.addTag(new IFDEntry(Tag.SMinSampleValue, FieldType.FLOAT).setValue(min));
-      geotiff.addTag(new IFDEntry(Tag.SMaxSampleValue, FieldType.FLOAT).setValue(max));
-      geotiff.addTag(new IFDEntry(Tag.GDALNoData, FieldType.FLOAT).setValue(min - 1.f));
+      tags.add(new IFDEntry(Tag.SMinSampleValue, FieldType.FLOAT).setValue(min));
+      tags.add(new IFDEntry(Tag.SMaxSampleValue, FieldType.FLOAT).setValue(max));
+      tags.add(new IFDEntry(Tag.GDALNoData, FieldType.FLOAT).setValue(min - 1.f));
     }
+  }
 
+  private void addGeoTags(double xStart, double yStart, double xInc, double yInc, Projection proj) {
     /*
      * geotiff.addTag( new IFDEntry(Tag.Geo_ModelPixelScale, FieldType.DOUBLE).setValue(
      * new double[] {5.0, 2.5, 0.0} ));
@@ -258,8 +342,6 @@ public class GeotiffWriter implements Closeable {
     } else {
       throw new IllegalArgumentException("Unsupported projection = " + proj.getClass().getName());
     }
-
-    geotiff.writeMetadata(imageNumber);
   }
 
   /**
@@ -529,6 +611,239 @@ public class GeotiffWriter implements Closeable {
     return xlon;
   }
 
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  // tiled images
+
+  private void writeTiledImage(Array result, boolean greyScale, double xStart, double yStart, double xInc,
+      double yInc, int height, int width, MAMath.MinMax dataMinMax, Projection proj) throws IOException {
+    if (pageNumber > 1)
+      throw new IllegalStateException("A tiled GeoTIFF holds one grid");
+
+    // full resolution image, then overviews
+    float missing = (float) (dataMinMax.min - 1.0);
+    List<Raster> images = new ArrayList<>();
+    images.add(new Raster(result.getStorage(), width, height));
+    while (overviews && (images.get(images.size() - 1).width > tileSize
+        || images.get(images.size() - 1).height > tileSize)) {
+      images.add(images.get(images.size() - 1).reduce(missing));
+    }
+
+    // compress all the tiles, concurrently if possible
+    ExecutorService pool = getEncodePool();
+    List<List<Future<byte[]>>> futures = new ArrayList<>();
+    for (Raster image : images) {
+      List<Future<byte[]>> imageTiles = new ArrayList<>();
+      for (int y = 0; y < image.height; y += tileSize) {
+        for (int x = 0; x < image.width; x += tileSize) {
+          Callable<byte[]> task = new TileEncoder(image, x, y, missing);
+          Future<byte[]> future = null;
+          if (pool != null) {
+            try {
+              future = pool.submit(task);
+            } catch (RejectedExecutionException e) { // pool was shut down by setEncodeThreads()
+              pool = null;
+            }
+          }
+          if (future == null) {
+            FutureTask<byte[]> inline = new FutureTask<>(task);
+            inline.run();
+            future = inline;
+          }
+          imageTiles.add(future);
+        }
+      }
+      futures.add(imageTiles);
+    }
+    List<byte[][]> tiles = new ArrayList<>();
+    for (List<Future<byte[]>> imageTiles : futures) {
+      byte[][] encoded = new byte[imageTiles.size()][];
+      for (int i = 0; i < encoded.length; i++)
+        encoded[i] = getTile(imageTiles.get(i));
+      tiles.add(encoded);
+    }
+
+    // full resolution image has the georeferencing
+    addTileTags(geotiff.getTags(), images.get(0), 0);
+    addImageTags(geotiff.getTags(), greyScale, dataMinMax);
+    addGeoTags(xStart, yStart, xInc, yInc, proj);
+
+    List<List<IFDEntry>> overviewTags = new ArrayList<>();
+    for (int i = 1; i < images.size(); i++) {
+      List<IFDEntry> tags = new ArrayList<>();
+      addTileTags(tags, images.get(i), 1); // reduced resolution
+      addImageTags(tags, greyScale, dataMinMax);
+      overviewTags.add(tags);
+    }
+
+    geotiff.writeTiledImages(overviewTags, tiles);
+  }
+
+  private void addTileTags(List<IFDEntry> tags, Raster image, int subfileType) {
+    int ntiles = ((image.width + tileSize - 1) / tileSize) * ((image.height + tileSize - 1) / tileSize);
+    tags.add(new IFDEntry(Tag.NewSubfileType, FieldType.LONG).setValue(subfileType));
+    tags.add(new IFDEntry(Tag.ImageWidth, FieldType.LONG).setValue(image.width));
+    tags.add(new IFDEntry(Tag.ImageLength, FieldType.LONG).setValue(image.height));
+    tags.add(new IFDEntry(Tag.TileWidth, FieldType.SHORT).setValue(tileSize));
+    tags.add(new IFDEntry(Tag.TileLength, FieldType.SHORT).setValue(tileSize));
+    // GeoTiff fills in the values
+    tags.add(new IFDEntry(Tag.TileOffsets, FieldType.LONG).setValue(new int[ntiles]));
+    tags.add(new IFDEntry(Tag.TileByteCounts, FieldType.LONG).setValue(new int[ntiles]));
+    tags.add(new IFDEntry(Tag.Compression, FieldType.SHORT).setValue(deflateLevel > 0 ? 8 : 1)); // 8 = deflate
+    if (predictor) // 2 = horizontal differencing, 3 = floating point
+      tags.add(new IFDEntry(Tag.Predictor, FieldType.SHORT).setValue(image.data instanceof float[] ? 3 : 2));
+  }
+
+  private static byte[] getTile(Future<byte[]> future) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException(e.getMessage());
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException)
+        throw (RuntimeException) e.getCause();
+      throw new IOException(e.getCause());
+    }
+  }
+
+  // one image, data is a float[] or byte[] in row major order
+  private static class Raster {
+    final Object data;
+    final int width, height;
+
+    Raster(Object data, int width, int height) {
+      this.data = data;
+      this.width = width;
+      this.height = height;
+    }
+
+    // average 2x2 blocks, skipping missing values; greyscale missing value is 0
+    Raster reduce(float missing) {
+      int w = (width + 1) / 2;
+      int h = (height + 1) / 2;
+      if (data instanceof float[]) {
+        float[] from = (float[]) data;
+        float[] to = new float[w * h];
+        for (int y = 0; y < h; y++) {
+          for (int x = 0; x < w; x++) {
+            double sum = 0;
+            int n = 0;
+            for (int yy = 2 * y; yy < Math.min(2 * y + 2, height); yy++) {
+              for (int xx = 2 * x; xx < Math.min(2 * x + 2, width); xx++) {
+                float v = from[yy * width + xx];
+                if (v != missing) {
+                  sum += v;
+                  n++;
+                }
+              }
+            }
+            to[y * w + x] = (n == 0) ? missing : (float) (sum / n);
+          }
+        }
+        return new Raster(to, w, h);
+
+      } else {
+        byte[] from = (byte[]) data;
+        byte[] to = new byte[w * h];
+        for (int y = 0; y < h; y++) {
+          for (int x = 0; x < w; x++) {
+            int sum = 0;
+            int n = 0;
+            for (int yy = 2 * y; yy < Math.min(2 * y + 2, height); yy++) {
+              for (int xx = 2 * x; xx < Math.min(2 * x + 2, width); xx++) {
+                int v = from[yy * width + xx] & 0xff;
+                if (v != 0) {
+                  sum += v;
+                  n++;
+                }
+              }
+            }
+            to[y * w + x] = (byte) ((n == 0) ? 0 : (sum + n / 2) / n);
+          }
+        }
+        return new Raster(to, w, h);
+      }
+    }
+  }
+
+  // encode one tile: pad to the full tile size, apply the predictor, compress
+  private class TileEncoder implements Callable<byte[]> {
+    final Raster image;
+    final int x0, y0;
+    final float missing;
+
+    TileEncoder(Raster image, int x0, int y0, float missing) {
+      this.image = image;
+      this.x0 = x0;
+      this.y0 = y0;
+      this.missing = missing;
+    }
+
+    @Override
+    public byte[] call() {
+      boolean isFloat = image.data instanceof float[];
+      int elemSize = isFloat ? 4 : 1;
+      int rowSize = tileSize * elemSize;
+      byte[] raw = new byte[tileSize * rowSize];
+      byte[] row = new byte[rowSize];
+      int nx = Math.min(tileSize, image.width - x0);
+
+      for (int y = 0; y < tileSize; y++) {
+        int iy = y0 + y;
+        if (isFloat) {
+          float[] from = (float[]) image.data;
+          ByteBuffer bb = ByteBuffer.wrap(row); // big endian, like the file
+          for (int x = 0; x < tileSize; x++)
+            bb.putFloat((iy < image.height && x < nx) ? from[iy * image.width + x0 + x] : missing);
+        } else {
+          Arrays.fill(row, (byte) 0);
+          if (iy < image.height)
+            System.arraycopy(image.data, iy * image.width + x0, row, 0, nx);
+        }
+
+        int pos = y * rowSize;
+        if (predictor && isFloat) { // byte planes, most significant first, then differencing
+          for (int x = 0; x < tileSize; x++) {
+            for (int b = 0; b < 4; b++)
+              raw[pos + b * tileSize + x] = row[4 * x + b];
+          }
+          for (int i = rowSize - 1; i > 0; i--)
+            raw[pos + i] -= raw[pos + i - 1];
+        } else if (predictor) {
+          raw[pos] = row[0];
+          for (int i = 1; i < rowSize; i++)
+            raw[pos + i] = (byte) (row[i] - row[i - 1]);
+        } else {
+          System.arraycopy(row, 0, raw, pos, rowSize);
+        }
+      }
+
+      if (deflateLevel == 0)
+        return raw;
+      return deflate(raw, deflateLevel);
+    }
+  }
+
+  private static byte[] deflate(byte[] raw, int level) {
+    Deflater deflater = deflaters.get();
+    if (deflater == null) {
+      deflater = new Deflater();
+      deflaters.set(deflater);
+    }
+    deflater.reset();
+    deflater.setLevel(level);
+    deflater.setInput(raw);
+    deflater.finish();
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 4 + 64);
+    byte[] buffer = new byte[8192];
+    while (!deflater.finished()) {
+      int n = deflater.deflate(buffer);
+      out.write(buffer, 0, n);
+    }
+    return out.toByteArray();
+  }
+
   //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
   /**
    * Write GridCoverage data to the geotiff file.
@@ -576,22 +891,10 @@ public class GeotiffWriter implements Closeable {
       geotiff.initTags();
     }
 
-    // write the data first
-    int nextStart;
     MAMath.MinMax dataMinMax = MAMath.getMinMaxSkipMissingData(data, array);
-    if (greyScale) {
-      ArrayByte result = replaceMissingValuesAndScale(array, data, dataMinMax);
-      nextStart = geotiff.writeData((byte[]) result.getStorage(), pageNumber);
-    } else {
-      ArrayFloat result = replaceMissingValues(array, data, dataMinMax);
-      nextStart = geotiff.writeData((float[]) result.getStorage(), pageNumber);
-    }
-
-    // set the width and the height
-    int height = data.getShape()[0]; // Y
-    int width = data.getShape()[1]; // X
-
-    writeMetadata(greyScale, xStart, yStart, xInc, yInc, height, width, pageNumber, nextStart, dataMinMax, proj);
+    Array result = greyScale ? replaceMissingValuesAndScale(array, data, dataMinMax)
+        : replaceMissingValues(array, data, dataMinMax);
+    writeImage(result, greyScale, xStart, yStart, xInc, yInc, pageNumber, dataMinMax, proj);
     pageNumber++;
   }
 }
@@ -0,0 +1,312 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.iosp;
+
+import ucar.unidata.io.RandomAccessFile;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Finds the IOServiceProvider for a file, used by NetcdfFile.open().
+ * <p/>
+ * The start of the file is read once into a probe buffer, only as far as the signatures being checked need. An IOSP
+ * may have signatures registered for it: magic bytes
+ * at a fixed offset, or anywhere within a search range. If it does, and none of them are in the probe, its
+ * isValidFile() is not called. So a signature must be a necessary condition for isValidFile() to return true.
+ * IOSPs without signatures are always asked, as before.
+ * <p/>
+ * Registered providers are tried first, in order, then the ones found by the ServiceLoader. This is the same result
+ * as before, where a registered provider overrode a ServiceLoader one. The ServiceLoader is only run once for each
+ * context ClassLoader, unless memory runs low.
+ * <p/>
+ * The time spent in isValidFile() is tracked for each IOSP, see showStatus().
+ *
+ * @since 10/19/2026
+ */
+@ThreadSafe
+public class IospDispatcher {
+  private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(IospDispatcher.class);
+
+  static final int MAX_PROBE = 64 * 1024;
+  static final int MIN_PROBE = 1024;
+
+  private static final Map<String, List<Signature>> signatures = new ConcurrentHashMap<>();
+  private static final Map<String, ProviderStats> stats = new ConcurrentHashMap<>();
+  // the providers hold their ClassLoader strongly, so they are only softly held, else the key is never released
+  private static final Map<ClassLoader, SoftReference<List<IOServiceProvider>>> loaded = new WeakHashMap<>();
+  private static volatile boolean useSignatures = true;
+
+  // the built-in IOSPs whose isValidFile() starts with a simple magic number check
+  static {
+    registerSignature("ucar.nc2.stream.NcStreamIosp", 0, new byte[] {0x43, 0x44, 0x46, 0x53}); // CDFS
+    registerSignature("ucar.nc2.iosp.hdf4.H4iosp", 0, new byte[] {0x0e, 0x03, 0x13, 0x01});
+    registerSignature("ucar.nc2.iosp.nexrad2.Nexrad2IOServiceProvider", 0, "ARCHIVE2");
+    registerSignature("ucar.nc2.iosp.nexrad2.Nexrad2IOServiceProvider", 0, "AR2V000");
+    registerSignature("ucar.nc2.iosp.sigmet.SigmetIOServiceProvider", 0, new byte[] {27, 0}); // little endian 27
+    for (String s : new String[] {"A   V   E   R   A   G   E", "E   M   I   S   S   I   O   N   S",
+        "A   I   R   Q   U   A   L   I   T   Y", "I   N   S   T   A   N   T"})
+      registerSignature("ucar.nc2.iosp.uamiv.UAMIVServiceProvider", 4, s);
+    for (String gempak : new String[] {"ucar.nc2.iosp.gempak.GempakSurfaceIOSP",
+        "ucar.nc2.iosp.gempak.GempakSoundingIOSP", "ucar.nc2.iosp.gempak.GempakGridServiceProvider"})
+      registerSignature(gempak, 0, "GEMPAK DATA MANAGEMENT FILE ");
+    // MessageScanner looks for BUFR in the first 40K; be generous, a larger range only means fewer skips
+    registerSearchSignature("ucar.nc2.iosp.bufr.BufrIosp2", 48 * 1024, "BUFR".getBytes(StandardCharsets.US_ASCII));
+  }
+
+  /**
+   * Register magic bytes that must be at the given offset for the IOSP to accept the file.
+   * If more than one signature is registered for an IOSP, any one of them must match.
+   *
+   * @param iospClassName fully qualified class name of the IOSP
+   * @param offset byte offset from the start of the file
+   * @param magic the bytes
+   */
+  public static void registerSignature(String iospClassName, int offset, byte[] magic) {
+    addSignature(iospClassName, new Signature(offset, magic, false));
+  }
+
+  public static void registerSignature(String iospClassName, int offset, String magic) {
+    registerSignature(iospClassName, offset, magic.getBytes(StandardCharsets.US_ASCII));
+  }
+
+  /**
+   * Register magic bytes that must be somewhere within the first searchLength bytes of the file
+   * for the IOSP to accept it.
+   *
+   * @param iospClassName fully qualified class name of the IOSP
+   * @param searchLength the magic bytes must end before this offset
+   * @param magic the bytes
+   */
+  public static void registerSearchSignature(String iospClassName, int searchLength, byte[] magic) {
+    addSignature(iospClassName, new Signature(searchLength - magic.length, magic, true));
+  }
+
+  private static void addSignature(String iospClassName, Signature sig) {
+    if (sig.extent() > MAX_PROBE)
+      throw new IllegalArgumentException("IOSP signature must be within the first " + MAX_PROBE + " bytes");
+    signatures.computeIfAbsent(iospClassName, k -> new CopyOnWriteArrayList<>()).add(sig);
+  }
+
+  /** Remove all signatures for this IOSP, so it is always asked. */
+  public static void removeSignatures(String iospClassName) {
+    signatures.remove(iospClassName);
+  }
+
+  /** Set to false to ask all IOSPs, ignoring signatures. Default is true. */
+  public static void setUseSignatures(boolean b) {
+    useSignatures = b;
+  }
+
+  /**
+   * The IOSPs found by the ServiceLoader for the current thread's context ClassLoader.
+   * These are only used to call isValidFile(); make a new instance to open a file.
+   */
+  public static List<IOServiceProvider> getServiceLoaderProviders() {
+    ClassLoader cl = Thread.currentThread().getContextClassLoader();
+    synchronized (loaded) {
+      SoftReference<List<IOServiceProvider>> ref = loaded.get(cl);
+      List<IOServiceProvider> result = (ref == null) ? null : ref.get();
+      if (result == null) {
+        result = new ArrayList<>();
+        for (IOServiceProvider iosp : ServiceLoader.load(IOServiceProvider.class, cl)) {
+          logger.info("ServiceLoader IOServiceProvider {}", iosp.getClass().getName());
+          result.add(iosp);
+        }
+        result = Collections.unmodifiableList(result);
+        loaded.put(cl, new SoftReference<>(result));
+      }
+      return result;
+    }
+  }
+
+  /** Run the ServiceLoader again on next use, eg after adding jars to a ClassLoader. */
+  public static void clearServiceLoaderCache() {
+    synchronized (loaded) {
+      loaded.clear();
+    }
+  }
+
+  /**
+   * Find the IOSP that can open this file.
+   *
+   * @param raf the file
+   * @param registered registered providers, tried first and in order
+   * @return a provider instance whose isValidFile() returned true, or null if none.
+   *         Make a new instance of its class to open the file.
+   * @throws IOException on read error
+   */
+  public static IOServiceProvider findProvider(RandomAccessFile raf, List<IOServiceProvider> registered)
+      throws IOException {
+    Probe probe = useSignatures ? new Probe(raf) : null;
+
+    for (IOServiceProvider iosp : registered) {
+      if (isValidFile(iosp, raf, probe))
+        return iosp;
+    }
+    for (IOServiceProvider iosp : getServiceLoaderProviders()) {
+      if (isValidFile(iosp, raf, probe))
+        return iosp;
+    }
+    return null;
+  }
+
+  private static boolean isValidFile(IOServiceProvider iosp, RandomAccessFile raf, Probe probe) throws IOException {
+    String className = iosp.getClass().getName();
+    ProviderStats ps = stats.computeIfAbsent(className, ProviderStats::new);
+
+    if (probe != null) {
+      List<Signature> sigs = signatures.get(className);
+      if (sigs != null && !probe.matchesAny(sigs)) {
+        ps.skipped.incrementAndGet();
+        return false;
+      }
+    }
+
+    long start = System.nanoTime();
+    boolean ok = false;
+    try {
+      ok = iosp.isValidFile(raf);
+      return ok;
+    } finally {
+      ps.nanos.addAndGet(System.nanoTime() - start);
+      ps.calls.incrementAndGet();
+      if (ok)
+        ps.matches.incrementAndGet();
+      logger.debug(" IospDispatcher {} isValidFile {} = {}", className, raf.getLocation(), ok);
+    }
+  }
+
+  ////////////////////////////////////////////////////////////////////////////////////
+  // statistics
+
+  /** Statistics for this IOSP class, or null if it has not been seen */
+  public static ProviderStats getStats(String iospClassName) {
+    return stats.get(iospClassName);
+  }
+
+  public static void resetStatistics() {
+    stats.clear();
+  }
+
+  public static void showStatus(Formatter f) {
+    f.format("IospDispatcher signatures=%d useSignatures=%s%n", signatures.size(), useSignatures);
+    List<ProviderStats> all = new ArrayList<>(stats.values());
+    all.sort((a, b) -> Long.compare(b.nanos.get(), a.nanos.get()));
+    for (ProviderStats ps : all)
+      f.format(" %s%n", ps);
+  }
+
+  @ThreadSafe
+  public static class ProviderStats {
+    private final String className;
+    private final AtomicLong calls = new AtomicLong(); // isValidFile() was called
+    private final AtomicLong skipped = new AtomicLong(); // no signature matched
+    private final AtomicLong matches = new AtomicLong(); // isValidFile() returned true
+    private final AtomicLong nanos = new AtomicLong(); // time in isValidFile()
+
+    ProviderStats(String className) {
+      this.className = className;
+    }
+
+    public long getCalls() {
+      return calls.get();
+    }
+
+    public long getSkipped() {
+      return skipped.get();
+    }
+
+    public long getMatches() {
+      return matches.get();
+    }
+
+    public long getNanos() {
+      return nanos.get();
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%-60s calls=%d skipped=%d matches=%d msecs=%.3f", className, calls.get(), skipped.get(),
+          matches.get(), nanos.get() / 1.0e6);
+    }
+  }
+
+  // the start of the file, read as needed
+  private static class Probe {
+    private final RandomAccessFile raf;
+    private final long fileLength;
+    private byte[] bytes = new byte[0];
+
+    Probe(RandomAccessFile raf) throws IOException {
+      this.raf = raf;
+      this.fileLength = raf.length();
+    }
+
+    boolean matchesAny(List<Signature> sigs) throws IOException {
+      for (Signature sig : sigs) {
+        if (sig.matches(get(sig.extent())))
+          return true;
+      }
+      return false;
+    }
+
+    // at least the first nbytes of the file, or all of it if shorter
+    private byte[] get(int nbytes) throws IOException {
+      if (bytes.length >= nbytes || bytes.length == fileLength)
+        return bytes;
+      int len = (int) Math.min(fileLength, Math.max(nbytes, Math.max(MIN_PROBE, 2 * bytes.length)));
+      byte[] more = new byte[len];
+      raf.seek(0);
+      raf.readFully(more);
+      bytes = more;
+      return bytes;
+    }
+  }
+
+  private static class Signature {
+    final int offset; // if search, the last offset to try
+    final byte[] magic;
+    final boolean search;
+
+    Signature(int offset, byte[] magic, boolean search) {
+      this.offset = offset;
+      this.magic = magic;
+      this.search = search;
+    }
+
+    int extent() {
+      return offset + magic.length;
+    }
+
+    boolean matches(byte[] probe) {
+      if (!search)
+        return matchesAt(probe, offset);
+      int last = Math.min(offset, probe.length - magic.length);
+      for (int pos = 0; pos <= last; pos++) {
+        if (matchesAt(probe, pos))
+          return true;
+      }
+      return false;
+    }
+
+    private boolean matchesAt(byte[] probe, int pos) {
+      if (pos + magic.length > probe.length)
+        return false;
+      for (int i = 0; i < magic.length; i++) {
+        if (probe[pos + i] != magic[i])
+          return false;
+      }
+      return true;
+    }
+  }
+
+}
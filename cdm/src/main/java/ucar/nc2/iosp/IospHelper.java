@@ -76,6 +76,13 @@ public class IospHelper {
     if (showLayoutTypes)
       System.out.println("***RAF LayoutType=" + layout.getClass().getName());
 
+    if (LayoutReadPlanner.isEnabled()) { // coalesce nearby chunks
+      LayoutReadPlanner.readData(raf, layout, dataType, arr, byteOrder);
+      if (convertChar && dataType == DataType.CHAR)
+        return convertByteToChar((byte[]) arr);
+      return arr;
+    }
+
     if (dataType.getPrimitiveClassType() == byte.class || dataType == DataType.CHAR) {
       byte[] pa = (byte[]) arr;
       while (layout.hasNext()) {
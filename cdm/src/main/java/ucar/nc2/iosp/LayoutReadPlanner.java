@@ -0,0 +1,270 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.iosp;
+
+import ucar.ma2.DataType;
+import ucar.unidata.io.RandomAccessFile;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Formatter;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesces the reads of a Layout. Looks ahead over the chunks, and merges chunks whose gap in the file is
+ * at most maxGap bytes into one sequential read, up to maxReadSize bytes. The bytes are then scattered into the
+ * destination array. This helps strided reads and time series from netCDF-3 record variables
+ * (LayoutRegularSegmented), which otherwise make one small read, and often a new RandomAccessFile buffer fill,
+ * for each chunk.
+ * <p/>
+ * Used by IospHelper.readData(RandomAccessFile, Layout, ...). By default it is off, use setMaxGap() to turn it on.
+ *
+ * @since 10/19/2026
+ */
+public class LayoutReadPlanner {
+  public static final int DEFAULT_MAX_READ_SIZE = 1000 * 1000;
+
+  private static volatile int maxGap = -1; // off
+  private static volatile int maxReadSize = DEFAULT_MAX_READ_SIZE;
+
+  // read amplification
+  private static final AtomicLong chunks = new AtomicLong();
+  private static final AtomicLong reads = new AtomicLong();
+  private static final AtomicLong bytesWanted = new AtomicLong();
+  private static final AtomicLong bytesRead = new AtomicLong();
+
+  /**
+   * Set the largest gap between two chunks that are read together. Default is -1, meaning no coalescing.
+   *
+   * @param gap in bytes; 0 merges only adjacent chunks, negative turns coalescing off
+   */
+  public static void setMaxGap(int gap) {
+    maxGap = gap;
+  }
+
+  public static int getMaxGap() {
+    return maxGap;
+  }
+
+  /**
+   * Set the largest coalesced read.
+   *
+   * @param size in bytes, default is DEFAULT_MAX_READ_SIZE
+   */
+  public static void setMaxReadSize(int size) {
+    maxReadSize = Math.max(1, size);
+  }
+
+  public static int getMaxReadSize() {
+    return maxReadSize;
+  }
+
+  public static boolean isEnabled() {
+    return maxGap >= 0;
+  }
+
+  /**
+   * Read data subset from RandomAccessFile, place in given primitive array, coalescing the reads.
+   * Same as IospHelper.readData(), but CHAR is always left as bytes.
+   *
+   * @param raf read from here.
+   * @param layout handles skipping around in the file.
+   * @param dataType dataType of the variable
+   * @param arr primitive array to read data into
+   * @param byteOrder if equal to RandomAccessFile.ORDER_XXXX, set the byte order just before reading
+   * @return primitive array with data read in
+   * @throws java.io.IOException on read error
+   */
+  public static Object readData(RandomAccessFile raf, Layout layout, DataType dataType, Object arr, int byteOrder)
+      throws IOException {
+    raf.order(byteOrder);
+    int elemSize = (dataType == DataType.STRUCTURE) ? layout.getElemSize() : dataType.getSize();
+    Plan plan = new Plan(raf, dataType, arr, elemSize, maxGap, maxReadSize);
+    while (layout.hasNext()) {
+      Layout.Chunk chunk = layout.next(); // may be reused by the layout
+      plan.add(chunk.getSrcPos(), chunk.getNelems(), chunk.getDestElem());
+    }
+    plan.flush();
+    return arr;
+  }
+
+  // the chunks of the current run, all at increasing positions in the file
+  private static class Plan {
+    private final RandomAccessFile raf;
+    private final DataType dataType;
+    private final Object arr;
+    private final int elemSize, gap, readSize;
+
+    private int count;
+    private long[] srcPos = new long[16];
+    private long[] destElem = new long[16];
+    private int[] nelems = new int[16];
+    private long start, end; // file positions of the run
+    private byte[] buffer;
+
+    Plan(RandomAccessFile raf, DataType dataType, Object arr, int elemSize, int gap, int readSize) {
+      this.raf = raf;
+      this.dataType = dataType;
+      this.arr = arr;
+      this.elemSize = elemSize;
+      this.gap = gap;
+      this.readSize = readSize;
+    }
+
+    void add(long pos, int n, long dest) throws IOException {
+      long nbytes = (long) n * elemSize;
+      chunks.incrementAndGet();
+      bytesWanted.addAndGet(nbytes);
+      if (count > 0 && (pos < end || pos - end > gap || pos + nbytes - start > readSize))
+        flush();
+
+      if (count == srcPos.length) {
+        srcPos = Arrays.copyOf(srcPos, 2 * count);
+        destElem = Arrays.copyOf(destElem, 2 * count);
+        nelems = Arrays.copyOf(nelems, 2 * count);
+      }
+      if (count == 0)
+        start = pos;
+      srcPos[count] = pos;
+      destElem[count] = dest;
+      nelems[count] = n;
+      end = pos + nbytes;
+      count++;
+    }
+
+    void flush() throws IOException {
+      if (count == 0)
+        return;
+      reads.incrementAndGet();
+      bytesRead.addAndGet(end - start);
+
+      if (count == 1) { // nothing to coalesce
+        raf.seek(srcPos[0]);
+        readDirect(destElem[0], nelems[0]);
+
+      } else {
+        int len = (int) (end - start);
+        if (buffer == null || buffer.length < len)
+          buffer = new byte[len];
+        raf.seek(start);
+        raf.readFully(buffer, 0, len);
+        ByteBuffer bb = ByteBuffer.wrap(buffer).order(raf.getByteOrder());
+        for (int i = 0; i < count; i++)
+          scatter(bb, (int) (srcPos[i] - start), destElem[i], nelems[i]);
+      }
+      count = 0;
+    }
+
+    private void readDirect(long dest, int n) throws IOException {
+      if (dataType.getPrimitiveClassType() == byte.class || dataType == DataType.CHAR)
+        raf.readFully((byte[]) arr, (int) dest, n);
+      else if (dataType.getPrimitiveClassType() == short.class)
+        raf.readShort((short[]) arr, (int) dest, n);
+      else if (dataType.getPrimitiveClassType() == int.class)
+        raf.readInt((int[]) arr, (int) dest, n);
+      else if (dataType == DataType.FLOAT)
+        raf.readFloat((float[]) arr, (int) dest, n);
+      else if (dataType == DataType.DOUBLE)
+        raf.readDouble((double[]) arr, (int) dest, n);
+      else if (dataType.getPrimitiveClassType() == long.class)
+        raf.readLong((long[]) arr, (int) dest, n);
+      else if (dataType == DataType.STRUCTURE)
+        raf.readFully((byte[]) arr, (int) dest * elemSize, n * elemSize);
+      else
+        throw new IllegalStateException("unknown type= " + dataType);
+    }
+
+    private void scatter(ByteBuffer bb, int offset, long dest, int n) {
+      int to = (int) dest;
+      if (dataType.getPrimitiveClassType() == byte.class || dataType == DataType.CHAR) {
+        System.arraycopy(buffer, offset, arr, to, n);
+
+      } else if (dataType.getPrimitiveClassType() == short.class) {
+        short[] pa = (short[]) arr;
+        if (n == 1)
+          pa[to] = bb.getShort(offset);
+        else
+          ((ByteBuffer) bb.position(offset)).asShortBuffer().get(pa, to, n);
+
+      } else if (dataType.getPrimitiveClassType() == int.class) {
+        int[] pa = (int[]) arr;
+        if (n == 1)
+          pa[to] = bb.getInt(offset);
+        else
+          ((ByteBuffer) bb.position(offset)).asIntBuffer().get(pa, to, n);
+
+      } else if (dataType == DataType.FLOAT) {
+        float[] pa = (float[]) arr;
+        if (n == 1)
+          pa[to] = bb.getFloat(offset);
+        else
+          ((ByteBuffer) bb.position(offset)).asFloatBuffer().get(pa, to, n);
+
+      } else if (dataType == DataType.DOUBLE) {
+        double[] pa = (double[]) arr;
+        if (n == 1)
+          pa[to] = bb.getDouble(offset);
+        else
+          ((ByteBuffer) bb.position(offset)).asDoubleBuffer().get(pa, to, n);
+
+      } else if (dataType.getPrimitiveClassType() == long.class) {
+        long[] pa = (long[]) arr;
+        if (n == 1)
+          pa[to] = bb.getLong(offset);
+        else
+          ((ByteBuffer) bb.position(offset)).asLongBuffer().get(pa, to, n);
+
+      } else if (dataType == DataType.STRUCTURE) {
+        System.arraycopy(buffer, offset, arr, to * elemSize, n * elemSize);
+
+      } else {
+        throw new IllegalStateException("unknown type= " + dataType);
+      }
+    }
+  }
+
+  ////////////////////////////////////////////////////////////////////////////////////
+  // statistics
+
+  /** Number of Layout chunks read */
+  public static long getChunks() {
+    return chunks.get();
+  }
+
+  /** Number of reads made, after coalescing */
+  public static long getReads() {
+    return reads.get();
+  }
+
+  /** Number of bytes in the chunks */
+  public static long getBytesWanted() {
+    return bytesWanted.get();
+  }
+
+  /** Number of bytes read, including the gaps between coalesced chunks */
+  public static long getBytesRead() {
+    return bytesRead.get();
+  }
+
+  /** Bytes read / bytes wanted */
+  public static double getReadAmplification() {
+    long wanted = bytesWanted.get();
+    return wanted == 0 ? 1.0 : (double) bytesRead.get() / wanted;
+  }
+
+  public static void resetStatistics() {
+    chunks.set(0);
+    reads.set(0);
+    bytesWanted.set(0);
+    bytesRead.set(0);
+  }
+
+  public static void showStatus(Formatter f) {
+    f.format("LayoutReadPlanner maxGap=%d maxReadSize=%d chunks=%d reads=%d bytesWanted=%d bytesRead=%d"
+        + " amplification=%.3f%n", maxGap, maxReadSize, getChunks(), getReads(), getBytesWanted(), getBytesRead(),
+        getReadAmplification());
+  }
+
+}
@@ -60,6 +60,10 @@ public class DataBTree {
     this.owner = owner;
   }
 
+  long getRootNodeAddress() {
+    return rootNodeAddress;
+  }
+
   // used by H5tiledLayoutBB
   DataChunkIterator getDataChunkIteratorFilter(Section want) throws IOException {
     return new DataChunkIterator(want);
@@ -133,6 +133,20 @@ public class H5header extends NCheader {
     return isNetcdf4;
   }
 
+  long getBaseAddress() {
+    return baseAddress;
+  }
+
+  // used by H5headerCache instead of read(): restore what is needed to read data
+  void setFromCache(long baseAddress, byte sizeOffsets, byte sizeLengths, boolean isNetcdf4) {
+    this.baseAddress = baseAddress;
+    this.sizeOffsets = sizeOffsets;
+    this.isOffsetLong = (sizeOffsets == 8);
+    this.sizeLengths = sizeLengths;
+    this.isLengthLong = (sizeLengths == 8);
+    this.isNetcdf4 = isNetcdf4;
+  }
+
   public void read(java.io.PrintWriter debugPS) throws IOException {
     if (debugPS != null) {
       debugOut = debugPS;
@@ -1814,6 +1828,11 @@ public class H5header extends NCheader {
     }
 
 
+    /**
+     * Constructor, used by H5headerCache, which sets the fields
+     */
+    Vinfo() {}
+
     /**
      * Constructor
      *
@@ -3878,6 +3897,15 @@ public class H5header extends NCheader {
     short nValues;
     int[] data;
 
+    // used by H5headerCache
+    Filter(short id, short flags, String name, int[] data) {
+      this.id = id;
+      this.flags = flags;
+      this.name = name;
+      this.nValues = (short) data.length;
+      this.data = data;
+    }
+
     Filter(byte version) throws IOException {
       this.id = raf.readShort();
       short nameSize = ((version > 1) && (id < 256)) ? 0 : raf.readShort(); // if the filter id < 256 then this field is
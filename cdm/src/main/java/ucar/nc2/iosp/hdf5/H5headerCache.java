@@ -0,0 +1,376 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.iosp.hdf5;
+
+import ucar.ma2.DataType;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.Structure;
+import ucar.nc2.Variable;
+import ucar.nc2.stream.NcStream;
+import ucar.nc2.stream.NcStreamProto;
+import ucar.nc2.util.DiskCache2;
+import ucar.unidata.io.RandomAccessFile;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Formatter;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Persists what H5header.read() finds, so that reopening an unchanged file does not parse the header again.
+ * <p/>
+ * The CDM objects are stored as an ncstream header, followed by the H5header.Vinfo of each variable:
+ * data location, type, chunking and filters. Chunk B-trees are not stored, they are read as needed, as before.
+ * The cache file is found with the DiskCache2, and is keyed by the file's path, length and last modified time,
+ * so it is rewritten when the file changes.
+ * <p/>
+ * Only local files are cached, and only if every variable can be read from its Vinfo alone:
+ * files with Structures, time or reference types are always parsed.
+ * <p/>
+ * Off by default, see setDiskCache().
+ *
+ * @since 10/19/2026
+ */
+@ThreadSafe
+public class H5headerCache {
+  private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(H5headerCache.class);
+
+  static final String SUFFIX = ".h5meta";
+  private static final int MAGIC = 0x48354d43; // "H5MC"
+  private static final int VERSION = 1;
+
+  private static volatile DiskCache2 diskCache;
+  private static final AtomicLong hits = new AtomicLong();
+  private static final AtomicLong misses = new AtomicLong();
+  private static final AtomicLong writes = new AtomicLong();
+  private static final AtomicLong notCacheable = new AtomicLong();
+
+  /**
+   * Where to keep the cached headers. Set to null to turn off caching, the default.
+   * If the DiskCache2 is not set to alwaysUseCache, the cache file is put next to the HDF5 file when that
+   * directory is writeable, as for GRIB indexes.
+   *
+   * @param dc use this DiskCache2, or null
+   */
+  public static void setDiskCache(DiskCache2 dc) {
+    diskCache = dc;
+  }
+
+  public static DiskCache2 getDiskCache() {
+    return diskCache;
+  }
+
+  /** Number of opens that used a cached header */
+  public static long getHits() {
+    return hits.get();
+  }
+
+  /** Number of cached headers written */
+  public static long getWrites() {
+    return writes.get();
+  }
+
+  public static void resetStatistics() {
+    hits.set(0);
+    misses.set(0);
+    writes.set(0);
+    notCacheable.set(0);
+  }
+
+  public static void showStatus(Formatter f) {
+    f.format("H5headerCache %s hits=%d misses=%d writes=%d notCacheable=%d%n", diskCache == null ? "off" : "on",
+        hits.get(), misses.get(), writes.get(), notCacheable.get());
+  }
+
+  /**
+   * Get the cache for this file.
+   *
+   * @param raf the HDF5 file
+   * @param options any iosp settings that change what H5header.read() makes, part of the key
+   * @return null if caching is off, or the file is not local
+   */
+  static H5headerCache factory(RandomAccessFile raf, int options) throws IOException {
+    DiskCache2 dc = diskCache;
+    if (dc == null)
+      return null;
+    File file = new File(raf.getLocation());
+    if (!file.isFile())
+      return null;
+    String path = file.getAbsolutePath();
+    File cacheFile = dc.getCacheFile(path + SUFFIX);
+    if (cacheFile == null)
+      return null;
+    return new H5headerCache(path, raf.length(), file.lastModified(), options, cacheFile);
+  }
+
+  ////////////////////////////////////////////////////////////////////////////////////
+
+  private final String path;
+  private final long length;
+  private final long lastModified;
+  private final int options;
+  private final File cacheFile;
+  private boolean isEos;
+
+  private H5headerCache(String path, long length, long lastModified, int options, File cacheFile) {
+    this.path = path;
+    this.length = length;
+    this.lastModified = lastModified;
+    this.options = options;
+    this.cacheFile = cacheFile;
+  }
+
+  File getCacheFile() {
+    return cacheFile;
+  }
+
+  /** If the cached header was amended by HdfEos */
+  boolean isEos() {
+    return isEos;
+  }
+
+  /**
+   * Add the cached objects to the empty ncfile, and set up the header so data can be read.
+   *
+   * @return false if there is no valid cache file, then ncfile is unchanged.
+   */
+  boolean read(NetcdfFile ncfile, H5header header) {
+    if (!cacheFile.exists()) {
+      misses.incrementAndGet();
+      return false;
+    }
+
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)))) {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION || !in.readUTF().equals(path) || in.readLong() != length
+          || in.readLong() != lastModified || in.readInt() != options) {
+        log.debug("H5headerCache {} is out of date", cacheFile);
+        misses.incrementAndGet();
+        return false;
+      }
+
+      header.setFromCache(in.readLong(), in.readByte(), in.readByte(), in.readBoolean());
+      boolean eos = in.readBoolean();
+      byte[] b = new byte[in.readInt()];
+      in.readFully(b);
+      NcStream.decodeHeader(NcStreamProto.Header.parseFrom(b), ncfile);
+      ncfile.finish();
+
+      int nvars = in.readInt();
+      if (nvars != ncfile.getVariables().size())
+        throw new IOException("number of variables = " + ncfile.getVariables().size() + " expected " + nvars);
+      for (int i = 0; i < nvars; i++) {
+        String name = in.readUTF();
+        Variable v = ncfile.findVariable(name);
+        if (v == null)
+          throw new IOException("cant find variable " + name);
+        v.setElementSize(in.readInt());
+        v.setSPobject(readVinfo(in, header, v));
+      }
+
+      this.isEos = eos;
+      hits.incrementAndGet();
+      return true;
+
+    } catch (IOException | RuntimeException e) {
+      log.warn("H5headerCache failed to read {}: {}", cacheFile, e.getMessage());
+      ncfile.empty();
+      misses.incrementAndGet();
+      return false;
+    }
+  }
+
+  /**
+   * Write the cache file, after H5header.read() and ncfile.finish(). Errors are logged and otherwise ignored.
+   */
+  void write(NetcdfFile ncfile, H5header header, boolean isEos) {
+    if (!isCacheable(ncfile)) {
+      log.debug("H5headerCache {} not cacheable", path);
+      notCacheable.incrementAndGet();
+      return;
+    }
+
+    File tempFile = null;
+    try {
+      // write to a temp file in the same directory, so the cache file is never seen partly written
+      tempFile = File.createTempFile(cacheFile.getName(), ".tmp", cacheFile.getAbsoluteFile().getParentFile());
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeUTF(path);
+        out.writeLong(length);
+        out.writeLong(lastModified);
+        out.writeInt(options);
+
+        out.writeLong(header.getBaseAddress());
+        out.writeByte(header.sizeOffsets);
+        out.writeByte(header.sizeLengths);
+        out.writeBoolean(header.isNetcdf4());
+        out.writeBoolean(isEos);
+        byte[] b = NcStream.encodeHeader(ncfile).toByteArray();
+        out.writeInt(b.length);
+        out.write(b);
+
+        List<Variable> vars = ncfile.getVariables();
+        out.writeInt(vars.size());
+        for (Variable v : vars) {
+          out.writeUTF(v.getFullNameEscaped());
+          out.writeInt(v.getElementSize());
+          writeVinfo(out, (H5header.Vinfo) v.getSPobject());
+        }
+      }
+      Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      writes.incrementAndGet();
+      log.debug("H5headerCache wrote {}", cacheFile);
+
+    } catch (IOException | RuntimeException e) {
+      log.warn("H5headerCache failed to write {}: {}", cacheFile, e.getMessage());
+      if (tempFile != null && tempFile.exists() && !tempFile.delete())
+        log.warn("H5headerCache failed to delete {}", tempFile);
+    }
+  }
+
+  // every variable can be read from its Vinfo, without the parsed header objects
+  private static boolean isCacheable(NetcdfFile ncfile) {
+    for (Variable v : ncfile.getVariables()) {
+      if (v instanceof Structure || !(v.getSPobject() instanceof H5header.Vinfo))
+        return false;
+      H5header.Vinfo vinfo = (H5header.Vinfo) v.getSPobject();
+      if (vinfo.typeInfo == null || !isCacheable(vinfo.typeInfo))
+        return false;
+    }
+    return true;
+  }
+
+  // time (2), compound (6), reference (7) and array (10) types need more than the TypeInfo
+  private static boolean isCacheable(H5header.TypeInfo typeInfo) {
+    switch (typeInfo.hdfType) {
+      case 0:
+      case 1:
+      case 3:
+      case 4:
+      case 5:
+      case 8:
+      case 9:
+        return typeInfo.base == null || isCacheable(typeInfo.base);
+      default:
+        return false;
+    }
+  }
+
+  ////////////////////////////////////////////////////////////////////////////////////
+
+  private static void writeVinfo(DataOutputStream out, H5header.Vinfo vinfo) throws IOException {
+    out.writeLong(vinfo.dataPos);
+    writeTypeInfo(out, vinfo.typeInfo);
+    writeInts(out, vinfo.storageSize);
+    out.writeBoolean(vinfo.isvlen);
+    out.writeBoolean(vinfo.useFillValue);
+    writeBytes(out, vinfo.fillValue);
+
+    if (vinfo.mfp == null) {
+      out.writeInt(-1);
+    } else {
+      out.writeInt(vinfo.mfp.filters.length);
+      for (H5header.Filter filter : vinfo.mfp.filters) {
+        out.writeShort(filter.id);
+        out.writeShort(filter.flags);
+        out.writeUTF(filter.name == null ? "" : filter.name);
+        writeInts(out, filter.data);
+      }
+    }
+
+    out.writeBoolean(vinfo.isChunked);
+    if (vinfo.isChunked)
+      out.writeLong(vinfo.btree.getRootNodeAddress());
+  }
+
+  private static H5header.Vinfo readVinfo(DataInputStream in, H5header header, Variable v) throws IOException {
+    H5header.Vinfo vinfo = header.new Vinfo();
+    vinfo.dataPos = in.readLong();
+    vinfo.typeInfo = readTypeInfo(in);
+    vinfo.storageSize = readInts(in);
+    vinfo.isvlen = in.readBoolean();
+    vinfo.useFillValue = in.readBoolean();
+    vinfo.fillValue = readBytes(in);
+
+    int nfilters = in.readInt();
+    if (nfilters >= 0) {
+      vinfo.mfp = header.new MessageFilter();
+      vinfo.mfp.filters = new H5header.Filter[nfilters];
+      for (int i = 0; i < nfilters; i++)
+        vinfo.mfp.filters[i] = header.new Filter(in.readShort(), in.readShort(), in.readUTF(), readInts(in));
+    }
+
+    vinfo.isChunked = in.readBoolean();
+    if (vinfo.isChunked)
+      vinfo.btree = new DataBTree(header, in.readLong(), v.getShape(), vinfo.storageSize, null);
+    vinfo.setOwner(v);
+    return vinfo;
+  }
+
+  private static void writeTypeInfo(DataOutputStream out, H5header.TypeInfo typeInfo) throws IOException {
+    out.writeInt(typeInfo.hdfType);
+    out.writeInt(typeInfo.byteSize);
+    out.writeUTF(typeInfo.dataType == null ? "" : typeInfo.dataType.name());
+    out.writeInt(typeInfo.endian);
+    out.writeBoolean(typeInfo.unsigned);
+    out.writeBoolean(typeInfo.isVString);
+    out.writeBoolean(typeInfo.isVlen);
+    out.writeInt(typeInfo.vpad);
+    out.writeBoolean(typeInfo.base != null);
+    if (typeInfo.base != null)
+      writeTypeInfo(out, typeInfo.base);
+  }
+
+  private static H5header.TypeInfo readTypeInfo(DataInputStream in) throws IOException {
+    H5header.TypeInfo typeInfo = new H5header.TypeInfo(in.readInt(), in.readInt());
+    String dataType = in.readUTF();
+    typeInfo.dataType = dataType.isEmpty() ? null : DataType.valueOf(dataType);
+    typeInfo.endian = in.readInt();
+    typeInfo.unsigned = in.readBoolean();
+    typeInfo.isVString = in.readBoolean();
+    typeInfo.isVlen = in.readBoolean();
+    typeInfo.vpad = in.readInt();
+    if (in.readBoolean())
+      typeInfo.base = readTypeInfo(in);
+    return typeInfo;
+  }
+
+  private static void writeInts(DataOutputStream out, int[] vals) throws IOException {
+    out.writeInt(vals == null ? -1 : vals.length);
+    if (vals != null)
+      for (int val : vals)
+        out.writeInt(val);
+  }
+
+  private static int[] readInts(DataInputStream in) throws IOException {
+    int n = in.readInt();
+    if (n < 0)
+      return null;
+    int[] vals = new int[n];
+    for (int i = 0; i < n; i++)
+      vals[i] = in.readInt();
+    return vals;
+  }
+
+  private static void writeBytes(DataOutputStream out, byte[] vals) throws IOException {
+    out.writeInt(vals == null ? -1 : vals.length);
+    if (vals != null)
+      out.write(vals);
+  }
+
+  private static byte[] readBytes(DataInputStream in) throws IOException {
+    int n = in.readInt();
+    if (n < 0)
+      return null;
+    byte[] vals = new byte[n];
+    in.readFully(vals);
+    return vals;
+  }
+
+}
@@ -0,0 +1,947 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.iosp.hdf5;
+
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+import ucar.nc2.*;
+import ucar.nc2.constants.CDM;
+import ucar.nc2.iosp.netcdf4.Nc4;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Writes the HDF5 metadata for H5iospWriter: superblock version 2, version 2 object headers with compact links and
+ * attributes, version 1 chunk B-trees, and global heap collections for variable length data.
+ * Dimensions are written as netCDF-4 dimension scales, so H5iosp and the netCDF-C library see the same dimensions.
+ *
+ * @since 10/19/2026
+ */
+class H5headerWriter {
+  private static org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(H5headerWriter.class);
+
+  static final int SUPERBLOCK_SIZE = 48;
+  static final long UNDEFINED = -1L;
+
+  // the HDF5 library assumes K = 32 for chunk B-trees, ie nodes have room for 64 entries
+  private static final int BTREE_ENTRIES = 64;
+  private static final int MAX_MESSAGE_SIZE = 0xFFFF;
+  private static final String NOT_A_VARIABLE = "This is a netCDF dimension but not a netCDF variable.";
+
+  // message types
+  private static final int DATASPACE = 1;
+  private static final int LINK_INFO = 2;
+  private static final int DATATYPE = 3;
+  private static final int FILL_VALUE = 5;
+  private static final int LINK = 6;
+  private static final int LAYOUT = 8;
+  private static final int GROUP_INFO = 10;
+  private static final int FILTER_PIPELINE = 11;
+  private static final int ATTRIBUTE = 12;
+
+  // attributes that are managed by the writer, or only make sense to the netCDF-C library
+  private static final Set<String> skipAttributes = new HashSet<>(Arrays.asList(H5header.HDF5_CLASS,
+      H5header.HDF5_DIMENSION_LIST, H5header.HDF5_DIMENSION_SCALE, H5header.HDF5_DIMENSION_LABELS,
+      H5header.HDF5_REFERENCE_LIST, CDM.CHUNK_SIZES, CDM.COMPRESS, CDM.NCPROPERTIES, CDM.ISNETCDF4, Nc4.NETCDF4_DIMID,
+      Nc4.NETCDF4_COORDINATES, Nc4.NETCDF4_STRICT));
+
+  private final H5iospWriter writer;
+  private final NetcdfFile ncfile;
+  private final boolean stringAttributes; // else write as text
+
+  private final Map<Dimension, H5object> scales = new IdentityHashMap<>();
+  private final Map<Group, H5object> groups = new IdentityHashMap<>();
+
+  H5headerWriter(H5iospWriter writer, NetcdfFile ncfile) {
+    this.writer = writer;
+    this.ncfile = ncfile;
+    this.stringAttributes = writer.getVersion() == NetcdfFileWriter.Version.netcdf4;
+  }
+
+  /** An HDF5 object: a group, a variable, or a dimension that is not a variable. */
+  private static class H5object {
+    final String name;
+    final Group group;
+    final Variable v;
+    final Dimension scale; // this object is the dimension scale for this dimension
+    final List<H5object> children = new ArrayList<>();
+    final List<byte[]> attributes = new ArrayList<>(); // encoded attribute messages
+    H5object[] dimensionList; // dimension scales for each dimension of v
+    byte[][] dimensionListHeapIds;
+    long address;
+    int size;
+
+    H5object(String name, Group group, Variable v, Dimension scale) {
+      this.name = name;
+      this.group = group;
+      this.v = v;
+      this.scale = scale;
+    }
+  }
+
+  /**
+   * Write all the object headers.
+   *
+   * @return address of the root group object header
+   */
+  long writeMetadata() throws IOException {
+    H5object root = makeGroup(ncfile.getRootGroup(), "");
+    List<H5object> all = new ArrayList<>();
+    addObjects(root, all);
+    for (H5object obj : new ArrayList<>(all))
+      findDimensionList(obj, all);
+
+    for (H5object obj : all)
+      makeAttributes(obj);
+
+    // sizes dont depend on addresses, so lay out the objects, then write them
+    for (H5object obj : all) {
+      obj.size = encode(obj).length;
+      obj.address = writer.allocate(obj.size);
+    }
+    for (H5object obj : all) {
+      if (obj.dimensionList != null) {
+        obj.dimensionListHeapIds = new byte[obj.dimensionList.length][];
+        for (int i = 0; i < obj.dimensionList.length; i++) {
+          byte[] ref = new Buf().putLong(obj.dimensionList[i].address).toArray();
+          obj.dimensionListHeapIds[i] = writer.getHeap().add(ref, 1);
+        }
+      }
+    }
+    for (H5object obj : all) {
+      byte[] b = encode(obj);
+      if (b.length != obj.size)
+        throw new IllegalStateException("object header for " + obj.name + " changed size");
+      writer.writeBytes(obj.address, b);
+    }
+    return root.address;
+  }
+
+  private void addObjects(H5object obj, List<H5object> all) {
+    all.add(obj);
+    for (H5object child : obj.children)
+      addObjects(child, all);
+  }
+
+  private H5object makeGroup(Group g, String name) {
+    H5object gobj = new H5object(name, g, null, null);
+    groups.put(g, gobj);
+
+    // dimensions without a coordinate variable
+    for (Dimension d : g.getDimensions()) {
+      if (findCoordinate(g, d) == null) {
+        H5object scale = new H5object(d.getShortName(), null, null, d);
+        scales.put(d, scale);
+        gobj.children.add(scale);
+      }
+    }
+
+    for (Variable v : g.getVariables()) {
+      String vname = v.getShortName();
+      Dimension coordFor = null;
+      if (v.getRank() == 1 && v.getDimension(0) == g.findDimensionLocal(vname))
+        coordFor = v.getDimension(0);
+      else if (g.findDimensionLocal(vname) != null)
+        vname = Nc4.NETCDF4_NON_COORD + vname;
+      H5object vobj = new H5object(vname, null, v, coordFor);
+      if (coordFor != null)
+        scales.put(coordFor, vobj);
+      gobj.children.add(vobj);
+    }
+
+    for (Group nested : g.getGroups())
+      gobj.children.add(makeGroup(nested, nested.getShortName()));
+    return gobj;
+  }
+
+  private Variable findCoordinate(Group g, Dimension d) {
+    Variable v = g.findVariable(d.getShortName());
+    return (v != null && v.getRank() == 1 && v.getDimension(0) == d) ? v : null;
+  }
+
+  // data variables reference the dimension scale of each of their dimensions
+  private void findDimensionList(H5object obj, List<H5object> all) {
+    if (obj.v == null || obj.scale != null || obj.v.getRank() == 0)
+      return;
+    Variable v = obj.v;
+    obj.dimensionList = new H5object[v.getRank()];
+    for (int i = 0; i < v.getRank(); i++) {
+      Dimension d = v.getDimension(i);
+      H5object scale = scales.get(d);
+      if (scale == null) { // anonymous dimension, make a private one
+        H5object gobj = groups.get(v.getParentGroup());
+        String name = v.getShortName() + "_Dim" + i;
+        while (gobj.group.findVariable(name) != null || gobj.group.findDimensionLocal(name) != null)
+          name = "_" + name;
+        scale = new H5object(name, null, null, d);
+        scales.put(d, scale);
+        gobj.children.add(0, scale);
+        all.add(scale);
+      }
+      obj.dimensionList[i] = scale;
+    }
+  }
+
+  ////////////////////////////////////////////////////////////////////////////////
+  // attributes
+
+  private void makeAttributes(H5object obj) throws IOException {
+    if (obj.group != null) {
+      for (Attribute att : obj.group.getAttributes()) {
+        if (!skipAttributes.contains(att.getShortName()))
+          addAttribute(obj, att);
+      }
+      if (obj.group == ncfile.getRootGroup() && writer.getVersion() == NetcdfFileWriter.Version.netcdf4_classic)
+        addAttribute(obj, new Attribute(Nc4.NETCDF4_STRICT, 1));
+      return;
+    }
+
+    if (obj.v != null) {
+      Attribute fillAtt = getFillValueAttribute(obj.v);
+      for (Attribute att : obj.v.getAttributes()) {
+        String name = att.getShortName();
+        if (skipAttributes.contains(name))
+          continue;
+        if (name.equals(CDM.FILL_VALUE) && att != fillAtt)
+          continue;
+        if (name.equals(H5header.HDF5_DIMENSION_NAME) && obj.scale != null)
+          continue;
+        addAttribute(obj, att);
+      }
+    }
+
+    if (obj.scale != null) {
+      // the HDF5 dimension scale API includes the null in the string length
+      obj.attributes.add(textAttribute(H5header.HDF5_CLASS, H5header.HDF5_DIMENSION_SCALE + '\0'));
+      String name = (obj.v != null) ? obj.v.getShortName()
+          : String.format("%s%10d", NOT_A_VARIABLE, obj.scale.getLength());
+      obj.attributes.add(textAttribute(H5header.HDF5_DIMENSION_NAME, name + '\0'));
+    }
+  }
+
+  private void addAttribute(H5object obj, Attribute att) throws IOException {
+    byte[] mess;
+    if (att.isString())
+      mess = stringAttributes ? stringAttribute(att) : textAttribute(att.getShortName(), concat(att));
+    else
+      mess = numericAttribute(att);
+    if (mess == null)
+      return;
+    if (mess.length > MAX_MESSAGE_SIZE)
+      throw new IllegalArgumentException("Attribute " + att.getShortName() + " on " + obj.name + " is too large");
+    obj.attributes.add(mess);
+  }
+
+  private String concat(Attribute att) {
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < att.getLength(); i++)
+      text.append(att.getStringValue(i));
+    return text.toString();
+  }
+
+  private byte[] textAttribute(String name, String value) {
+    byte[] b = value.getBytes(StandardCharsets.UTF_8);
+    if (b.length == 0)
+      return attributeMessage(name, stringType(1, isAscii(b)), nullDataspace(), b);
+    return attributeMessage(name, stringType(b.length, isAscii(b)), dataspace(null, false), b);
+  }
+
+  private byte[] stringAttribute(Attribute att) throws IOException {
+    Buf data = new Buf();
+    boolean ascii = true;
+    for (int i = 0; i < att.getLength(); i++) {
+      String s = att.getStringValue(i);
+      byte[] b = (s == null) ? new byte[0] : s.getBytes(StandardCharsets.UTF_8);
+      ascii &= isAscii(b);
+      data.put(writer.getHeap().add(b, b.length));
+    }
+    return attributeMessage(att.getShortName(), vlenStringType(ascii), dataspace(new long[] {att.getLength()}, false),
+        data.toArray());
+  }
+
+  private byte[] numericAttribute(Attribute att) {
+    DataType dt = att.getDataType();
+    if (!dt.isNumeric()) {
+      log.warn("H5iospWriter skipping attribute {} of type {}", att.getShortName(), dt);
+      return null;
+    }
+    Array values = att.getValues();
+    byte[] data = H5iospWriter.toLittleEndian(values, dt, dt.getSize());
+    return attributeMessage(att.getShortName(), datatype(dt), dataspace(new long[] {att.getLength()}, false), data);
+  }
+
+  private byte[] attributeMessage(String name, byte[] datatype, byte[] dataspace, byte[] data) {
+    byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+    Buf b = new Buf();
+    b.put(3); // version
+    b.put(0); // flags
+    b.putShort(nameBytes.length + 1);
+    b.putShort(datatype.length);
+    b.putShort(dataspace.length);
+    b.put(isAscii(nameBytes) ? 0 : 1);
+    b.put(nameBytes).put(0);
+    b.put(datatype);
+    b.put(dataspace);
+    b.put(data);
+    return b.toArray();
+  }
+
+  private static boolean isAscii(byte[] b) {
+    for (byte c : b) {
+      if (c < 0)
+        return false;
+    }
+    return true;
+  }
+
+  /**
+   * The _FillValue attribute of a variable, if it can be used as the fill value.
+   * Same rules as the netCDF-C library: must have one value of the variable's type.
+   */
+  static Attribute getFillValueAttribute(Variable v) {
+    Attribute att = v.findAttribute(CDM.FILL_VALUE);
+    if (att == null)
+      return null;
+    if (att.getLength() != 1) {
+      log.warn("_FillValue length must be one on var = {}", v.getFullName());
+      return null;
+    }
+    if (att.getDataType() != v.getDataType() && !(att.isString() && v.getDataType() == DataType.CHAR)) {
+      log.warn("_FillValue type ({}) does not agree with variable '{}' type ({}).", att.getDataType(),
+          v.getFullName(), v.getDataType());
+      return null;
+    }
+    return att;
+  }
+
+  ////////////////////////////////////////////////////////////////////////////////
+  // object headers
+
+  private static class Message {
+    final int type;
+    final int flags;
+    final byte[] body;
+
+    Message(int type, int flags, byte[] body) {
+      this.type = type;
+      this.flags = flags;
+      this.body = body;
+    }
+  }
+
+  private byte[] encode(H5object obj) {
+    List<Message> messages = new ArrayList<>();
+    if (obj.group != null)
+      addGroupMessages(obj, messages);
+    else if (obj.v != null)
+      addVariableMessages(obj, messages);
+    else
+      addDimensionMessages(obj, messages);
+
+    for (byte[] att : obj.attributes)
+      messages.add(new Message(ATTRIBUTE, 0, att));
+    if (obj.dimensionList != null) {
+      Buf data = new Buf(); // each dimension has a list of one dimension scale
+      for (int i = 0; i < obj.dimensionList.length; i++)
+        data.put(obj.dimensionListHeapIds != null ? obj.dimensionListHeapIds[i] : new byte[H5iosp.VLEN_T_SIZE]);
+      messages.add(new Message(ATTRIBUTE, 0, attributeMessage(H5header.HDF5_DIMENSION_LIST, vlenReferenceType(),
+          dataspace(new long[] {obj.dimensionList.length}, false), data.toArray())));
+    }
+    return objectHeader(messages);
+  }
+
+  private void addGroupMessages(H5object obj, List<Message> messages) {
+    Buf linfo = new Buf();
+    linfo.put(0); // version
+    linfo.put(1); // creation order tracked
+    linfo.putLong(obj.children.size()); // max creation index
+    linfo.putLong(UNDEFINED); // fractal heap
+    linfo.putLong(UNDEFINED); // name index b-tree
+    messages.add(new Message(LINK_INFO, 0, linfo.toArray()));
+    messages.add(new Message(GROUP_INFO, 0, new byte[] {0, 0}));
+
+    int corder = 0;
+    for (H5object child : obj.children) {
+      byte[] name = child.name.getBytes(StandardCharsets.UTF_8);
+      boolean ascii = isAscii(name);
+      Buf link = new Buf();
+      link.put(1); // version
+      int flags = (name.length < 256 ? 0 : 1) | 0x04 | (ascii ? 0 : 0x10);
+      link.put(flags);
+      link.putLong(corder++);
+      if (!ascii)
+        link.put(1); // UTF-8
+      if (name.length < 256)
+        link.put(name.length);
+      else
+        link.putShort(name.length);
+      link.put(name);
+      link.putLong(child.address);
+      messages.add(new Message(LINK, 0, link.toArray()));
+    }
+  }
+
+  // a dimension without a variable: netCDF-4 makes a float dataset with no data
+  private void addDimensionMessages(H5object obj, List<Message> messages) {
+    Dimension d = obj.scale;
+    boolean unlimited = d.isUnlimited();
+    messages.add(new Message(DATASPACE, 0, dataspace(new long[] {d.getLength()}, unlimited)));
+    messages.add(new Message(DATATYPE, 1, datatype(DataType.FLOAT)));
+    messages.add(new Message(FILL_VALUE, 1, fillValue(null, unlimited, true)));
+    if (unlimited)
+      messages.add(new Message(LAYOUT, 0, chunkedLayout(UNDEFINED, new int[] {1}, 4)));
+    else
+      messages.add(new Message(LAYOUT, 0, contiguousLayout(UNDEFINED, 4L * d.getLength())));
+  }
+
+  private void addVariableMessages(H5object obj, List<Message> messages) {
+    H5iospWriter.Vinfo vinfo = (H5iospWriter.Vinfo) obj.v.getSPobject();
+    boolean unlimited = false;
+    long[] dims = null;
+    if (vinfo.rank > 0) {
+      dims = new long[vinfo.rank];
+      for (int i = 0; i < vinfo.rank; i++) {
+        dims[i] = vinfo.shape[i];
+        unlimited |= vinfo.unlimited[i];
+      }
+    }
+    messages.add(new Message(DATASPACE, 0, unlimited ? dataspace(dims, vinfo.unlimited) : dataspace(dims, false)));
+    messages.add(new Message(DATATYPE, 1, datatype(vinfo.dataType)));
+    messages.add(new Message(FILL_VALUE, 1,
+        fillValue(vinfo.hasFillValue ? vinfo.fillValue : null, vinfo.isChunked, writer.isFill())));
+    if (vinfo.isChunked) {
+      messages.add(new Message(LAYOUT, 0, chunkedLayout(vinfo.btreeAddress, vinfo.chunk, vinfo.elemSize)));
+      if (vinfo.deflateLevel > 0)
+        messages.add(new Message(FILTER_PIPELINE, 0, filterPipeline(vinfo)));
+    } else {
+      messages.add(new Message(LAYOUT, 0, contiguousLayout(vinfo.address, vinfo.size)));
+    }
+  }
+
+  private byte[] objectHeader(List<Message> messages) {
+    int nattributes = 0;
+    long messageBytes = 0;
+    for (Message m : messages) {
+      if (m.type == ATTRIBUTE)
+        nattributes++;
+      messageBytes += 6 + m.body.length;
+    }
+
+    int flags = 0x04; // attribute creation order tracked
+    int sizeFlag = messageBytes < 0x100 ? 0 : messageBytes < 0x10000 ? 1 : 2;
+    flags |= sizeFlag;
+    if (nattributes > 8)
+      flags |= 0x10; // keep them compact
+
+    Buf b = new Buf();
+    b.put(new byte[] {'O', 'H', 'D', 'R'});
+    b.put(2); // version
+    b.put(flags);
+    if (nattributes > 8) {
+      b.putShort(nattributes); // max compact
+      b.putShort(6); // min dense
+    }
+    if (sizeFlag == 0)
+      b.put((int) messageBytes);
+    else if (sizeFlag == 1)
+      b.putShort((int) messageBytes);
+    else
+      b.putInt((int) messageBytes);
+
+    int corder = 0;
+    for (Message m : messages) {
+      if (m.body.length > MAX_MESSAGE_SIZE)
+        throw new IllegalArgumentException("HDF5 header message too large: " + m.body.length);
+      b.put(m.type);
+      b.putShort(m.body.length);
+      b.put(m.flags);
+      b.putShort(m.type == ATTRIBUTE ? corder++ : 0);
+      b.put(m.body);
+    }
+    b.putInt(checksum(b.array(), 0, b.size()));
+    return b.toArray();
+  }
+
+  ////////////////////////////////////////////////////////////////////////////////
+  // messages
+
+  // null dims = scalar
+  private static byte[] dataspace(long[] dims, boolean unlimited) {
+    boolean[] unlimitedDims = null;
+    if (unlimited && dims != null) {
+      unlimitedDims = new boolean[dims.length];
+      Arrays.fill(unlimitedDims, true);
+    }
+    return dataspace(dims, unlimitedDims);
+  }
+
+  private static byte[] dataspace(long[] dims, boolean[] unlimited) {
+    Buf b = new Buf();
+    b.put(2); // version
+    b.put(dims == null ? 0 : dims.length);
+    b.put(unlimited != null ? 1 : 0); // max dims present
+    b.put(dims == null ? 0 : 1); // scalar or simple
+    if (dims != null) {
+      for (long d : dims)
+        b.putLong(d);
+      if (unlimited != null) {
+        for (int i = 0; i < dims.length; i++)
+          b.putLong(unlimited[i] ? UNDEFINED : dims[i]);
+      }
+    }
+    return b.toArray();
+  }
+
+  private static byte[] nullDataspace() {
+    return new byte[] {2, 0, 0, 2};
+  }
+
+  private static byte[] datatype(DataType dt) {
+    switch (dt) {
+      case CHAR:
+        return stringType(1, true);
+      case STRING:
+        return vlenStringType(false);
+      case FLOAT:
+        return floatType(4, 31, 23, 8, 23, 127);
+      case DOUBLE:
+        return floatType(8, 63, 52, 11, 52, 1023);
+      case BYTE:
+      case UBYTE:
+      case SHORT:
+      case USHORT:
+      case INT:
+      case UINT:
+      case LONG:
+      case ULONG:
+        return fixedPointType(dt.getSize(), !dt.isUnsigned());
+    }
+    throw new IllegalArgumentException("H5iospWriter does not support " + dt);
+  }
+
+  // little endian
+  private static byte[] fixedPointType(int size, boolean signed) {
+    Buf b = new Buf();
+    b.put(0x10); // class 0, version 1
+    b.put(signed ? 0x08 : 0).put(0).put(0);
+    b.putInt(size);
+    b.putShort(0); // bit offset
+    b.putShort(8 * size); // precision
+    return b.toArray();
+  }
+
+  // IEEE little endian
+  private static byte[] floatType(int size, int signLocation, int exponentLocation, int exponentSize,
+      int mantissaSize, int bias) {
+    Buf b = new Buf();
+    b.put(0x11); // class 1, version 1
+    b.put(0x20); // mantissa normalization: msb implied
+    b.put(signLocation).put(0);
+    b.putInt(size);
+    b.putShort(0); // bit offset
+    b.putShort(8 * size); // precision
+    b.put(exponentLocation).put(exponentSize);
+    b.put(0).put(mantissaSize);
+    b.putInt(bias);
+    return b.toArray();
+  }
+
+  // fixed length, null terminated
+  private static byte[] stringType(int size, boolean ascii) {
+    Buf b = new Buf();
+    b.put(0x13); // class 3, version 1
+    b.put(ascii ? 0 : 0x10).put(0).put(0);
+    b.putInt(size);
+    return b.toArray();
+  }
+
+  private static byte[] vlenStringType(boolean ascii) {
+    Buf b = new Buf();
+    b.put(0x19); // class 9, version 1
+    b.put(1); // string, null terminated
+    b.put(ascii ? 0 : 1).put(0);
+    b.putInt(H5iosp.VLEN_T_SIZE);
+    b.put(fixedPointType(1, false));
+    return b.toArray();
+  }
+
+  // sequence of object references
+  private static byte[] vlenReferenceType() {
+    Buf b = new Buf();
+    b.put(0x19); // class 9, version 1
+    b.put(0).put(0).put(0); // sequence
+    b.putInt(H5iosp.VLEN_T_SIZE);
+    b.put(0x17).put(0).put(0).put(0); // class 7, version 1, object reference
+    b.putInt(8);
+    return b.toArray();
+  }
+
+  private static byte[] fillValue(byte[] value, boolean chunked, boolean fill) {
+    Buf b = new Buf();
+    b.put(3); // version
+    int allocTime = chunked ? 3 : 1; // incremental or early
+    int writeTime = fill ? 2 : 1; // if set, or never
+    b.put(allocTime | (writeTime << 2) | (value != null ? 0x20 : 0));
+    if (value != null) {
+      b.putInt(value.length);
+      b.put(value);
+    }
+    return b.toArray();
+  }
+
+  private static byte[] contiguousLayout(long address, long size) {
+    Buf b = new Buf();
+    b.put(3); // version
+    b.put(1); // contiguous
+    b.putLong(address);
+    b.putLong(size);
+    return b.toArray();
+  }
+
+  private static byte[] chunkedLayout(long btreeAddress, int[] chunk, int elemSize) {
+    Buf b = new Buf();
+    b.put(3); // version
+    b.put(2); // chunked
+    b.put(chunk.length + 1);
+    b.putLong(btreeAddress);
+    for (int c : chunk)
+      b.putInt(c);
+    b.putInt(elemSize);
+    return b.toArray();
+  }
+
+  private static byte[] filterPipeline(H5iospWriter.Vinfo vinfo) {
+    Buf b = new Buf();
+    b.put(2); // version
+    b.put(vinfo.shuffle ? 2 : 1);
+    if (vinfo.shuffle) {
+      b.putShort(2).putShort(1).putShort(1); // shuffle, optional, one value
+      b.putInt(vinfo.elemSize);
+    }
+    b.putShort(1).putShort(1).putShort(1); // deflate, optional, one value
+    b.putInt(vinfo.deflateLevel);
+    return b.toArray();
+  }
+
+  ////////////////////////////////////////////////////////////////////////////////
+  // superblock and chunk B-trees
+
+  static byte[] makeSuperblock(long rootAddress, long eof) {
+    Buf b = new Buf();
+    b.put(new byte[] {(byte) 0x89, 'H', 'D', 'F', '\r', '\n', 0x1a, '\n'});
+    b.put(2); // version
+    b.put(8).put(8); // size of offsets, lengths
+    b.put(0); // consistency flags
+    b.putLong(0); // base address
+    b.putLong(UNDEFINED); // superblock extension
+    b.putLong(eof);
+    b.putLong(rootAddress);
+    b.putInt(checksum(b.array(), 0, b.size()));
+    return b.toArray();
+  }
+
+  /**
+   * Write the version 1 B-tree indexing the chunks of a variable.
+   *
+   * @return address of the root node, or UNDEFINED if no chunks were written.
+   */
+  static long writeChunkBtree(H5iospWriter writer, H5iospWriter.Vinfo vinfo) throws IOException {
+    List<H5iospWriter.StoredChunk> chunks = vinfo.getStoredChunks();
+    if (chunks.isEmpty())
+      return UNDEFINED;
+
+    int ndims = vinfo.rank + 1;
+    int keySize = 8 + 8 * ndims;
+    int nodeSize = 24 + BTREE_ENTRIES * 8 + (BTREE_ENTRIES + 1) * keySize;
+
+    List<byte[]> keys = new ArrayList<>(chunks.size());
+    List<Long> children = new ArrayList<>(chunks.size());
+    for (H5iospWriter.StoredChunk sc : chunks) {
+      keys.add(chunkKey(sc.size, sc.origin));
+      children.add(sc.address);
+    }
+    int[] lastOrigin = chunks.get(chunks.size() - 1).origin.clone();
+    for (int i = 0; i < lastOrigin.length; i++)
+      lastOrigin[i] += vinfo.chunk[i];
+    byte[] lastKey = chunkKey(0, lastOrigin);
+
+    for (int level = 0;; level++) {
+      int nnodes = (children.size() + BTREE_ENTRIES - 1) / BTREE_ENTRIES;
+      long start = writer.allocate((long) nnodes * nodeSize);
+      List<byte[]> parentKeys = new ArrayList<>(nnodes);
+      List<Long> parentChildren = new ArrayList<>(nnodes);
+
+      for (int node = 0; node < nnodes; node++) {
+        int first = node * BTREE_ENTRIES;
+        int end = Math.min(first + BTREE_ENTRIES, children.size());
+        long address = start + (long) node * nodeSize;
+
+        Buf b = new Buf();
+        b.put(new byte[] {'T', 'R', 'E', 'E'});
+        b.put(1); // raw data chunks
+        b.put(level);
+        b.putShort(end - first);
+        b.putLong(node > 0 ? address - nodeSize : UNDEFINED);
+        b.putLong(node < nnodes - 1 ? address + nodeSize : UNDEFINED);
+        for (int i = first; i < end; i++) {
+          b.put(keys.get(i));
+          b.putLong(children.get(i));
+        }
+        b.put(end < keys.size() ? keys.get(end) : lastKey);
+        byte[] bytes = Arrays.copyOf(b.array(), nodeSize);
+        writer.writeBytes(address, bytes);
+
+        parentKeys.add(keys.get(first));
+        parentChildren.add(address);
+      }
+
+      if (nnodes == 1)
+        return start;
+      keys = parentKeys;
+      children = parentChildren;
+    }
+  }
+
+  private static byte[] chunkKey(int size, int[] origin) {
+    Buf b = new Buf();
+    b.putInt(size);
+    b.putInt(0); // filter mask
+    for (int o : origin)
+      b.putLong(o);
+    b.putLong(0);
+    return b.toArray();
+  }
+
+  ////////////////////////////////////////////////////////////////////////////////
+
+  /**
+   * Writes global heap collections. Objects are added to the current collection, which is written out
+   * when it is full, or on finish().
+   */
+  static class GlobalHeap {
+    private static final int COLLECTION_SIZE = 16 * 1024; // HDF5 minimum is 4096
+    private static final int HEADER_SIZE = 16;
+    private static final int MAX_OBJECTS = 0xFFFF;
+
+    private final H5iospWriter writer;
+    private long address = UNDEFINED;
+    private byte[] collection;
+    private int pos;
+    private int nobjects;
+
+    GlobalHeap(H5iospWriter writer) {
+      this.writer = writer;
+    }
+
+    /**
+     * Add an object to the heap.
+     *
+     * @param data the object
+     * @param nelems number of elements, stored in the heap id
+     * @return heap id, as stored in a variable length element
+     */
+    synchronized byte[] add(byte[] data, int nelems) throws IOException {
+      int need = HEADER_SIZE + align8(data.length);
+      if (collection == null || pos + need > collection.length || nobjects == MAX_OBJECTS) {
+        finish();
+        collection = new byte[Math.max(COLLECTION_SIZE, align8(HEADER_SIZE + need + HEADER_SIZE))];
+        address = writer.allocate(collection.length);
+        pos = HEADER_SIZE;
+        nobjects = 0;
+      }
+
+      int index = ++nobjects;
+      ByteBuffer bb = ByteBuffer.wrap(collection, pos, need).order(ByteOrder.LITTLE_ENDIAN);
+      bb.putShort((short) index);
+      bb.putShort((short) 1); // reference count
+      bb.putInt(0);
+      bb.putLong(data.length);
+      bb.put(data);
+      pos += need;
+
+      Buf id = new Buf();
+      id.putInt(nelems);
+      id.putLong(address);
+      id.putInt(index);
+      return id.toArray();
+    }
+
+    /** Write out the current collection. */
+    synchronized void finish() throws IOException {
+      if (collection == null)
+        return;
+      ByteBuffer bb = ByteBuffer.wrap(collection).order(ByteOrder.LITTLE_ENDIAN);
+      bb.put(new byte[] {'G', 'C', 'O', 'L', 1, 0, 0, 0});
+      bb.putLong(collection.length);
+      int free = collection.length - pos;
+      if (free >= HEADER_SIZE) { // free space object
+        bb.position(pos);
+        bb.putShort((short) 0).putShort((short) 0).putInt(0).putLong(free);
+      }
+      writer.writeBytes(address, collection);
+      collection = null;
+    }
+
+    /** Read back an object. */
+    synchronized byte[] read(long collectionAddress, int index) throws IOException {
+      byte[] coll;
+      if (collection != null && collectionAddress == address) {
+        coll = collection;
+      } else {
+        ByteBuffer header = ByteBuffer.wrap(writer.readBytes(collectionAddress, HEADER_SIZE));
+        long size = header.order(ByteOrder.LITTLE_ENDIAN).getLong(8);
+        coll = writer.readBytes(collectionAddress, (int) size);
+      }
+
+      ByteBuffer bb = ByteBuffer.wrap(coll).order(ByteOrder.LITTLE_ENDIAN);
+      int p = HEADER_SIZE;
+      while (p + HEADER_SIZE <= coll.length) {
+        int id = bb.getShort(p) & 0xFFFF;
+        int size = (int) bb.getLong(p + 8);
+        if (id == 0)
+          break;
+        if (id == index)
+          return Arrays.copyOfRange(coll, p + HEADER_SIZE, p + HEADER_SIZE + size);
+        p += HEADER_SIZE + align8(size);
+      }
+      throw new IOException("Global heap object " + index + " not found at " + collectionAddress);
+    }
+
+    private static int align8(int n) {
+      return (n + 7) & ~7;
+    }
+  }
+
+  ////////////////////////////////////////////////////////////////////////////////
+
+  /** Jenkins lookup3 hash, used by HDF5 for metadata checksums. */
+  static int checksum(byte[] b, int offset, int length) {
+    int a, bb, c;
+    a = bb = c = 0xdeadbeef + length;
+    int k = offset;
+    while (length > 12) {
+      a += (b[k] & 0xff) | (b[k + 1] & 0xff) << 8 | (b[k + 2] & 0xff) << 16 | (b[k + 3] & 0xff) << 24;
+      bb += (b[k + 4] & 0xff) | (b[k + 5] & 0xff) << 8 | (b[k + 6] & 0xff) << 16 | (b[k + 7] & 0xff) << 24;
+      c += (b[k + 8] & 0xff) | (b[k + 9] & 0xff) << 8 | (b[k + 10] & 0xff) << 16 | (b[k + 11] & 0xff) << 24;
+      // mix
+      a -= c;
+      a ^= Integer.rotateLeft(c, 4);
+      c += bb;
+      bb -= a;
+      bb ^= Integer.rotateLeft(a, 6);
+      a += c;
+      c -= bb;
+      c ^= Integer.rotateLeft(bb, 8);
+      bb += a;
+      a -= c;
+      a ^= Integer.rotateLeft(c, 16);
+      c += bb;
+      bb -= a;
+      bb ^= Integer.rotateLeft(a, 19);
+      a += c;
+      c -= bb;
+      c ^= Integer.rotateLeft(bb, 4);
+      bb += a;
+      length -= 12;
+      k += 12;
+    }
+
+    if (length == 0)
+      return c;
+    switch (length) { // fall through
+      case 12:
+        c += (b[k + 11] & 0xff) << 24;
+      case 11:
+        c += (b[k + 10] & 0xff) << 16;
+      case 10:
+        c += (b[k + 9] & 0xff) << 8;
+      case 9:
+        c += (b[k + 8] & 0xff);
+      case 8:
+        bb += (b[k + 7] & 0xff) << 24;
+      case 7:
+        bb += (b[k + 6] & 0xff) << 16;
+      case 6:
+        bb += (b[k + 5] & 0xff) << 8;
+      case 5:
+        bb += (b[k + 4] & 0xff);
+      case 4:
+        a += (b[k + 3] & 0xff) << 24;
+      case 3:
+        a += (b[k + 2] & 0xff) << 16;
+      case 2:
+        a += (b[k + 1] & 0xff) << 8;
+      case 1:
+        a += (b[k] & 0xff);
+    }
+    // final
+    c ^= bb;
+    c -= Integer.rotateLeft(bb, 14);
+    a ^= c;
+    a -= Integer.rotateLeft(c, 11);
+    bb ^= a;
+    bb -= Integer.rotateLeft(a, 25);
+    c ^= bb;
+    c -= Integer.rotateLeft(bb, 16);
+    a ^= c;
+    a -= Integer.rotateLeft(c, 4);
+    bb ^= a;
+    bb -= Integer.rotateLeft(a, 14);
+    c ^= bb;
+    c -= Integer.rotateLeft(bb, 24);
+    return c;
+  }
+
+  /** Growable little endian byte buffer. */
+  static class Buf {
+    private byte[] b = new byte[64];
+    private int n;
+
+    private void ensure(int more) {
+      if (n + more > b.length)
+        b = Arrays.copyOf(b, Math.max(2 * b.length, n + more));
+    }
+
+    Buf put(int v) {
+      ensure(1);
+      b[n++] = (byte) v;
+      return this;
+    }
+
+    Buf put(byte[] a) {
+      ensure(a.length);
+      System.arraycopy(a, 0, b, n, a.length);
+      n += a.length;
+      return this;
+    }
+
+    Buf putShort(int v) {
+      return put(v).put(v >> 8);
+    }
+
+    Buf putInt(int v) {
+      return putShort(v).putShort(v >> 16);
+    }
+
+    Buf putLong(long v) {
+      return putInt((int) v).putInt((int) (v >> 32));
+    }
+
+    int size() {
+      return n;
+    }
+
+    byte[] array() { // may be longer than size()
+      return b;
+    }
+
+    byte[] toArray() {
+      return Arrays.copyOf(b, n);
+    }
+  }
+}
@@ -105,6 +105,16 @@ public class H5iosp extends AbstractIOServiceProvider {
       throws IOException {
     super.open(raf, ncfile, cancelTask);
     headerParser = new H5header(this.raf, ncfile, this);
+
+    // skip parsing if the header was cached
+    int options = (includeOriginalAttributes ? 1 : 0) | (useHdfEos ? 2 : 0);
+    H5headerCache headerCache = H5headerCache.factory(this.raf, options);
+    if (headerCache != null && headerCache.read(ncfile, headerParser)) {
+      isEos = headerCache.isEos();
+      ncfile.finish();
+      return;
+    }
+
     headerParser.read(null);
 
     // check if its an HDF5-EOS file
@@ -114,6 +124,8 @@ public class H5iosp extends AbstractIOServiceProvider {
     }
 
     ncfile.finish();
+    if (headerCache != null)
+      headerCache.write(ncfile, headerParser, isEos);
   }
 
   public Array readData(ucar.nc2.Variable v2, Section section) throws IOException, InvalidRangeException {
@@ -0,0 +1,918 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.iosp.hdf5;
+
+import ucar.ma2.*;
+import ucar.nc2.*;
+import ucar.nc2.constants.DataFormatType;
+import ucar.nc2.iosp.AbstractIOServiceProvider;
+import ucar.nc2.iosp.IOServiceProviderWriter;
+import ucar.nc2.iosp.Layout;
+import ucar.nc2.iosp.LayoutRegular;
+import ucar.nc2.iosp.netcdf3.N3iosp;
+import ucar.nc2.util.CancelTask;
+import ucar.nc2.write.Nc4Chunking;
+import ucar.nc2.write.Nc4ChunkingDefault;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Writes netCDF-4 files in pure Java, without the netCDF-C library.
+ * Data is written as it arrives: contiguous variables directly to their place in the file, chunked variables
+ * are buffered a chunk at a time, and each completed chunk is shuffled and deflated on a shared thread pool.
+ * The HDF5 metadata (object headers, chunk B-trees, global heap) is written when the file is closed,
+ * so the file is not readable by other programs until then.
+ * Writing to different variables from different threads is allowed.
+ * <p>
+ * Supports groups, shared and unlimited dimensions, all the numeric types, CHAR and STRING.
+ * Does not support user defined types (Structure, enum, opaque, vlen), or attributes larger than 64K.
+ *
+ * @since 10/19/2026
+ */
+public class H5iospWriter extends AbstractIOServiceProvider implements IOServiceProviderWriter {
+  private static org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(H5iospWriter.class);
+
+  private static int compressThreads = Runtime.getRuntime().availableProcessors();
+  private static ExecutorService pool;
+  private static final ThreadLocal<Deflater> deflaters = ThreadLocal.withInitial(Deflater::new);
+  private static final ThreadLocal<Inflater> inflaters = ThreadLocal.withInitial(Inflater::new);
+
+  /**
+   * Set the number of threads used to compress chunks, shared by all open writers.
+   *
+   * @param nthreads number of threads; 0 or 1 means compress in the writing thread.
+   *        Default is the number of processors.
+   */
+  public static synchronized void setCompressionThreads(int nthreads) {
+    if (pool != null)
+      pool.shutdown();
+    pool = null;
+    compressThreads = Math.max(0, nthreads);
+  }
+
+  private static synchronized ExecutorService getPool() {
+    if (compressThreads <= 1)
+      return null;
+    if (pool == null) {
+      AtomicInteger count = new AtomicInteger();
+      pool = Executors.newFixedThreadPool(compressThreads, r -> {
+        Thread t = new Thread(r, "H5iospWriter-" + count.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+      });
+    }
+    return pool;
+  }
+
+  private static synchronized int getCompressionThreads() {
+    return compressThreads;
+  }
+
+  //////////////////////////////////////////////////////////////////////////////////////
+
+  private final NetcdfFileWriter.Version version;
+  private Nc4Chunking chunker = new Nc4ChunkingDefault();
+  private boolean fill = true;
+
+  private NetcdfFile ncfile;
+  private String location;
+  private java.io.RandomAccessFile file;
+  private FileChannel channel;
+  private final AtomicLong eof = new AtomicLong();
+  private H5headerWriter.GlobalHeap heap;
+  private Semaphore inflight;
+  private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+  /**
+   * Constructor.
+   *
+   * @param version netcdf4 or netcdf4_classic
+   */
+  public H5iospWriter(NetcdfFileWriter.Version version) {
+    if (!version.isNetdf4format())
+      throw new IllegalArgumentException("H5iospWriter only writes netCDF-4 formats, not " + version);
+    this.version = version;
+  }
+
+  public void setChunker(Nc4Chunking chunker) {
+    if (chunker != null)
+      this.chunker = chunker;
+  }
+
+  NetcdfFileWriter.Version getVersion() {
+    return version;
+  }
+
+  boolean isFill() {
+    return fill;
+  }
+
+  H5headerWriter.GlobalHeap getHeap() {
+    return heap;
+  }
+
+  @Override
+  public void setFill(boolean fill) {
+    this.fill = fill;
+  }
+
+  @Override
+  public void create(String filename, NetcdfFile ncfile, int extra, long preallocateSize, boolean largeFile)
+      throws IOException {
+    for (Variable v : ncfile.getVariables())
+      checkSupported(v);
+
+    this.ncfile = ncfile;
+    this.location = filename;
+    this.failure.set(null);
+    this.file = new java.io.RandomAccessFile(filename, "rw");
+    this.file.setLength(0);
+    this.channel = file.getChannel();
+    this.eof.set(H5headerWriter.SUPERBLOCK_SIZE); // superblock is written on close
+    this.heap = new H5headerWriter.GlobalHeap(this);
+    this.inflight = new Semaphore(2 * Math.max(1, getCompressionThreads()));
+
+    for (Variable v : ncfile.getVariables())
+      v.setSPobject(makeVinfo(v));
+  }
+
+  @Override
+  public void openForWriting(ucar.unidata.io.RandomAccessFile raf, NetcdfFile ncfile, CancelTask cancelTask) {
+    throw new UnsupportedOperationException("H5iospWriter cannot open an existing file for writing");
+  }
+
+  // The header is written on close, so a redefine only needs to set up storage for new variables
+  @Override
+  public boolean rewriteHeader(boolean largeFile) throws IOException {
+    for (Variable v : ncfile.getVariables()) {
+      Object spobj = v.getSPobject();
+      if (!(spobj instanceof Vinfo) || ((Vinfo) spobj).v != v) {
+        checkSupported(v);
+        v.setSPobject(makeVinfo(v));
+      } else if (((Vinfo) spobj).dataType != v.getDataType() || !((Vinfo) spobj).sameShape(v)) {
+        throw new UnsupportedOperationException(
+            "H5iospWriter cannot change the type or shape of existing variable " + v.getFullName());
+      }
+    }
+    return true;
+  }
+
+  // attributes are written on close
+  @Override
+  public void updateAttribute(Variable v2, Attribute att) {}
+
+  @Override
+  public int appendStructureData(Structure s, StructureData sdata) {
+    throw new UnsupportedOperationException("H5iospWriter does not support Structures");
+  }
+
+  @Override
+  public void flush() throws IOException {
+    if (channel == null)
+      return;
+    for (Variable v : ncfile.getVariables()) {
+      Vinfo vinfo = (Vinfo) v.getSPobject();
+      if (vinfo != null)
+        vinfo.awaitStored();
+    }
+    checkFailure();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (channel == null)
+      return;
+    try {
+      if (failure.get() == null)
+        finish();
+    } finally {
+      channel.close();
+      file.close();
+      channel = null;
+      file = null;
+    }
+    checkFailure();
+  }
+
+  private void finish() throws IOException {
+    List<Vinfo> vinfos = new ArrayList<>();
+    for (Variable v : ncfile.getVariables())
+      vinfos.add((Vinfo) v.getSPobject());
+
+    // partially written chunks
+    for (Vinfo vinfo : vinfos) {
+      synchronized (vinfo) {
+        vinfo.flushOpenChunks();
+      }
+    }
+    for (Vinfo vinfo : vinfos)
+      vinfo.awaitStored();
+    checkFailure();
+
+    for (Vinfo vinfo : vinfos) {
+      if (vinfo.isChunked)
+        vinfo.btreeAddress = H5headerWriter.writeChunkBtree(this, vinfo);
+    }
+
+    long rootAddress = new H5headerWriter(this, ncfile).writeMetadata();
+    heap.finish();
+
+    long size = eof.get();
+    writeBytes(0, H5headerWriter.makeSuperblock(rootAddress, size));
+    file.setLength(size);
+    log.debug("wrote {} size={}", location, size);
+  }
+
+  private void checkFailure() throws IOException {
+    Throwable t = failure.get();
+    if (t == null)
+      return;
+    if (t instanceof IOException)
+      throw new IOException(t.getMessage(), t);
+    throw new IOException("H5iospWriter failed writing " + location, t);
+  }
+
+  //////////////////////////////////////////////////////////////////////////////////////
+  // file space
+
+  long allocate(long nbytes) {
+    return eof.getAndAdd(nbytes);
+  }
+
+  void writeBytes(long pos, byte[] b) throws IOException {
+    writeBytes(pos, b, 0, b.length);
+  }
+
+  void writeBytes(long pos, byte[] b, int off, int len) throws IOException {
+    ByteBuffer bb = ByteBuffer.wrap(b, off, len);
+    while (bb.hasRemaining())
+      pos += channel.write(bb, pos);
+  }
+
+  byte[] readBytes(long pos, int len) throws IOException {
+    byte[] b = new byte[len];
+    ByteBuffer bb = ByteBuffer.wrap(b);
+    while (bb.hasRemaining()) {
+      int n = channel.read(bb, pos);
+      if (n < 0) // not written yet
+        break;
+      pos += n;
+    }
+    return b;
+  }
+
+  //////////////////////////////////////////////////////////////////////////////////////
+  // write
+
+  @Override
+  public void writeData(Variable v2, Section section, Array values) throws IOException, InvalidRangeException {
+    Vinfo vinfo = (Vinfo) v2.getSPobject();
+    checkFailure();
+    if (section.getRank() != vinfo.rank)
+      throw new InvalidRangeException("Section rank " + section.getRank() + " != variable rank " + vinfo.rank);
+    if (section.computeSize() != values.getSize())
+      throw new InvalidRangeException("Section size " + section.computeSize() + " != data size " + values.getSize());
+
+    byte[] bytes = toBytes(vinfo, values);
+    synchronized (vinfo) {
+      extend(vinfo, section);
+      if (vinfo.isChunked)
+        vinfo.transfer(section, bytes, true);
+      else
+        vinfo.writeContiguous(section, bytes);
+    }
+  }
+
+  // grow unlimited dimensions to include the section
+  private void extend(Vinfo vinfo, Section section) throws InvalidRangeException {
+    for (int i = 0; i < vinfo.rank; i++) {
+      int want = section.getRange(i).last() + 1;
+      if (want <= vinfo.shape[i])
+        continue;
+      if (!vinfo.unlimited[i])
+        throw new InvalidRangeException(
+            "Section " + section + " out of range for variable " + vinfo.v.getFullName() + " dimension " + i);
+      vinfo.shape[i] = want;
+      extendDimension(vinfo.v.getDimension(i), want);
+    }
+  }
+
+  private synchronized void extendDimension(Dimension dim, int length) {
+    if (length <= dim.getLength())
+      return;
+    dim.setLength(length);
+    // need to let all unlimited variables know of new shape
+    for (Variable v : ncfile.getVariables()) {
+      if (v.isUnlimited()) {
+        v.resetShape();
+        v.setCachedData(null, false);
+      }
+    }
+  }
+
+  // data in little endian order, STRING as global heap ids
+  private byte[] toBytes(Vinfo vinfo, Array values) throws IOException {
+    if (vinfo.dataType == DataType.STRING) {
+      byte[] result = new byte[(int) values.getSize() * vinfo.elemSize];
+      ByteBuffer bb = ByteBuffer.wrap(result);
+      IndexIterator ii = values.getIndexIterator();
+      while (ii.hasNext()) {
+        Object o = ii.getObjectNext();
+        byte[] b = (o == null) ? new byte[0] : o.toString().getBytes(StandardCharsets.UTF_8);
+        bb.put(heap.add(b, b.length));
+      }
+      return result;
+    }
+
+    return toLittleEndian(values, vinfo.dataType, vinfo.elemSize);
+  }
+
+  static byte[] toLittleEndian(Array values, DataType dataType, int elemSize) {
+    byte[] result = new byte[(int) values.getSize() * elemSize];
+    ByteBuffer bb = ByteBuffer.wrap(result).order(ByteOrder.LITTLE_ENDIAN);
+    DataType want = values.getDataType();
+    if (want.getPrimitiveClassType() != dataType.getPrimitiveClassType())
+      want = dataType;
+    Object storage = values.get1DJavaArray(want);
+    if (storage instanceof byte[]) {
+      bb.put((byte[]) storage);
+    } else if (storage instanceof char[]) {
+      for (char c : (char[]) storage)
+        bb.put((byte) c);
+    } else if (storage instanceof short[]) {
+      bb.asShortBuffer().put((short[]) storage);
+    } else if (storage instanceof int[]) {
+      bb.asIntBuffer().put((int[]) storage);
+    } else if (storage instanceof long[]) {
+      bb.asLongBuffer().put((long[]) storage);
+    } else if (storage instanceof float[]) {
+      bb.asFloatBuffer().put((float[]) storage);
+    } else if (storage instanceof double[]) {
+      bb.asDoubleBuffer().put((double[]) storage);
+    } else {
+      throw new IllegalArgumentException("Cant write " + values.getDataType() + " as " + dataType);
+    }
+    return result;
+  }
+
+  //////////////////////////////////////////////////////////////////////////////////////
+  // read back data that has been written, before the file is closed
+
+  @Override
+  public Array readData(Variable v2, Section section) throws IOException, InvalidRangeException {
+    Vinfo vinfo = (Vinfo) v2.getSPobject();
+    byte[] bytes = new byte[(int) section.computeSize() * vinfo.elemSize];
+    synchronized (vinfo) {
+      for (int i = 0; i < vinfo.rank; i++) {
+        if (section.getRange(i).last() >= Math.max(vinfo.shape[i], v2.getShape(i)))
+          throw new InvalidRangeException("Section " + section + " out of range for " + v2.getFullName());
+      }
+      if (vinfo.isChunked)
+        vinfo.transfer(section, bytes, false);
+      else
+        vinfo.readContiguous(section, bytes);
+    }
+
+    ByteBuffer bb = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    if (vinfo.dataType != DataType.STRING)
+      return Array.factory(vinfo.dataType, section.getShape(), bb);
+
+    Array result = Array.factory(DataType.STRING, section.getShape());
+    IndexIterator ii = result.getIndexIterator();
+    while (ii.hasNext()) {
+      int nbytes = bb.getInt();
+      long address = bb.getLong();
+      int index = bb.getInt();
+      byte[] b = heap.read(address, index);
+      ii.setObjectNext(new String(b, 0, Math.min(nbytes, b.length), StandardCharsets.UTF_8));
+    }
+    return result;
+  }
+
+  @Override
+  public boolean isValidFile(ucar.unidata.io.RandomAccessFile raf) {
+    return false;
+  }
+
+  @Override
+  public void open(ucar.unidata.io.RandomAccessFile raf, NetcdfFile ncfile, CancelTask cancelTask) {
+    throw new UnsupportedOperationException("H5iospWriter only writes; use H5iosp to read");
+  }
+
+  @Override
+  public String getFileTypeId() {
+    return DataFormatType.NETCDF4.getDescription();
+  }
+
+  @Override
+  public String getFileTypeDescription() {
+    return "netCDF-4 writer, pure Java";
+  }
+
+  //////////////////////////////////////////////////////////////////////////////////////
+  // per-variable storage
+
+  private static void checkSupported(Variable v) {
+    DataType dt = v.getDataType();
+    if (v instanceof Structure || dt.isEnum() || dt == DataType.OPAQUE || dt == DataType.SEQUENCE
+        || dt == DataType.STRUCTURE || dt == DataType.BOOLEAN || dt == DataType.OBJECT)
+      throw new IllegalArgumentException("H5iospWriter does not support " + dt + " variable " + v.getFullName());
+    if (v.isVariableLength())
+      throw new IllegalArgumentException("H5iospWriter does not support variable length " + v.getFullName());
+  }
+
+  private Vinfo makeVinfo(Variable v) throws IOException {
+    Vinfo vinfo = new Vinfo(v);
+
+    if (vinfo.rank > 0 && (v.isUnlimited() || chunker.isChunked(v))) {
+      long[] want = chunker.computeChunking(v);
+      if (want == null || want.length != vinfo.rank)
+        want = new Nc4ChunkingDefault().computeChunking(v);
+      int[] chunk = new int[vinfo.rank];
+      long chunkBytes = vinfo.elemSize;
+      for (int i = 0; i < vinfo.rank; i++) {
+        long n = Math.max(1, want[i]);
+        if (!vinfo.unlimited[i])
+          n = Math.min(n, Math.max(1, vinfo.shape[i]));
+        chunk[i] = (int) n;
+        chunkBytes *= n;
+      }
+      if (chunkBytes > Integer.MAX_VALUE / 2)
+        throw new IllegalArgumentException("Chunk too large for " + v.getFullName() + ": " + Arrays.toString(chunk));
+      vinfo.setChunking(chunk, chunker.getDeflateLevel(v), chunker.isShuffle(v));
+    }
+
+    vinfo.fillValue = makeFillValue(v, vinfo);
+
+    if (!vinfo.isChunked) {
+      vinfo.size = vinfo.elemSize * new Section(vinfo.shape).computeSize();
+      vinfo.address = allocate(vinfo.size);
+      if (fill || vinfo.dataType == DataType.STRING)
+        writeFill(vinfo.address, vinfo.size, vinfo.fillValue);
+    }
+    return vinfo;
+  }
+
+  // one element in file order
+  private byte[] makeFillValue(Variable v, Vinfo vinfo) throws IOException {
+    if (vinfo.dataType == DataType.STRING) {
+      vinfo.hasFillValue = false; // unwritten strings point to an empty string, HDF5 fill is undefined
+      return heap.add(new byte[0], 0);
+    }
+    vinfo.hasFillValue = true;
+
+    ByteBuffer bb = ByteBuffer.allocate(vinfo.elemSize).order(ByteOrder.LITTLE_ENDIAN);
+    Attribute att = H5headerWriter.getFillValueAttribute(v);
+    if (att != null && att.isString()) { // CHAR variable
+      String s = att.getStringValue();
+      bb.put((s == null || s.isEmpty()) ? 0 : (byte) s.charAt(0));
+      return bb.array();
+    }
+    Number val = (att != null) ? att.getNumericValue() : N3iosp.getFillValueDefault(vinfo.dataType);
+    if (val == null)
+      val = 0;
+
+    switch (vinfo.elemSize) {
+      case 1:
+        bb.put(val.byteValue());
+        break;
+      case 2:
+        bb.putShort(val.shortValue());
+        break;
+      case 4:
+        if (vinfo.dataType == DataType.FLOAT)
+          bb.putFloat(val.floatValue());
+        else
+          bb.putInt(val.intValue());
+        break;
+      case 8:
+        if (vinfo.dataType == DataType.DOUBLE)
+          bb.putDouble(val.doubleValue());
+        else
+          bb.putLong(val.longValue());
+        break;
+    }
+    return bb.array();
+  }
+
+  private void writeFill(long pos, long size, byte[] fillValue) throws IOException {
+    boolean allZero = true;
+    for (byte b : fillValue)
+      allZero &= (b == 0);
+    if (allZero) // file is extended with zeroes
+      return;
+
+    byte[] block = new byte[(int) Math.min(size, 1 << 16)];
+    fillPattern(block, fillValue);
+    while (size > 0) {
+      int n = (int) Math.min(size, block.length);
+      writeBytes(pos, block, 0, n);
+      pos += n;
+      size -= n;
+    }
+  }
+
+  private static void fillPattern(byte[] block, byte[] fillValue) {
+    int es = fillValue.length;
+    for (int i = 0; i + es <= block.length; i += es)
+      System.arraycopy(fillValue, 0, block, i, es);
+  }
+
+  /** A chunk being filled in memory. */
+  private static class ChunkBuffer {
+    final byte[] data;
+    final long expected; // number of elements in the chunk that are inside the variable
+    long count; // number of elements written
+
+    ChunkBuffer(byte[] data, long expected) {
+      this.data = data;
+      this.expected = expected;
+    }
+  }
+
+  /** A chunk that has been (or is being) filtered and written to the file. */
+  static class StoredChunk {
+    final int[] origin;
+    volatile long address = -1;
+    volatile int size;
+    volatile Future<?> future;
+
+    StoredChunk(int[] origin) {
+      this.origin = origin;
+    }
+  }
+
+  /** Identifies a chunk by its origin. */
+  private static final class ChunkKey {
+    final int[] origin;
+    final int hash;
+
+    ChunkKey(int[] origin) {
+      this.origin = origin;
+      this.hash = Arrays.hashCode(origin);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return (o instanceof ChunkKey) && Arrays.equals(origin, ((ChunkKey) o).origin);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+  /** Storage state of one variable, kept in Variable.getSPobject(). */
+  class Vinfo {
+    final Variable v;
+    final DataType dataType;
+    final int elemSize;
+    final int rank;
+    final boolean[] unlimited;
+    final int[] shape; // current extent, grows along unlimited dimensions
+    byte[] fillValue;
+    boolean hasFillValue;
+
+    // contiguous
+    long address = -1;
+    long size;
+
+    // chunked
+    boolean isChunked;
+    int[] chunk;
+    int deflateLevel;
+    boolean shuffle;
+    private final Map<ChunkKey, ChunkBuffer> open = new HashMap<>();
+    private final Map<ChunkKey, StoredChunk> stored = new ConcurrentHashMap<>();
+    long btreeAddress = -1;
+
+    Vinfo(Variable v) {
+      this.v = v;
+      this.dataType = v.getDataType();
+      this.elemSize = (dataType == DataType.STRING) ? H5iosp.VLEN_T_SIZE : dataType.getSize();
+      this.rank = v.getRank();
+      this.shape = v.getShape().clone();
+      this.unlimited = new boolean[rank];
+      for (int i = 0; i < rank; i++)
+        unlimited[i] = v.getDimension(i).isUnlimited();
+    }
+
+    void setChunking(int[] chunk, int deflateLevel, boolean shuffle) {
+      this.isChunked = true;
+      this.chunk = chunk;
+      this.deflateLevel = Math.max(0, Math.min(9, deflateLevel));
+      this.shuffle = shuffle && this.deflateLevel > 0 && elemSize > 1;
+    }
+
+    boolean sameShape(Variable v) {
+      if (v.getRank() != rank)
+        return false;
+      for (int i = 0; i < rank; i++) {
+        if (v.getDimension(i).isUnlimited() != unlimited[i])
+          return false;
+        if (!unlimited[i] && v.getShape(i) != shape[i])
+          return false;
+      }
+      return true;
+    }
+
+    boolean isFiltered() {
+      return deflateLevel > 0;
+    }
+
+    int chunkElems() {
+      int n = 1;
+      for (int c : chunk)
+        n *= c;
+      return n;
+    }
+
+    List<StoredChunk> getStoredChunks() {
+      List<StoredChunk> result = new ArrayList<>(stored.values());
+      result.sort((a, b) -> {
+        for (int i = 0; i < a.origin.length; i++) {
+          int c = Integer.compare(a.origin[i], b.origin[i]);
+          if (c != 0)
+            return c;
+        }
+        return 0;
+      });
+      return result;
+    }
+
+    //// contiguous
+
+    void writeContiguous(Section section, byte[] bytes) throws IOException, InvalidRangeException {
+      Layout layout = new LayoutRegular(address, elemSize, shape, section);
+      while (layout.hasNext()) {
+        Layout.Chunk c = layout.next();
+        writeBytes(c.getSrcPos(), bytes, (int) c.getDestElem() * elemSize, c.getNelems() * elemSize);
+      }
+    }
+
+    void readContiguous(Section section, byte[] bytes) throws IOException, InvalidRangeException {
+      Layout layout = new LayoutRegular(address, elemSize, shape, section);
+      while (layout.hasNext()) {
+        Layout.Chunk c = layout.next();
+        byte[] b = readBytes(c.getSrcPos(), c.getNelems() * elemSize);
+        System.arraycopy(b, 0, bytes, (int) c.getDestElem() * elemSize, b.length);
+      }
+    }
+
+    //// chunked
+
+    /*
+     * Copy between the section (in row-major order in mem) and the chunks, one run of the innermost dimension
+     * at a time, splitting runs at chunk boundaries.
+     */
+    void transfer(Section section, byte[] mem, boolean write) throws IOException {
+      int last = rank - 1;
+      int[] first = section.getOrigin();
+      int[] count = section.getShape();
+      int[] stride = section.getStride();
+      int runLength = count[last];
+      if (runLength == 0)
+        return;
+      long nruns = section.computeSize() / runLength;
+
+      Map<ChunkKey, byte[]> readCache = write ? null : new HashMap<>();
+      int[] odometer = new int[rank];
+      int[] index = new int[rank];
+      int memElem = 0;
+      for (long run = 0; run < nruns; run++) {
+        for (int d = 0; d < last; d++)
+          index[d] = first[d] + odometer[d] * stride[d];
+
+        int k = 0;
+        while (k < runLength) {
+          index[last] = first[last] + k * stride[last];
+          int[] origin = new int[rank];
+          int offset = 0;
+          for (int d = 0; d < rank; d++) {
+            origin[d] = (index[d] / chunk[d]) * chunk[d];
+            offset = offset * chunk[d] + (index[d] - origin[d]);
+          }
+          int n = (origin[last] + chunk[last] - index[last] + stride[last] - 1) / stride[last];
+          n = Math.min(n, runLength - k);
+
+          ChunkKey key = new ChunkKey(origin);
+          byte[] data = write ? openChunk(key).data : readChunk(key, readCache);
+          int memPos = (memElem + k) * elemSize;
+          if (stride[last] == 1) {
+            if (write)
+              System.arraycopy(mem, memPos, data, offset * elemSize, n * elemSize);
+            else
+              System.arraycopy(data, offset * elemSize, mem, memPos, n * elemSize);
+          } else {
+            for (int j = 0; j < n; j++) {
+              int chunkPos = (offset + j * stride[last]) * elemSize;
+              if (write)
+                System.arraycopy(mem, memPos + j * elemSize, data, chunkPos, elemSize);
+              else
+                System.arraycopy(data, chunkPos, mem, memPos + j * elemSize, elemSize);
+            }
+          }
+
+          if (write) {
+            ChunkBuffer buffer = open.get(key);
+            buffer.count += n;
+            if (buffer.count >= buffer.expected) {
+              open.remove(key);
+              storeChunk(key, buffer.data);
+            }
+          }
+          k += n;
+        }
+
+        memElem += runLength;
+        for (int d = last - 1; d >= 0; d--) {
+          if (++odometer[d] < count[d])
+            break;
+          odometer[d] = 0;
+        }
+      }
+    }
+
+    private ChunkBuffer openChunk(ChunkKey key) throws IOException {
+      ChunkBuffer buffer = open.get(key);
+      if (buffer != null)
+        return buffer;
+
+      long expected = 1;
+      for (int d = 0; d < rank; d++)
+        expected *= unlimited[d] ? chunk[d] : Math.min(chunk[d], shape[d] - key.origin[d]);
+
+      StoredChunk prev = stored.remove(key);
+      byte[] data = (prev != null) ? loadChunk(prev) : newChunk();
+      buffer = new ChunkBuffer(data, expected);
+      open.put(key, buffer);
+      return buffer;
+    }
+
+    private byte[] readChunk(ChunkKey key, Map<ChunkKey, byte[]> cache) throws IOException {
+      ChunkBuffer buffer = open.get(key);
+      if (buffer != null)
+        return buffer.data;
+      byte[] data = cache.get(key);
+      if (data == null) {
+        StoredChunk sc = stored.get(key);
+        data = (sc != null) ? loadChunk(sc) : newChunk();
+        cache.put(key, data);
+      }
+      return data;
+    }
+
+    private byte[] newChunk() {
+      byte[] data = new byte[chunkElems() * elemSize];
+      fillPattern(data, fillValue);
+      return data;
+    }
+
+    private byte[] loadChunk(StoredChunk sc) throws IOException {
+      await(sc);
+      byte[] raw = readBytes(sc.address, sc.size);
+      return isFiltered() ? unfilter(raw) : raw;
+    }
+
+    private void storeChunk(ChunkKey key, byte[] data) throws IOException {
+      StoredChunk sc = new StoredChunk(key.origin);
+      stored.put(key, sc);
+
+      ExecutorService exec = isFiltered() ? getPool() : null;
+      if (exec == null) {
+        writeChunk(sc, data);
+        return;
+      }
+
+      try {
+        inflight.acquire();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("interrupted writing " + v.getFullName());
+      }
+      sc.future = exec.submit(() -> {
+        try {
+          writeChunk(sc, data);
+        } catch (Throwable t) {
+          failure.compareAndSet(null, t);
+        } finally {
+          inflight.release();
+        }
+      });
+    }
+
+    private void writeChunk(StoredChunk sc, byte[] data) throws IOException {
+      byte[] out = isFiltered() ? filter(data) : data;
+      long pos = allocate(out.length);
+      writeBytes(pos, out);
+      sc.size = out.length;
+      sc.address = pos;
+    }
+
+    void flushOpenChunks() throws IOException {
+      for (Map.Entry<ChunkKey, ChunkBuffer> entry : open.entrySet())
+        storeChunk(entry.getKey(), entry.getValue().data);
+      open.clear();
+    }
+
+    void awaitStored() throws IOException {
+      for (StoredChunk sc : stored.values())
+        await(sc);
+    }
+
+    private void await(StoredChunk sc) throws IOException {
+      Future<?> f = sc.future;
+      if (f != null) {
+        try {
+          f.get();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException("interrupted writing " + v.getFullName());
+        } catch (ExecutionException e) {
+          throw new IOException(e.getCause());
+        }
+      }
+      checkFailure();
+    }
+
+    //// filters, in HDF5 pipeline order: shuffle, deflate
+
+    private byte[] filter(byte[] data) {
+      byte[] b = shuffle ? shuffle(data, elemSize) : data;
+      Deflater deflater = deflaters.get();
+      deflater.reset();
+      deflater.setLevel(deflateLevel);
+      deflater.setInput(b);
+      deflater.finish();
+      ByteArrayOutputStream out = new ByteArrayOutputStream(b.length / 2 + 64);
+      byte[] buff = new byte[Math.min(b.length + 64, 1 << 16)];
+      while (!deflater.finished()) {
+        int n = deflater.deflate(buff);
+        out.write(buff, 0, n);
+      }
+      return out.toByteArray();
+    }
+
+    private byte[] unfilter(byte[] raw) throws IOException {
+      byte[] b = new byte[chunkElems() * elemSize];
+      Inflater inflater = inflaters.get();
+      inflater.reset();
+      inflater.setInput(raw);
+      try {
+        int pos = 0;
+        while (pos < b.length && !inflater.finished()) {
+          int n = inflater.inflate(b, pos, b.length - pos);
+          if (n == 0 && inflater.needsInput())
+            break;
+          pos += n;
+        }
+      } catch (DataFormatException e) {
+        throw new IOException(e);
+      }
+      return shuffle ? unshuffle(b, elemSize) : b;
+    }
+  }
+
+  static byte[] shuffle(byte[] data, int elemSize) {
+    int n = data.length / elemSize;
+    byte[] result = new byte[data.length];
+    for (int j = 0; j < elemSize; j++) {
+      int dest = j * n;
+      for (int i = 0; i < n; i++)
+        result[dest + i] = data[i * elemSize + j];
+    }
+    return result;
+  }
+
+  static byte[] unshuffle(byte[] data, int elemSize) {
+    int n = data.length / elemSize;
+    byte[] result = new byte[data.length];
+    for (int j = 0; j < elemSize; j++) {
+      int src = j * n;
+      for (int i = 0; i < n; i++)
+        result[i * elemSize + j] = data[src + i];
+    }
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return "H5iospWriter{" + location + ", " + version + '}';
+  }
+}
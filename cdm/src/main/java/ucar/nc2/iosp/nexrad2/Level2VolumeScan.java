@@ -7,22 +7,32 @@ package ucar.nc2.iosp.nexrad2;
 
 import ucar.nc2.util.CancelTask;
 import ucar.nc2.util.DiskCache;
+import ucar.unidata.io.InMemoryRandomAccessFile;
 import ucar.unidata.io.RandomAccessFile;
+import ucar.unidata.io.bzip2.BZip2InputStream;
 import ucar.unidata.io.bzip2.BZip2ReadException;
-import ucar.unidata.io.bzip2.CBZip2InputStream;
 import java.io.ByteArrayInputStream;
 import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.nio.channels.FileLock;
 import java.nio.channels.OverlappingFileLockException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 import static ucar.nc2.iosp.nexrad2.Level2Record.REFLECTIVITY_HIGH;
 import static ucar.nc2.iosp.nexrad2.Level2Record.VELOCITY_HIGH;
 
@@ -52,6 +62,40 @@ public class Level2VolumeScan {
   static final String AR2V0007 = "AR2V0007";
 
   private static org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(Level2VolumeScan.class);
+
+  private static volatile int uncompressThreads; // 0 = uncompress to the DiskCache
+  private static ExecutorService pool;
+  // only used on the pool threads, so the decoders (several MB each) are not kept by the callers' threads
+  private static final ThreadLocal<BZip2InputStream> decoders = ThreadLocal.withInitial(BZip2InputStream::new);
+
+  /**
+   * Uncompress bzip2 compressed files in memory, instead of writing an uncompressed copy to the DiskCache.
+   * Each compressed block is independent, so they are uncompressed concurrently.
+   * The uncompressed file is held in memory until the file is closed.
+   *
+   * @param nthreads number of threads to use; 0 (the default) means use the DiskCache.
+   */
+  public static synchronized void setUncompressInMemory(int nthreads) {
+    if (pool != null)
+      pool.shutdown();
+    pool = null;
+    uncompressThreads = Math.max(0, nthreads);
+  }
+
+  private static synchronized ExecutorService getPool() {
+    if (uncompressThreads <= 1)
+      return null;
+    if (pool == null) {
+      AtomicInteger count = new AtomicInteger();
+      pool = Executors.newFixedThreadPool(uncompressThreads, r -> {
+        Thread t = new Thread(r, "Level2VolumeScan-" + count.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+      });
+    }
+    return pool;
+  }
+
   ////////////////////////////////////////////////////////////////////////////////////
 
   // Data file
@@ -131,7 +175,13 @@ public class Level2VolumeScan {
         || dataFormat.equals(AR2V0006) || dataFormat.equals(AR2V0007)) {
       raf.skipBytes(4);
       String BZ = raf.readString(2);
-      if (BZ.equals("BZ")) {
+      if (BZ.equals("BZ") && uncompressThreads > 0) {
+        RandomAccessFile uraf = uncompressInMemory(raf);
+        raf.close();
+        raf = uraf;
+        raf.order(RandomAccessFile.BIG_ENDIAN);
+
+      } else if (BZ.equals("BZ")) {
         RandomAccessFile uraf = null;
         File uncompressedFile = DiskCache.getFileStandardPolicy(raf.getLocation() + ".uncompress");
 
@@ -704,7 +754,7 @@ public class Level2VolumeScan {
       byte[] ubuff = new byte[40000];
       byte[] obuff = new byte[40000];
 
-      CBZip2InputStream cbzip2 = new CBZip2InputStream();
+      BZip2InputStream cbzip2 = new BZip2InputStream();
       while (!eof) {
         try {
           numCompBytes = inputRaf.readInt();
@@ -779,6 +829,110 @@ public class Level2VolumeScan {
     } // try-with-resource
   }
 
+  /**
+   * Make an equivilent uncompressed version of the inputRaf in memory.
+   * The compressed blocks are read sequentially, then uncompressed concurrently.
+   *
+   * @param inputRaf file to uncompress
+   * @return uncompressed file, with the same location as inputRaf
+   * @throws IOException on read error
+   */
+  static RandomAccessFile uncompressInMemory(RandomAccessFile inputRaf) throws IOException {
+    inputRaf.order(RandomAccessFile.BIG_ENDIAN);
+    inputRaf.seek(0);
+    byte[] header = new byte[Level2Record.FILE_HEADER_SIZE];
+    inputRaf.readFully(header);
+
+    List<byte[]> compressed = new ArrayList<>();
+    boolean eof = false;
+    while (!eof) {
+      int numCompBytes;
+      try {
+        numCompBytes = inputRaf.readInt();
+        if (numCompBytes == -1)
+          break;
+      } catch (EOFException ee) {
+        break; // assume this is ok
+      }
+      if (numCompBytes < 0) { // last block, see uncompress()
+        numCompBytes = -numCompBytes;
+        eof = true;
+      }
+      byte[] buf = new byte[numCompBytes];
+      inputRaf.readFully(buf);
+      compressed.add(buf);
+    }
+
+    byte[][] blocks = new byte[compressed.size()][];
+    ExecutorService exec = getPool();
+    if (exec == null) {
+      BZip2InputStream cbzip2 = new BZip2InputStream();
+      for (int i = 0; i < blocks.length; i++)
+        blocks[i] = uncompressBlock(compressed.get(i), cbzip2);
+
+    } else {
+      List<Future<byte[]>> futures = new ArrayList<>(blocks.length);
+      BZip2InputStream inline = null;
+      for (byte[] buf : compressed) {
+        try {
+          futures.add(exec.submit(() -> uncompressBlock(buf, decoders.get())));
+        } catch (RejectedExecutionException e) { // pool was shut down by setUncompressInMemory()
+          if (inline == null)
+            inline = new BZip2InputStream();
+          futures.add(CompletableFuture.completedFuture(uncompressBlock(buf, inline)));
+        }
+      }
+      try {
+        for (int i = 0; i < blocks.length; i++)
+          blocks[i] = futures.get(i).get();
+      } catch (InterruptedException e) {
+        futures.forEach(f -> f.cancel(true));
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("uncompress interrupted on " + inputRaf.getLocation());
+      } catch (ExecutionException e) {
+        throw new IOException(e.getCause());
+      }
+    }
+
+    long total = header.length;
+    for (byte[] block : blocks)
+      total += block.length;
+    if (total > Integer.MAX_VALUE)
+      throw new IOException("Uncompressed file too large for memory: " + inputRaf.getLocation());
+    byte[] result = new byte[(int) total];
+    System.arraycopy(header, 0, result, 0, header.length);
+    int pos = header.length;
+    for (byte[] block : blocks) {
+      System.arraycopy(block, 0, result, pos, block.length);
+      pos += block.length;
+    }
+    if (log.isDebugEnabled()) {
+      log.debug("uncompressed {} blocks in memory, {} bytes", blocks.length, total);
+    }
+    return new InMemoryRandomAccessFile(inputRaf.getLocation(), result);
+  }
+
+  // uncompress one block; a bad block is logged and skipped
+  private static byte[] uncompressBlock(byte[] buf, BZip2InputStream cbzip2) {
+    byte[] ubuff = new byte[40000];
+    byte[] obuff = new byte[Math.max(40000, 8 * buf.length)];
+    int total = 0;
+    int nread;
+    try {
+      cbzip2.setStream(new ByteArrayInputStream(buf, 2, buf.length - 2));
+      while ((nread = cbzip2.read(ubuff)) != -1) {
+        if (total + nread > obuff.length)
+          obuff = Arrays.copyOf(obuff, Math.max(2 * obuff.length, total + nread));
+        System.arraycopy(ubuff, 0, obuff, total, nread);
+        total += nread;
+      }
+    } catch (BZip2ReadException | IOException ioe) {
+      log.warn("Nexrad2IOSP.uncompress ", ioe);
+      return new byte[0];
+    }
+    return (total == obuff.length) ? obuff : Arrays.copyOf(obuff, total);
+  }
+
   // check if compressed file seems ok
   public static long testValid(String ufilename) throws IOException {
     boolean lookForHeader = false;
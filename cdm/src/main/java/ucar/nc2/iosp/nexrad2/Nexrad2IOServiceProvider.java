@@ -11,6 +11,7 @@ import ucar.nc2.iosp.AbstractIOServiceProvider;
 import static ucar.nc2.iosp.nexrad2.Level2Record.*;
 import ucar.nc2.units.DateFormatter;
 import ucar.nc2.util.CancelTask;
+import ucar.unidata.io.InMemoryRandomAccessFile;
 import ucar.unidata.io.RandomAccessFile;
 import java.io.IOException;
 import java.util.List;
@@ -560,6 +561,19 @@ public class Nexrad2IOServiceProvider extends AbstractIOServiceProvider {
     }
   }
 
+  // a file uncompressed in memory cant be reacquired from its location, so keep it until close()
+  @Override
+  public void release() throws IOException {
+    if (!(raf instanceof InMemoryRandomAccessFile))
+      super.release();
+  }
+
+  @Override
+  public void reacquire() throws IOException {
+    if (!(raf instanceof InMemoryRandomAccessFile))
+      super.reacquire();
+  }
+
   /////////////////////////////////////////////////////////////////////
 
 
@@ -15,7 +15,7 @@ import ucar.nc2.constants.*;
 import ucar.nc2.units.DateFormatter;
 import ucar.unidata.geoloc.projection.FlatEarth;
 import ucar.unidata.geoloc.ProjectionImpl;
-import ucar.unidata.io.bzip2.CBZip2InputStream;
+import ucar.unidata.io.bzip2.BZip2InputStream;
 import ucar.unidata.io.bzip2.BZip2ReadException;
 import ucar.unidata.util.Parameter;
 import java.io.*;
@@ -2682,7 +2682,7 @@ class Nidsheader {
     byte[] out = new byte[offset + uncomplen];
     System.arraycopy(header, 0, out, 0, offset);
 
-    CBZip2InputStream cbzip2 = new CBZip2InputStream();
+    BZip2InputStream cbzip2 = new BZip2InputStream();
 
     int numCompBytes = buf.remaining();
     byte[] bufc = new byte[numCompBytes];
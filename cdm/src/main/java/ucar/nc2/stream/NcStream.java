@@ -67,6 +67,8 @@ public class NcStream {
 
   public static final int ncstream_data_version = 3;
 
+  private static final int noImmediateData = Integer.MIN_VALUE; // sizeToCache that never puts data in the header
+
   static NcStreamProto.Group.Builder encodeGroup(Group g, int sizeToCache) throws IOException {
     NcStreamProto.Group.Builder groupBuilder = NcStreamProto.Group.newBuilder();
     groupBuilder.setName(g.getShortName());
@@ -94,6 +96,31 @@ public class NcStream {
   }
 
 
+  /**
+   * Encode the metadata of a NetcdfFile as an ncstream header, without any data values.
+   *
+   * @param ncfile encode this
+   * @return the header message
+   */
+  public static NcStreamProto.Header encodeHeader(NetcdfFile ncfile) throws IOException {
+    NcStreamProto.Header.Builder headerBuilder = NcStreamProto.Header.newBuilder();
+    if (ncfile.getLocation() != null)
+      headerBuilder.setLocation(ncfile.getLocation());
+    headerBuilder.setRoot(encodeGroup(ncfile.getRootGroup(), noImmediateData));
+    return headerBuilder.build();
+  }
+
+  /**
+   * Add the metadata in an ncstream header to the root group of a NetcdfFile.
+   * The caller must call ncfile.finish().
+   *
+   * @param proto the header message, eg from encodeHeader()
+   * @param ncfile add to this
+   */
+  public static void decodeHeader(NcStreamProto.Header proto, NetcdfFile ncfile) {
+    readGroup(proto.getRoot(), ncfile, ncfile.getRootGroup());
+  }
+
   public static NcStreamProto.Attribute.Builder encodeAtt(Attribute att) {
     NcStreamProto.Attribute.Builder attBuilder = NcStreamProto.Attribute.newBuilder();
     attBuilder.setName(att.getShortName());
@@ -162,7 +189,7 @@ public class NcStream {
     }
 
     // put small amounts of data in header "immediate mode"
-    if (var.isCaching() && var.getDataType().isNumeric()) {
+    if (sizeToCache != noImmediateData && var.isCaching() && var.getDataType().isNumeric()) {
       if (var.isCoordinateVariable() || var.getSize() * var.getElementSize() < sizeToCache) {
         Array data = var.read();
         ByteBuffer bb = data.getDataAsByteBuffer();
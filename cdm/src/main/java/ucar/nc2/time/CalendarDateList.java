@@ -0,0 +1,229 @@
+/*
+ * Copyright (c) 1998-2018 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.time;
+
+import org.joda.time.Chronology;
+import org.joda.time.DateTime;
+import ucar.ma2.Range;
+import javax.annotation.concurrent.Immutable;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A compact, immutable list of CalendarDates, all in the same Calendar.
+ * The dates are stored as msecs since the epoch in a primitive long[]; the CalendarDate objects are only
+ * created on demand in get(). Lookups use a binary search when the dates are ascending.
+ * <p/>
+ * Use this for long time coordinates, where materializing a CalendarDate for every coordinate is expensive.
+ *
+ * @since 10/19/2026
+ */
+@Immutable
+public class CalendarDateList extends AbstractList<CalendarDate> implements RandomAccess {
+
+  /**
+   * Make a CalendarDateList from coordinate values in the given date unit.
+   * The values are converted with the same arithmetic as CalendarDateUnit.makeCalendarDate(double), without
+   * creating intermediate CalendarDates, except for "calendar" units (months or years by calendar field).
+   *
+   * @param dateUnit the units of the values
+   * @param values coordinate values, must not contain NaN
+   * @return CalendarDateList
+   */
+  public static CalendarDateList of(CalendarDateUnit dateUnit, double[] values) {
+    CalendarDate base = dateUnit.getBaseCalendarDate();
+    long[] millis = new long[values.length];
+
+    if (dateUnit.isCalendarField()) {
+      for (int i = 0; i < values.length; i++)
+        millis[i] = dateUnit.makeCalendarDate(values[i]).getMillis();
+
+    } else {
+      long baseMillis = base.getMillis();
+      double msecsPerUnit = getMillisecsPerUnit(dateUnit.getCalendarField());
+      for (int i = 0; i < values.length; i++)
+        millis[i] = baseMillis + Math.round(values[i] * msecsPerUnit);
+    }
+    return new CalendarDateList(base.getCalendar(), base.getDateTime().getChronology(), millis);
+  }
+
+  /**
+   * Make a CalendarDateList from a List of CalendarDates.
+   * All the dates are assumed to be in the same Calendar as the first one.
+   *
+   * @param dates list of dates
+   * @return CalendarDateList
+   */
+  public static CalendarDateList of(List<CalendarDate> dates) {
+    if (dates instanceof CalendarDateList)
+      return (CalendarDateList) dates;
+
+    long[] millis = new long[dates.size()];
+    for (int i = 0; i < millis.length; i++)
+      millis[i] = dates.get(i).getMillis();
+
+    if (dates.isEmpty())
+      return new CalendarDateList(Calendar.getDefault(), null, millis);
+    CalendarDate first = dates.get(0);
+    return new CalendarDateList(first.getCalendar(), first.getDateTime().getChronology(), millis);
+  }
+
+  // same values as CalendarDate.add(double value, CalendarPeriod.Field unit)
+  private static double getMillisecsPerUnit(CalendarPeriod.Field field) {
+    switch (field) {
+      case Millisec:
+        return 1.0;
+      case Second:
+        return CalendarDate.MILLISECS_IN_SECOND;
+      case Minute:
+        return CalendarDate.MILLISECS_IN_MINUTE;
+      case Hour:
+        return CalendarDate.MILLISECS_IN_HOUR;
+      case Day:
+        return CalendarDate.MILLISECS_IN_DAY;
+      case Month:
+        return CalendarDate.MILLISECS_IN_MONTH;
+      case Year:
+        return CalendarDate.MILLISECS_IN_YEAR;
+    }
+    throw new UnsupportedOperationException("period units = " + field);
+  }
+
+  ////////////////////////////////////////////////////////////////////////////////////////
+  private final Calendar cal;
+  private final Chronology chronology; // may be null, use Calendar's
+  private final long[] millis;
+  private final boolean isAscending;
+
+  private CalendarDateList(Calendar cal, Chronology chronology, long[] millis) {
+    this.cal = cal;
+    this.chronology = chronology != null ? chronology : Calendar.getChronology(cal);
+    this.millis = millis;
+
+    boolean ascending = true;
+    for (int i = 1; i < millis.length; i++) {
+      if (millis[i] < millis[i - 1]) {
+        ascending = false;
+        break;
+      }
+    }
+    this.isAscending = ascending;
+  }
+
+  public Calendar getCalendar() {
+    return cal;
+  }
+
+  /**
+   * Get the ith date as msecs since the epoch, without creating a CalendarDate.
+   *
+   * @param idx index
+   * @return msecs from 1970-01-01T00:00:00Z
+   */
+  public long getMillis(int idx) {
+    return millis[idx];
+  }
+
+  /** Are the dates in non-decreasing order? If so, lookups use binary search. */
+  public boolean isAscending() {
+    return isAscending;
+  }
+
+  @Override
+  public CalendarDate get(int idx) {
+    return new CalendarDate(cal, new DateTime(millis[idx], chronology));
+  }
+
+  @Override
+  public int size() {
+    return millis.length;
+  }
+
+  @Override
+  public int indexOf(Object o) {
+    if (!(o instanceof CalendarDate))
+      return -1;
+    CalendarDate cd = (CalendarDate) o;
+    if (cd.getCalendar() != cal)
+      return -1;
+    long want = cd.getMillis();
+
+    if (!isAscending) {
+      for (int i = 0; i < millis.length; i++)
+        if (millis[i] == want)
+          return i;
+      return -1;
+    }
+
+    int idx = Arrays.binarySearch(millis, want);
+    if (idx < 0)
+      return -1;
+    while (idx > 0 && millis[idx - 1] == want) // first occurrence
+      idx--;
+    return idx;
+  }
+
+  @Override
+  public boolean contains(Object o) {
+    return indexOf(o) >= 0;
+  }
+
+  /**
+   * Find the index i such that date(i) <= d < date(i+1).
+   * This will return
+   * <ul>
+   * <li>i, if date(i) <= d < date(i+1).
+   * <li>0, if d < date(0)
+   * <li>n-1, if d >= date(n-1), where n is the number of dates
+   * </ul>
+   * The comparison is on the instant only, the Calendar is ignored.
+   *
+   * @param d date to look for
+   * @return index as above
+   */
+  public int findIndex(CalendarDate d) {
+    long want = d.getMillis();
+
+    int index;
+    if (isAscending) { // number of dates <= want
+      int low = 0;
+      int high = millis.length;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (millis[mid] <= want)
+          low = mid + 1;
+        else
+          high = mid;
+      }
+      index = low;
+
+    } else { // first date > want
+      index = 0;
+      while (index < millis.length) {
+        if (want < millis[index])
+          break;
+        index++;
+      }
+    }
+    return Math.max(0, index - 1);
+  }
+
+  /**
+   * Get the dates in the given Range of indices.
+   *
+   * @param r range of indices into this list
+   * @return CalendarDateList with the selected dates
+   */
+  public CalendarDateList section(Range r) {
+    long[] result = new long[r.length()];
+    int count = 0;
+    for (int idx : r)
+      result[count++] = millis[idx];
+    return new CalendarDateList(cal, chronology, result);
+  }
+
+}
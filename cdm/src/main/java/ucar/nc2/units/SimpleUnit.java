@@ -147,7 +147,7 @@ public class SimpleUnit {
     if (!ok)
       return false;
     try {
-      uu.getConverterTo(dateReferenceUnit);
+      ConverterImpl.create(uu, dateReferenceUnit);
       return true;
     } catch (ConversionException e) {
       return false;
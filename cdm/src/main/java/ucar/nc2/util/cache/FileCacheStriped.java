@@ -0,0 +1,560 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.util.cache;
+
+import ucar.nc2.dataset.DatasetUrl;
+import ucar.nc2.time.CalendarDateFormatter;
+import ucar.nc2.util.CancelTask;
+import ucar.nc2.util.Misc;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A FileCache built on concurrent data structures, for servers with many concurrent requests.
+ * Same parameters and behavior as FileCache, but:
+ * <ul>
+ * <li>acquire() and release() take no locks on the common path: the idle files for each key are in a lock-free deque,
+ * and a file is locked by compareAndSet on its state.</li>
+ * <li>Per-key bookkeeping is updated atomically with ConcurrentHashMap.compute(), which only locks that key's bin.</li>
+ * <li>Cleanup runs on a ScheduledExecutorService and is incremental: it closes at most cleanupBatch files per run,
+ * rescheduling itself until under the limit, and never blocks acquire() or release().</li>
+ * </ul>
+ * Call shutdown() when exiting the application, to stop the cleanup thread.
+ *
+ * @since 10/19/2026
+ */
+@ThreadSafe
+public class FileCacheStriped implements FileCacheIF {
+  protected static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(FileCacheStriped.class);
+  protected static final org.slf4j.Logger cacheLog = org.slf4j.LoggerFactory.getLogger("cacheLogger");
+
+  private static final int IDLE = 0, LOCKED = 1, REMOVED = 2;
+  private static volatile int cleanupBatch = 100;
+
+  private static ScheduledExecutorService exec;
+
+  private static synchronized ScheduledExecutorService getExecutor() {
+    if (exec == null) {
+      exec = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "FileCacheStriped");
+        t.setDaemon(true);
+        return t;
+      });
+    }
+    return exec;
+  }
+
+  /** Stop the cleanup thread. */
+  public static synchronized void shutdown() {
+    if (exec != null) {
+      exec.shutdownNow();
+      cacheLog.info("FileCacheStriped.shutdown called");
+    }
+    exec = null;
+  }
+
+  /** Maximum number of files closed by one background cleanup run, default 100. */
+  public static void setCleanupBatch(int n) {
+    cleanupBatch = Math.max(1, n);
+  }
+
+  /////////////////////////////////////////////////////////////////////////////////////////
+
+  protected final String name;
+  protected final int softLimit, minElements, hardLimit;
+  protected final long period; // msecs
+
+  private final AtomicBoolean disabled = new AtomicBoolean(false);
+  private final AtomicBoolean hasScheduled = new AtomicBoolean(false); // a soft limit cleanup is scheduled
+  private final AtomicBoolean cleaning = new AtomicBoolean(false); // a cleanup is running
+
+  private final ConcurrentHashMap<Object, Entry> cache = new ConcurrentHashMap<>(); // by hashKey
+  private final ConcurrentHashMap<FileCacheable, CacheFile> files = new ConcurrentHashMap<>(); // all files
+  private final AtomicInteger nfiles = new AtomicInteger();
+
+  // stats
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong miss = new AtomicLong();
+  private final AtomicLong cleanups = new AtomicLong();
+  private final AtomicLong removed = new AtomicLong();
+  private volatile ConcurrentHashMap<Object, Tracker> track;
+
+  /**
+   * Constructor.
+   *
+   * @param name of file cache
+   * @param minElementsInMemory keep this number in the cache
+   * @param softLimit trigger a background cleanup if it goes over this number.
+   * @param hardLimit if > 0, never allow more than this many elements. This causes a cleanup to be done in the calling
+   *        thread.
+   * @param period if > 0, do periodic cleanups every this number of seconds.
+   */
+  public FileCacheStriped(String name, int minElementsInMemory, int softLimit, int hardLimit, int period) {
+    this.name = name;
+    this.minElements = minElementsInMemory;
+    this.softLimit = softLimit;
+    this.hardLimit = hardLimit;
+    this.period = (long) 1000 * period;
+
+    if (period > 0) {
+      getExecutor().scheduleWithFixedDelay(this::scheduledCleanup, this.period, this.period, TimeUnit.MILLISECONDS);
+      if (cacheLog.isDebugEnabled())
+        cacheLog.debug("FileCacheStriped {} cleanup every {} secs", name, period);
+    }
+  }
+
+  @Override
+  public void disable() {
+    this.disabled.set(true);
+    clearCache(true);
+  }
+
+  @Override
+  public void enable() {
+    this.disabled.set(false);
+  }
+
+  @Override
+  public FileCacheable acquire(FileFactory factory, DatasetUrl durl) throws IOException {
+    return acquire(factory, durl.trueurl, durl, -1, null, null);
+  }
+
+  /**
+   * Acquire a FileCacheable from the cache, and lock it so no one else can use it.
+   * If not already in cache, open it with the FileFactory, and put in cache.
+   * Call FileCacheable.close() when done, and the file is then released instead of closed.
+   *
+   * @param factory use this factory to open the file if not in the cache; may not be null
+   * @param hashKey unique key for this file. If null, the location will be used
+   * @param location file location, may also used as the cache name, will be passed to the NetcdfFileFactory
+   * @param buffer_size RandomAccessFile buffer size, if <= 0, use default size
+   * @param cancelTask user can cancel, ok to be null.
+   * @param spiObject passed to the factory if object needs to be recreated
+   * @return FileCacheable corresponding to location.
+   * @throws IOException on error
+   */
+  @Override
+  public FileCacheable acquire(FileFactory factory, Object hashKey, DatasetUrl location, int buffer_size,
+      CancelTask cancelTask, Object spiObject) throws IOException {
+    if (null == hashKey)
+      hashKey = location.trueurl;
+    if (null == hashKey)
+      throw new IllegalArgumentException();
+
+    Tracker t = null;
+    ConcurrentHashMap<Object, Tracker> track = this.track;
+    if (track != null)
+      t = track.computeIfAbsent(hashKey, Tracker::new);
+
+    FileCacheable ncfile = acquireCacheOnly(hashKey);
+    if (ncfile != null) {
+      hits.incrementAndGet();
+      if (t != null)
+        t.hit.incrementAndGet();
+      return ncfile;
+    }
+    miss.incrementAndGet();
+    if (t != null)
+      t.miss.incrementAndGet();
+
+    ncfile = factory.open(location, buffer_size, cancelTask, spiObject);
+    if (cacheLog.isDebugEnabled())
+      cacheLog.debug("FileCacheStriped {} acquire {} {}", name, hashKey, ncfile.getLocation());
+
+    // user may have canceled
+    if ((cancelTask != null) && (cancelTask.isCancel())) {
+      if (ncfile != null)
+        ncfile.close();
+      return null;
+    }
+
+    if (disabled.get())
+      return ncfile;
+
+    addToCache(hashKey, ncfile);
+    checkLimits();
+    return ncfile;
+  }
+
+  private FileCacheable acquireCacheOnly(Object hashKey) {
+    if (disabled.get())
+      return null;
+    Entry entry = cache.get(hashKey);
+    if (entry == null)
+      return null;
+
+    CacheFile want;
+    while ((want = entry.idle.pollFirst()) != null) { // most recently used first
+      if (!want.state.compareAndSet(IDLE, LOCKED))
+        continue; // it was removed by a cleanup
+
+      FileCacheable ncfile = want.ncfile;
+      if (ncfile.getLastModified() != want.lastModified) {
+        if (cacheLog.isDebugEnabled())
+          cacheLog.debug("FileCacheStriped {}: acquire from cache {} {} was changed; discard", name, hashKey,
+              ncfile.getLocation());
+        remove(want);
+        continue;
+      }
+
+      try {
+        ncfile.reacquire(); // rehydrate
+      } catch (IOException ioe) {
+        if (cacheLog.isDebugEnabled())
+          cacheLog.debug("FileCacheStriped {} acquire from cache {} {} failed: {}", name, hashKey,
+              ncfile.getLocation(), ioe.getMessage());
+        remove(want);
+        continue;
+      }
+      return ncfile;
+    }
+    return null;
+  }
+
+  private void addToCache(Object hashKey, FileCacheable ncfile) {
+    CacheFile file = new CacheFile(hashKey, ncfile);
+    files.put(ncfile, file);
+    nfiles.incrementAndGet();
+    cache.compute(hashKey, (k, e) -> {
+      if (e == null)
+        e = new Entry();
+      e.count++;
+      return e;
+    });
+  }
+
+  private void checkLimits() {
+    int count = nfiles.get();
+    if (hardLimit > 0 && count > hardLimit) {
+      cleanup(hardLimit, Integer.MAX_VALUE); // in the calling thread
+    } else if (softLimit > 0 && count > softLimit && hasScheduled.compareAndSet(false, true)) {
+      try {
+        getExecutor().schedule(this::scheduledCleanup, 100, TimeUnit.MILLISECONDS);
+      } catch (RejectedExecutionException e) {
+        hasScheduled.set(false); // shutdown
+      }
+    }
+  }
+
+  // remove a locked file from the cache, and close it
+  private void remove(CacheFile file) {
+    if (file.state.getAndSet(REMOVED) == REMOVED)
+      return;
+    Entry entry = cache.get(file.hashKey);
+    if (entry != null)
+      entry.idle.remove(file);
+    cache.computeIfPresent(file.hashKey, (k, e) -> (--e.count <= 0) ? null : e);
+    if (files.remove(file.ncfile) != null)
+      nfiles.decrementAndGet();
+    removed.incrementAndGet();
+
+    FileCacheable ncfile = file.ncfile;
+    try {
+      ncfile.setFileCache(null); // unhook the caching
+      ncfile.close();
+    } catch (IOException e) {
+      log.error("FileCacheStriped {} close failed on {}", name, ncfile.getLocation(), e);
+    }
+  }
+
+  /**
+   * Remove all instances of object from the cache. Idle files are closed; files in use are closed when released.
+   *
+   * @param hashKey the object
+   */
+  @Override
+  public void eject(Object hashKey) {
+    if (disabled.get())
+      return;
+    for (CacheFile file : new ArrayList<>(files.values())) {
+      if (!file.hashKey.equals(hashKey))
+        continue;
+      if (file.state.compareAndSet(IDLE, LOCKED))
+        remove(file);
+      else
+        unhook(file);
+    }
+  }
+
+  // a file in use will really be closed by its owner
+  private void unhook(CacheFile file) {
+    if (file.state.compareAndSet(LOCKED, REMOVED) && files.remove(file.ncfile) != null) {
+      nfiles.decrementAndGet();
+      cache.computeIfPresent(file.hashKey, (k, e) -> (--e.count <= 0) ? null : e);
+      file.ncfile.setFileCache(null);
+    }
+  }
+
+  /**
+   * Release the file. This unlocks it, and updates its lastAccessed date.
+   *
+   * @param ncfile release this file.
+   * @return true if file was in cache, false if it was not
+   */
+  @Override
+  public boolean release(FileCacheable ncfile) throws IOException {
+    if (ncfile == null)
+      return false;
+
+    if (disabled.get()) {
+      ncfile.setFileCache(null); // prevent infinite loops
+      ncfile.close();
+      return false;
+    }
+
+    CacheFile file = files.get(ncfile);
+    if (file == null)
+      return false;
+
+    file.lastAccessed = System.currentTimeMillis();
+    file.countAccessed.incrementAndGet();
+    ncfile.release();
+    if (!file.state.compareAndSet(LOCKED, IDLE)) {
+      if (file.state.get() == REMOVED) { // ejected while being released
+        ncfile.setFileCache(null);
+        ncfile.close();
+      } else {
+        cacheLog.warn("FileCacheStriped {} release {} not locked", name, ncfile.getLocation());
+      }
+      return false;
+    }
+
+    Entry entry = cache.get(file.hashKey);
+    if (entry != null)
+      entry.idle.offerFirst(file);
+    else
+      unhookIdle(file); // ejected while in use
+
+    if (cacheLog.isDebugEnabled())
+      cacheLog.debug("FileCacheStriped {} release {}", name, ncfile.getLocation());
+    return true;
+  }
+
+  private void unhookIdle(CacheFile file) {
+    if (file.state.compareAndSet(IDLE, LOCKED))
+      remove(file);
+  }
+
+  /**
+   * Remove all cache entries.
+   *
+   * @param force if true, remove them even if they are currently locked.
+   */
+  @Override
+  public void clearCache(boolean force) {
+    int count = 0;
+    for (CacheFile file : new ArrayList<>(files.values())) {
+      if (file.state.compareAndSet(IDLE, LOCKED)) {
+        remove(file);
+        count++;
+      } else if (force && file.state.get() == LOCKED) {
+        cacheLog.warn("FileCacheStriped {} force close locked file= {}", name, file);
+        remove(file);
+        count++;
+      }
+    }
+    if (cacheLog.isDebugEnabled())
+      cacheLog.debug("FileCacheStriped {} clearCache force= {} deleted= {} left= {}", name, force, count, files.size());
+  }
+
+  private void scheduledCleanup() {
+    hasScheduled.set(false);
+    if (disabled.get())
+      return;
+    boolean more = cleanup(softLimit, cleanupBatch);
+    if (more && hasScheduled.compareAndSet(false, true)) { // continue soon
+      try {
+        getExecutor().schedule(this::scheduledCleanup, 10, TimeUnit.MILLISECONDS);
+      } catch (RejectedExecutionException e) {
+        hasScheduled.set(false);
+      }
+    }
+  }
+
+  /**
+   * Close the least recently used idle files, to bring the cache down to minElements.
+   * Does nothing if another cleanup is running.
+   *
+   * @param maxElements warn if the cache cant be brought under this number because files are in use
+   * @param maxRemove close no more than this many files
+   * @return true if more files would have been closed, but maxRemove was reached
+   */
+  boolean cleanup(int maxElements, int maxRemove) {
+    if (!cleaning.compareAndSet(false, true))
+      return false;
+    try {
+      int size = nfiles.get();
+      if (size <= minElements)
+        return false;
+      cleanups.incrementAndGet();
+
+      // the oldest idle files, using a bounded max heap on lastAccessed
+      int need2delete = size - minElements;
+      int nwant = Math.min(need2delete, maxRemove);
+      PriorityQueue<CacheFileSorter> oldest = new PriorityQueue<>(nwant + 1, Collections.reverseOrder());
+      for (CacheFile file : files.values()) {
+        if (file.state.get() != IDLE)
+          continue;
+        CacheFileSorter s = new CacheFileSorter(file);
+        if (oldest.size() < nwant) {
+          oldest.add(s);
+        } else if (s.compareTo(oldest.peek()) < 0) {
+          oldest.poll();
+          oldest.add(s);
+        }
+      }
+
+      int count = 0;
+      for (CacheFileSorter s : oldest) {
+        if (s.cacheFile.state.compareAndSet(IDLE, LOCKED)) { // so it isnt used anywhere else
+          remove(s.cacheFile);
+          count++;
+        }
+      }
+
+      if (size - count > maxElements && count < nwant) {
+        cacheLog.warn("FileCacheStriped {} cleanup couldnt remove enough to keep under the maximum= {}"
+            + " due to locked files; currently at = {}", name, maxElements, size - count);
+      }
+      if (cacheLog.isDebugEnabled())
+        cacheLog.debug("FileCacheStriped {} cleanup had={} removed={}", name, size, count);
+      return count == maxRemove && need2delete > maxRemove;
+
+    } finally {
+      cleaning.set(false);
+    }
+  }
+
+  ////////////////////////////////////////////////////////////////////////////
+  // debugging and stats
+
+  // number of files in the cache
+  int size() {
+    return nfiles.get();
+  }
+
+  @Override
+  public void showCache(Formatter format) {
+    List<CacheFile> allFiles = new ArrayList<>(files.values());
+    Collections.sort(allFiles); // sort so oldest are on top
+
+    format.format("%nFileCacheStriped %s (min=%d softLimit=%d hardLimit=%d scour=%d secs):%n", name, minElements,
+        softLimit, hardLimit, period / 1000);
+    format.format(" isLocked  accesses lastAccess                   location %n");
+    for (CacheFile file : allFiles) {
+      format.format("%8s %9d %s == %s %n", file.state.get() == LOCKED, file.countAccessed.get(),
+          CalendarDateFormatter.toDateTimeStringISO(file.lastAccessed), file.ncfile.getLocation());
+    }
+    showStats(format);
+  }
+
+  @Override
+  public List<String> showCache() {
+    List<CacheFile> allFiles = new ArrayList<>(files.values());
+    Collections.sort(allFiles); // sort so oldest are on top
+    List<String> result = new ArrayList<>(allFiles.size());
+    for (CacheFile file : allFiles)
+      result.add(file.toString());
+    return result;
+  }
+
+  @Override
+  public void showStats(Formatter format) {
+    format.format("  hits= %d miss= %d nfiles= %d elems= %d cleanups= %d removed= %d%n", hits.get(), miss.get(),
+        nfiles.get(), cache.size(), cleanups.get(), removed.get());
+  }
+
+  @Override
+  public void showTracking(Formatter format) {
+    if (track == null)
+      return;
+    List<Tracker> all = new ArrayList<>(track.values());
+    Collections.sort(all);
+    int seq = 0;
+    long countAll = 0;
+    format.format("%nTracking All files in cache %s%n", name);
+    format.format("    #    accum       hit    miss  file%n");
+    for (Tracker t : all) {
+      seq++;
+      countAll += t.hit.get() + t.miss.get();
+      format.format("%6d  %7d : %6d %6d %s%n", seq, countAll, t.hit.get(), t.miss.get(), t.key);
+    }
+  }
+
+  @Override
+  public void resetTracking() {
+    track = new ConcurrentHashMap<>(5000);
+  }
+
+  // the files for one hashKey
+  private static class Entry {
+    final ConcurrentLinkedDeque<CacheFile> idle = new ConcurrentLinkedDeque<>();
+    int count; // number of files, guarded by the cache map bin lock (compute)
+  }
+
+  private class CacheFile implements Comparable<CacheFile> {
+    final Object hashKey;
+    final FileCacheable ncfile;
+    final long lastModified;
+    final AtomicInteger state = new AtomicInteger(LOCKED);
+    final AtomicInteger countAccessed = new AtomicInteger();
+    volatile long lastAccessed;
+
+    CacheFile(Object hashKey, FileCacheable ncfile) {
+      this.hashKey = hashKey;
+      this.ncfile = ncfile;
+      this.lastModified = ncfile.getLastModified();
+      this.lastAccessed = System.currentTimeMillis();
+      ncfile.setFileCache(FileCacheStriped.this);
+    }
+
+    public String toString() {
+      return (state.get() == LOCKED) + " " + countAccessed + " "
+          + CalendarDateFormatter.toDateTimeStringISO(lastAccessed) + "   " + ncfile.getLocation();
+    }
+
+    public int compareTo(CacheFile o) {
+      return Long.compare(lastAccessed, o.lastAccessed);
+    }
+  }
+
+  // freeze the lastAccessed value for sorting
+  private static class CacheFileSorter implements Comparable<CacheFileSorter> {
+    private final FileCacheStriped.CacheFile cacheFile;
+    private final long lastAccessed;
+
+    CacheFileSorter(FileCacheStriped.CacheFile cacheFile) {
+      this.cacheFile = cacheFile;
+      this.lastAccessed = cacheFile.lastAccessed;
+    }
+
+    @Override
+    public int compareTo(CacheFileSorter o) {
+      return Long.compare(lastAccessed, o.lastAccessed);
+    }
+  }
+
+  private static class Tracker implements Comparable<Tracker> {
+    final Object key;
+    final AtomicInteger hit = new AtomicInteger();
+    final AtomicInteger miss = new AtomicInteger();
+
+    private Tracker(Object key) {
+      this.key = key;
+    }
+
+    @Override
+    public int compareTo(Tracker o) {
+      return Misc.compare(hit.get() + miss.get(), o.hit.get() + o.miss.get());
+    }
+  }
+
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.util.cache;
+
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.File;
+import java.util.*;
+
+/**
+ * A process-wide cache of the data of small variables, typically coordinates, shared by all open files.
+ * Variable.isCaching() decides which variables are cached; Variable.setSharedCaching(false) opts out a variable.
+ * <p/>
+ * Entries are keyed by the file location, its last modified time and length, the variable full name and the section.
+ * So a changed file never gets stale data, and data outlives the NetcdfFile it was read from.
+ * Identical arrays from different files (eg the same lat/lon grid) are stored only once, and the byte budget
+ * counts each distinct array once. When over budget, the least recently used keys are removed.
+ * <p/>
+ * Disabled by default, see setMaxBytes(). Cached arrays are shared, and must not be modified.
+ *
+ * @since 10/19/2026
+ */
+@ThreadSafe
+public class SharedDataCache {
+  private static final SharedDataCache instance = new SharedDataCache();
+
+  /** The process-wide cache used by Variable */
+  public static SharedDataCache getInstance() {
+    return instance;
+  }
+
+  /**
+   * The key for a variable section in a file, or null if the file cannot be identified.
+   *
+   * @param location file location
+   * @param lastModified file last modified time, must be > 0
+   * @param varName variable full name
+   * @param section section spec, eg from Section.toString()
+   */
+  public static String makeKey(String location, long lastModified, String varName, String section) {
+    if (location == null || lastModified <= 0)
+      return null;
+    File file = new File(location);
+    long length = file.exists() ? file.length() : -1;
+    return location + "#" + lastModified + "#" + length + "#" + varName + "#" + section;
+  }
+
+  ///////////////////////////////////////////////////////////////////////
+
+  private long maxBytes; // 0 = disabled
+  private long bytes;
+  private final LinkedHashMap<String, Shared> map = new LinkedHashMap<>(100, 0.75f, true); // LRU order
+  private final Map<Shared, Shared> distinct = new HashMap<>(); // dedup identical arrays
+
+  private long hits, misses, puts, dedups, evictions;
+
+  SharedDataCache() {}
+
+  /**
+   * Set the byte budget. 0 disables the cache and clears it.
+   *
+   * @param maxBytes maximum bytes of cached arrays
+   */
+  public synchronized void setMaxBytes(long maxBytes) {
+    this.maxBytes = Math.max(0, maxBytes);
+    evict();
+  }
+
+  public synchronized long getMaxBytes() {
+    return maxBytes;
+  }
+
+  public synchronized boolean isEnabled() {
+    return maxBytes > 0;
+  }
+
+  /**
+   * Get cached data. The result is shared and must not be modified, copy it first.
+   *
+   * @param key from makeKey()
+   * @return the data or null if not cached
+   */
+  public synchronized Array get(String key) {
+    if (maxBytes == 0 || key == null)
+      return null;
+    Shared s = map.get(key);
+    if (s == null) {
+      misses++;
+      return null;
+    }
+    hits++;
+    return s.data;
+  }
+
+  /**
+   * Add data to the cache. If an identical array is already cached, that one is shared instead.
+   *
+   * @param key from makeKey()
+   * @param data the data, which is copied. Only numeric, char and boolean arrays are cached.
+   * @return the cached array, which must not be modified; or data if not cached
+   */
+  public synchronized Array put(String key, Array data) {
+    if (maxBytes == 0 || key == null)
+      return data;
+    DataType dt = DataType.getType(data);
+    if (!dt.isNumeric() && dt != DataType.CHAR && dt != DataType.BOOLEAN)
+      return data;
+    long size = data.getSize() * dt.getSize();
+    if (size > maxBytes)
+      return data;
+
+    Shared s = new Shared(data.copy(), size); // make sure its canonical and private
+    Shared have = distinct.get(s);
+    if (have != null) {
+      dedups++;
+      s = have;
+    } else {
+      distinct.put(s, s);
+      bytes += size;
+    }
+    s.refs++;
+
+    Shared old = map.put(key, s);
+    if (old != null)
+      release(old);
+    puts++;
+    evict();
+    return s.data;
+  }
+
+  /** Remove all entries */
+  public synchronized void clear() {
+    map.clear();
+    distinct.clear();
+    bytes = 0;
+  }
+
+  private void release(Shared s) {
+    if (--s.refs == 0) {
+      distinct.remove(s);
+      bytes -= s.size;
+    }
+  }
+
+  private void evict() {
+    Iterator<Shared> iter = map.values().iterator();
+    while (bytes > maxBytes && iter.hasNext()) {
+      Shared s = iter.next();
+      iter.remove();
+      release(s);
+      evictions++;
+    }
+  }
+
+  ///////////////////////////////////////////////////////////////////////
+  // statistics
+
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  public synchronized long getDedups() {
+    return dedups;
+  }
+
+  public synchronized long getEvictions() {
+    return evictions;
+  }
+
+  /** Bytes used by the distinct cached arrays */
+  public synchronized long getBytes() {
+    return bytes;
+  }
+
+  /** Number of keys */
+  public synchronized int size() {
+    return map.size();
+  }
+
+  public synchronized void resetStatistics() {
+    hits = misses = puts = dedups = evictions = 0;
+  }
+
+  public synchronized void showStatus(Formatter f) {
+    f.format("SharedDataCache maxBytes=%d bytes=%d keys=%d distinct arrays=%d%n", maxBytes, bytes, map.size(),
+        distinct.size());
+    f.format(" hits=%d misses=%d puts=%d dedups=%d evictions=%d%n", hits, misses, puts, dedups, evictions);
+  }
+
+  // an array, equal to another with the same type, shape and values
+  private static class Shared {
+    final Array data;
+    final long size;
+    final int hashCode;
+    int refs;
+
+    Shared(Array data, long size) {
+      this.data = data;
+      this.size = size;
+      this.hashCode = 31 * Arrays.hashCode(data.getShape()) + Arrays.deepHashCode(new Object[] {data.getStorage()});
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o)
+        return true;
+      if (!(o instanceof Shared))
+        return false;
+      Shared other = (Shared) o;
+      return hashCode == other.hashCode && data.getElementType() == other.data.getElementType()
+          && data.isUnsigned() == other.data.isUnsigned()
+          && Arrays.equals(data.getShape(), other.data.getShape())
+          && Objects.deepEquals(data.getStorage(), other.data.getStorage());
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+
+}
@@ -568,6 +568,15 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable, C
     this.bigEndian = bo.equals(ByteOrder.BIG_ENDIAN);
   }
 
+  /**
+   * Get the current endian mode.
+   *
+   * @return ByteOrder.BIG_ENDIAN or ByteOrder.LITTLE_ENDIAN
+   */
+  public ByteOrder getByteOrder() {
+    return bigEndian ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+  }
+
   /**
    * Copy the contents of the buffer to the disk.
    *
@@ -0,0 +1,658 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.unidata.io.bzip2;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decodes bzip2 compressed data one block at a time.
+ * <p/>
+ * The compressed bits are read 64 at a time into a long, Huffman codes up to LOOKUP_BITS long are decoded with a
+ * single table lookup, and the inverse BWT output is produced in bulk by read(byte[], int, int). There is no per-byte
+ * method call on the input or the output, unlike CBZip2InputStream.
+ * <p/>
+ * The input is either a byte array, in which case any block may be decoded given its bit offset, see
+ * {@link #decodeBlock(long)} and {@link #findBlock}, or an InputStream, which is decoded sequentially.
+ * Use BZip2InputStream to read a whole bzip2 stream.
+ * <p/>
+ * Not thread safe, but may be reused.
+ *
+ * @since 10/19/2026
+ */
+public class BZip2BlockDecoder implements BZip2Constants {
+  public static final long BLOCK_MAGIC = 0x314159265359L;
+  public static final long END_MAGIC = 0x177245385090L;
+
+  private static final int LOOKUP_BITS = 10;
+  private static final int MAX_CODE = 20;
+  private static final int MAX_PAD = 8; // zero bytes allowed past the end of input before giving up
+
+  private static final int[] crcTable = new int[256];
+  static {
+    for (int i = 0; i < 256; i++) {
+      int c = i << 24;
+      for (int k = 0; k < 8; k++)
+        c = (c & 0x80000000) != 0 ? (c << 1) ^ 0x04c11db7 : c << 1;
+      crcTable[i] = c;
+    }
+  }
+
+  // input
+  private byte[] in; // the caller's array, or streamBuffer
+  private byte[] streamBuffer; // only ours, so reading the stream never writes into a caller's array
+  private int inStart, inPos, inEnd;
+  private InputStream stream;
+  private long streamBase; // byte offset of in[inStart] in the stream
+  private int padBytes;
+  private long bits; // bit buffer, the next bit is at (bitCount-1)
+  private int bitCount;
+
+  private int blockSize100k = 9;
+
+  // Huffman decoding tables, by group
+  private final int[][] lookup = new int[N_GROUPS][1 << LOOKUP_BITS]; // (symbol << 8) | length, 0 if longer
+  private final int[][] limit = new int[N_GROUPS][MAX_CODE + 2];
+  private final int[][] base = new int[N_GROUPS][MAX_CODE + 2];
+  private final int[][] perm = new int[N_GROUPS][MAX_ALPHA_SIZE];
+  private final int[] minLens = new int[N_GROUPS];
+  private final byte[][] len = new byte[N_GROUPS][MAX_ALPHA_SIZE];
+  private final byte[] selector = new byte[MAX_SELECTORS];
+  private int nSelectors;
+  private final byte[] seqToUnseq = new byte[256];
+  private final byte[] yy = new byte[256];
+  private final int[] cftab = new int[257];
+
+  // low 8 bits are the block byte, high 24 bits the inverse BWT pointer
+  private int[] tt;
+
+  // current block
+  private int storedBlockCRC;
+  private int storedCombinedCRC;
+  private int nblock; // number of bytes in the block
+  private int nblockUsed;
+  private int tPos;
+  private int k0;
+  private int outCh, outRepeat;
+  private int blockCRC;
+  private boolean blockDone = true;
+
+  /** Decode from a byte array, which must hold the blocks that will be decoded. */
+  public BZip2BlockDecoder(byte[] buf, int offset, int length) {
+    setInput(buf, offset, length);
+  }
+
+  /** Decode sequentially from an InputStream. */
+  public BZip2BlockDecoder(InputStream stream) {
+    setInput(stream);
+  }
+
+  public void setInput(byte[] buf, int offset, int length) {
+    this.in = buf;
+    this.inStart = offset;
+    this.inPos = offset;
+    this.inEnd = offset + length;
+    this.stream = null;
+    reset();
+  }
+
+  public void setInput(InputStream stream) {
+    if (streamBuffer == null)
+      streamBuffer = new byte[8192];
+    this.in = streamBuffer;
+    this.inStart = 0;
+    this.inPos = 0;
+    this.inEnd = 0;
+    this.stream = stream;
+    reset();
+  }
+
+  private void reset() {
+    streamBase = 0;
+    padBytes = 0;
+    bits = 0;
+    bitCount = 0;
+    blockDone = true;
+    nblock = 0;
+  }
+
+  /**
+   * Read the stream header following the "BZ" signature: 'h' and the block size '1' to '9'.
+   *
+   * @return false if not a bzip2 stream header
+   */
+  public boolean readStreamHeader() throws IOException {
+    int h = getBits(8);
+    int size = getBits(8);
+    if (h != 'h' || size < '1' || size > '9')
+      return false;
+    setBlockSize100k(size - '0');
+    return true;
+  }
+
+  /** The maximum block size, in units of 100000 bytes, usually read from the stream header. */
+  public void setBlockSize100k(int blockSize100k) {
+    if (blockSize100k < 1 || blockSize100k > 9)
+      throw new IllegalArgumentException("Invalid block size " + blockSize100k);
+    this.blockSize100k = blockSize100k;
+  }
+
+  /** Number of bits read from the start of the input. */
+  public long getBitOffset() {
+    return 8 * (streamBase + inPos - inStart + padBytes) - bitCount;
+  }
+
+  /**
+   * Decode the block whose magic number starts at the given bit offset of the byte array input.
+   * Its bytes are then returned by read().
+   *
+   * @param bitOffset bit offset from the start of the input
+   * @return bit offset of the following block or end of stream marker, or -1 if an end of stream marker was found at
+   *         bitOffset
+   * @throws BZip2ReadException if the data is not a valid block
+   */
+  public long decodeBlock(long bitOffset) throws IOException {
+    if (stream != null)
+      throw new IllegalStateException("decodeBlock(bitOffset) needs byte array input");
+    if (bitOffset < 0 || bitOffset >= 8L * (inEnd - inStart))
+      throw new IllegalArgumentException("bitOffset out of range " + bitOffset);
+    inPos = inStart + (int) (bitOffset >>> 3);
+    padBytes = 0;
+    bits = 0;
+    bitCount = 0;
+    getBits((int) (bitOffset & 7));
+    return decodeNextBlock() ? getBitOffset() : -1;
+  }
+
+  /**
+   * Decode the next block of the input. Its bytes are then returned by read().
+   *
+   * @return false if the end of stream marker was found instead of a block
+   * @throws BZip2ReadException if the data is not a valid block
+   */
+  public boolean decodeNextBlock() throws IOException {
+    blockDone = true;
+    nblock = 0;
+    long magic = ((long) getBits(24) << 24) | getBits(24);
+    if (magic == END_MAGIC) {
+      storedCombinedCRC = getBits(32);
+      return false;
+    }
+    if (magic != BLOCK_MAGIC)
+      throw new BZip2ReadException("Bad Block Header");
+
+    storedBlockCRC = getBits(32);
+    boolean randomised = getBits(1) == 1;
+    int origPtr = getBits(24);
+    int nInUse = readTables();
+    decodeSymbols(nInUse);
+    if (origPtr >= nblock)
+      throw new BZip2ReadException("Invalid origPtr " + origPtr);
+    checkEOF();
+
+    // inverse BWT: link each position to the next one
+    int[] tt = this.tt;
+    int[] cftab = this.cftab;
+    for (int i = 0, sum = 0; i < 256; i++) {
+      int n = cftab[i + 1];
+      cftab[i] = sum;
+      sum += n;
+    }
+    for (int i = 0; i < nblock; i++) {
+      int ch = tt[i] & 0xff;
+      tt[cftab[ch]++] |= i << 8;
+    }
+
+    tPos = tt[origPtr] >>> 8;
+    if (randomised)
+      derandomise();
+
+    // prime the run length decoding, see read()
+    int v = tt[tPos];
+    k0 = v & 0xff;
+    tPos = v >>> 8;
+    nblockUsed = 1;
+    outRepeat = 0;
+    blockCRC = 0xffffffff;
+    blockDone = false;
+    return true;
+  }
+
+  /** CRC stored in the header of the current block */
+  public int getStoredBlockCRC() {
+    return storedBlockCRC;
+  }
+
+  /** Combined CRC stored after the end of stream marker */
+  public int getStoredCombinedCRC() {
+    return storedCombinedCRC;
+  }
+
+  /** Number of bytes in the current block, before run length decoding */
+  public int getBlockLength() {
+    return nblock;
+  }
+
+  /**
+   * Read the uncompressed bytes of the current block.
+   *
+   * @return number of bytes read, or -1 when the block is done. The block CRC has then been checked.
+   * @throws BZip2ReadException on CRC error
+   */
+  public int read(byte[] b, int off, int len) {
+    if (blockDone)
+      return -1;
+    if (len == 0)
+      return 0;
+
+    // bzip2 run length decoding: 4 equal bytes are followed by a count of 0 to 255 more
+    final int[] tt = this.tt;
+    final int nblock = this.nblock;
+    int nblockUsed = this.nblockUsed;
+    int tPos = this.tPos;
+    int k0 = this.k0;
+    int outCh = this.outCh;
+    int outRepeat = this.outRepeat;
+    int crc = this.blockCRC;
+    int pos = off;
+    int end = off + len;
+
+    while (true) {
+      while (outRepeat > 0) {
+        if (pos == end)
+          break;
+        b[pos++] = (byte) outCh;
+        crc = (crc << 8) ^ crcTable[((crc >>> 24) ^ outCh) & 0xff];
+        outRepeat--;
+      }
+      if (outRepeat > 0 || nblockUsed > nblock)
+        break;
+
+      outCh = k0;
+      outRepeat = 1;
+      int v = tt[tPos];
+      int k1 = v & 0xff;
+      tPos = v >>> 8;
+      if (++nblockUsed > nblock)
+        continue;
+      if (k1 != k0) {
+        k0 = k1;
+        continue;
+      }
+
+      outRepeat = 2;
+      v = tt[tPos];
+      k1 = v & 0xff;
+      tPos = v >>> 8;
+      if (++nblockUsed > nblock)
+        continue;
+      if (k1 != k0) {
+        k0 = k1;
+        continue;
+      }
+
+      outRepeat = 3;
+      v = tt[tPos];
+      k1 = v & 0xff;
+      tPos = v >>> 8;
+      if (++nblockUsed > nblock)
+        continue;
+      if (k1 != k0) {
+        k0 = k1;
+        continue;
+      }
+
+      v = tt[tPos];
+      outRepeat = (v & 0xff) + 4;
+      tPos = v >>> 8;
+      v = tt[tPos];
+      k0 = v & 0xff;
+      tPos = v >>> 8;
+      nblockUsed += 2;
+    }
+
+    this.nblockUsed = nblockUsed;
+    this.tPos = tPos;
+    this.k0 = k0;
+    this.outCh = outCh;
+    this.outRepeat = outRepeat;
+    this.blockCRC = crc;
+
+    if (outRepeat == 0 && nblockUsed > nblock) {
+      blockDone = true;
+      if (~crc != storedBlockCRC)
+        throw new BZip2ReadException("CRC error: storedBlockCRC != computedBlockCRC");
+    }
+    int n = pos - off;
+    return (n == 0) ? -1 : n;
+  }
+
+  /**
+   * Find the next block magic number in a byte array, starting at a bit offset.
+   * The magic number may also occur by chance inside a block, so decodeBlock() may fail on the result.
+   *
+   * @return bit offset from buf[offset] of the block magic number, or -1 if not found
+   */
+  public static long findBlock(byte[] buf, int offset, int length, long fromBit) {
+    long nbits = 8L * length;
+    if (fromBit + 48 > nbits)
+      return -1;
+    long window = 0;
+    long pos = fromBit;
+    for (int i = 0; i < 48; i++, pos++)
+      window = (window << 1) | getBit(buf, offset, pos);
+    long mask = (1L << 48) - 1;
+    while (true) {
+      if ((window & mask) == BLOCK_MAGIC)
+        return pos - 48;
+      if (pos >= nbits)
+        return -1;
+      window = (window << 1) | getBit(buf, offset, pos++);
+    }
+  }
+
+  private static int getBit(byte[] buf, int offset, long bitPos) {
+    return (buf[offset + (int) (bitPos >>> 3)] >>> (7 - (int) (bitPos & 7))) & 1;
+  }
+
+  ////////////////////////////////////////////////////////////////////////////////////
+
+  // the Huffman tables and selectors; returns the number of byte values used
+  private int readTables() throws IOException {
+    int nInUse = 0;
+    int inUse16 = getBits(16);
+    for (int i = 0; i < 16; i++) {
+      if ((inUse16 & (0x8000 >>> i)) != 0) {
+        int inUse = getBits(16);
+        for (int j = 0; j < 16; j++) {
+          if ((inUse & (0x8000 >>> j)) != 0)
+            seqToUnseq[nInUse++] = (byte) (i * 16 + j);
+        }
+      }
+    }
+    if (nInUse == 0)
+      throw new BZip2ReadException("No symbols in use");
+    int alphaSize = nInUse + 2;
+
+    int nGroups = getBits(3);
+    if (nGroups < 2 || nGroups > N_GROUPS)
+      throw new BZip2ReadException("Invalid number of Huffman tables " + nGroups);
+    int nSelectors = getBits(15);
+    this.nSelectors = Math.min(nSelectors, MAX_SELECTORS);
+    if (nSelectors < 1)
+      throw new BZip2ReadException("Invalid number of selectors " + nSelectors);
+
+    // selectors are move to front coded in unary; bzip2 1.0.8 may write more than MAX_SELECTORS and ignores the rest
+    byte[] pos = {0, 1, 2, 3, 4, 5};
+    for (int i = 0; i < nSelectors; i++) {
+      int j = 0;
+      while (getBits(1) == 1) {
+        if (++j >= nGroups)
+          throw new BZip2ReadException("Invalid selector");
+      }
+      byte tmp = pos[j];
+      for (; j > 0; j--)
+        pos[j] = pos[j - 1];
+      pos[0] = tmp;
+      if (i < MAX_SELECTORS)
+        selector[i] = tmp;
+    }
+
+    // delta coded code lengths
+    for (int t = 0; t < nGroups; t++) {
+      int curr = getBits(5);
+      byte[] lent = len[t];
+      for (int i = 0; i < alphaSize; i++) {
+        while (true) {
+          if (curr < 1 || curr > MAX_CODE)
+            throw new BZip2ReadException("Invalid Huffman code length " + curr);
+          if (getBits(1) == 0)
+            break;
+          curr += (getBits(1) == 0) ? 1 : -1;
+        }
+        lent[i] = (byte) curr;
+      }
+      makeTables(t, alphaSize);
+    }
+    return nInUse;
+  }
+
+  // canonical Huffman decoding tables for group t, as in hbCreateDecodeTables, plus the lookup table
+  private void makeTables(int t, int alphaSize) {
+    byte[] length = len[t];
+    int[] limit = this.limit[t];
+    int[] base = this.base[t];
+    int[] perm = this.perm[t];
+    int[] lookup = this.lookup[t];
+
+    int minLen = 32, maxLen = 0;
+    for (int i = 0; i < alphaSize; i++) {
+      minLen = Math.min(minLen, length[i]);
+      maxLen = Math.max(maxLen, length[i]);
+    }
+
+    int pp = 0;
+    for (int i = minLen; i <= maxLen; i++) {
+      for (int j = 0; j < alphaSize; j++) {
+        if (length[j] == i)
+          perm[pp++] = j;
+      }
+    }
+
+    int[] count = new int[MAX_CODE + 2];
+    for (int i = 0; i < alphaSize; i++)
+      count[length[i]]++;
+
+    // limit[n] is the largest code of length n; base[n] maps a code of length n to its index in perm
+    int code = 0;
+    int index = 0;
+    for (int n = 1; n <= MAX_CODE; n++) {
+      base[n] = code - index;
+      code += count[n];
+      if (code > (1 << n))
+        throw new BZip2ReadException("Invalid Huffman code lengths");
+      index += count[n];
+      limit[n] = code - 1;
+      code <<= 1;
+    }
+    limit[MAX_CODE + 1] = Integer.MAX_VALUE; // stops the slow path on a bad code, see decodeSymbols
+    minLens[t] = minLen;
+
+    // every LOOKUP_BITS pattern starting with a code of at most LOOKUP_BITS bits
+    java.util.Arrays.fill(lookup, 0);
+    code = 0;
+    pp = 0;
+    for (int n = 1; n <= MAX_CODE; n++) {
+      for (int k = 0; k < count[n]; k++, code++, pp++) {
+        if (n <= LOOKUP_BITS) {
+          int first = code << (LOOKUP_BITS - n);
+          int entry = (perm[pp] << 8) | n;
+          for (int m = 0; m < (1 << (LOOKUP_BITS - n)); m++)
+            lookup[first + m] = entry;
+        }
+      }
+      code <<= 1;
+    }
+  }
+
+  // Huffman, MTF and RUNA/RUNB decoding into the low bytes of tt; also counts the bytes into cftab[1..256]
+  private void decodeSymbols(int nInUse) throws IOException {
+    int limitLast = baseBlockSize * blockSize100k;
+    if (tt == null || tt.length < limitLast)
+      tt = new int[limitLast];
+    int[] tt = this.tt;
+    int[] cftab = this.cftab;
+    java.util.Arrays.fill(cftab, 0);
+    byte[] yy = this.yy;
+    for (int i = 0; i < 256; i++)
+      yy[i] = (byte) i;
+    byte[] seqToUnseq = this.seqToUnseq;
+
+    int eob = nInUse + 1;
+    int last = 0;
+    int groupNo = -1;
+    int groupPos = 0;
+    int[] lookup = null, limit = null, base = null, perm = null;
+    int minLen = 0;
+    int runLength = 0, runBit = 1;
+
+    long bits = this.bits;
+    int bitCount = this.bitCount;
+
+    while (true) {
+      if (groupPos == 0) {
+        if (++groupNo >= nSelectors)
+          throw new BZip2ReadException("Too many selectors used");
+        int t = selector[groupNo];
+        lookup = this.lookup[t];
+        limit = this.limit[t];
+        base = this.base[t];
+        perm = this.perm[t];
+        minLen = minLens[t];
+        groupPos = G_SIZE;
+      }
+      groupPos--;
+
+      if (bitCount < MAX_CODE) {
+        this.bits = bits;
+        this.bitCount = bitCount;
+        refill();
+        bits = this.bits;
+        bitCount = this.bitCount;
+      }
+
+      int sym;
+      int entry = lookup[(int) (bits >>> (bitCount - LOOKUP_BITS)) & ((1 << LOOKUP_BITS) - 1)];
+      if (entry != 0) {
+        bitCount -= entry & 0xff;
+        sym = entry >>> 8;
+      } else {
+        int n = Math.max(minLen, LOOKUP_BITS + 1);
+        int code = (int) (bits >>> (bitCount - n)) & ((1 << n) - 1);
+        while (code > limit[n]) {
+          n++;
+          code = (int) (bits >>> (bitCount - n)) & ((1 << n) - 1);
+        }
+        if (n > MAX_CODE)
+          throw new BZip2ReadException("Invalid Huffman code");
+        bitCount -= n;
+        sym = perm[code - base[n]];
+      }
+
+      if (sym <= RUNB) {
+        // run of the front byte, the length is written in bijective base 2
+        runLength += (sym + 1) * runBit;
+        runBit <<= 1;
+        if (runLength > limitLast)
+          throw new BZip2ReadException("Block Overrun");
+        continue;
+      }
+
+      if (runLength > 0) {
+        if (last + runLength > limitLast)
+          throw new BZip2ReadException("Block Overrun");
+        int ch = seqToUnseq[yy[0] & 0xff] & 0xff;
+        cftab[ch + 1] += runLength;
+        java.util.Arrays.fill(tt, last, last + runLength, ch);
+        last += runLength;
+        runLength = 0;
+        runBit = 1;
+      }
+
+      if (sym == eob)
+        break;
+      if (sym > eob)
+        throw new BZip2ReadException("Invalid symbol");
+      if (last >= limitLast)
+        throw new BZip2ReadException("Block Overrun");
+
+      // move to front
+      int n = sym - 1;
+      byte tmp = yy[n];
+      if (n < 16) {
+        for (; n > 0; n--)
+          yy[n] = yy[n - 1];
+      } else {
+        System.arraycopy(yy, 0, yy, 1, n);
+      }
+      yy[0] = tmp;
+      int ch = seqToUnseq[tmp & 0xff] & 0xff;
+      cftab[ch + 1]++;
+      tt[last++] = ch;
+    }
+
+    this.bits = bits;
+    this.bitCount = bitCount;
+    this.nblock = last;
+    if (last == 0)
+      throw new BZip2ReadException("Empty block");
+  }
+
+  // apply the randomisation of old bzip2 versions in place, in the order the bytes are read
+  private void derandomise() {
+    int pos = tPos;
+    int rNToGo = 0;
+    int rTPos = 0;
+    for (int i = 0; i < nblock; i++) {
+      if (rNToGo == 0) {
+        rNToGo = rNums[rTPos];
+        rTPos = (rTPos + 1) & 511;
+      }
+      rNToGo--;
+      int v = tt[pos];
+      if (rNToGo == 1)
+        tt[pos] = v ^ 1;
+      pos = v >>> 8;
+    }
+  }
+
+  ////////////////////////////////////////////////////////////////////////////////////
+  // bit input
+
+  private int getBits(int n) throws IOException {
+    if (n == 0)
+      return 0;
+    if (bitCount < n)
+      refill();
+    bitCount -= n;
+    int result = (int) (bits >>> bitCount) & (int) ((1L << n) - 1);
+    checkEOF();
+    return result;
+  }
+
+  // fill the bit buffer with at least 32 bits; past the end of input zeros are added, see checkEOF
+  private void refill() throws IOException {
+    while (bitCount <= 56) {
+      if (inPos == inEnd && !fillBuffer()) {
+        if (++padBytes > MAX_PAD)
+          throw new BZip2ReadException("Compressed Stream EOF");
+        bits <<= 8;
+      } else {
+        bits = (bits << 8) | (in[inPos++] & 0xff);
+      }
+      bitCount += 8;
+    }
+  }
+
+  private boolean fillBuffer() throws IOException {
+    if (stream == null)
+      return false;
+    streamBase += inEnd - inStart;
+    inStart = inPos = inEnd = 0;
+    int n = stream.read(in, 0, in.length);
+    if (n <= 0)
+      return false;
+    inEnd = n;
+    return true;
+  }
+
+  // have the zero bytes added past the end of input been used?
+  private void checkEOF() {
+    if (padBytes > 0 && bitCount < 8 * padBytes)
+      throw new BZip2ReadException("Compressed Stream EOF");
+  }
+
+}
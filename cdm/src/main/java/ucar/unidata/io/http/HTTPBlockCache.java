@@ -0,0 +1,361 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.unidata.io.http;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Formatter;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A cache of fixed size blocks of remote files, shared by all HTTPRandomAccessFiles.
+ * Blocks are evicted least recently used first when the total size goes over the byte budget.
+ * <p/>
+ * On a read, adjacent blocks that are not in the cache are coalesced into one ranged request (up to
+ * maxRequestBlocks), and independent requests are made concurrently, using the HTTPSession connection pool.
+ * Files are identified by a key that should change when the file changes, see HTTPRandomAccessFile.
+ * Optionally, blocks are also kept on local disk in an HTTPDiskBlockStore.
+ *
+ * @since 10/19/2026
+ */
+@ThreadSafe
+public class HTTPBlockCache {
+  private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(HTTPBlockCache.class);
+
+  public static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+  public static final long DEFAULT_MAX_BYTES = 64L * 1000 * 1000;
+  public static final int DEFAULT_MAX_REQUEST_BLOCKS = 64; // 4 Mb
+  public static final int DEFAULT_THREADS = 4;
+
+  /** Read a byte range of a remote file, eg with an HTTP GET and a Range header. */
+  public interface RangeReader {
+    /**
+     * Read len bytes starting at pos.
+     *
+     * @return number of bytes actually read
+     */
+    int readRange(long pos, byte[] buff, int offset, int len) throws IOException;
+  }
+
+  private final int blockSize;
+  private final int maxRequestBlocks;
+  private final int nthreads;
+  private final Cache<Key, byte[]> cache;
+  private ExecutorService pool; // lazily created
+  private volatile HTTPDiskBlockStore diskStore; // may be null
+
+  private final AtomicLong requests = new AtomicLong();
+  private final AtomicLong bytesFetched = new AtomicLong();
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong diskHits = new AtomicLong();
+
+  public HTTPBlockCache() {
+    this(DEFAULT_BLOCK_SIZE, DEFAULT_MAX_BYTES, DEFAULT_MAX_REQUEST_BLOCKS, DEFAULT_THREADS);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param blockSize size of the cached blocks in bytes
+   * @param maxBytes byte budget for all cached blocks
+   * @param maxRequestBlocks maximum number of blocks to coalesce into one request
+   * @param nthreads maximum number of concurrent requests for one read; 1 means sequential
+   */
+  public HTTPBlockCache(int blockSize, long maxBytes, int maxRequestBlocks, int nthreads) {
+    this.blockSize = blockSize;
+    this.maxRequestBlocks = Math.max(1, maxRequestBlocks);
+    this.nthreads = Math.max(1, nthreads);
+    this.cache = CacheBuilder.newBuilder().maximumWeight(maxBytes).weigher((Key k, byte[] b) -> b.length).build();
+  }
+
+  public int getBlockSize() {
+    return blockSize;
+  }
+
+  /**
+   * Also keep blocks on local disk, so they survive a restart. Default is none.
+   *
+   * @param diskStore use this store, or null for memory only
+   */
+  public void setDiskStore(HTTPDiskBlockStore diskStore) {
+    this.diskStore = diskStore;
+  }
+
+  public HTTPDiskBlockStore getDiskStore() {
+    return diskStore;
+  }
+
+  /**
+   * Read from a remote file through the cache, also using the disk store.
+   *
+   * @see #read(String, boolean, long, RangeReader, long, byte[], int, int)
+   */
+  public int read(String fileKey, long fileLength, RangeReader reader, long pos, byte[] buff, int offset, int len)
+      throws IOException {
+    return read(fileKey, true, fileLength, reader, pos, buff, offset, len);
+  }
+
+  /**
+   * Read from a remote file through the cache.
+   *
+   * @param fileKey identifies the file and its version
+   * @param persist use the disk store, if any. Set to false if fileKey is only valid in this process
+   * @param fileLength total length of the file
+   * @param reader reads ranges that are not in the cache
+   * @param pos start here in the file
+   * @param buff put data into this buffer
+   * @param offset buffer offset
+   * @param len this number of bytes
+   * @return actual number of bytes read, or -1 if pos is at or past the end of the file
+   * @throws IOException on read error
+   */
+  public int read(String fileKey, boolean persist, long fileLength, RangeReader reader, long pos, byte[] buff,
+      int offset, int len) throws IOException {
+    HTTPDiskBlockStore disk = persist ? diskStore : null;
+    long end = Math.min(pos + len, fileLength); // exclusive
+    if (pos >= end)
+      return (len == 0) ? 0 : -1;
+
+    long firstBlock = pos / blockSize;
+    long lastBlock = (end - 1) / blockSize;
+    int nblocks = (int) (lastBlock - firstBlock + 1);
+    byte[][] blocks = new byte[nblocks][];
+
+    // find the misses, coalesce adjacent ones into runs
+    List<int[]> runs = new ArrayList<>(); // {first, count} relative to firstBlock
+    int[] run = null;
+    for (int i = 0; i < nblocks; i++) {
+      Key key = new Key(fileKey, firstBlock + i);
+      blocks[i] = cache.getIfPresent(key);
+      if (blocks[i] == null && disk != null) {
+        blocks[i] = disk.get(fileKey, firstBlock + i);
+        if (blocks[i] != null) {
+          diskHits.incrementAndGet();
+          cache.put(key, blocks[i]);
+        }
+      }
+      if (blocks[i] != null) {
+        hits.incrementAndGet();
+        run = null;
+        continue;
+      }
+      misses.incrementAndGet();
+      if (run == null || run[1] == maxRequestBlocks) {
+        run = new int[] {i, 0};
+        runs.add(run);
+      }
+      run[1]++;
+    }
+
+    fetchRuns(fileKey, disk, fileLength, reader, firstBlock, runs, blocks);
+
+    // copy out of the blocks
+    int done = 0;
+    int want = (int) (end - pos);
+    int blockOffset = (int) (pos - firstBlock * blockSize);
+    for (int i = 0; i < nblocks && done < want; i++) {
+      byte[] block = blocks[i];
+      if (block == null || block.length <= blockOffset) // short read from the server
+        break;
+      int n = Math.min(block.length - blockOffset, want - done);
+      System.arraycopy(block, blockOffset, buff, offset + done, n);
+      done += n;
+      if (block.length < blockSize) // partial block, at the end of the file or short read
+        break;
+      blockOffset = 0;
+    }
+    return done;
+  }
+
+  private void fetchRuns(String fileKey, HTTPDiskBlockStore disk, long fileLength, RangeReader reader,
+      long firstBlock, List<int[]> runs, byte[][] blocks) throws IOException {
+    ExecutorService exec = (runs.size() > 1) ? getPool() : null;
+
+    if (exec == null) {
+      for (int[] run : runs)
+        fetchRun(fileKey, disk, fileLength, reader, firstBlock, run, blocks);
+      return;
+    }
+
+    List<Future<Void>> futures = new ArrayList<>(runs.size());
+    for (int[] run : runs)
+      futures.add(exec.submit(() -> {
+        fetchRun(fileKey, disk, fileLength, reader, firstBlock, run, blocks);
+        return null;
+      }));
+
+    IOException first = null;
+    for (Future<Void> f : futures) {
+      try {
+        f.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        if (first == null)
+          first = new IOException("HTTPBlockCache read was interrupted", e);
+      } catch (ExecutionException e) {
+        if (first == null)
+          first = (e.getCause() instanceof IOException) ? (IOException) e.getCause() : new IOException(e.getCause());
+      }
+    }
+    if (first != null)
+      throw first;
+  }
+
+  // one ranged request for count adjacent blocks, split into blocks and cached
+  private void fetchRun(String fileKey, HTTPDiskBlockStore disk, long fileLength, RangeReader reader,
+      long firstBlock, int[] run, byte[][] blocks) throws IOException {
+    long startBlock = firstBlock + run[0];
+    long start = startBlock * blockSize;
+    long end = Math.min(start + (long) run[1] * blockSize, fileLength);
+    int len = (int) (end - start);
+
+    byte[] data = new byte[len];
+    int n = reader.readRange(start, data, 0, len);
+    requests.incrementAndGet();
+    if (n <= 0)
+      return;
+    bytesFetched.addAndGet(n);
+    if (n < len)
+      logger.debug("HTTPBlockCache short read {} wanted {} got {}", fileKey, len, n);
+
+    for (int i = 0; i < run[1]; i++) {
+      int from = i * blockSize;
+      if (from >= n)
+        break;
+      int to = Math.min(from + blockSize, n);
+      byte[] block = new byte[to - from];
+      System.arraycopy(data, from, block, 0, block.length);
+      blocks[run[0] + i] = block;
+      if (to - from == blockSize || start + to == fileLength) { // dont cache partial blocks from short reads
+        cache.put(new Key(fileKey, startBlock + i), block);
+        if (disk != null)
+          disk.put(fileKey, startBlock + i, block);
+      }
+    }
+  }
+
+  private synchronized ExecutorService getPool() {
+    if (nthreads <= 1)
+      return null;
+    if (pool == null) {
+      AtomicInteger count = new AtomicInteger();
+      pool = Executors.newFixedThreadPool(nthreads, r -> {
+        Thread t = new Thread(r, "HTTPBlockCache-" + count.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+      });
+    }
+    return pool;
+  }
+
+  /** Remove all the blocks of one file. */
+  public void invalidate(String fileKey) {
+    cache.asMap().keySet().removeIf(k -> k.fileKey.equals(fileKey));
+  }
+
+  public void clearCache() {
+    cache.invalidateAll();
+  }
+
+  /** Shut down the fetch threads. The cache can still be used, reads are then done sequentially. */
+  public synchronized void shutdown() {
+    if (pool != null)
+      pool.shutdown();
+    pool = null;
+  }
+
+  ////////////////////////////////////////////////////////////////////////////////////
+  // statistics
+
+  /** Number of HTTP requests made */
+  public long getRequests() {
+    return requests.get();
+  }
+
+  /** Number of bytes read from the server */
+  public long getBytesFetched() {
+    return bytesFetched.get();
+  }
+
+  public long getHits() {
+    return hits.get();
+  }
+
+  public long getMisses() {
+    return misses.get();
+  }
+
+  /** Number of blocks found in the disk store, counted as hits */
+  public long getDiskHits() {
+    return diskHits.get();
+  }
+
+  /** Fraction of block lookups found in the cache */
+  public double getHitRatio() {
+    long total = hits.get() + misses.get();
+    return total == 0 ? 0.0 : (double) hits.get() / total;
+  }
+
+  /** Total size in bytes of the cached blocks */
+  public long getCachedBytes() {
+    long total = 0;
+    for (byte[] b : cache.asMap().values())
+      total += b.length;
+    return total;
+  }
+
+  public void resetStatistics() {
+    requests.set(0);
+    bytesFetched.set(0);
+    hits.set(0);
+    misses.set(0);
+    diskHits.set(0);
+  }
+
+  public void showStatus(Formatter f) {
+    f.format("HTTPBlockCache blockSize=%d blocks=%d bytes=%d requests=%d bytesFetched=%d", blockSize, cache.size(),
+        getCachedBytes(), requests.get(), bytesFetched.get());
+    f.format(" hits=%d (disk=%d) misses=%d ratio=%.3f%n", hits.get(), diskHits.get(), misses.get(), getHitRatio());
+    if (diskStore != null)
+      diskStore.showStatus(f);
+  }
+
+  private static class Key {
+    final String fileKey;
+    final long block;
+
+    Key(String fileKey, long block) {
+      this.fileKey = fileKey;
+      this.block = block;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o)
+        return true;
+      if (!(o instanceof Key))
+        return false;
+      Key key = (Key) o;
+      return block == key.block && fileKey.equals(key.fileKey);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * fileKey.hashCode() + Long.hashCode(block);
+    }
+  }
+
+}
@@ -0,0 +1,290 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.unidata.io.http;
+
+import ucar.nc2.util.DiskCache2;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Formatter;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Keeps blocks of remote files on local disk, under a DiskCache2 root directory, so they can be reused after a
+ * restart, and by other JVMs on the same host. Used as a second level by HTTPBlockCache, see
+ * HTTPBlockCache.setDiskStore().
+ * <p/>
+ * Each block is one file, named by a hash of the file key (url, length and ETag or Last-Modified) and the block
+ * number. Blocks are written to a temporary file and renamed, so readers never see a partial block.
+ * When the total size goes over maxBytes, the least recently used blocks are deleted, and the directory of a remote
+ * file is deleted with its last block.
+ * <p/>
+ * The size and last use of each block are kept in an in-memory index, read from disk on first use, so eviction does
+ * not walk the directory. Blocks written by other JVMs after that are added to the index when they are read, and
+ * are otherwise not counted, so several JVMs sharing a directory can together go over maxBytes.
+ *
+ * @since 10/19/2026
+ */
+@ThreadSafe
+public class HTTPDiskBlockStore {
+  private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(HTTPDiskBlockStore.class);
+  private static final String SUFFIX = ".blk";
+
+  private final Path dir;
+  private final long maxBytes;
+  private final AtomicLong reads = new AtomicLong();
+  private final AtomicLong writes = new AtomicLong();
+
+  private final Object lock = new Object();
+  private Map<Path, BlockFile> index; // lazily read from disk, guarded by lock
+  private long totalBytes; // guarded by lock
+
+  /**
+   * Constructor.
+   *
+   * @param diskCache blocks are stored in the "httpBlocks" directory under its root
+   * @param maxBytes size cap for all stored blocks
+   */
+  public HTTPDiskBlockStore(DiskCache2 diskCache, long maxBytes) {
+    this(Paths.get(diskCache.getRootDirectory(), "httpBlocks"), maxBytes);
+  }
+
+  public HTTPDiskBlockStore(Path dir, long maxBytes) {
+    this.dir = dir;
+    this.maxBytes = maxBytes;
+  }
+
+  public Path getDirectory() {
+    return dir;
+  }
+
+  /**
+   * Get a block from disk.
+   *
+   * @param fileKey identifies the remote file and its version
+   * @param block block number
+   * @return the block, or null if not stored
+   */
+  public byte[] get(String fileKey, long block) {
+    Path p = getPath(fileKey, block);
+    byte[] result;
+    long now = System.currentTimeMillis();
+    try {
+      result = Files.readAllBytes(p);
+      Files.setLastModifiedTime(p, FileTime.fromMillis(now)); // so the order of use survives a restart
+    } catch (NoSuchFileException e) {
+      return null;
+    } catch (IOException e) { // eg deleted by another process
+      logger.debug("HTTPDiskBlockStore failed to read {}", p, e);
+      return null;
+    }
+    reads.incrementAndGet();
+
+    synchronized (lock) {
+      Map<Path, BlockFile> blocks = getIndex();
+      BlockFile b = blocks.get(p);
+      if (b != null) {
+        b.lastUsed = now;
+      } else { // written by another JVM
+        blocks.put(p, new BlockFile(p, result.length, now));
+        totalBytes += result.length;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Store a block on disk. Failures are logged and otherwise ignored.
+   *
+   * @param fileKey identifies the remote file and its version
+   * @param block block number
+   * @param data the block
+   */
+  public void put(String fileKey, long block, byte[] data) {
+    Path p = getPath(fileKey, block);
+    Path tmp = null;
+    try {
+      Files.createDirectories(p.getParent());
+      try {
+        tmp = Files.createTempFile(p.getParent(), "tmp", null);
+      } catch (NoSuchFileException e) { // the directory was just removed by evict()
+        Files.createDirectories(p.getParent());
+        tmp = Files.createTempFile(p.getParent(), "tmp", null);
+      }
+      Files.write(tmp, data);
+      Files.move(tmp, p, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      writes.incrementAndGet();
+    } catch (IOException e) {
+      logger.warn("HTTPDiskBlockStore failed to write {}", p, e);
+      deleteQuietly(tmp);
+      return;
+    }
+
+    synchronized (lock) {
+      Map<Path, BlockFile> blocks = getIndex();
+      BlockFile old = blocks.put(p, new BlockFile(p, data.length, System.currentTimeMillis()));
+      totalBytes += data.length - (old == null ? 0 : old.size); // a rewritten block replaces the old one
+      if (totalBytes > maxBytes)
+        evict();
+    }
+  }
+
+  // the directory of one remote file, once its last block is gone
+  private void deleteIfEmpty(Path blockDir) {
+    try {
+      Files.deleteIfExists(blockDir);
+    } catch (DirectoryNotEmptyException e) {
+      // still has blocks
+    } catch (IOException e) {
+      logger.debug("HTTPDiskBlockStore failed to delete {}", blockDir, e);
+    }
+  }
+
+  private void deleteQuietly(Path p) {
+    if (p == null)
+      return;
+    try {
+      Files.deleteIfExists(p);
+    } catch (IOException e) {
+      logger.debug("HTTPDiskBlockStore failed to delete {}", p, e);
+    }
+  }
+
+  // one subdirectory per remote file
+  private Path getPath(String fileKey, long block) {
+    return dir.resolve(hash(fileKey)).resolve(block + SUFFIX);
+  }
+
+  private static String hash(String s) {
+    try {
+      MessageDigest md = MessageDigest.getInstance("SHA-256");
+      byte[] digest = md.digest(s.getBytes(StandardCharsets.UTF_8));
+      StringBuilder sb = new StringBuilder();
+      for (int i = 0; i < 16; i++)
+        sb.append(String.format("%02x", digest[i]));
+      return sb.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /** Total size of the stored blocks, read from disk on first use, then tracked. */
+  public long getTotalBytes() {
+    synchronized (lock) {
+      getIndex();
+      return totalBytes;
+    }
+  }
+
+  // must hold lock
+  private Map<Path, BlockFile> getIndex() {
+    if (index == null) {
+      index = new HashMap<>();
+      totalBytes = 0;
+      for (BlockFile b : listBlocks()) {
+        index.put(b.path, b);
+        totalBytes += b.size;
+      }
+    }
+    return index;
+  }
+
+  // delete least recently used blocks until under 90% of maxBytes. must hold lock
+  private void evict() {
+    List<BlockFile> blocks = new ArrayList<>(index.values());
+    blocks.sort(Comparator.comparingLong(b -> b.lastUsed));
+    long target = maxBytes - maxBytes / 10;
+    int count = 0;
+    Set<Path> blockDirs = new HashSet<>();
+    for (BlockFile b : blocks) {
+      if (totalBytes <= target)
+        break;
+      try {
+        if (Files.deleteIfExists(b.path))
+          count++;
+      } catch (IOException e) {
+        logger.debug("HTTPDiskBlockStore failed to delete {}", b.path, e);
+        continue;
+      }
+      index.remove(b.path);
+      totalBytes -= b.size;
+      blockDirs.add(b.path.getParent());
+    }
+    for (Path blockDir : blockDirs)
+      deleteIfEmpty(blockDir);
+    logger.debug("HTTPDiskBlockStore evicted {} blocks, now {} bytes", count, totalBytes);
+  }
+
+  private List<BlockFile> listBlocks() {
+    List<BlockFile> result = new ArrayList<>();
+    if (!Files.isDirectory(dir))
+      return result;
+    try (Stream<Path> paths = Files.walk(dir, 2)) {
+      paths.filter(p -> p.getFileName().toString().endsWith(SUFFIX)).forEach(p -> {
+        File f = p.toFile();
+        result.add(new BlockFile(p, f.length(), f.lastModified()));
+      });
+    } catch (IOException | UncheckedIOException e) {
+      logger.warn("HTTPDiskBlockStore failed to list {}", dir, e);
+    }
+    return result;
+  }
+
+  /** Delete all stored blocks. */
+  public void clear() {
+    synchronized (lock) {
+      Set<Path> blockDirs = new HashSet<>();
+      for (BlockFile b : listBlocks()) {
+        deleteQuietly(b.path);
+        blockDirs.add(b.path.getParent());
+      }
+      for (Path blockDir : blockDirs)
+        deleteIfEmpty(blockDir);
+      index = new HashMap<>();
+      totalBytes = 0;
+    }
+  }
+
+  public void showStatus(Formatter f) {
+    f.format("HTTPDiskBlockStore %s bytes=%d max=%d reads=%d writes=%d%n", dir, getTotalBytes(), maxBytes,
+        reads.get(), writes.get());
+  }
+
+  public long getReads() {
+    return reads.get();
+  }
+
+  public long getWrites() {
+    return writes.get();
+  }
+
+  private static class BlockFile {
+    final Path path;
+    final long size;
+    long lastUsed;
+
+    BlockFile(Path path, long size, long lastUsed) {
+      this.path = path;
+      this.size = size;
+      this.lastUsed = lastUsed;
+    }
+  }
+
+}
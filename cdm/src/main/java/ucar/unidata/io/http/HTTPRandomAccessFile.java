@@ -15,12 +15,20 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.channels.WritableByteChannel;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 
 /**
  * Gives access to files over HTTP, using "Accept-Ranges" HTTP header to do random access.
  * This version uses a single instance of HttpClient, following performance guidelines at
  * http://jakarta.apache.org/commons/httpclient/performance.html
  * Plus other improvements.
+ * <p/>
+ * Reads go through a shared HTTPBlockCache if one was set with setBlockCache(); default is to read directly.
+ * Files whose server sends no ETag or Last-Modified are always read directly, since their blocks could not be
+ * shared with other opens. To keep blocks on local disk across restarts, also set a disk store on the cache:
+ * {@code cache.setDiskStore(new HTTPDiskBlockStore(DiskCache2.getDefault(), maxBytes))}
  *
  * @author John Caron, based on work by Donald Denbo
  */
@@ -30,11 +38,29 @@ public class HTTPRandomAccessFile extends ucar.unidata.io.RandomAccessFile {
   public static final int maxHTTPBufferSize = 10 * 1000 * 1000; // 10 M
   private static final boolean debug = false, debugDetails = false;
 
+  private static volatile HTTPBlockCache blockCache; // read on every read_(), so not synchronized
+
+  /**
+   * Set the block cache shared by all HTTPRandomAccessFiles. Default is null.
+   *
+   * @param cache use this cache, or null to read directly from the server
+   */
+  public static void setBlockCache(HTTPBlockCache cache) {
+    blockCache = cache;
+  }
+
+  public static HTTPBlockCache getBlockCache() {
+    return blockCache;
+  }
+
   ///////////////////////////////////////////////////////////////////////////////////
 
   private String url;
   private HTTPSession session;
   private long total_length;
+  private String validator; // ETag or Last-Modified, may be null
+  private long lastModified; // from Last-Modified, 0 if unknown
+  private String cacheKey; // identifies this version of the file in the block cache, null if there is no validator
 
   public HTTPRandomAccessFile(String url) throws IOException {
     this(url, defaultHTTPBufferSize);
@@ -69,6 +95,16 @@ public class HTTPRandomAccessFile extends ucar.unidata.io.RandomAccessFile {
         throw new IOException("Server does not support byte Ranges");
       }
 
+      head = method.getResponseHeader("Last-Modified");
+      if (head != null) {
+        validator = head.getValue();
+        lastModified = parseHttpDate(head.getValue());
+      }
+
+      head = method.getResponseHeader("ETag");
+      if (head != null)
+        validator = head.getValue(); // stronger than Last-Modified
+
       head = method.getResponseHeader("Content-Length");
       if (head == null) {
         throw new IOException("Server does not support Content-Length");
@@ -91,6 +127,10 @@ public class HTTPRandomAccessFile extends ucar.unidata.io.RandomAccessFile {
     if (needtest && !rangeOk(url))
       throw new IOException("Server does not support byte Ranges");
 
+    // without a validator we cant tell if the file changed, and no other open could use the blocks
+    if (validator != null)
+      cacheKey = url + "|" + total_length + "|" + validator;
+
     if (total_length > 0) {
       // this means that we will read the file in one gulp then deal with it in memory
       int useBuffer = (int) Math.min(total_length, maxHTTPBufferSize); // entire file size if possible
@@ -171,6 +211,14 @@ public class HTTPRandomAccessFile extends ucar.unidata.io.RandomAccessFile {
    */
   @Override
   protected int read_(long pos, byte[] buff, int offset, int len) throws IOException {
+    HTTPBlockCache cache = blockCache;
+    if (cache != null && cacheKey != null)
+      return cache.read(cacheKey, true, total_length, this::readRange, pos, buff, offset, len);
+    return readRange(pos, buff, offset, len);
+  }
+
+  // one GET with a Range header
+  private int readRange(long pos, byte[] buff, int offset, int len) throws IOException {
     long end = pos + len - 1;
     if (end >= total_length)
       end = total_length - 1;
@@ -215,10 +263,20 @@ public class HTTPRandomAccessFile extends ucar.unidata.io.RandomAccessFile {
 
   @Override
   public long readToByteChannel(WritableByteChannel dest, long offset, long nbytes) throws IOException {
-    int n = (int) nbytes;
-    byte[] buff = new byte[n];
-    int done = read_(offset, buff, 0, n);
-    dest.write(ByteBuffer.wrap(buff));
+    // copy in chunks, rather than allocating the entire request
+    int chunkSize = (int) Math.min(nbytes, maxHTTPBufferSize);
+    byte[] buff = new byte[chunkSize];
+    long done = 0;
+    while (done < nbytes) {
+      int want = (int) Math.min(chunkSize, nbytes - done);
+      int n = read_(offset + done, buff, 0, want);
+      if (n <= 0)
+        break;
+      ByteBuffer bb = ByteBuffer.wrap(buff, 0, n);
+      while (bb.hasRemaining())
+        dest.write(bb);
+      done += n;
+    }
     return done;
   }
 
@@ -234,13 +292,21 @@ public class HTTPRandomAccessFile extends ucar.unidata.io.RandomAccessFile {
   }
 
   /**
-   * Always returns {@code 0L}, as we cannot easily determine the last time that a remote file was modified.
+   * The last time the remote file was modified, from the Last-Modified header of the HEAD request.
    *
-   * @return {@code 0L}, always.
+   * @return msecs since the epoch, or {@code 0L} if the server did not send a (valid) Last-Modified header.
    */
-  // LOOK: An idea of how we might implement this: https://github.com/Unidata/thredds/pull/479#issuecomment-194562614
   @Override
   public long getLastModified() {
-    return 0;
+    return lastModified;
+  }
+
+  // RFC 1123 date, eg "Tue, 15 Nov 1994 08:12:31 GMT"
+  static long parseHttpDate(String value) {
+    try {
+      return ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+    } catch (DateTimeParseException e) {
+      return 0;
+    }
   }
 }
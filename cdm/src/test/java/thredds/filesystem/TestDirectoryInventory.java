@@ -0,0 +1,229 @@
+package thredds.filesystem;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import thredds.inventory.CollectionGlob;
+import thredds.inventory.MCollection;
+import thredds.inventory.MFile;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Test DirectoryInventory
+ *
+ * @since 10/19/2026
+ */
+public class TestDirectoryInventory {
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @After
+  public void cleanup() {
+    DirectoryInventory.setDefault(null);
+  }
+
+  // top/a.dat, top/sub1/b.dat, top/sub1/c.dat, top/sub2/sub3/d.dat
+  private Path makeTree() throws IOException {
+    File top = tempFolder.newFolder("top");
+    Path topDir = top.toPath();
+    Files.createDirectories(topDir.resolve("sub1"));
+    Files.createDirectories(topDir.resolve("sub2/sub3"));
+    Files.write(topDir.resolve("a.dat"), new byte[10]);
+    Files.write(topDir.resolve("sub1/b.dat"), new byte[20]);
+    Files.write(topDir.resolve("sub1/c.dat"), new byte[30]);
+    Files.write(topDir.resolve("sub2/sub3/d.dat"), new byte[40]);
+    return topDir;
+  }
+
+  // directories last modified an hour ago, so their listings may be reused
+  private void ageDirectories(Path... dirs) throws IOException {
+    FileTime old = FileTime.fromMillis(System.currentTimeMillis() - 3600 * 1000);
+    for (Path dir : dirs)
+      Files.setLastModifiedTime(dir, old);
+  }
+
+  private List<String> walk(DirectoryInventory inventory, Path top) {
+    List<String> result = new ArrayList<>();
+    inventory.walk(top, true, mfile -> result.add(mfile.getName() + ":" + mfile.getLength()));
+    Collections.sort(result);
+    return result;
+  }
+
+  @Test
+  public void testWalk() throws IOException {
+    Path top = makeTree();
+    try (DirectoryInventory inventory = DirectoryInventory.open(null, 4)) {
+      List<String> files = walk(inventory, top);
+      Assert.assertEquals(4, files.size());
+      Assert.assertEquals("a.dat:10", files.get(0));
+      Assert.assertEquals("d.dat:40", files.get(3));
+      Assert.assertEquals(4, inventory.getNumberOfDirectories());
+
+      List<String> topOnly = new ArrayList<>();
+      inventory.walk(top, false, mfile -> topOnly.add(mfile.getName()));
+      Assert.assertEquals(Collections.singletonList("a.dat"), topOnly);
+    }
+  }
+
+  @Test
+  public void testWalkDepth() throws IOException {
+    Path top = makeTree();
+    try (DirectoryInventory inventory = DirectoryInventory.open(null, 1)) {
+      List<String> files = new ArrayList<>();
+      inventory.walk(top, 1, mfile -> files.add(mfile.getName()));
+      Collections.sort(files);
+      Assert.assertEquals("[a.dat, b.dat, c.dat]", files.toString());
+    }
+  }
+
+  private List<String> getFileNames(MCollection collection) throws IOException {
+    List<String> result = new ArrayList<>();
+    for (MFile mfile : collection.getFilesSorted())
+      result.add(mfile.getName());
+    Collections.sort(result);
+    return result;
+  }
+
+  // a collection scanned with the default inventory finds the same files, and saves the snapshot when closed
+  @Test
+  public void testDefaultInventory() throws IOException {
+    Path top = makeTree();
+    String glob = top.toString() + "/**/*.dat";
+    List<String> expected;
+    try (MCollection collection = new CollectionGlob("test", glob, null)) {
+      expected = getFileNames(collection);
+    }
+    Assert.assertEquals("[b.dat, c.dat, d.dat]", expected.toString());
+
+    Path snapshot = tempFolder.getRoot().toPath().resolve("inventory.bin");
+    DirectoryInventory inventory = DirectoryInventory.open(snapshot, 2);
+    DirectoryInventory.setDefault(inventory);
+    try (MCollection collection = new CollectionGlob("test", glob, null)) {
+      Assert.assertEquals(expected, getFileNames(collection));
+      Assert.assertTrue(inventory.getCountListed() > 0);
+      Assert.assertFalse(Files.exists(snapshot));
+    }
+    Assert.assertTrue(Files.exists(snapshot));
+    Assert.assertFalse(inventory.isDirty());
+    inventory.close();
+  }
+
+  @Test
+  public void testReuseUnchangedDirectories() throws IOException {
+    Path top = makeTree();
+    ageDirectories(top, top.resolve("sub1"), top.resolve("sub2"), top.resolve("sub2/sub3"));
+
+    try (DirectoryInventory inventory = DirectoryInventory.open(null, 2)) {
+      List<String> first = walk(inventory, top);
+      Assert.assertEquals(4, inventory.getCountListed());
+
+      List<String> second = walk(inventory, top);
+      Assert.assertEquals(first, second);
+      Assert.assertEquals(4, inventory.getCountListed());
+      Assert.assertEquals(4, inventory.getCountReused());
+
+      // adding a file changes the directory, so it is read again
+      Files.write(top.resolve("sub1/e.dat"), new byte[50]);
+      List<String> third = walk(inventory, top);
+      Assert.assertEquals(5, third.size());
+      Assert.assertEquals(5, inventory.getCountListed());
+    }
+  }
+
+  @Test
+  public void testSnapshot() throws IOException {
+    Path top = makeTree();
+    ageDirectories(top, top.resolve("sub1"), top.resolve("sub2"), top.resolve("sub2/sub3"));
+    Path snapshot = tempFolder.getRoot().toPath().resolve("snapshot/inventory.bin");
+
+    List<String> expected;
+    try (DirectoryInventory inventory = DirectoryInventory.open(snapshot, 1)) {
+      expected = walk(inventory, top);
+      inventory.write();
+    }
+    Assert.assertTrue(Files.exists(snapshot));
+
+    try (DirectoryInventory inventory = DirectoryInventory.open(snapshot, 1)) {
+      Assert.assertEquals(4, inventory.getNumberOfDirectories());
+      Assert.assertEquals(expected, walk(inventory, top));
+      Assert.assertEquals(0, inventory.getCountListed());
+      Assert.assertEquals(4, inventory.getCountReused());
+    }
+  }
+
+  @Test
+  public void testSnapshotOnlyWrittenWhenChanged() throws IOException {
+    Path top = makeTree();
+    ageDirectories(top, top.resolve("sub1"), top.resolve("sub2"), top.resolve("sub2/sub3"));
+    Path snapshot = tempFolder.getRoot().toPath().resolve("inventory.bin");
+
+    try (DirectoryInventory inventory = DirectoryInventory.open(snapshot, 1)) {
+      walk(inventory, top);
+      Assert.assertTrue(inventory.isDirty());
+      inventory.write();
+      Assert.assertFalse(inventory.isDirty());
+      FileTime written = FileTime.fromMillis(1000);
+      Files.setLastModifiedTime(snapshot, written);
+
+      // nothing changed
+      walk(inventory, top);
+      inventory.write();
+      Assert.assertEquals(written, Files.getLastModifiedTime(snapshot));
+
+      Files.write(top.resolve("sub1/e.dat"), new byte[50]);
+      walk(inventory, top);
+      Assert.assertTrue(inventory.isDirty());
+      inventory.write();
+      Assert.assertNotEquals(written, Files.getLastModifiedTime(snapshot));
+    }
+
+    // no temp files left behind
+    try (java.util.stream.Stream<Path> files = Files.list(tempFolder.getRoot().toPath())) {
+      Assert.assertEquals(0, files.filter(p -> p.toString().endsWith(".tmp")).count());
+    }
+
+    // reading the snapshot is not a change
+    try (DirectoryInventory inventory = DirectoryInventory.open(snapshot, 1)) {
+      Assert.assertFalse(inventory.isDirty());
+    }
+  }
+
+  @Test
+  public void testRemovedDirectoryIsForgotten() throws IOException {
+    Path top = makeTree();
+    try (DirectoryInventory inventory = DirectoryInventory.open(null, 2)) {
+      walk(inventory, top);
+      Assert.assertEquals(4, inventory.getNumberOfDirectories());
+
+      Files.delete(top.resolve("sub2/sub3/d.dat"));
+      Files.delete(top.resolve("sub2/sub3"));
+      List<String> files = walk(inventory, top);
+      Assert.assertEquals(3, files.size());
+      Assert.assertEquals(3, inventory.getNumberOfDirectories());
+    }
+  }
+
+  @Test
+  public void testMFileAttributes() throws IOException {
+    Path top = makeTree();
+    try (DirectoryInventory inventory = DirectoryInventory.open(null, 1)) {
+      List<MFile> files = new ArrayList<>();
+      inventory.walk(top, false, files::add);
+      Assert.assertEquals(1, files.size());
+      MFile mfile = files.get(0);
+      Assert.assertFalse(mfile.isDirectory());
+      Assert.assertEquals(Files.getLastModifiedTime(top.resolve("a.dat")).toMillis(), mfile.getLastModified());
+    }
+  }
+
+}
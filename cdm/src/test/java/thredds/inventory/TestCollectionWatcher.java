@@ -0,0 +1,144 @@
+package thredds.inventory;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Formatter;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test CollectionWatcher, by simulating file arrivals in a temporary directory.
+ *
+ * @since 10/19/2026
+ */
+public class TestCollectionWatcher {
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private void arrive(Path file, int size) throws IOException {
+    Files.write(file, new byte[size]);
+  }
+
+  private MFileCollectionManager open(Path top) {
+    return MFileCollectionManager.open("test", top.toString() + "/**/.*\\.dat$", null, new Formatter());
+  }
+
+  // wait for events until no more arrive
+  private void drain(CollectionWatcher watcher) throws InterruptedException {
+    long start = System.currentTimeMillis();
+    while (watcher.poll(500) > 0 && System.currentTimeMillis() - start < 10000);
+  }
+
+  private List<String> names(List<MFile> files) {
+    List<String> result = new ArrayList<>();
+    for (MFile mfile : files)
+      result.add(mfile.getName());
+    result.sort(String::compareTo);
+    return result;
+  }
+
+  private int count(Iterable<MFile> files) {
+    int count = 0;
+    for (MFile ignored : files)
+      count++;
+    return count;
+  }
+
+  @Test
+  public void testAddModifyRemove() throws Exception {
+    Path top = tempFolder.newFolder("top").toPath();
+    arrive(top.resolve("a.dat"), 1);
+    Files.setLastModifiedTime(top.resolve("a.dat"), FileTime.fromMillis(System.currentTimeMillis() - 60 * 1000));
+
+    MFileCollectionManager dcm = open(top);
+    Assert.assertEquals(1, count(dcm.getFilesSorted()));
+
+    try (CollectionWatcher watcher = new CollectionWatcher(dcm, 100, 0)) {
+      arrive(top.resolve("b.dat"), 2);
+      arrive(top.resolve("ignored.txt"), 2); // doesnt pass the filter
+      Files.createDirectories(top.resolve("sub"));
+      arrive(top.resolve("sub/c.dat"), 3);
+      drain(watcher);
+
+      CollectionUpdateEvent event = watcher.flush();
+      Assert.assertNotNull(event);
+      Assert.assertEquals(CollectionUpdateType.test, event.getType());
+      Assert.assertEquals(2, event.getAdded().size());
+      Assert.assertTrue(event.getModified().isEmpty());
+      Assert.assertTrue(event.getRemoved().isEmpty());
+      Assert.assertEquals(3, count(dcm.getFilesSorted()));
+
+      arrive(top.resolve("a.dat"), 5);
+      Files.delete(top.resolve("b.dat"));
+      drain(watcher);
+
+      event = watcher.flush();
+      Assert.assertNotNull(event);
+      Assert.assertTrue(event.getAdded().isEmpty());
+      Assert.assertEquals("[a.dat]", names(event.getModified()).toString());
+      Assert.assertEquals("[b.dat]", names(event.getRemoved()).toString());
+      Assert.assertEquals(2, count(dcm.getFilesSorted()));
+
+      Assert.assertNull(watcher.flush()); // nothing pending
+    }
+  }
+
+  @Test
+  public void testRescanFallback() throws Exception {
+    Path top = tempFolder.newFolder("top").toPath();
+    arrive(top.resolve("a.dat"), 1);
+    MFileCollectionManager dcm = open(top);
+    Assert.assertEquals(1, count(dcm.getFilesSorted()));
+
+    try (CollectionWatcher watcher = new CollectionWatcher(dcm, 100, 0)) {
+      arrive(top.resolve("b.dat"), 2); // not polled, as if the event was lost
+      CollectionUpdateEvent event = watcher.rescan();
+      Assert.assertNotNull(event);
+      Assert.assertEquals("[b.dat]", names(event.getAdded()).toString());
+      Assert.assertEquals(0, watcher.getPendingCount());
+      Assert.assertNull(watcher.rescan());
+    }
+  }
+
+  @Test
+  public void testBackgroundThread() throws Exception {
+    Path top = tempFolder.newFolder("top").toPath();
+    MFileCollectionManager dcm = open(top);
+    Assert.assertEquals(0, count(dcm.getFilesSorted()));
+
+    CountDownLatch latch = new CountDownLatch(1);
+    List<CollectionUpdateEvent> events = new ArrayList<>();
+    try (CollectionWatcher watcher = new CollectionWatcher(dcm, 100, 0)) {
+      watcher.addListener(e -> {
+        synchronized (events) {
+          events.add(e);
+        }
+        latch.countDown();
+      });
+      watcher.start();
+
+      for (int i = 0; i < 5; i++)
+        arrive(top.resolve("f" + i + ".dat"), i + 1);
+
+      Assert.assertTrue(latch.await(30, TimeUnit.SECONDS));
+    }
+
+    int added = 0;
+    synchronized (events) {
+      for (CollectionUpdateEvent e : events)
+        added += e.getAdded().size();
+    }
+    Assert.assertTrue(added > 0);
+    Assert.assertTrue(count(dcm.getFilesSorted()) >= added);
+  }
+
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.dt.grid;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ucar.ma2.Array;
+import ucar.ma2.ArrayFloat;
+import ucar.ma2.DataType;
+import ucar.ma2.InvalidRangeException;
+import ucar.nc2.Attribute;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.NetcdfFileWriter;
+import ucar.nc2.Variable;
+import ucar.nc2.constants.CDM;
+import ucar.nc2.dt.GridDatatype;
+import ucar.nc2.time.CalendarDate;
+import ucar.nc2.write.Nc4ChunkingDefault;
+import ucar.unidata.util.test.category.Slow;
+import java.io.File;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Test GridAsPointDataset reading many points at once, compared to reading one point at a time.
+ *
+ * @since 10/19/2026
+ */
+public class TestGridAsPointBatch {
+  private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private static final int ntimes = 4, nlevels = 3;
+  private static final double[] levels = {1000, 850, 500};
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @After
+  public void cleanup() {
+    NetcdfFileWriter.setUseJavaNetcdf4Writer(false);
+  }
+
+  // time, pressure, lat, lon grid; netcdf4 files are chunked
+  private File makeGrid(NetcdfFileWriter.Version version, int nlat, int nlon)
+      throws IOException, InvalidRangeException {
+    File file = tempFolder.newFile("grid" + version + nlat + ".nc");
+    NetcdfFileWriter writer;
+    if (version.isNetdf4format()) {
+      Nc4ChunkingDefault chunker = new Nc4ChunkingDefault(1, true);
+      chunker.setDefaultChunkSize(16 * 1024);
+      chunker.setMinVariableSize(0);
+      NetcdfFileWriter.setUseJavaNetcdf4Writer(true);
+      writer = NetcdfFileWriter.createNew(version, file.getPath(), chunker);
+    } else {
+      writer = NetcdfFileWriter.createNew(version, file.getPath());
+    }
+    writer.addGroupAttribute(null, new Attribute(CDM.CONVENTIONS, "CF-1.6"));
+    writer.addDimension(null, "time", ntimes);
+    writer.addDimension(null, "pressure", nlevels);
+    writer.addDimension(null, "lat", nlat);
+    writer.addDimension(null, "lon", nlon);
+    Variable time = writer.addVariable(null, "time", DataType.DOUBLE, "time");
+    time.addAttribute(new Attribute(CDM.UNITS, "hours since 2026-10-19T00:00:00Z"));
+    Variable pressure = writer.addVariable(null, "pressure", DataType.DOUBLE, "pressure");
+    pressure.addAttribute(new Attribute(CDM.UNITS, "hPa"));
+    pressure.addAttribute(new Attribute("positive", "down"));
+    Variable lat = writer.addVariable(null, "lat", DataType.DOUBLE, "lat");
+    lat.addAttribute(new Attribute(CDM.UNITS, CDM.LAT_UNITS));
+    Variable lon = writer.addVariable(null, "lon", DataType.DOUBLE, "lon");
+    lon.addAttribute(new Attribute(CDM.UNITS, CDM.LON_UNITS));
+    Variable temp = writer.addVariable(null, "temperature", DataType.FLOAT, "time pressure lat lon");
+    temp.addAttribute(new Attribute(CDM.UNITS, "K"));
+    writer.create();
+
+    writer.write(time, Array.makeArray(DataType.DOUBLE, ntimes, 0, 6));
+    writer.write(pressure, Array.factory(DataType.DOUBLE, new int[] {nlevels}, levels));
+    writer.write(lat, Array.makeArray(DataType.DOUBLE, nlat, 20, 30.0 / nlat));
+    writer.write(lon, Array.makeArray(DataType.DOUBLE, nlon, -120, 50.0 / nlon));
+    ArrayFloat.D4 data = new ArrayFloat.D4(1, nlevels, nlat, nlon);
+    int[] origin = new int[4];
+    for (int t = 0; t < ntimes; t++) {
+      for (int z = 0; z < nlevels; z++)
+        for (int y = 0; y < nlat; y++)
+          for (int x = 0; x < nlon; x++)
+            data.set(0, z, y, x, t * 1000 + z * 100 + y + x * 0.001f);
+      origin[0] = t;
+      writer.write(temp, origin, data);
+    }
+    writer.close();
+    return file;
+  }
+
+  private List<GridAsPointDataset.Query> makeQueries(GridDataset dataset, int n, long seed) {
+    List<CalendarDate> dates = dataset.findGridDatatype("temperature").getCoordinateSystem().getCalendarDates();
+    Random random = new Random(seed);
+    List<GridAsPointDataset.Query> queries = new ArrayList<>(n);
+    for (int i = 0; i < n; i++) {
+      CalendarDate date = dates.get(random.nextInt(dates.size()));
+      double z = levels[random.nextInt(levels.length)];
+      queries.add(new GridAsPointDataset.Query(date, Double.NaN, z, 20 + 29.9 * random.nextDouble(),
+          -120 + 49.9 * random.nextDouble()));
+    }
+    return queries;
+  }
+
+  private void checkBatch(File file) throws IOException {
+    try (GridDataset dataset = GridDataset.open(file.getPath())) {
+      GridDatatype grid = dataset.findGridDatatype("temperature");
+      GridAsPointDataset gap = new GridAsPointDataset(Collections.singletonList(grid));
+      List<GridAsPointDataset.Query> queries = makeQueries(dataset, 500, 17);
+      List<GridAsPointDataset.Point> points = gap.readData(grid, queries);
+      Assert.assertEquals(queries.size(), points.size());
+      for (int i = 0; i < queries.size(); i++) {
+        GridAsPointDataset.Query q = queries.get(i);
+        GridAsPointDataset.Point expect = gap.readData(grid, q.date, -1, q.zCoord, q.lat, q.lon);
+        GridAsPointDataset.Point got = points.get(i);
+        Assert.assertEquals("point " + i, expect.dataValue, got.dataValue, 0.0);
+        Assert.assertEquals(expect.lat, got.lat, 1e-9);
+        Assert.assertEquals(expect.lon, got.lon, 1e-9);
+        Assert.assertEquals(expect.z, got.z, 0.0);
+      }
+    }
+  }
+
+  @Test
+  public void testNetcdf3() throws Exception {
+    checkBatch(makeGrid(NetcdfFileWriter.Version.netcdf3, 90, 120));
+  }
+
+  @Test
+  public void testChunked() throws Exception {
+    File file = makeGrid(NetcdfFileWriter.Version.netcdf4, 90, 120);
+    try (NetcdfFile ncfile = NetcdfFile.open(file.getPath())) {
+      Assert.assertNotNull(ncfile.findVariable("temperature").findAttribute(CDM.CHUNK_SIZES));
+    }
+    checkBatch(file);
+  }
+
+  @Test
+  public void testMissing() throws Exception {
+    File file = makeGrid(NetcdfFileWriter.Version.netcdf3, 30, 40);
+    try (GridDataset dataset = GridDataset.open(file.getPath())) {
+      GridDatatype grid = dataset.findGridDatatype("temperature");
+      GridAsPointDataset gap = new GridAsPointDataset(Collections.singletonList(grid));
+      CalendarDate date = gap.getDates().get(1);
+      List<GridAsPointDataset.Query> queries = new ArrayList<>();
+      queries.add(new GridAsPointDataset.Query(date, 35, -100)); // first level
+      queries.add(new GridAsPointDataset.Query(date, -60, -100)); // outside the grid
+      queries.add(new GridAsPointDataset.Query(date, Double.NaN, 850, 35, -100));
+      List<GridAsPointDataset.Point> points = gap.readData(grid, queries);
+      Assert.assertEquals(gap.readData(grid, date, -1, 1000, 35, -100).dataValue, points.get(0).dataValue, 0.0);
+      Assert.assertTrue(Double.isNaN(points.get(1).dataValue));
+      Assert.assertEquals(gap.readData(grid, date, -1, 850, 35, -100).dataValue, points.get(2).dataValue, 0.0);
+    }
+  }
+
+  // compare to one point at a time
+  @Test
+  @Category(Slow.class)
+  public void compareThroughput() throws Exception {
+    for (NetcdfFileWriter.Version version : new NetcdfFileWriter.Version[] {NetcdfFileWriter.Version.netcdf3,
+        NetcdfFileWriter.Version.netcdf4}) {
+      File file = makeGrid(version, 600, 800);
+      try (GridDataset dataset = GridDataset.open(file.getPath())) {
+        GridDatatype grid = dataset.findGridDatatype("temperature");
+        GridAsPointDataset gap = new GridAsPointDataset(Collections.singletonList(grid));
+        List<GridAsPointDataset.Query> queries = makeQueries(dataset, 10000, 42);
+
+        long start = System.nanoTime();
+        double sum1 = 0;
+        for (GridAsPointDataset.Query q : queries)
+          sum1 += gap.readData(grid, q.date, -1, q.zCoord, q.lat, q.lon).dataValue;
+        long perPoint = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        double sum2 = 0;
+        for (GridAsPointDataset.Point p : gap.readData(grid, queries))
+          sum2 += p.dataValue;
+        long batch = System.nanoTime() - start;
+
+        Assert.assertEquals(sum1, sum2, Math.abs(sum1) * 1e-12);
+        logger.debug("{} {} points: one at a time {} msecs, batch {} msecs", version, queries.size(),
+            perPoint / 1000 / 1000, batch / 1000 / 1000);
+      }
+    }
+  }
+}
@@ -0,0 +1,307 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.ft.fmrc;
+
+import org.jdom2.Element;
+import org.jdom2.output.XMLOutputter;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import thredds.inventory.MCollection;
+import thredds.inventory.MFile;
+import thredds.inventory.MFileCollectionManager;
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+import ucar.ma2.InvalidRangeException;
+import ucar.nc2.Attribute;
+import ucar.nc2.NetcdfFileWriter;
+import ucar.nc2.Variable;
+import ucar.nc2.constants.CDM;
+import ucar.nc2.constants._Coordinate;
+import ucar.nc2.ncml.NcMLWriter;
+import ucar.nc2.time.CalendarDate;
+import ucar.nc2.time.CalendarPeriod;
+import ucar.nc2.util.DiskCache2;
+import ucar.unidata.util.test.category.Slow;
+import java.io.File;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Formatter;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Test making Fmrc inventories in parallel, incrementally and from the binary disk cache.
+ *
+ * @since 10/19/2026
+ */
+public class TestFmrcInventory {
+  private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private static final CalendarDate firstRun = CalendarDate.parseISOformat(null, "2026-10-19T00:00:00Z");
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private File dataDir;
+
+  @Before
+  public void setup() throws IOException {
+    dataDir = tempFolder.newFolder("data");
+    GridDatasetInv.clearCache();
+  }
+
+  @After
+  public void cleanup() {
+    Fmrc.setInventoryThreads(Runtime.getRuntime().availableProcessors());
+    GridDatasetInv.setDiskCache(null);
+    GridDatasetInv.clearCache();
+  }
+
+  // one run per file, every 6 hours
+  private File makeRun(int run) throws IOException, InvalidRangeException {
+    CalendarDate runDate = firstRun.add(6 * run, CalendarPeriod.Field.Hour);
+    File file = new File(dataDir, String.format("run%03d.nc", run));
+    NetcdfFileWriter writer = NetcdfFileWriter.createNew(NetcdfFileWriter.Version.netcdf3, file.getPath());
+    writer.addGroupAttribute(null, new Attribute(CDM.CONVENTIONS, "CF-1.6"));
+    writer.addGroupAttribute(null, new Attribute(_Coordinate.ModelBaseDate, runDate.toString()));
+    writer.addDimension(null, "time", 3);
+    writer.addDimension(null, "pressure", 2);
+    writer.addDimension(null, "lat", 5);
+    writer.addDimension(null, "lon", 6);
+    Variable time = writer.addVariable(null, "time", DataType.DOUBLE, "time");
+    time.addAttribute(new Attribute(CDM.UNITS, "hours since " + runDate));
+    Variable pressure = writer.addVariable(null, "pressure", DataType.DOUBLE, "pressure");
+    pressure.addAttribute(new Attribute(CDM.UNITS, "hPa"));
+    pressure.addAttribute(new Attribute("positive", "down"));
+    Variable lat = writer.addVariable(null, "lat", DataType.DOUBLE, "lat");
+    lat.addAttribute(new Attribute(CDM.UNITS, CDM.LAT_UNITS));
+    Variable lon = writer.addVariable(null, "lon", DataType.DOUBLE, "lon");
+    lon.addAttribute(new Attribute(CDM.UNITS, CDM.LON_UNITS));
+    Variable temp = writer.addVariable(null, "temperature", DataType.FLOAT, "time pressure lat lon");
+    temp.addAttribute(new Attribute(CDM.UNITS, "K"));
+    Variable rh = writer.addVariable(null, "humidity", DataType.FLOAT, "time lat lon");
+    rh.addAttribute(new Attribute(CDM.UNITS, "percent"));
+    writer.create();
+
+    writer.write(time, Array.makeArray(DataType.DOUBLE, 3, 0, 3));
+    writer.write(pressure, Array.makeArray(DataType.DOUBLE, new String[] {"1000", "500"}));
+    writer.write(lat, Array.makeArray(DataType.DOUBLE, 5, 30, 2));
+    writer.write(lon, Array.makeArray(DataType.DOUBLE, 6, 250, 2));
+    writer.close();
+    return file;
+  }
+
+  private Fmrc openFmrc() throws IOException {
+    Fmrc fmrc = Fmrc.open(dataDir.getPath() + "/run.*\\.nc$", new Formatter());
+    Assert.assertNotNull(fmrc);
+    return fmrc;
+  }
+
+  // summary of the inventory: each run with its files and grids
+  private String showInventory(FmrcInv fmrcInv) {
+    Formatter f = new Formatter();
+    for (FmrInv fmr : fmrcInv.getFmrList()) {
+      f.format("%s:", fmr.getRunDate());
+      for (GridDatasetInv inv : fmr.getInventoryList()) {
+        f.format(" %s", new File(inv.getLocation()).getName());
+        for (TimeCoord tc : inv.getTimeCoords())
+          f.format(" %s=%s", tc.getGridInventory(), tc);
+      }
+      f.format("%n");
+    }
+    f.format("forecasts=%s", fmrcInv.getForecastTimes());
+    return f.toString();
+  }
+
+  @Test
+  public void testParallelMatchesSerial() throws Exception {
+    for (int run = 0; run < 12; run++)
+      makeRun(run);
+
+    Fmrc.setInventoryThreads(1);
+    String serial;
+    try (Fmrc fmrc = openFmrc()) {
+      serial = showInventory(fmrc.getFmrcInv(null));
+    }
+    Assert.assertEquals(12, serial.split("\n").length - 1);
+
+    GridDatasetInv.clearCache();
+    Fmrc.setInventoryThreads(4);
+    long made = GridDatasetInv.made.get();
+    try (Fmrc fmrc = openFmrc()) {
+      Assert.assertEquals(serial, showInventory(fmrc.getFmrcInv(null)));
+    }
+    Assert.assertEquals(12, GridDatasetInv.made.get() - made);
+  }
+
+  @Test
+  public void testIncremental() throws Exception {
+    List<File> files = new ArrayList<>();
+    for (int run = 0; run < 6; run++)
+      files.add(makeRun(run));
+
+    try (Fmrc fmrc = openFmrc()) {
+      long made = GridDatasetInv.made.get();
+      fmrc.update();
+      Assert.assertEquals(6, GridDatasetInv.made.get() - made);
+      Assert.assertEquals(6, fmrc.getRunDates().size());
+
+      // only new and changed files are opened, even if they are not in the GridDatasetInv cache
+      GridDatasetInv.clearCache();
+      makeRun(6);
+      makeRun(7);
+      Assert.assertTrue(files.get(2).setLastModified(files.get(2).lastModified() + 10 * 1000));
+      Assert.assertTrue(files.get(5).delete());
+      ((MFileCollectionManager) fmrc.getManager()).scan(false);
+      made = GridDatasetInv.made.get();
+      fmrc.update();
+      Assert.assertEquals(3, GridDatasetInv.made.get() - made);
+      Assert.assertEquals(7, fmrc.getRunDates().size());
+    }
+  }
+
+  @Test
+  public void testDiskCache() throws Exception {
+    for (int run = 0; run < 4; run++)
+      makeRun(run);
+    DiskCache2 dc = new DiskCache2(tempFolder.newFolder("cache").getPath(), false, 0, 0);
+    dc.setAlwaysUseCache(true);
+    GridDatasetInv.setDiskCache(dc);
+
+    long made = GridDatasetInv.made.get();
+    String expected;
+    try (Fmrc fmrc = openFmrc()) {
+      expected = showInventory(fmrc.getFmrcInv(null));
+    }
+    Assert.assertEquals(4, GridDatasetInv.made.get() - made);
+    Assert.assertTrue(dc.getCacheFile(new File(dataDir, "run000.nc").getPath() + ".fmrInv").exists());
+
+    // read back from the cache files
+    GridDatasetInv.clearCache();
+    made = GridDatasetInv.made.get();
+    try (Fmrc fmrc = openFmrc()) {
+      Assert.assertEquals(expected, showInventory(fmrc.getFmrcInv(null)));
+    }
+    Assert.assertEquals(0, GridDatasetInv.made.get() - made);
+
+    // a changed file is not read from the cache
+    File file = new File(dataDir, "run001.nc");
+    Assert.assertTrue(file.setLastModified(file.lastModified() + 10 * 1000));
+    GridDatasetInv.clearCache();
+    made = GridDatasetInv.made.get();
+    try (Fmrc fmrc = openFmrc()) {
+      Assert.assertEquals(expected, showInventory(fmrc.getFmrcInv(null)));
+    }
+    Assert.assertEquals(1, GridDatasetInv.made.get() - made);
+  }
+
+  private Element makeNcml(String title) {
+    Element netcdf = new Element("netcdf", thredds.client.catalog.Catalog.ncmlNSHttps);
+    return netcdf.addContent(new NcMLWriter().makeAttributeElement(new Attribute(CDM.TITLE, title)));
+  }
+
+  // NcML with the same String.hashCode() must not share a cached inventory
+  @Test
+  public void testDiskCacheNcml() throws Exception {
+    makeRun(0);
+    DiskCache2 dc = new DiskCache2(tempFolder.newFolder("cache").getPath(), false, 0, 0);
+    dc.setAlwaysUseCache(true);
+    GridDatasetInv.setDiskCache(dc);
+
+    Element ncml1 = makeNcml("Aa");
+    Element ncml2 = makeNcml("BB");
+    XMLOutputter out = new XMLOutputter();
+    Assert.assertEquals(out.outputString(ncml1).hashCode(), out.outputString(ncml2).hashCode());
+
+    try (Fmrc fmrc = openFmrc()) {
+      fmrc.getFmrcInv(null);
+      MCollection manager = fmrc.getManager();
+      MFile mfile = manager.getFilesSorted().iterator().next();
+
+      GridDatasetInv.clearCache();
+      long made = GridDatasetInv.made.get();
+      GridDatasetInv.open(manager, mfile, ncml1);
+      Assert.assertEquals(1, GridDatasetInv.made.get() - made);
+
+      GridDatasetInv.clearCache();
+      GridDatasetInv.open(manager, mfile, ncml1);
+      Assert.assertEquals(1, GridDatasetInv.made.get() - made); // from the disk cache
+
+      GridDatasetInv.clearCache();
+      GridDatasetInv.open(manager, mfile, ncml2);
+      Assert.assertEquals(2, GridDatasetInv.made.get() - made);
+    }
+  }
+
+  // setInventoryThreads() shuts down the pool while inventories are being made
+  @Test
+  public void testReconfigureWhileUpdating() throws Exception {
+    for (int run = 0; run < 12; run++)
+      makeRun(run);
+    Fmrc.setInventoryThreads(1);
+    String expected;
+    try (Fmrc fmrc = openFmrc()) {
+      expected = showInventory(fmrc.getFmrcInv(null));
+    }
+
+    AtomicBoolean done = new AtomicBoolean();
+    Thread reconfigure = new Thread(() -> {
+      while (!done.get())
+        Fmrc.setInventoryThreads(4);
+    });
+    reconfigure.start();
+    try {
+      for (int i = 0; i < 10; i++) {
+        GridDatasetInv.clearCache();
+        try (Fmrc fmrc = openFmrc()) {
+          Assert.assertEquals(expected, showInventory(fmrc.getFmrcInv(null)));
+        }
+      }
+    } finally {
+      done.set(true);
+      reconfigure.join();
+    }
+  }
+
+  // compare making the inventory with 1 thread and with N threads
+  @Test
+  @Category(Slow.class)
+  public void compareThroughput() throws Exception {
+    for (int run = 0; run < 200; run++)
+      makeRun(run);
+    int nthreads = Math.max(2, Runtime.getRuntime().availableProcessors());
+    for (int threads : new int[] {1, 1, nthreads}) { // the first is warm up
+      GridDatasetInv.clearCache();
+      Fmrc.setInventoryThreads(threads);
+      long start = System.nanoTime();
+      try (Fmrc fmrc = openFmrc()) {
+        Assert.assertEquals(200, fmrc.getFmrcInv(null).getFmrList().size());
+      }
+      logger.debug("{} threads: {} msecs", threads, (System.nanoTime() - start) / 1000 / 1000);
+    }
+
+    DiskCache2 dc = new DiskCache2(tempFolder.newFolder("cache").getPath(), false, 0, 0);
+    dc.setAlwaysUseCache(true);
+    GridDatasetInv.setDiskCache(dc);
+    try (Fmrc fmrc = openFmrc()) {
+      fmrc.getFmrcInv(null); // write the cache
+    }
+    GridDatasetInv.clearCache();
+    Fmrc.setInventoryThreads(1);
+    long start = System.nanoTime();
+    try (Fmrc fmrc = openFmrc()) {
+      Assert.assertEquals(200, fmrc.getFmrcInv(null).getFmrList().size());
+    }
+    logger.debug("from disk cache: {} msecs", (System.nanoTime() - start) / 1000 / 1000);
+  }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.ft2.coverage.writer;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+import ucar.ma2.InvalidRangeException;
+import ucar.nc2.Attribute;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.NetcdfFileWriter;
+import ucar.nc2.Variable;
+import ucar.nc2.constants.CDM;
+import ucar.nc2.ft2.coverage.*;
+import ucar.nc2.time.CalendarDate;
+import ucar.nc2.time.CalendarDateRange;
+import ucar.nc2.time.CalendarPeriod;
+import ucar.nc2.util.CompareNetcdf2;
+import ucar.unidata.util.test.TestDir;
+import java.io.File;
+import java.io.IOException;
+import java.util.Formatter;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Test CFGridCoverageWriter2 writing coverages in slabs: the result must be the same as reading each coverage at once.
+ *
+ * @since 10/19/2026
+ */
+public class TestCFGridCoverageWriter2 {
+  private static final int ntimes = 6, nlevels = 3, nlat = 5, nlon = 4;
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @After
+  public void cleanup() {
+    CFGridCoverageWriter2.setMemoryBudget(256L * 1000 * 1000);
+    CFGridCoverageWriter2.setConcurrentCoverages(1);
+  }
+
+  // CF file with a 4D and a 3D grid
+  private File makeGridFile() throws IOException, InvalidRangeException {
+    File file = tempFolder.newFile("grid.nc");
+    NetcdfFileWriter writer = NetcdfFileWriter.createNew(NetcdfFileWriter.Version.netcdf3, file.getPath());
+    writer.addGroupAttribute(null, new Attribute(CDM.CONVENTIONS, "CF-1.6"));
+    writer.addDimension(null, "time", ntimes);
+    writer.addDimension(null, "pressure", nlevels);
+    writer.addDimension(null, "lat", nlat);
+    writer.addDimension(null, "lon", nlon);
+    Variable time = writer.addVariable(null, "time", DataType.DOUBLE, "time");
+    time.addAttribute(new Attribute(CDM.UNITS, "hours since 2026-10-19T00:00:00Z"));
+    Variable pressure = writer.addVariable(null, "pressure", DataType.FLOAT, "pressure");
+    pressure.addAttribute(new Attribute(CDM.UNITS, "hPa"));
+    pressure.addAttribute(new Attribute("positive", "down"));
+    Variable lat = writer.addVariable(null, "lat", DataType.FLOAT, "lat");
+    lat.addAttribute(new Attribute(CDM.UNITS, CDM.LAT_UNITS));
+    Variable lon = writer.addVariable(null, "lon", DataType.FLOAT, "lon");
+    lon.addAttribute(new Attribute(CDM.UNITS, CDM.LON_UNITS));
+    Variable temp = writer.addVariable(null, "temperature", DataType.FLOAT, "time pressure lat lon");
+    temp.addAttribute(new Attribute(CDM.UNITS, "K"));
+    Variable rh = writer.addVariable(null, "humidity", DataType.DOUBLE, "time lat lon");
+    rh.addAttribute(new Attribute(CDM.UNITS, "percent"));
+    writer.create();
+
+    writer.write(time, Array.makeArray(DataType.DOUBLE, ntimes, 0, 3));
+    writer.write(pressure, Array.makeArray(DataType.FLOAT, new String[] {"1000", "850", "500"}));
+    writer.write(lat, Array.makeArray(DataType.FLOAT, nlat, 30, 2));
+    writer.write(lon, Array.makeArray(DataType.FLOAT, nlon, 250, 2));
+    writer.write(temp, Array.makeArray(DataType.FLOAT, ntimes * nlevels * nlat * nlon, 200, .25)
+        .reshape(new int[] {ntimes, nlevels, nlat, nlon}));
+    writer.write(rh,
+        Array.makeArray(DataType.DOUBLE, ntimes * nlat * nlon, 0, .5).reshape(new int[] {ntimes, nlat, nlon}));
+    writer.close();
+    return file;
+  }
+
+  private File writeCoverages(String location, SubsetParams subset, String name)
+      throws IOException, InvalidRangeException {
+    File outFile = new File(tempFolder.getRoot(), name);
+    try (FeatureDatasetCoverage fdc = CoverageDatasetFactory.open(location)) {
+      Assert.assertNotNull(location, fdc);
+      CoverageCollection gds = fdc.getCoverageCollections().get(0);
+      NetcdfFileWriter writer = NetcdfFileWriter.createNew(NetcdfFileWriter.Version.netcdf3, outFile.getPath());
+      Assert.assertTrue(CFGridCoverageWriter2.write(gds, null, subset, false, writer).isPresent());
+    }
+    return outFile;
+  }
+
+  private void compareData(File expected, File result, int nvars) throws IOException {
+    try (NetcdfFile org = NetcdfFile.open(expected.getPath()); NetcdfFile copy = NetcdfFile.open(result.getPath())) {
+      Formatter f = new Formatter();
+      CompareNetcdf2 compare = new CompareNetcdf2(f);
+      List<Variable> vars = org.getVariables();
+      Assert.assertEquals(nvars, vars.size());
+      for (Variable v : vars) {
+        Variable v2 = copy.findVariable(v.getFullNameEscaped());
+        Assert.assertNotNull(v.getFullName(), v2);
+        Assert.assertArrayEquals(v.getShape(), v2.getShape());
+        boolean ok = compare.compareData(v.getFullName(), v.read(), v2.read());
+        if (!ok)
+          System.out.printf("%s%n", f);
+        Assert.assertTrue(v.getFullName(), ok);
+      }
+    }
+  }
+
+  @Test
+  public void testSlabs() throws IOException, InvalidRangeException {
+    String location = makeGridFile().getPath();
+    File whole = writeCoverages(location, null, "whole.nc");
+
+    // one time per slab
+    CFGridCoverageWriter2.setMemoryBudget(2 * nlevels * nlat * nlon * 8);
+    compareData(whole, writeCoverages(location, null, "time.nc"), 6);
+
+    // one time and level per slab
+    CFGridCoverageWriter2.setMemoryBudget(2 * nlat * nlon * 4);
+    compareData(whole, writeCoverages(location, null, "level.nc"), 6);
+
+    // concurrent coverages
+    CFGridCoverageWriter2.setConcurrentCoverages(2);
+    compareData(whole, writeCoverages(location, null, "concurrent.nc"), 6);
+  }
+
+  private Set<Thread> getWriterThreads() {
+    Set<Thread> result = new HashSet<>();
+    for (Thread t : Thread.getAllStackTraces().keySet())
+      if (t.getName().startsWith("CFGridCoverageWriter2"))
+        result.add(t);
+    return result;
+  }
+
+  // requests share the pools, so the threads of the first request are reused by the later ones
+  @Test
+  public void testPoolsShared() throws IOException, InvalidRangeException {
+    String location = makeGridFile().getPath();
+    File whole = writeCoverages(location, null, "whole.nc");
+    CFGridCoverageWriter2.setMemoryBudget(2 * nlat * nlon * 4);
+    CFGridCoverageWriter2.setConcurrentCoverages(2);
+
+    compareData(whole, writeCoverages(location, null, "first.nc"), 6);
+    Set<Thread> first = getWriterThreads();
+    Assert.assertFalse(first.isEmpty());
+
+    Set<Thread> all = new HashSet<>(first);
+    for (int i = 0; i < 9; i++) {
+      compareData(whole, writeCoverages(location, null, "copy" + i + ".nc"), 6);
+      all.addAll(getWriterThreads());
+    }
+    Assert.assertTrue(first.stream().allMatch(Thread::isAlive));
+    Assert.assertTrue(all.toString(), all.size() < 10);
+  }
+
+  @Test
+  public void testSlabsWithSubset() throws IOException, InvalidRangeException {
+    String location = makeGridFile().getPath();
+    CalendarDate start = CalendarDate.parseISOformat(null, "2026-10-19T03:00:00Z");
+    CalendarDateRange dateRange = CalendarDateRange.of(start, start.add(9, CalendarPeriod.Field.Hour));
+    SubsetParams subset = new SubsetParams().setTimeRange(dateRange).setVertCoord(850);
+    File whole = writeCoverages(location, subset, "whole.nc");
+
+    CFGridCoverageWriter2.setMemoryBudget(1);
+    File slabs = writeCoverages(location, subset, "slabs.nc");
+    compareData(whole, slabs, 6);
+    try (NetcdfFile ncfile = NetcdfFile.open(slabs.getPath())) {
+      Assert.assertEquals(4, ncfile.findDimension("time").getLength());
+    }
+  }
+
+  @Test
+  public void testLocalFile() throws IOException, InvalidRangeException {
+    String location = TestDir.cdmLocalTestDataDir + "testCFGridWriter.nc4";
+    File whole = writeCoverages(location, null, "whole.nc");
+    CFGridCoverageWriter2.setMemoryBudget(100);
+    CFGridCoverageWriter2.setConcurrentCoverages(4);
+    try (NetcdfFile ncfile = NetcdfFile.open(whole.getPath())) {
+      compareData(whole, writeCoverages(location, null, "slabs.nc"), ncfile.getVariables().size());
+    }
+  }
+}
@@ -0,0 +1,312 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.geotiff;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ucar.ma2.Array;
+import ucar.ma2.ArrayFloat;
+import ucar.ma2.DataType;
+import ucar.ma2.Index;
+import ucar.ma2.InvalidRangeException;
+import ucar.ma2.MAMath;
+import ucar.nc2.Attribute;
+import ucar.nc2.NetcdfFileWriter;
+import ucar.nc2.Variable;
+import ucar.nc2.constants.CDM;
+import ucar.nc2.dt.GridDatatype;
+import ucar.nc2.dt.grid.GridDataset;
+import ucar.unidata.util.test.category.Slow;
+import java.io.File;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Test tiled, compressed GeoTIFF output, and compare to strips.
+ *
+ * @since 10/19/2026
+ */
+public class TestGeotiffTiled {
+  private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @After
+  public void cleanup() {
+    GeotiffWriter.setEncodeThreads(Runtime.getRuntime().availableProcessors());
+  }
+
+  // lat/lon grid with missing values, lat ascending so the writer has to flip it
+  private File makeGrid(int ny, int nx) throws IOException, InvalidRangeException {
+    File file = tempFolder.newFile("grid" + ny + "x" + nx + ".nc");
+    NetcdfFileWriter writer = NetcdfFileWriter.createNew(NetcdfFileWriter.Version.netcdf3, file.getPath());
+    writer.addGroupAttribute(null, new Attribute(CDM.CONVENTIONS, "CF-1.6"));
+    writer.addDimension(null, "lat", ny);
+    writer.addDimension(null, "lon", nx);
+    Variable lat = writer.addVariable(null, "lat", DataType.DOUBLE, "lat");
+    lat.addAttribute(new Attribute(CDM.UNITS, CDM.LAT_UNITS));
+    Variable lon = writer.addVariable(null, "lon", DataType.DOUBLE, "lon");
+    lon.addAttribute(new Attribute(CDM.UNITS, CDM.LON_UNITS));
+    Variable temp = writer.addVariable(null, "temperature", DataType.FLOAT, "lat lon");
+    temp.addAttribute(new Attribute(CDM.UNITS, "K"));
+    temp.addAttribute(new Attribute(CDM.FILL_VALUE, -9999.0f));
+    writer.create();
+
+    writer.write(lat, Array.makeArray(DataType.DOUBLE, ny, -60, 120.0 / ny));
+    writer.write(lon, Array.makeArray(DataType.DOUBLE, nx, -130, 100.0 / nx));
+    ArrayFloat.D2 data = new ArrayFloat.D2(ny, nx);
+    for (int y = 0; y < ny; y++) {
+      for (int x = 0; x < nx; x++) {
+        boolean missing = (x > nx / 3 && x < nx / 2 && y > ny / 4 && y < ny / 3);
+        data.set(y, x, missing ? -9999.0f : (float) (270 + 20 * Math.sin(x * 0.02) * Math.cos(y * 0.03) + y * 0.01));
+      }
+    }
+    writer.write(temp, data);
+    writer.close();
+    return file;
+  }
+
+  private long writeGeotiff(File gridFile, String out, boolean greyScale, int tileSize) throws IOException {
+    long start = System.nanoTime();
+    try (GridDataset dataset = GridDataset.open(gridFile.getPath());
+        GeotiffWriter writer = new GeotiffWriter(out)) {
+      GridDatatype grid = dataset.findGridDatatype("temperature");
+      if (tileSize > 0)
+        writer.setTiled(tileSize, 6, true, true);
+      writer.writeGrid(dataset, grid, grid.readDataSlice(0, 0, -1, -1), greyScale);
+    }
+    return System.nanoTime() - start;
+  }
+
+  // the tags of each image, each starts with NewSubfileType, the lowest tag number
+  private static List<List<IFDEntry>> getImageTags(GeoTiff geotiff) {
+    List<List<IFDEntry>> result = new ArrayList<>();
+    for (IFDEntry ifd : geotiff.getTags()) {
+      if (ifd.tag == Tag.NewSubfileType)
+        result.add(new ArrayList<>());
+      result.get(result.size() - 1).add(ifd);
+    }
+    return result;
+  }
+
+  private static int findValue(List<IFDEntry> tags, Tag tag) {
+    for (IFDEntry ifd : tags) {
+      if (ifd.tag == tag)
+        return ifd.value[0];
+    }
+    throw new IllegalArgumentException("no tag " + tag);
+  }
+
+  private static int[] findValues(List<IFDEntry> tags, Tag tag) {
+    for (IFDEntry ifd : tags) {
+      if (ifd.tag == tag)
+        return ifd.value;
+    }
+    throw new IllegalArgumentException("no tag " + tag);
+  }
+
+  // decode the full resolution image of a tiled file
+  private Array readTiled(String filename, boolean greyScale) throws IOException, DataFormatException {
+    return readTiled(filename, greyScale, 0);
+  }
+
+  // decode one image of a tiled file, 0 is full resolution, then the overviews
+  private Array readTiled(String filename, boolean greyScale, int image) throws IOException, DataFormatException {
+    try (GeoTiff geotiff = new GeoTiff(filename)) {
+      geotiff.read();
+      List<IFDEntry> tags = getImageTags(geotiff).get(image);
+      int width = findValue(tags, Tag.ImageWidth);
+      int height = findValue(tags, Tag.ImageLength);
+      int tileSize = findValue(tags, Tag.TileWidth);
+      Assert.assertEquals(8, findValue(tags, Tag.Compression));
+      Assert.assertEquals(greyScale ? 2 : 3, findValue(tags, Tag.Predictor));
+      int[] offsets = findValues(tags, Tag.TileOffsets);
+      int[] counts = findValues(tags, Tag.TileByteCounts);
+
+      int elemSize = greyScale ? 1 : 4;
+      int rowSize = tileSize * elemSize;
+      int ntilesX = (width + tileSize - 1) / tileSize;
+      Array result = Array.factory(greyScale ? DataType.BYTE : DataType.FLOAT, new int[] {height, width});
+      Index ima = result.getIndex();
+      for (int t = 0; t < offsets.length; t++) {
+        ByteBuffer bb = geotiff.testReadData(offsets[t], counts[t]);
+        Inflater inflater = new Inflater();
+        inflater.setInput(bb.array(), 0, counts[t]);
+        byte[] raw = new byte[tileSize * rowSize];
+        Assert.assertEquals(raw.length, inflater.inflate(raw));
+        inflater.end();
+
+        int x0 = (t % ntilesX) * tileSize;
+        int y0 = (t / ntilesX) * tileSize;
+        for (int y = 0; y < tileSize && y0 + y < height; y++) {
+          int pos = y * rowSize;
+          for (int i = 1; i < rowSize; i++)
+            raw[pos + i] += raw[pos + i - 1];
+          for (int x = 0; x < tileSize && x0 + x < width; x++) {
+            ima.set(y0 + y, x0 + x);
+            if (greyScale) {
+              result.setByte(ima, raw[pos + x]);
+            } else {
+              int bits = 0;
+              for (int b = 0; b < 4; b++)
+                bits = (bits << 8) | (raw[pos + b * tileSize + x] & 0xff);
+              result.setFloat(ima, Float.intBitsToFloat(bits));
+            }
+          }
+        }
+      }
+      return result;
+    }
+  }
+
+  private Array readStrips(String filename, boolean greyScale) throws IOException {
+    try (GeoTiff geotiff = new GeoTiff(filename)) {
+      geotiff.read();
+      int width = geotiff.findTag(Tag.ImageWidth).value[0];
+      int height = geotiff.findTag(Tag.ImageLength).value[0];
+      int elemSize = greyScale ? 1 : 4;
+      ByteBuffer bb = geotiff.testReadData(8, width * height * elemSize);
+      Array result = Array.factory(greyScale ? DataType.BYTE : DataType.FLOAT, new int[] {height, width});
+      for (int i = 0; i < width * height; i++) {
+        if (greyScale)
+          result.setByte(i, bb.get());
+        else
+          result.setFloat(i, bb.getFloat());
+      }
+      return result;
+    }
+  }
+
+  @Test
+  public void testTiledMatchesStrips() throws Exception {
+    File gridFile = makeGrid(301, 517);
+    for (boolean greyScale : new boolean[] {false, true}) {
+      for (int threads : new int[] {1, 4}) {
+        GeotiffWriter.setEncodeThreads(threads);
+        String strips = tempFolder.getRoot() + "/strips" + greyScale + threads + ".tif";
+        String tiled = tempFolder.getRoot() + "/tiled" + greyScale + threads + ".tif";
+        writeGeotiff(gridFile, strips, greyScale, 0);
+        writeGeotiff(gridFile, tiled, greyScale, 256);
+
+        Array expected = readStrips(strips, greyScale);
+        Array got = readTiled(tiled, greyScale);
+        for (int i = 0; i < expected.getSize(); i++)
+          Assert.assertEquals("index " + i, expected.getDouble(i), got.getDouble(i), 0.0);
+      }
+    }
+  }
+
+  @Test
+  public void testCogLayout() throws Exception {
+    File gridFile = makeGrid(301, 517);
+    String tiled = tempFolder.getRoot() + "/cog.tif";
+    writeGeotiff(gridFile, tiled, false, 128);
+
+    try (GeoTiff geotiff = new GeoTiff(tiled)) {
+      geotiff.read();
+      // full resolution 517x301, overviews 259x151, 130x76 and 65x38
+      int nimages = 0;
+      int lastOffset = Integer.MAX_VALUE;
+      int firstData = Integer.MAX_VALUE;
+      for (IFDEntry ifd : geotiff.getTags()) {
+        if (ifd.tag == Tag.NewSubfileType)
+          Assert.assertEquals(nimages++ == 0 ? 0 : 1, ifd.value[0]);
+        if (ifd.tag == Tag.TileOffsets) {
+          // each overview comes before the larger image
+          Assert.assertTrue(ifd.value[ifd.value.length - 1] < lastOffset);
+          lastOffset = ifd.value[0];
+          firstData = Math.min(firstData, ifd.value[0]);
+        }
+        if (ifd.tag == Tag.ModelTiepointTag || ifd.tag == Tag.GeoKeyDirectoryTag)
+          Assert.assertEquals(1, nimages); // georeferencing only on the full resolution image
+      }
+      Assert.assertEquals(4, nimages);
+      Assert.assertTrue(firstData < 2000); // all IFDs are at the start of the file
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBadTileSize() {
+    new GeotiffWriter(tempFolder.getRoot() + "/bad.tif").setTiled(100, 6, true, true);
+  }
+
+  // each overview pixel is the average of the non-missing pixels of a 2x2 block of the larger image
+  @Test
+  public void testOverviewValues() throws Exception {
+    File gridFile = makeGrid(301, 517);
+    for (boolean greyScale : new boolean[] {false, true}) {
+      String tiled = tempFolder.getRoot() + "/overview" + greyScale + ".tif";
+      writeGeotiff(gridFile, tiled, greyScale, 128);
+
+      Array full = readTiled(tiled, greyScale, 0);
+      Array overview = readTiled(tiled, greyScale, 1);
+      int height = full.getShape()[0], width = full.getShape()[1];
+      Assert.assertArrayEquals(new int[] {(height + 1) / 2, (width + 1) / 2}, overview.getShape());
+
+      // the float missing value is below the data minimum, the greyscale one is 0
+      double missing = greyScale ? 0 : MAMath.getMinimum(full);
+      Index ima = full.getIndex();
+      Index imo = overview.getIndex();
+      int nmissing = 0;
+      for (int y = 0; y < overview.getShape()[0]; y++) {
+        for (int x = 0; x < overview.getShape()[1]; x++) {
+          double sum = 0;
+          int n = 0;
+          for (int yy = 2 * y; yy < Math.min(2 * y + 2, height); yy++) {
+            for (int xx = 2 * x; xx < Math.min(2 * x + 2, width); xx++) {
+              double v = greyScale ? full.getByte(ima.set(yy, xx)) & 0xff : full.getFloat(ima.set(yy, xx));
+              if (v != missing) {
+                sum += v;
+                n++;
+              }
+            }
+          }
+          imo.set(y, x);
+          if (n == 0) {
+            nmissing++;
+            Assert.assertEquals(missing, greyScale ? overview.getByte(imo) & 0xff : overview.getFloat(imo), 0.0);
+          } else if (greyScale) {
+            Assert.assertEquals(((int) sum + n / 2) / n, overview.getByte(imo) & 0xff); // rounded
+          } else {
+            Assert.assertEquals((float) (sum / n), overview.getFloat(imo), 0.0);
+          }
+        }
+      }
+      Assert.assertTrue(nmissing > 0);
+    }
+  }
+
+  // compare to strips
+  @Test
+  @Category(Slow.class)
+  public void compareThroughput() throws Exception {
+    File gridFile = makeGrid(2000, 3000);
+    String strips = tempFolder.getRoot() + "/benchStrips.tif";
+    writeGeotiff(gridFile, strips, false, 0); // warm up
+    long nanos = writeGeotiff(gridFile, strips, false, 0);
+    logger.debug("strips: {} msecs, {} bytes", nanos / 1000 / 1000, new File(strips).length());
+
+    int nthreads = Math.max(2, Runtime.getRuntime().availableProcessors());
+    for (int threads : new int[] {1, nthreads}) {
+      GeotiffWriter.setEncodeThreads(threads);
+      String tiled = tempFolder.getRoot() + "/benchTiled" + threads + ".tif";
+      nanos = writeGeotiff(gridFile, tiled, false, 256);
+      logger.debug("tiled, {} threads: {} msecs, {} bytes", threads, nanos / 1000 / 1000, new File(tiled).length());
+    }
+  }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.iosp;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import ucar.ma2.Array;
+import ucar.ma2.Section;
+import ucar.nc2.Variable;
+import ucar.unidata.io.InMemoryRandomAccessFile;
+import ucar.unidata.io.RandomAccessFile;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Formatter;
+import java.util.List;
+
+/**
+ * Test IospDispatcher
+ *
+ * @since 10/19/2026
+ */
+public class TestIospDispatcher {
+
+  // accepts files that start with its name
+  public static abstract class FakeIosp extends AbstractIOServiceProvider {
+    int calls;
+
+    public boolean isValidFile(RandomAccessFile raf) throws IOException {
+      calls++;
+      String magic = getFileTypeId();
+      if (raf.length() < magic.length())
+        return false;
+      raf.seek(0);
+      return raf.readString(magic.length()).equals(magic);
+    }
+
+    public String getFileTypeDescription() {
+      return getFileTypeId();
+    }
+
+    public Array readData(Variable v2, Section section) {
+      return null;
+    }
+  }
+
+  public static class FakeA extends FakeIosp {
+    public String getFileTypeId() {
+      return "FAKEA";
+    }
+  }
+
+  public static class FakeB extends FakeIosp {
+    public String getFileTypeId() {
+      return "FAKEB";
+    }
+  }
+
+  // no signature registered
+  public static class FakeC extends FakeIosp {
+    public String getFileTypeId() {
+      return "FAKEC";
+    }
+  }
+
+  // looks for its name anywhere in the first 2000 bytes
+  public static class FakeD extends FakeIosp {
+    public String getFileTypeId() {
+      return "FAKED";
+    }
+
+    public boolean isValidFile(RandomAccessFile raf) throws IOException {
+      calls++;
+      raf.seek(0);
+      byte[] b = new byte[(int) Math.min(2000, raf.length())];
+      raf.readFully(b);
+      return new String(b, StandardCharsets.US_ASCII).contains("FAKED");
+    }
+  }
+
+  private FakeA a = new FakeA();
+  private FakeB b = new FakeB();
+  private FakeC c = new FakeC();
+  private FakeD d = new FakeD();
+  private List<IOServiceProvider> registered = Arrays.asList(b, c, d, a);
+
+  @Before
+  public void setup() {
+    IospDispatcher.registerSignature(FakeA.class.getName(), 0, "FAKEA");
+    IospDispatcher.registerSignature(FakeB.class.getName(), 0, "FAKEB");
+    IospDispatcher.registerSearchSignature(FakeD.class.getName(), 2000, "FAKED".getBytes(StandardCharsets.US_ASCII));
+    IospDispatcher.resetStatistics();
+  }
+
+  @After
+  public void cleanup() {
+    IospDispatcher.removeSignatures(FakeA.class.getName());
+    IospDispatcher.removeSignatures(FakeB.class.getName());
+    IospDispatcher.removeSignatures(FakeD.class.getName());
+    IospDispatcher.setUseSignatures(true);
+  }
+
+  private RandomAccessFile makeFile(int pos, String magic) {
+    byte[] data = new byte[3000];
+    byte[] m = magic.getBytes(StandardCharsets.US_ASCII);
+    System.arraycopy(m, 0, data, pos, m.length);
+    return new InMemoryRandomAccessFile("test", data);
+  }
+
+  @Test
+  public void testSignatures() throws IOException {
+    IOServiceProvider found = IospDispatcher.findProvider(makeFile(0, "FAKEA"), registered);
+    Assert.assertSame(a, found);
+    Assert.assertEquals(0, b.calls); // skipped
+    Assert.assertEquals(1, c.calls); // no signature, always asked
+    Assert.assertEquals(0, d.calls); // not found in search range
+    Assert.assertEquals(1, a.calls);
+
+    Assert.assertEquals(1, IospDispatcher.getStats(FakeB.class.getName()).getSkipped());
+    Assert.assertEquals(1, IospDispatcher.getStats(FakeA.class.getName()).getMatches());
+    Formatter f = new Formatter();
+    IospDispatcher.showStatus(f);
+    System.out.printf("%s%n", f);
+  }
+
+  @Test
+  public void testSearchSignature() throws IOException {
+    Assert.assertSame(d, IospDispatcher.findProvider(makeFile(1500, "FAKED"), registered));
+    Assert.assertEquals(1, d.calls);
+    Assert.assertNull(IospDispatcher.findProvider(makeFile(2500, "FAKED"), registered));
+    Assert.assertEquals(1, d.calls);
+  }
+
+  @Test
+  public void testNoMatch() throws IOException {
+    Assert.assertNull(IospDispatcher.findProvider(makeFile(0, "NOTHING"), registered));
+    Assert.assertEquals(0, a.calls + b.calls + d.calls);
+    Assert.assertEquals(1, c.calls);
+  }
+
+  @Test
+  public void testShortFile() throws IOException {
+    RandomAccessFile raf = new InMemoryRandomAccessFile("short", "FAK".getBytes(StandardCharsets.US_ASCII));
+    Assert.assertNull(IospDispatcher.findProvider(raf, registered));
+    Assert.assertEquals(1, c.calls);
+  }
+
+  @Test
+  public void testWithoutSignatures() throws IOException {
+    IospDispatcher.setUseSignatures(false);
+    Assert.assertSame(a, IospDispatcher.findProvider(makeFile(0, "FAKEA"), registered));
+    Assert.assertEquals(1, b.calls);
+    Assert.assertEquals(1, d.calls);
+  }
+
+  @Test
+  public void testServiceLoaderCached() {
+    List<IOServiceProvider> first = IospDispatcher.getServiceLoaderProviders();
+    Assert.assertSame(first, IospDispatcher.getServiceLoaderProviders());
+    IospDispatcher.clearServiceLoaderCache();
+    Assert.assertEquals(first.size(), IospDispatcher.getServiceLoaderProviders().size());
+  }
+
+}
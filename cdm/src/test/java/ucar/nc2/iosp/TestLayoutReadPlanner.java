@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.iosp;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ucar.ma2.Array;
+import ucar.ma2.ArrayStructure;
+import ucar.ma2.DataType;
+import ucar.ma2.InvalidRangeException;
+import ucar.ma2.Section;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.NetcdfFileWriter;
+import ucar.nc2.Structure;
+import ucar.nc2.Variable;
+import ucar.unidata.io.RandomAccessFile;
+import ucar.unidata.util.test.category.Slow;
+import java.io.File;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.util.Formatter;
+import java.util.Random;
+
+/**
+ * Test LayoutReadPlanner, comparing reads with and without coalescing.
+ *
+ * @since 10/19/2026
+ */
+public class TestLayoutReadPlanner {
+  private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private static final DataType[] types =
+      {DataType.BYTE, DataType.CHAR, DataType.SHORT, DataType.INT, DataType.FLOAT, DataType.DOUBLE};
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @After
+  public void cleanup() {
+    LayoutReadPlanner.setMaxGap(-1);
+    LayoutReadPlanner.setMaxReadSize(LayoutReadPlanner.DEFAULT_MAX_READ_SIZE);
+    LayoutReadPlanner.resetStatistics();
+  }
+
+  // a netcdf-3 file with a record variable of each type, dimensioned (time, y, x)
+  private File makeFile(int ntimes, int ny, int nx) throws IOException, InvalidRangeException {
+    File file = tempFolder.newFile();
+    Random random = new Random(ntimes);
+    try (NetcdfFileWriter writer = NetcdfFileWriter.createNew(NetcdfFileWriter.Version.netcdf3, file.getPath())) {
+      writer.addUnlimitedDimension("time");
+      writer.addDimension(null, "y", ny);
+      writer.addDimension(null, "x", nx);
+      for (DataType dt : types)
+        writer.addVariable(null, "v" + dt, dt, "time y x");
+      writer.create();
+
+      for (DataType dt : types) {
+        Variable v = writer.findVariable("v" + dt);
+        Array data = Array.factory(dt, new int[] {ntimes, ny, nx});
+        for (int i = 0; i < data.getSize(); i++)
+          data.setDouble(i, random.nextInt(100));
+        writer.write(v, data);
+      }
+    }
+    return file;
+  }
+
+  private Array read(File file, String varName, String section, int maxGap) throws IOException, InvalidRangeException {
+    LayoutReadPlanner.setMaxGap(maxGap);
+    try (NetcdfFile ncfile = NetcdfFile.open(file.getPath())) {
+      Variable v = ncfile.findVariable(varName);
+      return (section == null) ? v.read() : v.read(section);
+    }
+  }
+
+  private void assertSame(Array expect, Array got) {
+    Assert.assertArrayEquals(expect.getShape(), got.getShape());
+    Assert.assertEquals(expect.getElementType(), got.getElementType());
+    for (int i = 0; i < expect.getSize(); i++)
+      Assert.assertEquals(expect.getObject(i), got.getObject(i));
+  }
+
+  @Test
+  public void testRecordVariables() throws IOException, InvalidRangeException {
+    File file = makeFile(50, 7, 11);
+    String[] sections = {null, ":,3,4", ":,2:5,1:9:2", "10:40:3,:,5", "0:49:7,1:6:2,:", "17,:,:"};
+    int[] gaps = {0, 100, 1000, 1000 * 1000};
+    for (DataType dt : types) {
+      for (String section : sections) {
+        Array expect = read(file, "v" + dt, section, -1);
+        for (int gap : gaps) {
+          LayoutReadPlanner.resetStatistics();
+          Array got = read(file, "v" + dt, section, gap);
+          assertSame(expect, got);
+          Assert.assertTrue(LayoutReadPlanner.getChunks() > 0);
+          Assert.assertTrue(LayoutReadPlanner.getReads() <= LayoutReadPlanner.getChunks());
+          Assert.assertTrue(LayoutReadPlanner.getBytesRead() >= LayoutReadPlanner.getBytesWanted());
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testMaxReadSize() throws IOException, InvalidRangeException {
+    File file = makeFile(200, 5, 5);
+    Array expect = read(file, "vfloat", ":,2,2", -1);
+
+    LayoutReadPlanner.resetStatistics();
+    assertSame(expect, read(file, "vfloat", ":,2,2", 1000 * 1000));
+    Assert.assertEquals(200, LayoutReadPlanner.getChunks());
+    Assert.assertEquals(1, LayoutReadPlanner.getReads());
+    Assert.assertTrue(LayoutReadPlanner.getReadAmplification() > 1.0);
+
+    LayoutReadPlanner.setMaxReadSize(2000);
+    LayoutReadPlanner.resetStatistics();
+    assertSame(expect, read(file, "vfloat", ":,2,2", 1000 * 1000));
+    Assert.assertTrue(LayoutReadPlanner.getReads() > 1);
+    Assert.assertTrue(LayoutReadPlanner.getReads() < 200);
+    Assert.assertTrue(LayoutReadPlanner.getBytesRead() / LayoutReadPlanner.getReads() <= 2000);
+
+    Formatter f = new Formatter();
+    LayoutReadPlanner.showStatus(f);
+    Assert.assertTrue(f.toString().contains("amplification="));
+  }
+
+  @Test
+  public void testRecordStructure() throws IOException, InvalidRangeException {
+    File file = makeFile(30, 3, 4);
+    for (String section : new String[] {"0:29", "2:28:3"}) {
+      Array expect = null;
+      for (int gap : new int[] {-1, 10 * 1000}) {
+        LayoutReadPlanner.setMaxGap(gap);
+        try (NetcdfFile ncfile = NetcdfFile.open(file.getPath())) {
+          ncfile.sendIospMessage(NetcdfFile.IOSP_MESSAGE_ADD_RECORD_STRUCTURE);
+          Structure record = (Structure) ncfile.findVariable("record");
+          ArrayStructure data = (ArrayStructure) record.read(new Section(section));
+          Array member = data.extractMemberArray(data.findMember("vdouble"));
+          if (expect == null)
+            expect = member;
+          else
+            assertSame(expect, member);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testLittleEndian() throws IOException, InvalidRangeException {
+    int ny = 20, nx = 30;
+    File file = tempFolder.newFile();
+    ByteBuffer bb = ByteBuffer.allocate(ny * nx * 8).order(ByteOrder.LITTLE_ENDIAN);
+    for (int i = 0; i < ny * nx; i++)
+      bb.putDouble(i * 1.5);
+    Files.write(file.toPath(), bb.array());
+
+    int[] shape = {ny, nx};
+    for (String spec : new String[] {":,7", "1:19:2,0:29:3", "3:5,:"}) {
+      Section section = Section.fill(new Section(spec), shape);
+      Object expect, got;
+      try (RandomAccessFile raf = new RandomAccessFile(file.getPath(), "r")) {
+        LayoutReadPlanner.setMaxGap(-1);
+        expect = IospHelper.readDataFill(raf, new LayoutRegular(0, 8, shape, section), DataType.DOUBLE, null,
+            RandomAccessFile.LITTLE_ENDIAN);
+        LayoutReadPlanner.setMaxGap(1000);
+        got = IospHelper.readDataFill(raf, new LayoutRegular(0, 8, shape, section), DataType.DOUBLE, null,
+            RandomAccessFile.LITTLE_ENDIAN);
+        Assert.assertEquals(ByteOrder.LITTLE_ENDIAN, raf.getByteOrder());
+      }
+      Assert.assertArrayEquals(spec, (double[]) expect, (double[]) got, 0.0);
+      Assert.assertEquals(1.5 * (section.getOrigin(0) * nx + section.getOrigin(1)), ((double[]) got)[0], 0.0);
+    }
+  }
+
+  // time series of a record variable, with and without coalescing.
+  // The records are bigger than the RandomAccessFile buffer, so each uncoalesced chunk is a separate file read.
+  @Test
+  @Category(Slow.class)
+  public void compareThroughput() throws IOException, InvalidRangeException {
+    int ntimes = 400, ny = 40, nx = 40, npoints = 20;
+    File file = makeFile(ntimes, ny, nx);
+    RandomAccessFile.setDebugAccess(true);
+    try {
+      for (int gap : new int[] {-1, -1, 64 * 1000}) { // the first is warm up
+        LayoutReadPlanner.setMaxGap(gap);
+        LayoutReadPlanner.resetStatistics();
+        RandomAccessFile.setDebugAccess(true); // reset the counts
+        try (NetcdfFile ncfile = NetcdfFile.open(file.getPath())) {
+          Variable v = ncfile.findVariable("vfloat");
+          long start = System.nanoTime();
+          double sum = 0;
+          for (int i = 0; i < npoints; i++) {
+            Array series = v.read(":," + (i % ny) + "," + (i * 7 % nx));
+            sum += series.getDouble(ntimes - 1);
+          }
+          long took = System.nanoTime() - start;
+          Formatter f = new Formatter();
+          LayoutReadPlanner.showStatus(f);
+          logger.debug("maxGap={}: {} time series of {}, {} msecs, {} file reads of {} bytes (sum {}) {}", gap,
+              npoints, ntimes, took / 1000 / 1000, RandomAccessFile.getDebugNseeks(),
+              RandomAccessFile.getDebugNbytes(), sum, f);
+        }
+      }
+    } finally {
+      RandomAccessFile.setDebugAccess(false);
+    }
+  }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.iosp.hdf5;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.util.CompareNetcdf2;
+import ucar.nc2.util.DiskCache2;
+import ucar.unidata.util.test.TestDir;
+import ucar.unidata.util.test.category.Slow;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.invoke.MethodHandles;
+import java.nio.file.Files;
+import java.util.Formatter;
+
+/**
+ * Test H5headerCache
+ *
+ * @since 10/19/2026
+ */
+public class TestH5headerCache {
+  private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private DiskCache2 diskCache;
+
+  @Before
+  public void setup() throws IOException {
+    diskCache = new DiskCache2(tempFolder.newFolder("cache").getPath(), false, 0, 0);
+    diskCache.setAlwaysUseCache(true);
+    H5headerCache.resetStatistics();
+  }
+
+  @After
+  public void cleanup() {
+    H5headerCache.setDiskCache(null);
+  }
+
+  private File copy(String name) throws IOException {
+    File org = new File(TestDir.cdmLocalTestDataDir + name);
+    File result = new File(tempFolder.getRoot(), name);
+    Files.copy(org.toPath(), result.toPath());
+    return result;
+  }
+
+  // the cached open must be the same as parsing the header, including the data
+  private void compareWithUncached(File file) throws IOException {
+    H5headerCache.setDiskCache(null);
+    try (NetcdfFile org = NetcdfFile.open(file.getPath())) {
+      H5headerCache.setDiskCache(diskCache);
+      try (NetcdfFile cached = NetcdfFile.open(file.getPath())) {
+        Formatter f = new Formatter();
+        boolean ok = CompareNetcdf2.compareFiles(org, cached, f, true, false, false);
+        if (!ok)
+          System.out.printf("%s%n", f);
+        Assert.assertTrue(file.getName(), ok);
+      }
+    }
+  }
+
+  @Test
+  public void testRoundTrip() throws IOException {
+    H5headerCache.setDiskCache(diskCache);
+    for (String name : new String[] {"testCFGridWriter.nc4", "chunked.h5", "testSpecialAttributes.nc4"}) {
+      File file = copy(name);
+      long hits = H5headerCache.getHits();
+      long writes = H5headerCache.getWrites();
+
+      try (NetcdfFile ncfile = NetcdfFile.open(file.getPath())) {
+        Assert.assertNotNull(ncfile);
+      }
+      if (H5headerCache.getWrites() == writes) { // not cacheable
+        System.out.printf("%s not cacheable%n", name);
+        continue;
+      }
+      Assert.assertEquals(hits, H5headerCache.getHits());
+      compareWithUncached(file);
+      Assert.assertEquals(hits + 1, H5headerCache.getHits());
+    }
+
+    Formatter f = new Formatter();
+    H5headerCache.showStatus(f);
+    logger.debug("{}", f);
+    Assert.assertTrue(H5headerCache.getHits() > 0);
+  }
+
+  @Test
+  public void testFileChanged() throws IOException {
+    H5headerCache.setDiskCache(diskCache);
+    File file = copy("testCFGridWriter.nc4");
+    try (NetcdfFile ncfile = NetcdfFile.open(file.getPath())) {
+      Assert.assertNotNull(ncfile);
+    }
+    Assert.assertEquals(1, H5headerCache.getWrites());
+
+    Assert.assertTrue(file.setLastModified(file.lastModified() + 10 * 1000));
+    try (NetcdfFile ncfile = NetcdfFile.open(file.getPath())) {
+      Assert.assertNotNull(ncfile);
+    }
+    Assert.assertEquals(0, H5headerCache.getHits());
+    Assert.assertEquals(2, H5headerCache.getWrites());
+  }
+
+  @Test
+  public void testCorruptCacheFile() throws IOException {
+    H5headerCache.setDiskCache(diskCache);
+    File file = copy("testCFGridWriter.nc4");
+    try (NetcdfFile ncfile = NetcdfFile.open(file.getPath())) {
+      Assert.assertNotNull(ncfile);
+    }
+    File cacheFile = diskCache.getCacheFile(file.getAbsolutePath() + H5headerCache.SUFFIX);
+    Assert.assertTrue(cacheFile.exists());
+    try (RandomAccessFile raf = new RandomAccessFile(cacheFile, "rw")) {
+      raf.setLength(raf.length() / 2);
+    }
+
+    compareWithUncached(file); // falls back to parsing
+    Assert.assertEquals(0, H5headerCache.getHits());
+  }
+
+  @Test
+  @Category(Slow.class)
+  public void compareTiming() throws IOException {
+    File file = copy("testCFGridWriter.nc4");
+    int n = 100;
+    for (int pass = 0; pass < 2; pass++) {
+      H5headerCache.setDiskCache(null);
+      long start = System.nanoTime();
+      for (int i = 0; i < n; i++)
+        NetcdfFile.open(file.getPath()).close();
+      long parsed = System.nanoTime() - start;
+
+      H5headerCache.setDiskCache(diskCache);
+      start = System.nanoTime();
+      for (int i = 0; i < n; i++)
+        NetcdfFile.open(file.getPath()).close();
+      long cached = System.nanoTime() - start;
+
+      logger.debug("open {} {} times: parse header {} msecs, cached {} msecs", file.getName(), n, parsed / 1000000,
+          cached / 1000000);
+    }
+  }
+
+}
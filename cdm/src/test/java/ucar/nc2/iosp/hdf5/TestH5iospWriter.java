@@ -0,0 +1,405 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.iosp.hdf5;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ucar.ma2.*;
+import ucar.nc2.*;
+import ucar.nc2.iosp.IOServiceProviderWriter;
+import ucar.nc2.iosp.netcdf3.N3iosp;
+import ucar.nc2.util.CompareNetcdf2;
+import ucar.nc2.write.Nc4Chunking;
+import ucar.nc2.write.Nc4ChunkingDefault;
+import ucar.unidata.util.test.TestDir;
+import ucar.unidata.util.test.category.Slow;
+import java.io.File;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Formatter;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Test H5iospWriter, reading the files back with H5iosp.
+ *
+ * @since 10/19/2026
+ */
+public class TestH5iospWriter {
+  private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @After
+  public void cleanup() {
+    NetcdfFileWriter.setUseJavaNetcdf4Writer(false);
+    H5iospWriter.setCompressionThreads(Runtime.getRuntime().availableProcessors());
+  }
+
+  // fixed chunk shape, so tests get many chunks
+  private static class FixedChunking implements Nc4Chunking {
+    private final int[] chunk;
+    private final int deflate;
+    private final boolean shuffle;
+
+    FixedChunking(int deflate, boolean shuffle, int... chunk) {
+      this.chunk = chunk;
+      this.deflate = deflate;
+      this.shuffle = shuffle;
+    }
+
+    public boolean isChunked(Variable v) {
+      return v.getRank() == chunk.length;
+    }
+
+    public long[] computeChunking(Variable v) {
+      long[] result = new long[v.getRank()];
+      for (int i = 0; i < result.length; i++)
+        result[i] = (i < chunk.length) ? chunk[i] : 1;
+      return result;
+    }
+
+    public int getDeflateLevel(Variable v) {
+      return deflate;
+    }
+
+    public boolean isShuffle(Variable v) {
+      return shuffle;
+    }
+  }
+
+  private NetcdfFileWriter createNew(NetcdfFileWriter.Version version, File file, Nc4Chunking chunker)
+      throws IOException {
+    NetcdfFileWriter.setUseJavaNetcdf4Writer(true);
+    return NetcdfFileWriter.createNew(version, file.getPath(), chunker);
+  }
+
+  private static Array makeArray(DataType dt, int[] shape, int start) {
+    Array a = Array.factory(dt, shape);
+    for (int i = 0; i < a.getSize(); i++)
+      a.setDouble(i, start + i % 100);
+    return a;
+  }
+
+  private static void assertData(Array want, Array got) {
+    Assert.assertArrayEquals(want.getShape(), got.getShape());
+    Formatter f = new Formatter();
+    boolean ok = new CompareNetcdf2(f, false, false, true).compareData("data", want, got, false);
+    if (!ok)
+      System.out.printf("%s%n", f);
+    Assert.assertTrue(ok);
+  }
+
+  @Test
+  public void testGroupsTypesAndAttributes() throws IOException, InvalidRangeException {
+    for (NetcdfFileWriter.Version version : new NetcdfFileWriter.Version[] {NetcdfFileWriter.Version.netcdf4,
+        NetcdfFileWriter.Version.netcdf4_classic}) {
+      File file = tempFolder.newFile("types_" + version + ".nc4");
+      List<Variable> numeric = new ArrayList<>();
+
+      NetcdfFileWriter writer = createNew(version, file, new Nc4ChunkingDefault(4, true));
+      Group root = writer.addGroup(null, "");
+      writer.addUnlimitedDimension("time");
+      writer.addDimension(null, "lat", 17);
+      writer.addDimension(null, "lon", 23);
+      writer.addDimension(null, "strlen", 8);
+      writer.addGroupAttribute(null, new Attribute("title", "H5iospWriter test"));
+      writer.addGroupAttribute(null, new Attribute("ints", Arrays.asList(1, 2, 3)));
+      writer.addGroupAttribute(null, new Attribute("empty", ""));
+
+      Variable lat = writer.addVariable(null, "lat", DataType.FLOAT, "lat");
+      lat.addAttribute(new Attribute("units", "degrees_north"));
+      Variable time = writer.addVariable(null, "time", DataType.DOUBLE, "time");
+      Variable temp = writer.addVariable(null, "temp", DataType.FLOAT, "time lat lon");
+      temp.addAttribute(new Attribute("_FillValue", -999.0f));
+      temp.addAttribute(new Attribute("valid_range", Arrays.asList(-100.0f, 100.0f)));
+      for (DataType dt : new DataType[] {DataType.BYTE, DataType.SHORT, DataType.INT, DataType.DOUBLE})
+        numeric.add(writer.addVariable(null, "v" + dt, dt, "lat lon"));
+      if (version == NetcdfFileWriter.Version.netcdf4) {
+        for (DataType dt : new DataType[] {DataType.LONG, DataType.UBYTE, DataType.USHORT, DataType.UINT,
+            DataType.ULONG})
+          numeric.add(writer.addVariable(null, "v" + dt, dt, "lat lon"));
+      }
+      Variable names = writer.addVariable(null, "names", DataType.CHAR, "lat strlen");
+      Variable scalar = writer.addVariable(null, "scalar", DataType.INT, "");
+
+      // extended model only
+      Variable nested = null, strings = null;
+      if (version == NetcdfFileWriter.Version.netcdf4) {
+        Group sub = writer.addGroup(root, "sub");
+        writer.addDimension(sub, "lat", 5); // shadows the parent dimension
+        nested = writer.addVariable(sub, "nested", DataType.SHORT, "lat lon");
+        nested.addAttribute(new Attribute("long_name", "uses a local and a parent dimension"));
+        writer.addGroupAttribute(sub, new Attribute("comment", "nested group"));
+        strings = writer.addVariable(null, "strings", DataType.STRING, "lat");
+      }
+      writer.create();
+
+      Array latData = makeArray(DataType.FLOAT, new int[] {17}, -8);
+      writer.write(lat, latData);
+      for (int t = 0; t < 3; t++) {
+        writer.write(time, new int[] {t}, makeArray(DataType.DOUBLE, new int[] {1}, t));
+        writer.write(temp, new int[] {t, 0, 0}, makeArray(DataType.FLOAT, new int[] {1, 17, 23}, t * 7));
+      }
+      for (Variable v : numeric)
+        writer.write(v, makeArray(v.getDataType(), v.getShape(), 3));
+      String[] nameValues = new String[17];
+      for (int i = 0; i < nameValues.length; i++)
+        nameValues[i] = "name" + i;
+      writer.writeStringData(names, Array.makeArray(DataType.STRING, nameValues));
+      writer.write(scalar, Array.factory(DataType.INT, new int[0], new int[] {42}));
+      if (nested != null) {
+        writer.write(nested, makeArray(DataType.SHORT, new int[] {5, 23}, 11));
+        nameValues[3] = "";
+        nameValues[4] = "été"; // not ascii
+        writer.write(strings, Array.makeArray(DataType.STRING, nameValues));
+      }
+      writer.close();
+
+      try (NetcdfFile ncfile = NetcdfFile.open(file.getPath())) {
+        Assert.assertEquals("title", "H5iospWriter test", ncfile.findGlobalAttribute("title").getStringValue());
+        Assert.assertEquals(3, ncfile.findGlobalAttribute("ints").getLength());
+        Assert.assertNotNull(ncfile.findGlobalAttribute("empty"));
+
+        Dimension timeDim = ncfile.findDimension("time");
+        Assert.assertTrue(timeDim.isUnlimited());
+        Assert.assertEquals(3, timeDim.getLength());
+
+        Variable v = ncfile.findVariable("temp");
+        Assert.assertEquals("time lat lon", v.getDimensionsString());
+        Assert.assertEquals(-999.0f, v.findAttribute("_FillValue").getNumericValue().floatValue(), 0.0);
+        Array tempData = v.read();
+        for (int t = 0; t < 3; t++)
+          assertData(makeArray(DataType.FLOAT, new int[] {1, 17, 23}, t * 7),
+              tempData.sectionNoReduce(new int[] {t, 0, 0}, new int[] {1, 17, 23}, null));
+
+        assertData(latData, ncfile.findVariable("lat").read());
+        for (Variable org : numeric) {
+          Variable got = ncfile.findVariable(org.getShortName());
+          Assert.assertEquals(org.getShortName(), org.getDataType(), got.getDataType());
+          assertData(makeArray(org.getDataType(), org.getShape(), 3), got.read());
+        }
+        ArrayChar chars = (ArrayChar) ncfile.findVariable("names").read();
+        Assert.assertEquals("name16", chars.getString(16));
+        Assert.assertEquals(42, ncfile.findVariable("scalar").readScalarInt());
+
+        if (nested != null) {
+          Group subGroup = ncfile.findGroup("sub");
+          Assert.assertNotNull(subGroup);
+          Assert.assertEquals("nested group", subGroup.findAttribute("comment").getStringValue());
+          Variable nestedVar = subGroup.findVariable("nested");
+          Assert.assertEquals(5, nestedVar.getDimension(0).getLength());
+          Assert.assertEquals(subGroup, nestedVar.getDimension(0).getGroup());
+          Assert.assertEquals(23, nestedVar.getDimension(1).getLength());
+          assertData(makeArray(DataType.SHORT, new int[] {5, 23}, 11), nestedVar.read());
+
+          Array s = ncfile.findVariable("strings").read();
+          Assert.assertEquals("name0", s.getObject(0));
+          Assert.assertEquals("", s.getObject(3));
+          Assert.assertEquals("été", s.getObject(4));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testPartialOverlappingAndStridedWrites() throws IOException, InvalidRangeException {
+    File file = tempFolder.newFile("partial.nc4");
+    int nt = 9, ny = 70, nx = 110; // 9 * 18 * 28 = 4536 chunks, so the B-tree has three levels
+    NetcdfFileWriter writer = createNew(NetcdfFileWriter.Version.netcdf4, file, new FixedChunking(1, true, 1, 4, 4));
+    writer.addUnlimitedDimension("time");
+    writer.addDimension(null, "y", ny);
+    writer.addDimension(null, "x", nx);
+    Variable v = writer.addVariable(null, "data", DataType.INT, "time y x");
+    Variable unwritten = writer.addVariable(null, "unwritten", DataType.INT, "time y x");
+    writer.create();
+
+    Array expected = Array.factory(DataType.INT, new int[] {nt, ny, nx});
+    MAMath.setDouble(expected, N3iosp.NC_FILL_INT);
+
+    // overlapping blocks of odd sizes, in reverse time order
+    int count = 0;
+    for (int t = nt - 1; t >= 0; t--) {
+      for (int y = 0; y < ny; y += 13) {
+        for (int x = 0; x < nx; x += 17) {
+          int[] origin = {t, y, x};
+          int[] shape = {1, Math.min(15, ny - y), Math.min(21, nx - x)};
+          Array a = Array.factory(DataType.INT, shape);
+          for (int i = 0; i < a.getSize(); i++)
+            a.setInt(i, count++);
+          writer.write(v, origin, a);
+          copyInto(expected, origin, a);
+        }
+      }
+    }
+
+    // strided write
+    Section strided = new Section(new int[] {2, 1, 3}, new int[] {3, 10, 20}, new int[] {3, 7, 5});
+    Array a = Array.factory(DataType.INT, strided.getShape());
+    for (int i = 0; i < a.getSize(); i++)
+      a.setInt(i, -i);
+    writeStrided(v, strided, a);
+    IndexIterator ii = a.getIndexIterator();
+    for (int t : strided.getRange(0)) {
+      for (int y : strided.getRange(1)) {
+        for (int x : strided.getRange(2))
+          expected.setInt(expected.getIndex().set(t, y, x), ii.getIntNext());
+      }
+    }
+
+    // read back before close, mix of open and stored chunks
+    assertData(expected, v.read());
+    writer.write(unwritten, new int[] {nt - 1, 0, 0}, Array.factory(DataType.INT, new int[] {1, 1, 1}));
+    writer.close();
+
+    try (NetcdfFile ncfile = NetcdfFile.open(file.getPath())) {
+      assertData(expected, ncfile.findVariable("data").read());
+      Array sub = ncfile.findVariable("data").read(new Section("3:5,11:40,7:99"));
+      assertData(expected.sectionNoReduce(new int[] {3, 11, 7}, new int[] {3, 30, 93}, null), sub);
+      Array fill = ncfile.findVariable("unwritten").read();
+      Assert.assertEquals(N3iosp.NC_FILL_INT, fill.getInt(fill.getIndex().set(0, 5, 5)));
+      Assert.assertEquals(0, fill.getInt(fill.getIndex().set(nt - 1, 0, 0)));
+    }
+  }
+
+  // NetcdfFileWriter has no strided write
+  private static void writeStrided(Variable v, Section section, Array a) throws IOException, InvalidRangeException {
+    ((IOServiceProviderWriter) v.getNetcdfFile().getIosp()).writeData(v, section, a);
+  }
+
+  private static void copyInto(Array expected, int[] origin, Array a) throws InvalidRangeException {
+    Array dest = expected.sectionNoReduce(origin, a.getShape(), null);
+    MAMath.copy(dest, a);
+  }
+
+  @Test
+  public void testCopyNetcdf3() throws IOException {
+    for (String name : new String[] {"jan.nc", "testWriteRecord.nc", "example1.nc", "testSpecialChars.nc"}) {
+      File file = new File(tempFolder.getRoot(), name + "4");
+      NetcdfFileWriter.setUseJavaNetcdf4Writer(true);
+      try (NetcdfFile org = NetcdfFile.open(TestDir.cdmLocalTestDataDir + name)) {
+        FileWriter2 writer = new FileWriter2(org, file.getPath(), NetcdfFileWriter.Version.netcdf4, null);
+        writer.write().close();
+
+        try (NetcdfFile copy = NetcdfFile.open(file.getPath())) {
+          Formatter f = new Formatter();
+          boolean ok = new CompareNetcdf2(f).compare(org, copy, new CompareNetcdf2.Netcdf4ObjectFilter(), false,
+              false, true);
+          if (!ok)
+            System.out.printf("%s: %s%n", name, f);
+          Assert.assertTrue(name, ok);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testConcurrentWriters() throws Exception {
+    File file = tempFolder.newFile("concurrent.nc4");
+    int nvars = 6, ny = 200, nx = 300;
+    NetcdfFileWriter writer = createNew(NetcdfFileWriter.Version.netcdf4, file, new FixedChunking(3, true, 50, 100));
+    writer.addDimension(null, "y", ny);
+    writer.addDimension(null, "x", nx);
+    List<Variable> vars = new ArrayList<>();
+    for (int i = 0; i < nvars; i++)
+      vars.add(writer.addVariable(null, "var" + i, DataType.FLOAT, "y x"));
+    writer.create();
+
+    ExecutorService exec = Executors.newFixedThreadPool(nvars);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < nvars; i++) {
+        Variable v = vars.get(i);
+        int start = i * 1000;
+        futures.add(exec.submit(() -> {
+          for (int y = 0; y < ny; y++) // a row at a time
+            writer.write(v, new int[] {y, 0}, makeArray(DataType.FLOAT, new int[] {1, nx}, start + y));
+          return null;
+        }));
+      }
+      for (Future<?> f : futures)
+        f.get();
+    } finally {
+      exec.shutdown();
+    }
+    writer.close();
+
+    try (NetcdfFile ncfile = NetcdfFile.open(file.getPath())) {
+      for (int i = 0; i < nvars; i++) {
+        Array data = ncfile.findVariable("var" + i).read();
+        for (int y = 0; y < ny; y += 37) {
+          Array row = data.section(new int[] {y, 0}, new int[] {1, nx}).reduce();
+          assertData(makeArray(DataType.FLOAT, new int[] {nx}, i * 1000 + y), row);
+        }
+      }
+    }
+  }
+
+  // compare compression threads, and the netCDF-C library if it is present
+  @Test
+  @Category(Slow.class)
+  public void compareThroughput() throws Exception {
+    int nt = 40, ny = 256, nx = 256; // 10 MB
+    Nc4Chunking chunker = new FixedChunking(5, true, 1, ny, nx);
+    double mbytes = 4.0 * nt * ny * nx / 1000 / 1000;
+
+    int nthreads = Math.max(2, Runtime.getRuntime().availableProcessors());
+    for (int threads : new int[] {1, nthreads}) {
+      H5iospWriter.setCompressionThreads(threads);
+      File file = new File(tempFolder.getRoot(), "throughput" + threads + ".nc4");
+      NetcdfFileWriter.setUseJavaNetcdf4Writer(true);
+      NetcdfFileWriter writer = NetcdfFileWriter.createNew(NetcdfFileWriter.Version.netcdf4, file.getPath(), chunker);
+      double secs = writeGrid(writer, defineGrid(writer, ny, nx), nt, ny, nx);
+      logger.debug("H5iospWriter {} threads: {} MB in {} secs = {} MB/sec, file size {}", threads, mbytes, secs,
+          mbytes / secs, file.length());
+    }
+
+    NetcdfFileWriter.setUseJavaNetcdf4Writer(false);
+    File file = new File(tempFolder.getRoot(), "throughputJni.nc4");
+    NetcdfFileWriter writer;
+    Variable v;
+    try {
+      writer = NetcdfFileWriter.createNew(NetcdfFileWriter.Version.netcdf4, file.getPath(), chunker);
+      v = defineGrid(writer, ny, nx);
+    } catch (IllegalArgumentException | UnsupportedOperationException e) { // no Nc4Iosp, or no netCDF-C library
+      return;
+    }
+    double secs = writeGrid(writer, v, nt, ny, nx);
+    logger.debug("Nc4Iosp: {} MB in {} secs = {} MB/sec, file size {}", mbytes, secs, mbytes / secs, file.length());
+  }
+
+  private Variable defineGrid(NetcdfFileWriter writer, int ny, int nx) throws IOException {
+    writer.addUnlimitedDimension("time");
+    writer.addDimension(null, "y", ny);
+    writer.addDimension(null, "x", nx);
+    Variable v = writer.addVariable(null, "data", DataType.FLOAT, "time y x");
+    writer.create();
+    return v;
+  }
+
+  private double writeGrid(NetcdfFileWriter writer, Variable v, int nt, int ny, int nx) throws Exception {
+    long start = System.nanoTime();
+    Array a = Array.factory(DataType.FLOAT, new int[] {1, ny, nx});
+    for (int t = 0; t < nt; t++) {
+      for (int i = 0; i < a.getSize(); i++)
+        a.setFloat(i, (float) Math.sin(i * 0.001 + t));
+      writer.write(v, new int[] {t, 0, 0}, a);
+    }
+    writer.close();
+    return (System.nanoTime() - start) / 1.0e9;
+  }
+}
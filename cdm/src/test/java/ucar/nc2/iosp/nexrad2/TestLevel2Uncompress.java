@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.iosp.nexrad2;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ucar.unidata.io.InMemoryRandomAccessFile;
+import ucar.unidata.io.RandomAccessFile;
+import ucar.unidata.util.test.category.Slow;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Test uncompressing Level II bzip2 blocks in memory
+ *
+ * @since 10/19/2026
+ */
+public class TestLevel2Uncompress {
+  private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  // bzip2 of "Level II block 0 " and "Level II block 1 " repeated 500 times
+  private static final String[] blocks =
+      {"QlpoOTFBWSZTWR4UTIwAB8+dgEAAQAAAJBoMgQAgAHBANNNAmqkaNMmqQfUg7pBmkGaQYpBihC3SDlINUg3SDlIOUg3SDqkH4u5IpwoSA8KJkYA=",
+          "QlpoOTFBWSZTWWDeVvEAB8+dgEAAIAAAJBoMgQAgAHBANNNAmqkaNMmqQfUg7pBmkGaQYpBihC3SDlINUg3SDlIOUg3SDqkH4u5IpwoSDBvK3iA="};
+
+  @After
+  public void cleanup() {
+    Level2VolumeScan.setUncompressInMemory(0);
+  }
+
+  private byte[] makeFile(int[] order, StringBuilder expect) throws IOException {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bos)) {
+      out.write(Level2VolumeScan.AR2V0006.getBytes(StandardCharsets.US_ASCII));
+      out.write(new byte[Level2Record.FILE_HEADER_SIZE - 8]);
+      for (int i = 0; i < order.length; i++) {
+        byte[] compressed = Base64.getDecoder().decode(blocks[order[i]]);
+        out.writeInt(i == order.length - 1 ? -compressed.length : compressed.length); // last block is negated
+        out.write(compressed);
+        for (int k = 0; k < 500; k++)
+          expect.append("Level II block ").append(order[i]).append(" ");
+      }
+    }
+    return bos.toByteArray();
+  }
+
+  private String uncompress(byte[] file) throws IOException {
+    try (RandomAccessFile raf = new InMemoryRandomAccessFile("test", file)) {
+      RandomAccessFile result = Level2VolumeScan.uncompressInMemory(raf);
+      Assert.assertEquals("test", result.getLocation());
+      byte[] all = new byte[(int) result.length()];
+      result.seek(0);
+      result.readFully(all);
+      Assert.assertEquals(Level2VolumeScan.AR2V0006, new String(all, 0, 8, StandardCharsets.US_ASCII));
+      int start = Level2Record.FILE_HEADER_SIZE;
+      return new String(all, start, all.length - start, StandardCharsets.US_ASCII);
+    }
+  }
+
+  @Test
+  public void testBlockOrder() throws IOException {
+    StringBuilder expect = new StringBuilder();
+    byte[] file = makeFile(new int[] {0, 1, 1, 0, 1, 0, 0}, expect);
+    for (int nthreads : new int[] {1, 4}) {
+      Level2VolumeScan.setUncompressInMemory(nthreads);
+      Assert.assertEquals(expect.toString(), uncompress(file));
+    }
+  }
+
+  // the pool is replaced while files are being uncompressed
+  @Test
+  public void testReconfigureWhileUncompressing() throws Exception {
+    StringBuilder expect = new StringBuilder();
+    int[] order = new int[50];
+    for (int i = 0; i < order.length; i++)
+      order[i] = i % 2;
+    byte[] file = makeFile(order, expect);
+
+    Level2VolumeScan.setUncompressInMemory(4);
+    AtomicBoolean done = new AtomicBoolean();
+    Thread reconfigure = new Thread(() -> {
+      while (!done.get())
+        Level2VolumeScan.setUncompressInMemory(4);
+    });
+    reconfigure.start();
+    try {
+      for (int i = 0; i < 50; i++)
+        Assert.assertEquals(expect.toString(), uncompress(file));
+    } finally {
+      done.set(true);
+      reconfigure.join();
+    }
+  }
+
+  @Test
+  public void testBadBlockSkipped() throws IOException {
+    StringBuilder expect = new StringBuilder();
+    byte[] file = makeFile(new int[] {0, 1}, expect);
+    // corrupt the second block header, after its 4 byte length and "BZh9"
+    int second = Level2Record.FILE_HEADER_SIZE + 4 + Base64.getDecoder().decode(blocks[0]).length + 4 + 4;
+    file[second] ^= 0x55;
+
+    Level2VolumeScan.setUncompressInMemory(4);
+    String result = uncompress(file);
+    Assert.assertEquals(expect.substring(0, expect.length() / 2), result);
+  }
+
+  @Test
+  @Category(Slow.class)
+  public void compareThroughput() throws IOException {
+    StringBuilder expect = new StringBuilder();
+    int[] order = new int[4000];
+    for (int i = 0; i < order.length; i++)
+      order[i] = i % 2;
+    byte[] file = makeFile(order, expect);
+
+    int ncores = Runtime.getRuntime().availableProcessors();
+    for (int pass = 0; pass < 3; pass++) {
+      for (int nthreads : new int[] {1, 2, ncores}) {
+        Level2VolumeScan.setUncompressInMemory(nthreads);
+        long start = System.nanoTime();
+        String result = uncompress(file);
+        long took = System.nanoTime() - start;
+        Assert.assertEquals(expect.length(), result.length());
+        logger.debug("{} blocks, {} threads: {} msecs", order.length, nthreads, took / 1000000);
+      }
+    }
+    Assert.assertEquals(expect.toString(), uncompress(file));
+  }
+
+}
@@ -0,0 +1,84 @@
+package ucar.nc2.time;
+
+import org.junit.Assert;
+import org.junit.Test;
+import ucar.ma2.InvalidRangeException;
+import ucar.ma2.Range;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Test CalendarDateList
+ *
+ * @since 10/19/2026
+ */
+public class TestCalendarDateList {
+
+  private void checkSameAsUnit(CalendarDateUnit unit, double[] values) {
+    CalendarDateList list = CalendarDateList.of(unit, values);
+    Assert.assertEquals(values.length, list.size());
+    for (int i = 0; i < values.length; i++) {
+      CalendarDate expected = unit.makeCalendarDate(values[i]);
+      Assert.assertEquals(expected, list.get(i));
+      Assert.assertEquals(expected.getMillis(), list.getMillis(i));
+    }
+  }
+
+  @Test
+  public void testSameAsCalendarDateUnit() {
+    double[] values = {0, 1, 1.5, 24, 10000, 123456.25};
+    checkSameAsUnit(CalendarDateUnit.of(null, "hours since 1970-01-01T00:00:00"), values);
+    checkSameAsUnit(CalendarDateUnit.of(null, "days since 1850-01-01"), values);
+    checkSameAsUnit(CalendarDateUnit.of("noleap", "days since 0001-01-01"), values);
+    checkSameAsUnit(CalendarDateUnit.of("360_day", "hours since 2000-01-01"), values);
+    checkSameAsUnit(CalendarDateUnit.of(null, "calendar months since 2000-01-31"), new double[] {0, 1, 2, 13});
+  }
+
+  @Test
+  public void testFindIndex() {
+    CalendarDateUnit unit = CalendarDateUnit.of(null, "hours since 2000-01-01");
+    int n = 500 * 1000;
+    double[] values = new double[n];
+    for (int i = 0; i < n; i++)
+      values[i] = i;
+    CalendarDateList list = CalendarDateList.of(unit, values);
+    Assert.assertTrue(list.isAscending());
+
+    Assert.assertEquals(0, list.findIndex(unit.makeCalendarDate(-10.0)));
+    Assert.assertEquals(0, list.findIndex(unit.makeCalendarDate(0.0)));
+    Assert.assertEquals(1234, list.findIndex(unit.makeCalendarDate(1234.0)));
+    Assert.assertEquals(1234, list.findIndex(unit.makeCalendarDate(1234.5)));
+    Assert.assertEquals(n - 1, list.findIndex(unit.makeCalendarDate(n + 10.0)));
+
+    Assert.assertTrue(list.contains(unit.makeCalendarDate(4321.0)));
+    Assert.assertFalse(list.contains(unit.makeCalendarDate(4321.5)));
+    Assert.assertEquals(4321, list.indexOf(unit.makeCalendarDate(4321.0)));
+  }
+
+  @Test
+  public void testNotAscending() {
+    CalendarDateUnit unit = CalendarDateUnit.of(null, "days since 2000-01-01");
+    CalendarDateList list = CalendarDateList.of(unit, new double[] {10, 20, 5, 30});
+    Assert.assertFalse(list.isAscending());
+    Assert.assertEquals(2, list.indexOf(unit.makeCalendarDate(5.0)));
+    // same result as a linear search for the first date greater than the target
+    Assert.assertEquals(2, list.findIndex(unit.makeCalendarDate(25.0)));
+    Assert.assertEquals(3, list.findIndex(unit.makeCalendarDate(31.0)));
+  }
+
+  @Test
+  public void testFromListAndSection() throws InvalidRangeException {
+    List<CalendarDate> dates = new ArrayList<>();
+    for (int i = 0; i < 10; i++)
+      dates.add(CalendarDate.of(null, 2000 + i, 1, 1, 0, 0, 0));
+    CalendarDateList list = CalendarDateList.of(dates);
+    Assert.assertEquals(dates, list);
+
+    CalendarDateList section = list.section(new Range(2, 8, 3));
+    Assert.assertEquals(3, section.size());
+    Assert.assertEquals(dates.get(2), section.get(0));
+    Assert.assertEquals(dates.get(5), section.get(1));
+    Assert.assertEquals(dates.get(8), section.get(2));
+  }
+
+}
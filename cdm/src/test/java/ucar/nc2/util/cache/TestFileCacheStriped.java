@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.util.cache;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ucar.nc2.dataset.DatasetUrl;
+import ucar.nc2.util.CancelTask;
+import ucar.unidata.util.test.category.Slow;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.util.Formatter;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test FileCacheStriped, and compare its throughput under contention with the other FileCacheIF implementations.
+ *
+ * @since 10/19/2026
+ */
+public class TestFileCacheStriped {
+  private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  @AfterClass
+  public static void shutdown() {
+    FileCacheStriped.shutdown();
+  }
+
+  // a FileCacheable that only counts
+  static class FakeFile implements FileCacheable {
+    static final AtomicInteger opened = new AtomicInteger();
+    static final AtomicInteger closed = new AtomicInteger();
+
+    final String location;
+    volatile long lastModified = 1;
+    volatile FileCacheIF cache;
+    volatile boolean isClosed;
+
+    FakeFile(String location) {
+      this.location = location;
+      opened.incrementAndGet();
+    }
+
+    public String getLocation() {
+      return location;
+    }
+
+    public void close() throws IOException {
+      if (cache != null && cache.release(this))
+        return;
+      isClosed = true;
+      closed.incrementAndGet();
+    }
+
+    public long getLastModified() {
+      return lastModified;
+    }
+
+    public void setFileCache(FileCacheIF fileCache) {
+      this.cache = fileCache;
+    }
+
+    public void release() {}
+
+    public void reacquire() {}
+  }
+
+  private static final FileFactory factory = new FileFactory() {
+    public FileCacheable open(DatasetUrl location, int buffer_size, CancelTask cancelTask, Object iospMessage) {
+      return new FakeFile(location.trueurl);
+    }
+  };
+
+  private static DatasetUrl durl(int i) {
+    return new DatasetUrl(null, "file" + i);
+  }
+
+  @Test
+  public void testAcquireRelease() throws IOException {
+    FileCacheStriped cache = new FileCacheStriped("test", 5, 10, 20, 0);
+    FakeFile f1 = (FakeFile) cache.acquire(factory, durl(1));
+    FakeFile f2 = (FakeFile) cache.acquire(factory, durl(1)); // f1 is locked
+    Assert.assertNotSame(f1, f2);
+    Assert.assertEquals(2, cache.size());
+
+    f1.close();
+    Assert.assertFalse(f1.isClosed);
+    Assert.assertSame(f1, cache.acquire(factory, durl(1)));
+    f1.close();
+    f2.close();
+    Assert.assertSame(f2, cache.acquire(factory, durl(1))); // most recently released
+    f2.close();
+
+    // changed on disk
+    f1.lastModified = f2.lastModified = 2;
+    FakeFile f3 = (FakeFile) cache.acquire(factory, durl(1));
+    Assert.assertNotSame(f1, f3);
+    Assert.assertNotSame(f2, f3);
+    Assert.assertTrue(f1.isClosed);
+    Assert.assertTrue(f2.isClosed);
+    Assert.assertEquals(1, cache.size());
+
+    // not in the cache
+    Assert.assertFalse(cache.release(new FakeFile("other")));
+
+    Formatter f = new Formatter();
+    cache.showCache(f);
+    logger.debug("{}", f);
+    f3.close();
+    cache.clearCache(false);
+    Assert.assertTrue(f3.isClosed);
+    Assert.assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void testEject() throws IOException {
+    FileCacheStriped cache = new FileCacheStriped("test", 5, 10, 20, 0);
+    FakeFile f1 = (FakeFile) cache.acquire(factory, durl(1));
+    FakeFile f2 = (FakeFile) cache.acquire(factory, durl(1));
+    f1.close();
+    cache.eject("file1");
+    Assert.assertTrue(f1.isClosed);
+    Assert.assertFalse(f2.isClosed); // in use
+    Assert.assertEquals(0, cache.size());
+    f2.close();
+    Assert.assertTrue(f2.isClosed);
+  }
+
+  @Test
+  public void testCleanup() throws IOException, InterruptedException {
+    FileCacheStriped cache = new FileCacheStriped("test", 5, 10, 20, 0);
+    FakeFile[] files = new FakeFile[25];
+    for (int i = 0; i < files.length; i++)
+      files[i] = (FakeFile) cache.acquire(factory, durl(i));
+    Assert.assertEquals(25, cache.size()); // all locked
+    Thread.sleep(200); // let the scheduled cleanup find nothing to do
+    for (FakeFile file : files) {
+      file.close();
+      Thread.sleep(2); // distinct lastAccessed
+    }
+
+    // hard limit: cleanup in the calling thread, oldest files are closed first
+    FakeFile f = (FakeFile) cache.acquire(factory, durl(100));
+    Assert.assertEquals(5, cache.size());
+    for (int i = 0; i < files.length; i++)
+      Assert.assertEquals(i < 21, files[i].isClosed);
+    f.close();
+
+    // soft limit: background cleanup
+    for (int i = 0; i < 10; i++)
+      cache.acquire(factory, durl(200 + i)).close();
+    long start = System.currentTimeMillis();
+    while (cache.size() > 5 && System.currentTimeMillis() - start < 5000)
+      Thread.sleep(10);
+    Assert.assertEquals(5, cache.size());
+
+    // incremental
+    Assert.assertFalse(cache.cleanup(10, 100));
+    cache.clearCache(true);
+    cache = new FileCacheStriped("test", 5, 0, 0, 0); // no automatic cleanup
+    for (int i = 0; i < 20; i++)
+      cache.acquire(factory, durl(300 + i)).close();
+    Assert.assertTrue(cache.cleanup(10, 5));
+    Assert.assertEquals(15, cache.size());
+    cache.clearCache(true);
+  }
+
+  //////////////////////////////////////////////////////////////////////////////////////
+  // contention
+
+  private static final int NTHREADS = 32;
+  private static final int NKEYS = 50;
+  private static final int NOPS = 20000; // per thread
+
+  private long contention(FileCacheIF cache) throws Exception {
+    ExecutorService pool = Executors.newFixedThreadPool(NTHREADS);
+    CountDownLatch startGate = new CountDownLatch(1);
+    try {
+      Future<?>[] futures = new Future[NTHREADS];
+      for (int t = 0; t < NTHREADS; t++) {
+        final int seed = t;
+        futures[t] = pool.submit(() -> {
+          startGate.await();
+          ThreadLocalRandom r = ThreadLocalRandom.current();
+          for (int i = 0; i < NOPS; i++) {
+            int key = (seed + r.nextInt(NKEYS)) % NKEYS;
+            FileCacheable ncfile = cache.acquire(factory, durl(key));
+            Assert.assertEquals("file" + key, ncfile.getLocation());
+            ncfile.close();
+          }
+          return null;
+        });
+      }
+      long start = System.nanoTime();
+      startGate.countDown();
+      for (Future<?> f : futures)
+        f.get();
+      return System.nanoTime() - start;
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  @Category(Slow.class)
+  public void compareContention() throws Exception {
+    for (int pass = 0; pass < 2; pass++) {
+      FileCacheIF[] caches = {new FileCache("FileCache", NKEYS / 2, NKEYS, 2 * NKEYS, 0),
+          new FileCacheARC("FileCacheARC", NKEYS / 2, NKEYS, 2 * NKEYS, 0),
+          new FileCacheGuava("FileCacheGuava", 2 * NKEYS),
+          new FileCacheStriped("FileCacheStriped", NKEYS / 2, NKEYS, 2 * NKEYS, 0)};
+      for (FileCacheIF cache : caches) {
+        long took = contention(cache);
+        Formatter f = new Formatter();
+        cache.showStats(f);
+        logger.debug("{} {} threads: {} acquire/release per sec {}", cache.getClass().getSimpleName(), NTHREADS,
+            NTHREADS * NOPS * 1000000000L / took, f);
+        cache.clearCache(true);
+      }
+    }
+  }
+
+  // the striped cache never hands out a file twice
+  @Test
+  public void testNotSharedUnderContention() throws Exception {
+    FileCacheStriped cache = new FileCacheStriped("check", NKEYS / 2, NKEYS, 2 * NKEYS, 0);
+    ConcurrentHashMap<FileCacheable, Boolean> inUse = new ConcurrentHashMap<>();
+    ExecutorService pool = Executors.newFixedThreadPool(NTHREADS);
+    try {
+      Future<?>[] futures = new Future[NTHREADS];
+      for (int t = 0; t < NTHREADS; t++) {
+        futures[t] = pool.submit(() -> {
+          ThreadLocalRandom r = ThreadLocalRandom.current();
+          for (int i = 0; i < NOPS / 10; i++) {
+            FileCacheable ncfile = cache.acquire(factory, durl(r.nextInt(NKEYS)));
+            Assert.assertNull(inUse.put(ncfile, true));
+            Assert.assertFalse(((FakeFile) ncfile).isClosed);
+            inUse.remove(ncfile);
+            ncfile.close();
+          }
+          return null;
+        });
+      }
+      for (Future<?> f : futures)
+        f.get();
+    } finally {
+      pool.shutdown();
+    }
+    cache.clearCache(true);
+    Assert.assertEquals(0, cache.size());
+  }
+
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.util.cache;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.Variable;
+import ucar.unidata.util.test.TestDir;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Formatter;
+
+/**
+ * Test SharedDataCache
+ *
+ * @since 10/19/2026
+ */
+public class TestSharedDataCache {
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @After
+  public void cleanup() {
+    SharedDataCache.getInstance().setMaxBytes(0);
+    SharedDataCache.getInstance().clear();
+    SharedDataCache.getInstance().resetStatistics();
+  }
+
+  private Array makeArray(int n, double start) {
+    return Array.makeArray(DataType.DOUBLE, n, start, 1.0);
+  }
+
+  @Test
+  public void testDisabled() {
+    SharedDataCache cache = new SharedDataCache();
+    Array data = makeArray(10, 0);
+    Assert.assertSame(data, cache.put("key", data));
+    Assert.assertNull(cache.get("key"));
+    Assert.assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void testDedup() {
+    SharedDataCache cache = new SharedDataCache();
+    cache.setMaxBytes(10000);
+    Array a = cache.put("a", makeArray(100, 0));
+    Array b = cache.put("b", makeArray(100, 0));
+    Assert.assertSame(a, b);
+    Assert.assertEquals(1, cache.getDedups());
+    Assert.assertEquals(800, cache.getBytes());
+
+    Array c = cache.put("c", makeArray(100, 1));
+    Assert.assertNotSame(a, c);
+    Assert.assertEquals(1600, cache.getBytes());
+
+    // same values, different type or shape
+    cache.put("d", Array.makeArray(DataType.LONG, 100, 0, 1));
+    cache.put("e", makeArray(100, 0).reshape(new int[] {10, 10}));
+    Assert.assertEquals(1, cache.getDedups());
+    Assert.assertEquals(3200, cache.getBytes());
+    Assert.assertSame(a, cache.get("b"));
+  }
+
+  @Test
+  public void testEviction() {
+    SharedDataCache cache = new SharedDataCache();
+    cache.setMaxBytes(2000);
+    cache.put("a", makeArray(100, 0));
+    cache.put("b", makeArray(100, 1));
+    cache.put("a2", makeArray(100, 0)); // shared with a
+    Assert.assertNotNull(cache.get("a")); // b is now least recently used
+    cache.put("c", makeArray(100, 2));
+    Assert.assertEquals(1, cache.getEvictions());
+    Assert.assertNull(cache.get("b"));
+    Assert.assertNotNull(cache.get("a2"));
+    Assert.assertEquals(1600, cache.getBytes());
+
+    // evicting one of two keys sharing an array does not free it
+    cache.setMaxBytes(1600);
+    cache.get("c");
+    cache.get("a2");
+    cache.put("d", makeArray(100, 3));
+    Assert.assertNull(cache.get("a"));
+    Assert.assertNull(cache.get("c"));
+    Assert.assertNotNull(cache.get("a2"));
+    Assert.assertEquals(1600, cache.getBytes());
+
+    cache.put("big", makeArray(1000, 0)); // larger than the budget
+    Assert.assertNull(cache.get("big"));
+
+    Formatter f = new Formatter();
+    cache.showStatus(f);
+    System.out.printf("%s%n", f);
+    cache.setMaxBytes(0);
+    Assert.assertEquals(0, cache.size());
+    Assert.assertEquals(0, cache.getBytes());
+  }
+
+  private File copy(String name, String copyName) throws IOException {
+    File result = new File(tempFolder.getRoot(), copyName);
+    Files.copy(new File(TestDir.cdmLocalTestDataDir + name).toPath(), result.toPath());
+    return result;
+  }
+
+  @Test
+  public void testAcrossFiles() throws IOException {
+    SharedDataCache cache = SharedDataCache.getInstance();
+    cache.setMaxBytes(1000 * 1000);
+    File file1 = copy("jan.nc", "jan1.nc");
+    File file2 = copy("jan.nc", "jan2.nc");
+
+    Array lat1;
+    try (NetcdfFile ncfile = NetcdfFile.open(file1.getPath())) {
+      lat1 = ncfile.findVariable("lat").read();
+    }
+    Assert.assertEquals(1, cache.getMisses());
+
+    // reopen: read from the shared cache
+    try (NetcdfFile ncfile = NetcdfFile.open(file1.getPath())) {
+      Array lat = ncfile.findVariable("lat").read();
+      Assert.assertEquals(1, cache.getHits());
+      Assert.assertEquals(lat1.toString(), lat.toString());
+    }
+
+    // another file with the same coordinates: stored once
+    long bytes = cache.getBytes();
+    try (NetcdfFile ncfile = NetcdfFile.open(file2.getPath())) {
+      ncfile.findVariable("lat").read();
+      Assert.assertEquals(2, cache.getMisses());
+      Assert.assertEquals(1, cache.getDedups());
+      Assert.assertEquals(bytes, cache.getBytes());
+
+      // opt out
+      Variable lon = ncfile.findVariable("lon");
+      lon.setSharedCaching(false);
+      int size = cache.size();
+      lon.read();
+      Assert.assertEquals(size, cache.size());
+    }
+
+    // changed file is not found
+    Assert.assertTrue(file1.setLastModified(file1.lastModified() + 10 * 1000));
+    try (NetcdfFile ncfile = NetcdfFile.open(file1.getPath())) {
+      ncfile.findVariable("lat").read();
+      Assert.assertEquals(3, cache.getMisses());
+    }
+  }
+
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.unidata.io.bzip2;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ucar.unidata.util.test.category.Slow;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandles;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Test BZip2InputStream and BZip2BlockDecoder against CBZip2InputStream
+ *
+ * @since 10/19/2026
+ */
+public class TestBZip2InputStream {
+  private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  // bzip2 -9 of runs()
+  private static final String RUNS = "QlpoOTFBWSZTWReEB5gAACx//H////////////////////////////////wAQAGzjAwj1SqB+1UAAAAAAAGhoG9UDIG0b1Uz1QAA"
+      + "AYgMhoAaAHqGgaeoyGmnqNqaep6non6p6aegkMSEwmACN/+qqJkwEwAmmaJgmANDQCMATIYABDBDBMAEwAAmAmJiGBMAEGjIGTQB"
+      + "kaNNABphMhiGmjQaAADRowI0yAGgZBpoBkDQ0BoZMgA0aAANMBpKgPUAAAAAAAAAAAAGgAAAAAAAAAAAAAAAAAAhYaHiImKTRcZG"
+      + "p46PkJGSk5T1+yVlpeVlpcAAAAAAAAAAAABbQRdkyt7vrk/xUQRQ7kjOkQQ8aCKWPXqK1zP8qIoKqQiYTALIJ4PKtPf6/eccQJnM"
+      + "AwEAZ+lF2rwtnwOIg2mAZyAboSZZq/F2/E4iDoYBvIB1ip5vs8jd8jiIPZgHcgHw9RvFvl7/mcRCCMA/kBBytQ83edw+hxEIkwEO"
+      + "QEVN1r1f6PH6nEQPGAjSPGBRcSnnO/7vxarAfk+pDdcqpb8cGHIWAwfKQ4PN7LcCtsrZYDCjUhyKiqbq/nEeWAwcUhzOt4m/b9Ys"
+      + "lYDBxSFR3IDcGFGlLAYOKQ6/h9TddY2ktYDBxSFVArNhX2TsxYDBxSHk9c9Wwv3Ht1gMHFIVcGer4caQ0iD8o1IVnynYX6tLZpEK"
+      + "EolIV1hr4cV15pEKA2qkLCx10SzjyWkQfDFIQ4mtjOyJTSIT4/UhFs9Y7avS2kQ2hQqQdj6uQ9KmNIhsygUg9JblS5lu0iD6dnNJ"
+      + "ncrjRdVk8R6nzzuLWy+KEf0ru4tnlAAAAAAAAAAAAAAAAAAAAAAAAAADvF3JFOFCQF4QHmA=";
+
+  // bzip2 -1 of "Level II block 0 " repeated 12000 times, 3 blocks
+  private static final String TEXT = "QlpoMTFBWSZTWVsgUIwAW+QdgEAAQAAAJBoMgQAwALgIBppoIBppoE1UjQxPlAi0oEXagRZUCLKgRYUCLEoEWsKBFtQIuSBFqQIu"
+      + "KBF4oEXFAi2oEXUgRfmKCskyms+1GcGABKqg7AIAAgAAASDQZAgBgAXAQDTTQQDTTQJqpGjTJpQIvpAi7UCLKgRZUCLCgRYkCLGJ"
+      + "QItqBFxQItKBFtQIvOKBFxQItqBF0oEX5igrJMprKjJYVSAAO2OwCAAIAAAEg0GQIAQADggGmmgTVSNGmTGoR8iOkRlEZCMIjFSi"
+      + "3COIjSI3COIjkI3COkR+LuSKcKEhoKvh8g==";
+
+  // bzip2 -9 of random()
+  private static final String RANDOM = "QlpoOTFBWSZTWTV6MgYABOxBAEAAP8BgB52D5tJ7rUOrZrduu7nA1prtrniDJiCJ4CoGpmamqBqn4EkIMmIGp4EoLGwXT73qjdhI"
+      + "ZC7PCSqBhFhSVV7QxsE1YY3dRSjXx4rlevtMMHCIjO0Tt060DmXEZuyLsYIkDBdQOBLQgT6t3FdLmgaFdpFCYtj1ztakAe3LiVeC"
+      + "eXFSU0zliT1WKJFci0kRpK8RywVtzFF1TeqfXgmyZs8Y6IJ6FhdMKHEilplzFxhJwM4PHbpfUPpMNmbOW2moBiPTV4g4Y8hAaoTy"
+      + "lUFZtBdnQiJjHubdfsn5t1D7fE3sXNM1a357tGd53hj7FQR9RxYrCDig4cQrJzrNQ400wpLho0KhqIpBTA29EFE7qjyi4woN7Fp8"
+      + "kCeiZhQzO6bFcLJlo0T0VuIoaN3ZnMCbhs67fWtjsLi2aBjtM3BNxum1ymipBxTN75/RYYP7TPSOIk+inst83RCfXieCxt089GIA"
+      + "1XDretj5+4nPnpPCiEKrTwdHc4t1YLXThu6mUDKkS1a2KXMd0E2GKYXXHYjY2E51FWqPFOxc2Vzys65gTWqeHrGYaWIN7R7QPsWS"
+      + "qPR+oc6ibmLokryRLbnR5UyLmU0KXnOzomNqjyUPGHbXiBtQTahVA8axvDckpEuTeoVSgeF8zTqeU9MfpVN90i5JTFNpUry6Bckn"
+      + "8aKyuxDeoRnNA84hLjcRGwNll1aEBiWfXCdBCsb2CkWUMfeLlnB2Ze8Z4hQcISxbbQ8ZysfLnyipOvCKu4uYIt9RXu4q7s5Youe6"
+      + "+eMLUWpzHMaY4g9t2Fn1++EJHW6CAyL5IySbacawA06pywoVXSUHhrpRhBiysKOoxDOfUvgy5LCUe00E5lTSCeqPHs4ptydQxeFb"
+      + "oZpyzdvgb5UuiBuO9DZF072xSU6We6A1jNY08s8FMyRVSGNpRwfiplFasyBMIl7ZC8ItE0QThwtdd4qaEHdDnSQuBPbgUK9lgVwT"
+      + "lEge3N7nTmefNu6x7w5YjWZ3zxZFXLTryCGzwW3o3LQLhE1cpmxZONMKXOIsXhxMo7ZwdWbJMKNWkdtZmenrpwmILhFDMFIgyFls"
+      + "ripi+K2Sw3otwsIm4eBRe+cxfDJ2dU6hHGy8d2ygOj5nlQsjptu1Z4zCs4Fgang+CwT3GkqkoWOYdZoRUkKCCuaLsJaZOKSAl1Ya"
+      + "pvshOktXA0NcRuSgA0QmlUugSWpPYIijYJpic3L2hGd11550hE8ApKPFrORavinK+iG5Ibtw3J7WnotmuwB5JWnjK56APPHLVrFC"
+      + "L0rcGOE1iK5kXn1E0al4EwiMIVC9UVjepKQReXsd0T0olHPUBs47iosE7SYhZzCxDz6zuhiNaU6veAkdMCSJ4dkoimTBsxRtruzg"
+      + "pxrQxp5zXgDdmp0pwezKy3aiy1KIFRZjNG8CdTde3Qnewsi5dkg+r1dji24DnxaKM8MLuOfXTAdsCFI4iPMnZJsM0mWD6KRuCEn2"
+      + "w7g6/QiQMrkL0MxnJjG2lISKDDBB8o1hHis61ubhjZrI07cVwjUSODm54i+x51uh9xBqwQCR44dh1DYMOlI4wRCvuc+960+XglJh"
+      + "7BKI0reJ7twaDBLRo1WBgkmfW0qJ/IO8K/F3JFOFCQNXoyBg";
+
+  // byte runs of length 1 to 200
+  private static byte[] runs() {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    for (int i = 0; i < 200; i++) {
+      for (int k = 0; k <= i; k++)
+        bos.write('A' + i % 26);
+    }
+    return bos.toByteArray();
+  }
+
+  private static byte[] text() {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 12000; i++)
+      sb.append("Level II block 0 ");
+    return sb.toString().getBytes(StandardCharsets.US_ASCII);
+  }
+
+  // 3000 of 'a' to 'h', from a linear congruential generator
+  private static byte[] random() {
+    byte[] result = new byte[3000];
+    long x = 1;
+    for (int i = 0; i < result.length; i++) {
+      x = (x * 1103515245 + 12345) & 0x7fffffff;
+      result[i] = (byte) ('a' + ((x >> 16) & 7));
+    }
+    return result;
+  }
+
+  private static byte[] decode(String base64) {
+    return Base64.getDecoder().decode(base64);
+  }
+
+  private static byte[] readAll(InputStream in) throws IOException {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    byte[] buf = new byte[7919];
+    int n;
+    while ((n = in.read(buf)) != -1)
+      bos.write(buf, 0, n);
+    return bos.toByteArray();
+  }
+
+  // skip "BZ", as the streams expect
+  private static InputStream input(byte[] compressed) {
+    return new ByteArrayInputStream(compressed, 2, compressed.length - 2);
+  }
+
+  @Test
+  public void testSameAsCBZip2() throws IOException {
+    String[] compressed = {RUNS, TEXT, RANDOM};
+    byte[][] expected = {runs(), text(), random()};
+    BZip2InputStream bzip2 = new BZip2InputStream(); // reused
+    for (int i = 0; i < compressed.length; i++) {
+      byte[] c = decode(compressed[i]);
+      Assert.assertArrayEquals(expected[i], readAll(new CBZip2InputStream(input(c))));
+      bzip2.setStream(input(c));
+      Assert.assertArrayEquals(expected[i], readAll(bzip2));
+      Assert.assertEquals(-1, bzip2.read());
+    }
+  }
+
+  @Test
+  public void testReadByte() throws IOException {
+    byte[] expected = runs();
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    try (InputStream in = new BZip2InputStream(new ByteArrayInputStream(decode(RUNS)), true)) {
+      int b;
+      while ((b = in.read()) != -1)
+        bos.write(b);
+    }
+    Assert.assertArrayEquals(expected, bos.toByteArray());
+  }
+
+  @Test
+  public void testNotBzip2() throws IOException {
+    BZip2InputStream bzip2 = new BZip2InputStream(new ByteArrayInputStream("hX000000000000".getBytes()));
+    Assert.assertEquals(-1, bzip2.read());
+  }
+
+  @Test
+  public void testBlocks() throws IOException {
+    byte[] c = decode(TEXT);
+    BZip2BlockDecoder decoder = new BZip2BlockDecoder(c, 0, c.length);
+    decoder.setBlockSize100k(c[3] - '0');
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    byte[] buf = new byte[1000];
+    long[] start = new long[3];
+    int[] size = new int[3];
+    int nblocks = 0;
+    long pos = BZip2BlockDecoder.findBlock(c, 0, c.length, 0);
+    Assert.assertEquals(32, pos); // after "BZh1"
+    while (true) {
+      long next = decoder.decodeBlock(pos);
+      if (next < 0)
+        break;
+      start[nblocks] = pos;
+      int n;
+      while ((n = decoder.read(buf, 0, buf.length)) > 0) {
+        bos.write(buf, 0, n);
+        size[nblocks] += n;
+      }
+      nblocks++;
+      pos = next;
+    }
+    Assert.assertEquals(3, nblocks);
+    Assert.assertArrayEquals(text(), bos.toByteArray());
+
+    // find and decode the last block by itself
+    long last = BZip2BlockDecoder.findBlock(c, 0, c.length, start[1] + 1);
+    Assert.assertEquals(start[2], last);
+    Assert.assertTrue(decoder.decodeBlock(last) > last);
+    int total = 0, n;
+    while ((n = decoder.read(buf, 0, buf.length)) > 0)
+      total += n;
+    Assert.assertEquals(size[2], total);
+  }
+
+  // reading a stream must not write into an array given to an earlier setInput()
+  @Test
+  public void testStreamAfterArray() throws IOException {
+    byte[] c = decode(TEXT);
+    byte[] buf = new byte[10000];
+    System.arraycopy(c, 0, buf, 0, c.length);
+    byte[] copy = buf.clone();
+    BZip2BlockDecoder decoder = new BZip2BlockDecoder(buf, 0, c.length);
+    decoder.setBlockSize100k(c[3] - '0');
+    Assert.assertTrue(decoder.decodeBlock(32) > 0);
+
+    byte[] r = decode(RANDOM);
+    decoder.setInput(input(r));
+    Assert.assertTrue(decoder.readStreamHeader());
+    Assert.assertTrue(decoder.decodeNextBlock());
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    byte[] b = new byte[1000];
+    int n;
+    while ((n = decoder.read(b, 0, b.length)) > 0)
+      bos.write(b, 0, n);
+    Assert.assertArrayEquals(random(), bos.toByteArray());
+    Assert.assertArrayEquals(copy, buf);
+  }
+
+  @Test
+  public void testCorrupt() throws IOException {
+    byte[] c = decode(RANDOM);
+    c[10] ^= 1; // block CRC
+    BZip2InputStream bzip2 = new BZip2InputStream(input(c));
+    try {
+      readAll(bzip2);
+      Assert.fail();
+    } catch (BZip2ReadException e) {
+      Assert.assertTrue(e.getMessage().startsWith("CRC error"));
+    }
+
+    c = decode(RANDOM);
+    bzip2.setStream(new ByteArrayInputStream(c, 2, c.length / 2)); // truncated
+    try {
+      readAll(bzip2);
+      Assert.fail();
+    } catch (BZip2ReadException e) {
+      Assert.assertEquals("Compressed Stream EOF", e.getMessage());
+    }
+  }
+
+  @Test
+  @Category(Slow.class)
+  public void compareTiming() throws IOException {
+    for (String s : new String[] {TEXT, RANDOM}) {
+      byte[] c = decode(s);
+      long size = readAll(new CBZip2InputStream(input(c))).length;
+      int n = (int) (20 * 1000 * 1000 / size);
+      CBZip2InputStream old = new CBZip2InputStream();
+      BZip2InputStream bzip2 = new BZip2InputStream();
+      for (int pass = 0; pass < 3; pass++) {
+        long start = System.nanoTime();
+        for (int i = 0; i < n; i++) {
+          old.setStream(input(c));
+          readAll(old);
+        }
+        long took = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int i = 0; i < n; i++) {
+          bzip2.setStream(input(c));
+          readAll(bzip2);
+        }
+        long tookNew = System.nanoTime() - start;
+        logger.debug("uncompress {} MB: CBZip2InputStream {} MB/s, BZip2InputStream {} MB/s", n * size / 1000000,
+            n * size * 1000 / took, n * size * 1000 / tookNew);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,211 @@
+package ucar.unidata.io.http;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.Assert;
+import org.junit.Test;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test HTTPBlockCache, and HTTPRandomAccessFile against an embedded HTTP server.
+ *
+ * @since 10/19/2026
+ */
+public class TestHTTPBlockCache {
+
+  private static byte[] makeData(int n) {
+    byte[] data = new byte[n];
+    for (int i = 0; i < n; i++)
+      data[i] = (byte) (i * 31 + 7);
+    return data;
+  }
+
+  // serves ranges out of data, and records the requests
+  private static class FakeReader implements HTTPBlockCache.RangeReader {
+    final byte[] data;
+    final List<long[]> requests = Collections.synchronizedList(new ArrayList<>());
+
+    FakeReader(byte[] data) {
+      this.data = data;
+    }
+
+    @Override
+    public int readRange(long pos, byte[] buff, int offset, int len) {
+      requests.add(new long[] {pos, len});
+      int n = (int) Math.min(len, data.length - pos);
+      System.arraycopy(data, (int) pos, buff, offset, n);
+      return n;
+    }
+  }
+
+  private void checkRead(HTTPBlockCache cache, FakeReader reader, long pos, int len) throws IOException {
+    byte[] buff = new byte[len];
+    int n = cache.read("test", reader.data.length, reader, pos, buff, 0, len);
+    int expect = (int) Math.min(len, reader.data.length - pos);
+    Assert.assertEquals(expect, n);
+    for (int i = 0; i < n; i++)
+      Assert.assertEquals(reader.data[(int) pos + i], buff[i]);
+  }
+
+  @Test
+  public void testReadThroughCache() throws IOException {
+    FakeReader reader = new FakeReader(makeData(10000));
+    HTTPBlockCache cache = new HTTPBlockCache(1000, 1000 * 1000, 100, 1);
+
+    checkRead(cache, reader, 0, 100);
+    checkRead(cache, reader, 50, 200); // same block
+    Assert.assertEquals(1, reader.requests.size());
+    Assert.assertEquals(1, cache.getHits());
+    Assert.assertEquals(1, cache.getMisses());
+
+    checkRead(cache, reader, 2500, 3000); // blocks 2-5, one coalesced request
+    Assert.assertEquals(2, reader.requests.size());
+    Assert.assertEquals(2000, reader.requests.get(1)[0]);
+    Assert.assertEquals(4000, reader.requests.get(1)[1]);
+
+    checkRead(cache, reader, 9990, 100); // partial last block
+    byte[] buff = new byte[10];
+    Assert.assertEquals(-1, cache.read("test", 10000, reader, 10000, buff, 0, 10));
+    Assert.assertEquals(3, cache.getRequests());
+    Assert.assertEquals(1000 + 4000 + 1000, cache.getBytesFetched());
+  }
+
+  @Test
+  public void testCoalesceAroundHits() throws IOException {
+    FakeReader reader = new FakeReader(makeData(10000));
+    HTTPBlockCache cache = new HTTPBlockCache(1000, 1000 * 1000, 3, 4);
+    try {
+      checkRead(cache, reader, 4000, 1000); // block 4 is cached
+      reader.requests.clear();
+
+      checkRead(cache, reader, 0, 10000); // misses 0-3 and 5-9, each split at 3 blocks
+      Assert.assertEquals(4, reader.requests.size());
+      long total = 0;
+      for (long[] req : reader.requests)
+        total += req[1];
+      Assert.assertEquals(9000, total);
+
+      reader.requests.clear();
+      checkRead(cache, reader, 0, 10000);
+      Assert.assertEquals(0, reader.requests.size());
+      Assert.assertTrue(cache.getHitRatio() > 0.5);
+    } finally {
+      cache.shutdown();
+    }
+  }
+
+  @Test
+  public void testEviction() throws IOException {
+    FakeReader reader = new FakeReader(makeData(100 * 1000));
+    HTTPBlockCache cache = new HTTPBlockCache(1000, 10 * 1000, 100, 1);
+    checkRead(cache, reader, 0, 100 * 1000);
+    Assert.assertTrue(cache.getCachedBytes() <= 10 * 1000);
+  }
+
+  /////////////////////////////////////////////////////////////////////
+
+  // minimal server supporting HEAD and single range GET
+  private static HttpServer startServer(byte[] data, AtomicInteger ngets) throws IOException {
+    return startServer(data, ngets, true);
+  }
+
+  private static HttpServer startServer(byte[] data, AtomicInteger ngets, boolean sendEtag) throws IOException {
+    HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/data.bin", (HttpExchange ex) -> {
+      ex.getResponseHeaders().add("Accept-Ranges", "bytes");
+      if (sendEtag)
+        ex.getResponseHeaders().add("ETag", "\"v1\"");
+      if (ex.getRequestMethod().equals("HEAD")) {
+        ex.getResponseHeaders().add("Content-Length", Integer.toString(data.length));
+        ex.sendResponseHeaders(200, -1);
+        ex.close();
+        return;
+      }
+      ngets.incrementAndGet();
+      String range = ex.getRequestHeaders().getFirst("Range"); // bytes=start-end
+      String[] se = range.substring(range.indexOf('=') + 1).split("-");
+      int start = Integer.parseInt(se[0]);
+      int end = Math.min(Integer.parseInt(se[1]), data.length - 1);
+      ex.getResponseHeaders().add("Content-Range", "bytes " + start + "-" + end + "/" + data.length);
+      ex.sendResponseHeaders(206, end - start + 1);
+      try (OutputStream os = ex.getResponseBody()) {
+        os.write(data, start, end - start + 1);
+      }
+    });
+    server.start();
+    return server;
+  }
+
+  @Test
+  public void testHTTPRandomAccessFile() throws IOException {
+    byte[] data = makeData(300 * 1000);
+    AtomicInteger ngets = new AtomicInteger();
+    HttpServer server = startServer(data, ngets);
+    HTTPBlockCache save = HTTPRandomAccessFile.getBlockCache();
+    HTTPBlockCache cache = new HTTPBlockCache(16 * 1024, 10 * 1000 * 1000, 4, 4);
+    HTTPRandomAccessFile.setBlockCache(cache);
+
+    String url = "http://localhost:" + server.getAddress().getPort() + "/data.bin";
+    try {
+      try (HTTPRandomAccessFile raf = new HTTPRandomAccessFile(url)) {
+        Assert.assertEquals(data.length, raf.length());
+        byte[] buff = new byte[1000];
+        raf.seek(123456);
+        raf.readFully(buff);
+        for (int i = 0; i < buff.length; i++)
+          Assert.assertEquals(data[123456 + i], buff[i]);
+      }
+      Assert.assertTrue(cache.getRequests() > 1); // rest of the file as several coalesced requests
+      int gets = ngets.get();
+
+      // a second open reads from the cache
+      try (HTTPRandomAccessFile raf = new HTTPRandomAccessFile(url)) {
+        byte[] buff = new byte[1000];
+        raf.seek(150000);
+        raf.readFully(buff);
+        for (int i = 0; i < buff.length; i++)
+          Assert.assertEquals(data[150000 + i], buff[i]);
+      }
+      Assert.assertEquals(gets, ngets.get());
+
+    } finally {
+      HTTPRandomAccessFile.setBlockCache(save);
+      cache.shutdown();
+      server.stop(0);
+    }
+  }
+
+  // without ETag or Last-Modified the blocks could not be reused, so the cache is not used
+  @Test
+  public void testNoValidatorNotCached() throws IOException {
+    Assert.assertNull(HTTPRandomAccessFile.getBlockCache()); // off by default
+
+    byte[] data = makeData(100 * 1000);
+    HttpServer server = startServer(data, new AtomicInteger(), false);
+    HTTPBlockCache cache = new HTTPBlockCache(16 * 1024, 10 * 1000 * 1000, 4, 4);
+    HTTPRandomAccessFile.setBlockCache(cache);
+
+    String url = "http://localhost:" + server.getAddress().getPort() + "/data.bin";
+    try (HTTPRandomAccessFile raf = new HTTPRandomAccessFile(url)) {
+      byte[] buff = new byte[1000];
+      raf.seek(5000);
+      raf.readFully(buff);
+      for (int i = 0; i < buff.length; i++)
+        Assert.assertEquals(data[5000 + i], buff[i]);
+      Assert.assertEquals(0, cache.getRequests());
+      Assert.assertEquals(0, cache.getCachedBytes());
+
+    } finally {
+      HTTPRandomAccessFile.setBlockCache(null);
+      cache.shutdown();
+      server.stop(0);
+    }
+  }
+
+}
@@ -0,0 +1,142 @@
+package ucar.unidata.io.http;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Test HTTPDiskBlockStore
+ *
+ * @since 10/19/2026
+ */
+public class TestHTTPDiskBlockStore {
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private static final byte[] data = new byte[10000];
+  static {
+    for (int i = 0; i < data.length; i++)
+      data[i] = (byte) (i * 17 + 3);
+  }
+
+  private final AtomicInteger nrequests = new AtomicInteger();
+
+  private final HTTPBlockCache.RangeReader reader = (pos, buff, offset, len) -> {
+    nrequests.incrementAndGet();
+    int n = (int) Math.min(len, data.length - pos);
+    System.arraycopy(data, (int) pos, buff, offset, n);
+    return n;
+  };
+
+  private void readAll(HTTPBlockCache cache, boolean persist) throws IOException {
+    byte[] buff = new byte[data.length];
+    Assert.assertEquals(data.length, cache.read("key", persist, data.length, reader, 0, buff, 0, data.length));
+    Assert.assertArrayEquals(data, buff);
+  }
+
+  @Test
+  public void testReuseAfterRestart() throws IOException {
+    HTTPDiskBlockStore store = new HTTPDiskBlockStore(tempFolder.getRoot().toPath(), 1000 * 1000);
+    HTTPBlockCache cache = new HTTPBlockCache(1000, 1000 * 1000, 100, 1);
+    cache.setDiskStore(store);
+    readAll(cache, true);
+    Assert.assertEquals(1, nrequests.get());
+    Assert.assertEquals(10, store.getWrites());
+    Assert.assertEquals(data.length, store.getTotalBytes());
+
+    // a new process has an empty memory cache, but the same disk store
+    HTTPDiskBlockStore store2 = new HTTPDiskBlockStore(tempFolder.getRoot().toPath(), 1000 * 1000);
+    HTTPBlockCache cache2 = new HTTPBlockCache(1000, 1000 * 1000, 100, 1);
+    cache2.setDiskStore(store2);
+    readAll(cache2, true);
+    Assert.assertEquals(1, nrequests.get());
+    Assert.assertEquals(10, cache2.getDiskHits());
+    Assert.assertEquals(data.length, store2.getTotalBytes());
+  }
+
+  @Test
+  public void testNotPersisted() throws IOException {
+    HTTPDiskBlockStore store = new HTTPDiskBlockStore(tempFolder.getRoot().toPath(), 1000 * 1000);
+    HTTPBlockCache cache = new HTTPBlockCache(1000, 1000 * 1000, 100, 1);
+    cache.setDiskStore(store);
+    readAll(cache, false);
+    Assert.assertEquals(0, store.getWrites());
+    Assert.assertEquals(0, store.getTotalBytes());
+  }
+
+  @Test
+  public void testSizeCap() throws IOException {
+    HTTPDiskBlockStore store = new HTTPDiskBlockStore(tempFolder.getRoot().toPath(), 5000);
+    HTTPBlockCache cache = new HTTPBlockCache(1000, 1000 * 1000, 100, 1);
+    cache.setDiskStore(store);
+    readAll(cache, true);
+    Assert.assertTrue(store.getTotalBytes() <= 5000);
+  }
+
+  @Test
+  public void testRewriteBlock() {
+    HTTPDiskBlockStore store = new HTTPDiskBlockStore(tempFolder.getRoot().toPath(), 1000 * 1000);
+    for (int i = 0; i < 10; i++)
+      store.put("key", 0, new byte[1000]);
+    Assert.assertEquals(1000, store.getTotalBytes());
+    store.put("key", 0, new byte[400]);
+    Assert.assertEquals(400, store.getTotalBytes());
+    Assert.assertEquals(400, store.get("key", 0).length);
+
+    // a new store reads the index from disk
+    Assert.assertEquals(400, new HTTPDiskBlockStore(tempFolder.getRoot().toPath(), 1000 * 1000).getTotalBytes());
+  }
+
+  @Test
+  public void testFailedWriteLeavesNoTempFile() throws IOException {
+    HTTPDiskBlockStore store = new HTTPDiskBlockStore(tempFolder.getRoot().toPath(), 1000 * 1000);
+    store.put("key", 0, new byte[100]);
+    Path block;
+    try (Stream<Path> paths = Files.walk(store.getDirectory())) {
+      block = paths.filter(p -> p.getFileName().toString().equals("0.blk")).findFirst().orElse(null);
+    }
+    Assert.assertNotNull(block);
+
+    // a non-empty directory where the block goes, so the rename fails
+    Files.delete(block);
+    Files.createDirectory(block);
+    Files.write(block.resolve("x"), new byte[1]);
+    store.put("key", 0, new byte[100]);
+
+    try (Stream<Path> paths = Files.list(block.getParent())) {
+      Assert.assertEquals(1, paths.count());
+    }
+  }
+
+  private long countDirectories(Path dir) throws IOException {
+    try (Stream<Path> paths = Files.list(dir)) {
+      return paths.filter(Files::isDirectory).count();
+    }
+  }
+
+  @Test
+  public void testEmptyDirectoriesRemoved() throws IOException {
+    HTTPDiskBlockStore store = new HTTPDiskBlockStore(tempFolder.getRoot().toPath(), 5000);
+    for (int i = 0; i < 10; i++)
+      store.put("key" + i, 0, new byte[1000]);
+    Assert.assertTrue(store.getTotalBytes() <= 5000);
+    Assert.assertEquals(store.getTotalBytes() / 1000, countDirectories(store.getDirectory()));
+
+    store.clear();
+    Assert.assertEquals(0, countDirectories(store.getDirectory()));
+  }
+
+  @Test
+  public void testParseHttpDate() {
+    Assert.assertEquals(784887151000L, HTTPRandomAccessFile.parseHttpDate("Tue, 15 Nov 1994 08:12:31 GMT"));
+    Assert.assertEquals(0, HTTPRandomAccessFile.parseHttpDate("not a date"));
+  }
+
+}
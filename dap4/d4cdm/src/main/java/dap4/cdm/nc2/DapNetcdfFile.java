@@ -161,6 +161,8 @@ public class DapNetcdfFile extends NetcdfFile {
     if (closed)
       return;
     closed = true; // avoid circular calls
+    if (dsp != null)
+      dsp.close(); // releases any spooled data
     dsp = null;
     // nodemap = null; unused?
   }
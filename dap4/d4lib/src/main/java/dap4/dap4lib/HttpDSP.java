@@ -16,6 +16,7 @@ import ucar.httpservices.HTTPException;
 import ucar.httpservices.HTTPFactory;
 import ucar.httpservices.HTTPMethod;
 import ucar.httpservices.HTTPUtil;
+import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -151,7 +152,9 @@ public class HttpDSP extends D4DSP {
   }
 
   @Override
-  public void close() {}
+  public void close() {
+    closeSpool();
+  }
 
   /////////////////////////////////////////
   // AbstractDSP extensions
@@ -175,6 +178,10 @@ public class HttpDSP extends D4DSP {
 
   protected void build() throws DapException {
     String methodurl = buildURL(this.xuri.assemble(XURI.URLONLY), DATASUFFIX, this.dmr, this.basece);
+    if (streaming && !DEBUG) {
+      buildStreaming(methodurl);
+      return;
+    }
 
     InputStream stream;
     // Make the request and return an input stream for accessing the databuffer
@@ -210,6 +217,28 @@ public class HttpDSP extends D4DSP {
     }
   }
 
+  /**
+   * Compile the response while it is being read from the server, without buffering the whole body.
+   *
+   * @param methodurl the data request
+   * @throws DapException
+   */
+  protected void buildStreaming(String methodurl) throws DapException {
+    try (HTTPMethod method = HTTPFactory.Get(methodurl)) {
+      if (allowCompression)
+        method.setCompression("deflate,gzip");
+      this.status = method.execute();
+      if (this.status != HttpStatus.SC_OK)
+        throw new DapException("Request failure: " + status + ": " + methodurl).setCode(status);
+      InputStream stream = new BufferedInputStream(method.getResponseAsStream());
+      ChunkInputStream reader = new ChunkInputStream(stream, RequestMode.DAP, getOrder());
+      String document = reader.readDMR();
+      super.build(document, reader, getOrder());
+    } catch (HTTPException e) {
+      throw new DapException(e);
+    }
+  }
+
   protected InputStream callServer(String methodurl) throws DapException {
     URI uri;
 
@@ -9,6 +9,8 @@ import dap4.core.dmr.DapDataset;
 import dap4.core.util.DapDump;
 import dap4.core.util.DapException;
 import dap4.dap4lib.AbstractDSP;
+import java.io.IOException;
+import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 
@@ -31,10 +33,41 @@ public abstract class D4DSP extends AbstractDSP {
   protected static final String DAPVERSION = "4.0";
   protected static final String DMRVERSION = "1.0";
 
+  //////////////////////////////////////////////////
+  // Static variables
+
+  // compile the data while it is read, see build(String, InputStream, ByteOrder)
+  protected static boolean streaming = true;
+  // streamed data larger than this is kept in a memory mapped temporary file
+  protected static long spillthreshold = 64L * 1000 * 1000;
+
+  /**
+   * Compile responses while they are being read, rather than reading the whole response first.
+   * Default is true.
+   */
+  public static void setStreaming(boolean b) {
+    streaming = b;
+  }
+
+  public static boolean isStreaming() {
+    return streaming;
+  }
+
+  /**
+   * When streaming, responses larger than this are kept in a memory mapped temporary file instead of on the heap.
+   *
+   * @param nbytes size in bytes
+   */
+  public static void setSpillThreshold(long nbytes) {
+    spillthreshold = nbytes;
+  }
+
   //////////////////////////////////////////////////
   // Instance variables
 
   protected ByteBuffer databuffer = null; // local copy of AbstractDSP.getSource
+  protected D4Spool spool = null; // if streaming
+  protected D4StreamCompiler.VariableListener listener = null;
 
   //////////////////////////////////////////////////
   // Constructor(s)
@@ -54,6 +87,27 @@ public abstract class D4DSP extends AbstractDSP {
     return databuffer;
   }
 
+  /* packge */ void setBuffer(ByteBuffer databuffer) {
+    this.databuffer = databuffer;
+  }
+
+  /**
+   * Be notified of each top-level variable as soon as its data has been read, when streaming.
+   *
+   * @param listener the listener, or null
+   */
+  public D4DSP setVariableListener(D4StreamCompiler.VariableListener listener) {
+    this.listener = listener;
+    return this;
+  }
+
+  /**
+   * True if the streamed data was moved to a temporary file.
+   */
+  public boolean isSpilled() {
+    return spool != null && spool.isSpilled();
+  }
+
   //////////////////////////////////////////////////
   // Compilation
 
@@ -85,6 +139,7 @@ public abstract class D4DSP extends AbstractDSP {
    * @throws DapException
    */
   protected void build(DapDataset dmr, byte[] serialdata, ByteOrder order) throws DapException {
+    closeSpool();
     setDMR(dmr);
     // "Compile" the databuffer section of the server response
     this.databuffer = ByteBuffer.wrap(serialdata).order(order);
@@ -92,4 +147,43 @@ public abstract class D4DSP extends AbstractDSP {
     compiler.compile();
   }
 
+  /**
+   * Build the data while reading it from the incoming serial data.
+   * Each top-level variable is compiled, and passed to the listener, as soon as its data has arrived.
+   *
+   * @param document the DMR
+   * @param serialdata the data section, positioned after the DMR; it is read to the end of the data
+   * @param order
+   * @throws DapException
+   */
+  protected void build(String document, InputStream serialdata, ByteOrder order) throws DapException {
+    DapDataset dmr = parseDMR(document);
+    if (DEBUG || DUMPDMR) {
+      System.err.println("\n+++++++++++++++++++++");
+      System.err.println(dmr);
+      System.err.println("+++++++++++++++++++++\n");
+    }
+    setDMR(dmr);
+    closeSpool();
+    this.spool = new D4Spool(serialdata, order, spillthreshold);
+    this.databuffer = this.spool.view();
+    D4StreamCompiler compiler = new D4StreamCompiler(this, getChecksumMode(), getOrder(), this.spool, this.listener);
+    compiler.compile();
+    this.databuffer = this.spool.view();
+  }
+
+  /**
+   * Release the streamed data, including any temporary file.
+   */
+  protected void closeSpool() {
+    if (this.spool == null)
+      return;
+    try {
+      this.spool.close();
+    } catch (IOException ioe) {
+      // ignore
+    }
+    this.spool = null;
+  }
+
 }
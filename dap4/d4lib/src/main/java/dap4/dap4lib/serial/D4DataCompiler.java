@@ -38,6 +38,9 @@ public class D4DataCompiler {
   protected ChecksumMode checksummode = null;
   protected ByteOrder order = null;
 
+  // compare each top-level variable's checksum to the one computed from its databuffer
+  protected boolean verifychecksums = false;
+
   protected D4DSP dsp;
 
   //////////////////////////////////////////////////
@@ -83,6 +86,7 @@ public class D4DataCompiler {
 
   protected D4Cursor compileVar(DapVariable dapvar, D4Cursor container) throws DapException {
     boolean isscalar = dapvar.getRank() == 0;
+    int start = getPos(databuffer);
     D4Cursor array = null;
     DapType type = dapvar.getBaseType();
     if (type.isAtomic())
@@ -95,8 +99,11 @@ public class D4DataCompiler {
     if (dapvar.isTopLevel() && this.checksummode.enabled(ChecksumMode.DAP)) {
       // extract the checksum from databuffer src,
       // attach to the array, and make into an attribute
+      int end = getPos(databuffer);
       int checksum = extractChecksum(databuffer);
       dapvar.setChecksum(checksum);
+      if (this.verifychecksums)
+        verifyChecksum(dapvar, start, end, checksum);
     }
     return array;
   }
@@ -117,14 +124,13 @@ public class D4DataCompiler {
     if (!daptype.isEnumType() && !daptype.isFixedSize()) {
       // this is a string, url, or opaque
       long[] positions = new long[(int) dimproduct];
-      int savepos = databuffer.position();
       // Walk the bytestring and return the instance count (in databuffer)
-      total = walkByteStrings(positions, databuffer);
-      databuffer.position(savepos);// leave position unchanged
+      total = walkByteStrings(positions);
       data.setByteStringOffsets(total, positions);
     } else {
       total = dimproduct * daptype.getSize();
     }
+    ensure(total);
     skip(databuffer, (int) total);
     return data;
   }
@@ -213,6 +219,7 @@ public class D4DataCompiler {
     D4Cursor seq = new D4Cursor(Scheme.SEQUENCE, this.dsp, var, container).setOffset(pos);
     List<DapVariable> dfields = dapseq.getFields();
     // Get the count of the number of records
+    ensure(COUNTSIZE);
     long nrecs = getCount(this.databuffer);
     for (int r = 0; r < nrecs; r++) {
       pos = getPos(this.databuffer);
@@ -234,11 +241,35 @@ public class D4DataCompiler {
 
   protected int extractChecksum(ByteBuffer data) throws DapException {
     assert ChecksumMode.DAP.enabled(this.checksummode);
+    ensure(DapUtil.CHECKSUMSIZE);
+    data = this.databuffer; // may have been replaced by ensure()
     if (data.remaining() < DapUtil.CHECKSUMSIZE)
       throw new DapException("Short serialization: missing checksum");
     return data.getInt();
   }
 
+  /**
+   * Make sure that nbytes past the current position are in the databuffer.
+   * Here the databuffer is always complete; a streaming compiler reads more data,
+   * and may replace this.databuffer, keeping its position.
+   *
+   * @param nbytes number of bytes needed
+   * @throws DapException if the data cannot be read
+   */
+  protected void ensure(long nbytes) throws DapException {}
+
+  protected void verifyChecksum(DapVariable dapvar, int start, int end, int checksum) throws DapException {
+    ByteBuffer data = this.databuffer.duplicate();
+    data.limit(end);
+    data.position(start);
+    java.util.zip.CRC32 crc32 = new java.util.zip.CRC32();
+    crc32.update(data);
+    int local = (int) crc32.getValue();
+    if (local != checksum)
+      throw new DapException(
+          String.format("Checksum mismatch for %s: computed 0x%08x, received 0x%08x", dapvar.getFQN(), local, checksum));
+  }
+
   protected static void skip(ByteBuffer data, int count) {
     data.position(data.position() + count);
   }
@@ -263,7 +294,7 @@ public class D4DataCompiler {
     return LibTypeFcns.size(daptype);
   }
 
-  protected static long walkByteStrings(long[] positions, ByteBuffer databuffer) {
+  protected long walkByteStrings(long[] positions) throws DapException {
     int count = positions.length;
     long total = 0;
     int savepos = databuffer.position();
@@ -271,9 +302,11 @@ public class D4DataCompiler {
     for (int i = 0; i < count; i++) {
       int pos = databuffer.position();
       positions[i] = pos;
+      ensure(COUNTSIZE);
       int size = getCount(databuffer);
       total += COUNTSIZE;
       total += size;
+      ensure(size);
       skip(databuffer, size);
     }
     databuffer.position(savepos);// leave position unchanged
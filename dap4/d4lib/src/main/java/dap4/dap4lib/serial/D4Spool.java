@@ -0,0 +1,146 @@
+/*
+ * Copyright 2012, UCAR/Unidata.
+ * See the LICENSE file for more information.
+ */
+
+package dap4.dap4lib.serial;
+
+import dap4.dap4lib.DapLog;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Holds the serialized data section of a DAP4 response while it is being read.
+ * Bytes are pulled from the (chunked) input stream only as far as the caller asks, see fill().
+ * The data is kept on the heap until it grows past spillThreshold; it is then moved to a temporary file
+ * that is memory mapped, so very large responses do not need heap. The temporary file is deleted on close().
+ * <p/>
+ * Offsets in the DAP4 cursors are ints, so a response is limited to 2 Gbytes, as before.
+ */
+class D4Spool implements Closeable {
+  static final int INITIAL_SIZE = 64 * 1024;
+  static final int TRANSFER_SIZE = 64 * 1024;
+
+  private final InputStream input;
+  private final ByteOrder order;
+  private final long spillThreshold;
+
+  private ByteBuffer storage; // heap or mapped; position = number of bytes read so far
+  private File tempFile; // non-null if spilled
+  private RandomAccessFile raf;
+  private byte[] transfer; // used when reading into a mapped buffer
+  private boolean eof;
+
+  /**
+   * Constructor.
+   *
+   * @param input the serialized data, after the DMR
+   * @param order byte order of the data
+   * @param spillThreshold move to a temporary file when the data is larger than this
+   */
+  D4Spool(InputStream input, ByteOrder order, long spillThreshold) {
+    this.input = input;
+    this.order = order;
+    this.spillThreshold = spillThreshold;
+    this.storage = ByteBuffer.allocate((int) Math.max(16, Math.min(INITIAL_SIZE, spillThreshold)));
+  }
+
+  /** Number of bytes read so far. */
+  int size() {
+    return storage.position();
+  }
+
+  boolean isSpilled() {
+    return tempFile != null;
+  }
+
+  /**
+   * Read from the input until at least nbytes have been read in total.
+   *
+   * @return false if the input ended first
+   */
+  boolean fill(long nbytes) throws IOException {
+    if (nbytes > Integer.MAX_VALUE)
+      throw new IOException("DAP4 response is too large: needs " + nbytes + " bytes");
+    while (size() < nbytes && !eof) {
+      int want = (int) (nbytes - size());
+      ensureCapacity((int) nbytes);
+      int n;
+      if (storage.hasArray()) {
+        n = input.read(storage.array(), storage.arrayOffset() + storage.position(), want);
+        if (n > 0)
+          storage.position(storage.position() + n);
+      } else {
+        if (transfer == null)
+          transfer = new byte[TRANSFER_SIZE];
+        n = input.read(transfer, 0, Math.min(want, transfer.length));
+        if (n > 0)
+          storage.put(transfer, 0, n);
+      }
+      if (n <= 0)
+        eof = true;
+    }
+    return size() >= nbytes;
+  }
+
+  /**
+   * A view of the bytes read so far, with position 0 and limit size().
+   * The view stays valid when more data is read, but does not see it.
+   */
+  ByteBuffer view() {
+    ByteBuffer result = storage.duplicate();
+    result.flip();
+    return result.order(order);
+  }
+
+  private void ensureCapacity(int needed) throws IOException {
+    if (needed <= storage.capacity())
+      return;
+    long grow = Math.max((long) needed, 2L * storage.capacity());
+    int newCapacity = (int) Math.min(grow, Integer.MAX_VALUE);
+
+    if (tempFile == null && newCapacity <= spillThreshold) {
+      ByteBuffer bigger = ByteBuffer.allocate(newCapacity);
+      storage.flip();
+      bigger.put(storage);
+      storage = bigger;
+      return;
+    }
+
+    // the mapping is extended by mapping a larger region of the same file
+    if (tempFile == null) {
+      tempFile = File.createTempFile("dap4", ".spool");
+      raf = new RandomAccessFile(tempFile, "rw");
+      DapLog.debug(String.format("D4Spool: spill %d bytes to %s", size(), tempFile));
+    }
+    ByteBuffer mapped = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, newCapacity);
+    int pos = storage.position();
+    if (storage.hasArray()) { // first time
+      storage.flip();
+      mapped.put(storage);
+    } else {
+      mapped.position(pos);
+    }
+    storage = mapped;
+  }
+
+  /** Release the temporary file, if any. Views may not be used after this. */
+  @Override
+  public void close() throws IOException {
+    eof = true;
+    if (raf != null) {
+      raf.close();
+      raf = null;
+      // a mapped file cant be deleted on some OS until the mapping is garbage collected
+      if (!tempFile.delete())
+        tempFile.deleteOnExit();
+    }
+  }
+
+}
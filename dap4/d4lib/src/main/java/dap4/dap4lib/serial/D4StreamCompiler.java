@@ -0,0 +1,74 @@
+/*
+ * Copyright 2012, UCAR/Unidata.
+ * See the LICENSE file for more information.
+ */
+
+package dap4.dap4lib.serial;
+
+import dap4.core.data.ChecksumMode;
+import dap4.core.dmr.DapVariable;
+import dap4.core.util.DapException;
+import java.io.IOException;
+import java.nio.ByteOrder;
+
+/**
+ * Compiles the data section of a DAP4 response while it is being read, instead of after the whole response
+ * has been buffered. Data is pulled from a D4Spool only as far as needed to locate the next item, and each
+ * top-level variable is handed to the D4DSP (and its listener, if any) as soon as it is complete.
+ * The checksum of each top-level variable is verified as it arrives.
+ */
+public class D4StreamCompiler extends D4DataCompiler {
+
+  /** Called as each top-level variable is compiled, before the rest of the response is read. */
+  public interface VariableListener {
+    void variableReady(DapVariable var, D4Cursor data) throws DapException;
+  }
+
+  protected D4Spool spool;
+  protected VariableListener listener;
+
+  /**
+   * Constructor
+   *
+   * @param dsp the D4DSP
+   * @param checksummode
+   * @param order byte order of the serialized data
+   * @param spool the source of serialized data, read incrementally
+   * @param listener notified of each top-level variable, may be null
+   */
+  D4StreamCompiler(D4DSP dsp, ChecksumMode checksummode, ByteOrder order, D4Spool spool, VariableListener listener)
+      throws DapException {
+    super(dsp, checksummode, order, spool.view());
+    this.spool = spool;
+    this.listener = listener;
+    this.verifychecksums = true;
+  }
+
+  @Override
+  public void compile() throws DapException {
+    assert (this.dataset != null && this.databuffer != null);
+    for (DapVariable vv : this.dataset.getTopVariables()) {
+      D4Cursor data = compileVar(vv, null);
+      this.dsp.setBuffer(this.spool.view());
+      this.dsp.addVariableData(vv, data);
+      if (this.listener != null)
+        this.listener.variableReady(vv, data);
+    }
+  }
+
+  @Override
+  protected void ensure(long nbytes) throws DapException {
+    if (this.databuffer.remaining() >= nbytes)
+      return;
+    int pos = this.databuffer.position();
+    try {
+      if (!this.spool.fill(pos + nbytes))
+        throw new DapException("Short serialization: expected " + nbytes + " bytes at position " + pos);
+    } catch (IOException ioe) {
+      throw new DapException(ioe);
+    }
+    this.databuffer = this.spool.view();
+    this.databuffer.position(pos);
+  }
+
+}
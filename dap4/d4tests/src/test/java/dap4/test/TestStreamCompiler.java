@@ -0,0 +1,132 @@
+package dap4.test;
+
+import dap4.core.data.DataCursor;
+import dap4.core.dmr.DapVariable;
+import dap4.core.util.DapContext;
+import dap4.core.util.DapException;
+import dap4.core.util.DapUtil;
+import dap4.dap4lib.ChunkInputStream;
+import dap4.dap4lib.RequestMode;
+import dap4.dap4lib.serial.D4DSP;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compare compiling DAP4 responses while they are read (streaming) with compiling the buffered response.
+ */
+public class TestStreamCompiler extends DapTestCommon {
+
+  static final String TESTINPUT = "TestCDMClient/testinput";
+
+  // open a .raw response, streaming or not
+  static class RawDSP extends D4DSP {
+    byte[] raw;
+
+    RawDSP(byte[] raw) {
+      this.raw = raw;
+    }
+
+    public boolean dspMatch(String path, DapContext context) {
+      return true;
+    }
+
+    public RawDSP open(String path) throws DapException {
+      try {
+        ChunkInputStream rdr = new ChunkInputStream(new ByteArrayInputStream(raw), RequestMode.DAP);
+        String document = rdr.readDMR();
+        if (isStreaming())
+          build(document, rdr, rdr.getRemoteByteOrder());
+        else
+          build(document, DapUtil.readbinaryfile(rdr), rdr.getRemoteByteOrder());
+        return this;
+      } catch (IOException ioe) {
+        throw new DapException(ioe);
+      }
+    }
+
+    public void close() {
+      closeSpool();
+    }
+  }
+
+  @After
+  public void restore() {
+    D4DSP.setStreaming(true);
+    D4DSP.setSpillThreshold(64L * 1000 * 1000);
+  }
+
+  private List<File> getTestFiles() {
+    File dir = new File(getResourceRoot(), TESTINPUT);
+    File[] files = dir.listFiles((d, name) -> name.endsWith(".raw"));
+    Assert.assertNotNull(files);
+    List<File> result = new ArrayList<>();
+    for (File f : files)
+      result.add(f);
+    return result;
+  }
+
+  private RawDSP open(byte[] raw, boolean streaming) throws DapException {
+    D4DSP.setStreaming(streaming);
+    return new RawDSP(raw).open(null);
+  }
+
+  private void compare(File f, long spillThreshold) throws IOException {
+    byte[] raw = Files.readAllBytes(f.toPath());
+    RawDSP buffered = open(raw, false);
+
+    D4DSP.setSpillThreshold(spillThreshold);
+    RawDSP streamed = new RawDSP(raw);
+    List<DapVariable> ready = new ArrayList<>();
+    streamed.setVariableListener((var, data) -> ready.add(var));
+    D4DSP.setStreaming(true);
+    streamed.open(null);
+
+    List<DapVariable> vars1 = buffered.getDMR().getTopVariables();
+    List<DapVariable> vars2 = streamed.getDMR().getTopVariables();
+    Assert.assertEquals(f.getName(), vars1.size(), vars2.size());
+    Assert.assertEquals(f.getName(), vars2, ready);
+    for (int i = 0; i < vars1.size(); i++) {
+      DapVariable v1 = vars1.get(i);
+      DapVariable v2 = vars2.get(i);
+      Assert.assertEquals(v1.getFQN(), v1.getChecksum(), v2.getChecksum());
+      if (v1.getRank() > 0 && v1.getBaseType().isAtomic() && v1.getBaseType().isFixedSize()) {
+        Object data1 = buffered.getVariableData(v1).read(DapUtil.dimsetToSlices(v1.getDimensions()));
+        Object data2 = streamed.getVariableData(v2).read(DapUtil.dimsetToSlices(v2.getDimensions()));
+        Assert.assertTrue(v1.getFQN(), java.util.Objects.deepEquals(data1, data2));
+      }
+    }
+    streamed.close();
+  }
+
+  @Test
+  public void testStreaming() throws IOException {
+    for (File f : getTestFiles())
+      compare(f, 64L * 1000 * 1000);
+  }
+
+  @Test
+  public void testSpill() throws IOException {
+    for (File f : getTestFiles())
+      compare(f, 0);
+  }
+
+  @Test
+  public void testChecksumMismatch() throws IOException {
+    byte[] raw = Files.readAllBytes(Paths.get(getResourceRoot(), TESTINPUT, "test_atomic_types.nc.raw"));
+    int dmrsize = ((raw[1] & 0xff) << 16) | ((raw[2] & 0xff) << 8) | (raw[3] & 0xff);
+    raw[4 + dmrsize + 4] ^= 0x55; // first data byte
+    try {
+      open(raw, true);
+      Assert.fail();
+    } catch (DapException e) {
+      Assert.assertTrue(e.getMessage(), e.getMessage().contains("Checksum mismatch"));
+    }
+  }
+
+}
@@ -33,10 +33,12 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Formatter;
 import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -96,6 +98,7 @@ public class GribCdmIndex implements IndexReader {
   }
 
   public static void shutdown() {
+    GribIndexExecutor.shutdown();
     if (gribCollectionCache != null)
       gribCollectionCache.clearCache(true);
   }
@@ -397,17 +400,35 @@ public class GribCdmIndex implements IndexReader {
     long start = System.currentTimeMillis();
     Formatter errlog = new Formatter();
 
+    // component grib collections are independent, so they may be made in parallel
+    List<MCollection> parts = new ArrayList<>();
+    List<Callable<Boolean>> tasks = new ArrayList<>();
     for (MCollection part : tp.makePartitions(updateType)) {
-      try {
-        updateGribCollection(isGrib1, part, updateType, FeatureCollectionConfig.PartitionType.timePeriod, logger,
-            errlog);
+      Formatter partErrlog = new Formatter();
+      parts.add(part);
+      tasks.add(() -> {
+        try {
+          updateGribCollection(isGrib1, part, updateType, FeatureCollectionConfig.PartitionType.timePeriod, logger,
+              partErrlog);
+          return true;
 
-      } catch (Throwable t) {
-        logger.warn("Error making partition " + part.getRoot(), t);
-        tp.removePartition(part); // keep on truckin; can happen if directory is empty
-      }
+        } catch (Throwable t) {
+          logger.warn("Error making partition " + part.getRoot(), t);
+          return false;
+        } finally {
+          synchronized (errlog) {
+            errlog.format("%s", partErrlog);
+          }
+        }
+      });
     } // loop over component grib collections
 
+    List<Boolean> ok = GribIndexExecutor.invokeAll("updateTimePartition " + tp.getRoot(), tasks);
+    for (int i = 0; i < parts.size(); i++) {
+      if (!ok.get(i))
+        tp.removePartition(parts.get(i)); // keep on truckin; can happen if directory is empty
+    }
+
 
     try {
       boolean changed = updatePartition(isGrib1, tp, updateType, logger, errlog);
@@ -470,25 +491,39 @@ public class GribCdmIndex implements IndexReader {
 
     // check the children partitions first
     if (updateType != CollectionUpdateType.testIndexOnly) { // skip children on testIndexOnly
+      // children are independent, so they may be made in parallel
+      List<MCollection> parts = new ArrayList<>();
+      List<Callable<Boolean>> tasks = new ArrayList<>();
       for (MCollection part : dpart.makePartitions(updateType)) {
         part.putAuxInfo(FeatureCollectionConfig.AUX_CONFIG, config);
-        try {
-          if (part instanceof DirectoryPartition) { // LOOK if child partition fails, the parent partition doesnt know
-                                                    // that - suckage
-            updateDirectoryCollectionRecurse(isGrib1, (DirectoryPartition) part, config, updateType, logger);
-          } else {
-            Path partPath = Paths.get(part.getRoot());
-            updateLeafCollection(isGrib1, config, updateType, false, logger, partPath); // LOOK why not using part ??
-          }
-        } catch (IllegalStateException t) {
-          logger.warn("Error making partition {} '{}'", part.getRoot(), t.getMessage());
-          dpart.removePartition(part); // keep on truckin; can happen if directory is empty
+        parts.add(part);
+        tasks.add(() -> {
+          try {
+            if (part instanceof DirectoryPartition) { // LOOK if child partition fails, the parent partition doesnt
+                                                      // know that - suckage
+              updateDirectoryCollectionRecurse(isGrib1, (DirectoryPartition) part, config, updateType, logger);
+            } else {
+              Path partPath = Paths.get(part.getRoot());
+              updateLeafCollection(isGrib1, config, updateType, false, logger, partPath); // LOOK why not using part ??
+            }
+            return true;
 
-        } catch (Throwable t) {
-          logger.error("Error making partition " + part.getRoot(), t);
-          dpart.removePartition(part);
-        }
+          } catch (IllegalStateException t) {
+            logger.warn("Error making partition {} '{}'", part.getRoot(), t.getMessage());
+            return false; // keep on truckin; can happen if directory is empty
+
+          } catch (Throwable t) {
+            logger.error("Error making partition " + part.getRoot(), t);
+            return false;
+          }
+        });
       } // loop over partitions
+
+      List<Boolean> ok = GribIndexExecutor.invokeAll("updateDirectoryCollection " + dpart.getRoot(), tasks);
+      for (int i = 0; i < parts.size(); i++) {
+        if (!ok.get(i))
+          dpart.removePartition(parts.get(i));
+      }
     }
 
     try {
@@ -572,27 +607,46 @@ public class GribCdmIndex implements IndexReader {
 
       AtomicBoolean anyChange = new AtomicBoolean(false); // just need a mutable boolean we can declare final
 
-      // redo the children here
+      // redo the children here; each file is independent, so they may be made in parallel
       if (updateType != CollectionUpdateType.testIndexOnly) { // skip children on testIndexOnly
+        List<MCollection> parts = new ArrayList<>();
         partition.iterateOverMFileCollection(mfile -> {
           MCollection part = new CollectionSingleFile(mfile, logger);
           part.putAuxInfo(FeatureCollectionConfig.AUX_CONFIG, config);
+          parts.add(part);
+        });
 
-          try {
-            boolean changed = updateGribCollection(isGrib1, part, updateType,
-                FeatureCollectionConfig.PartitionType.file, logger, errlog);
-            if (changed)
-              anyChange.set(true);
-
-          } catch (IllegalStateException t) {
-            logger.warn("Error making partition {} '{}'", part.getRoot(), t.getMessage());
-            partition.removePartition(part); // keep on truckin; can happen if directory is empty
+        List<Callable<Boolean>> tasks = new ArrayList<>();
+        for (MCollection part : parts) {
+          tasks.add(() -> {
+            Formatter partErrlog = new Formatter();
+            try {
+              boolean changed = updateGribCollection(isGrib1, part, updateType,
+                  FeatureCollectionConfig.PartitionType.file, logger, partErrlog);
+              if (changed)
+                anyChange.set(true);
+              return true;
+
+            } catch (IllegalStateException t) {
+              logger.warn("Error making partition {} '{}'", part.getRoot(), t.getMessage());
+              return false; // keep on truckin; can happen if directory is empty
+
+            } catch (Throwable t) {
+              logger.error("Error making partition " + part.getRoot(), t);
+              return false;
+            } finally {
+              synchronized (errlog) {
+                errlog.format("%s", partErrlog);
+              }
+            }
+          });
+        }
 
-          } catch (Throwable t) {
-            logger.error("Error making partition " + part.getRoot(), t);
-            partition.removePartition(part);
-          }
-        });
+        List<Boolean> ok = GribIndexExecutor.invokeAll("updateFilePartition " + partition.getRoot(), tasks);
+        for (int i = 0; i < parts.size(); i++) {
+          if (!ok.get(i))
+            partition.removePartition(parts.get(i));
+        }
       }
 
       // LOOK what if theres only one file?
@@ -1037,6 +1091,11 @@ public class GribCdmIndex implements IndexReader {
     @Parameter(names = {"-update", "--CollectionUpdateType"}, description = "Collection Update Type")
     final CollectionUpdateType updateType = CollectionUpdateType.always;
 
+    // not final: javac would inline a final int, and never see the parsed value
+    @Parameter(names = {"-threads", "--threads"}, description = "Number of threads used to build independent indexes",
+        validateWith = AtLeastOne.class)
+    int nthreads = 1;
+
     @Parameter(names = {"-h", "--help"}, description = "Display this help and exit", help = true)
     public final boolean help = false;
 
@@ -1047,10 +1106,24 @@ public class GribCdmIndex implements IndexReader {
       }
     }
 
+    public static class AtLeastOne implements IParameterValidator {
+      @Override
+      public void validate(String name, String value) throws ParameterException {
+        int n;
+        try {
+          n = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+          throw new ParameterException("Parameter " + name + " should be an integer (found " + value + ")");
+        }
+        if (n < 1)
+          throw new ParameterException("Parameter " + name + " should be at least 1 (found " + value + ")");
+      }
+    }
+
     private static class ParameterDescriptionComparator implements Comparator<ParameterDescription> {
       // Display parameters in this order in the usage information.
       private final List<String> orderedParamNames =
-          Arrays.asList("--featureCollection", "--CollectionUpdateType", "--help");
+          Arrays.asList("--featureCollection", "--CollectionUpdateType", "--threads", "--help");
 
       @Override
       public int compare(ParameterDescription p0, ParameterDescription p1) {
@@ -1094,9 +1167,14 @@ public class GribCdmIndex implements IndexReader {
         FeatureCollectionConfigBuilder reader = new FeatureCollectionConfigBuilder(errlog);
         String location = cmdLine.inputFile.getAbsolutePath();
         FeatureCollectionConfig config = reader.readConfigFromFile(location);
+        GribIndexExecutor.setThreads(cmdLine.nthreads);
         boolean changed = GribCdmIndex.updateGribCollection(config, cmdLine.updateType, classLogger);
         System.out.printf("changed =%s", changed);
 
+        Formatter status = new Formatter();
+        GribIndexExecutor.showStatus(status);
+        System.out.printf("%n%s", status);
+
       } catch (Exception e) {
         System.out.printf("%s = %s %n", e.getClass().getName(), e.getMessage());
         String err = errlog.toString();
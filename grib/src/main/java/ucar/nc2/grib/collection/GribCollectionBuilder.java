@@ -26,6 +26,7 @@ import ucar.unidata.util.StringUtil2;
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.Callable;
 
 /**
  * Superclass to build indexes for collections of Grib files.
@@ -49,6 +50,39 @@ abstract class GribCollectionBuilder {
   protected abstract boolean writeIndex(String name, String indexFilepath, CoordinateRuntime masterRuntime,
       List<? extends Group> groups, List<MFile> files, CalendarDateRange dateRange) throws IOException;
 
+  /**
+   * Read the gbx9 index of each file, creating it if needed.
+   * The files are done concurrently if GribIndexExecutor has more than one thread.
+   *
+   * @param mfiles the data files
+   * @return the indexes, in the same order as mfiles; null where the index could not be read or created
+   */
+  protected List<GribIndex> readOrCreateIndexes(List<MFile> mfiles) throws IOException {
+    String builderName = (isGrib1 ? "Grib1CollectionBuilder " : "Grib2CollectionBuilder ") + name;
+    List<Callable<GribIndex>> tasks = new ArrayList<>(mfiles.size());
+    for (MFile mfile : mfiles) {
+      tasks.add(() -> {
+        GribIndex index;
+        try {
+          if (Grib.debugGbxIndexOnly) {
+            index = GribIndex.open(isGrib1, mfile);
+          } else {
+            // this is where gbx9 files get recreated
+            index = GribIndex.readOrCreateIndexFromSingleFile(isGrib1, mfile, CollectionUpdateType.test, logger);
+          }
+
+        } catch (IOException ioe) {
+          logger.error(builderName + " : reading/Creating gbx9 index for file " + mfile.getPath() + " failed", ioe);
+          return null;
+        }
+        if (index == null)
+          logger.error(builderName + " : reading/Creating gbx9 index for file " + mfile.getPath() + " failed");
+        return index;
+      });
+    }
+    return GribIndexExecutor.invokeAll(builderName + " gbx9", tasks);
+  }
+
   GribCollectionBuilder(boolean isGrib1, String name, MCollection dcm, org.slf4j.Logger logger) {
     this.dcm = dcm;
     this.logger = logger;
@@ -490,34 +490,8 @@ public abstract class GribCollectionImmutable implements Closeable, FileCacheabl
         indexRaf.seek(recordsPos);
         indexRaf.readFully(b);
 
-        /*
-         * message SparseArray {
-         * repeated uint32 size = 2 [packed=true]; // multidim sizes = shape[]
-         * repeated uint32 track = 3 [packed=true]; // 1-based index into record list, 0 == missing
-         * repeated Record records = 4; // List<Record>
-         * uint32 ndups = 5; // duplicates found when creating
-         * }
-         */
-        GribCollectionProto.SparseArray proto = GribCollectionProto.SparseArray.parseFrom(b);
-
-        int nsizes = proto.getSizeCount();
-        int[] size = new int[nsizes];
-        for (int i = 0; i < nsizes; i++)
-          size[i] = proto.getSize(i);
-
-        int ntrack = proto.getTrackCount();
-        int[] track = new int[ntrack];
-        for (int i = 0; i < ntrack; i++)
-          track[i] = proto.getTrack(i);
-
-        int n = proto.getRecordsCount();
-        List<Record> records = new ArrayList<>(n);
-        for (int i = 0; i < n; i++) {
-          GribCollectionProto.Record pr = proto.getRecords(i);
-          records.add(new Record(pr.getFileno(), pr.getStartPos(), pr.getBmsOffset(), pr.getDrsOffset()));
-        }
-        int ndups = proto.getNdups();
-        this.sa = new SparseArray<>(size, track, records, ndups);
+        // decode straight into primitive arrays, see RecordTable
+        this.sa = RecordTable.readSparseArray(b);
 
       } catch (com.google.protobuf.InvalidProtocolBufferException e) {
         logger.error(" file={} recordsLen={} recordPos={}", indexFilename, recordsLen, recordsPos);
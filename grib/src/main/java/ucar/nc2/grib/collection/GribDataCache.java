@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.grib.collection;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import ucar.unidata.io.RandomAccessFile;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.File;
+import java.io.IOException;
+import java.util.Formatter;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * A cache of decoded GRIB records, shared by all GribCollections, so that requests that hit the same record
+ * (eg WMS tiles or NCSS subsets of one field) only decode it once.
+ * Records are identified by the data file's location, length and last modified time, and the position of the
+ * record in the file. Records are evicted least recently used first when the total size goes over the byte budget.
+ * <p/>
+ * When several threads want the same record, it is decoded once, and the other threads wait for it.
+ * The cached arrays are shared, and must not be modified.
+ * By default the cache is off, use setMaxBytes() to turn it on.
+ *
+ * @since 10/19/2026
+ */
+@ThreadSafe
+public class GribDataCache {
+  private static final Object lock = new Object();
+  private static volatile Cache<Key, float[]> cache; // null when off
+  private static long maxBytes;
+
+  /**
+   * Set the byte budget of the cache. The records already in the cache are discarded.
+   *
+   * @param max maximum total size of the decoded records in bytes; 0 turns the cache off
+   */
+  public static void setMaxBytes(long max) {
+    synchronized (lock) {
+      maxBytes = Math.max(0, max);
+      if (cache != null)
+        cache.invalidateAll();
+      cache = (maxBytes == 0) ? null
+          : CacheBuilder.newBuilder().maximumWeight(maxBytes).weigher((Key k, float[] data) -> weight(data))
+              .recordStats().build();
+    }
+  }
+
+  public static long getMaxBytes() {
+    synchronized (lock) {
+      return maxBytes;
+    }
+  }
+
+  public static boolean isEnabled() {
+    return cache != null;
+  }
+
+  private static int weight(float[] data) {
+    return 16 + 4 * data.length;
+  }
+
+  /**
+   * Get a decoded record, decoding it if it is not in the cache.
+   *
+   * @param raf the record's data file
+   * @param pos unique position of the record in the file
+   * @param decoder decodes the record, on the calling thread, using raf
+   * @return the decoded record, which must not be modified
+   * @throws IOException on read error
+   */
+  static float[] get(RandomAccessFile raf, long pos, Callable<float[]> decoder) throws IOException {
+    Cache<Key, float[]> c = cache;
+    if (c == null) {
+      try {
+        return decoder.call();
+      } catch (IOException | RuntimeException e) {
+        throw e;
+      } catch (Exception e) {
+        throw new IOException(e);
+      }
+    }
+
+    try {
+      return c.get(new Key(raf, pos), decoder);
+
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException)
+        throw (IOException) cause;
+      if (cause instanceof RuntimeException)
+        throw (RuntimeException) cause;
+      throw new IOException(cause);
+
+    } catch (ExecutionError e) {
+      throw (Error) e.getCause();
+    }
+  }
+
+  /** Remove all the records. */
+  public static void clearCache() {
+    Cache<Key, float[]> c = cache;
+    if (c != null)
+      c.invalidateAll();
+  }
+
+  ////////////////////////////////////////////////////////////////////////////////////
+  // statistics
+
+  /** Hits, misses, load times and evictions since the cache was made, or null if the cache is off. */
+  public static CacheStats getStats() {
+    Cache<Key, float[]> c = cache;
+    return (c == null) ? null : c.stats();
+  }
+
+  /** Number of records in the cache */
+  public static long getSize() {
+    Cache<Key, float[]> c = cache;
+    return (c == null) ? 0 : c.size();
+  }
+
+  /** Total size in bytes of the cached records */
+  public static long getCachedBytes() {
+    Cache<Key, float[]> c = cache;
+    if (c == null)
+      return 0;
+    long total = 0;
+    for (float[] data : c.asMap().values())
+      total += weight(data);
+    return total;
+  }
+
+  public static void showStatus(Formatter f) {
+    Cache<Key, float[]> c = cache;
+    if (c == null) {
+      f.format("GribDataCache is off%n");
+      return;
+    }
+    CacheStats stats = c.stats();
+    f.format("GribDataCache maxBytes=%d records=%d bytes=%d hits=%d misses=%d hitRatio=%.3f evictions=%d",
+        getMaxBytes(), c.size(), getCachedBytes(), stats.hitCount(), stats.missCount(), stats.hitRate(),
+        stats.evictionCount());
+    if (stats.loadCount() > 0)
+      f.format(" avgDecode=%.3f msecs", stats.averageLoadPenalty() / 1000 / 1000);
+    f.format("%n");
+  }
+
+  // file identity and record position
+  private static class Key {
+    private final String location;
+    private final long length, lastModified, pos;
+
+    Key(RandomAccessFile raf, long pos) throws IOException {
+      this.location = raf.getLocation();
+      this.length = raf.length();
+      this.lastModified = new File(location).lastModified(); // 0 if not a local file
+      this.pos = pos;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o)
+        return true;
+      if (o == null || getClass() != o.getClass())
+        return false;
+      Key key = (Key) o;
+      return length == key.length && lastModified == key.lastModified && pos == key.pos
+          && location.equals(key.location);
+    }
+
+    @Override
+    public int hashCode() {
+      int result = location.hashCode();
+      result = 31 * result + Long.hashCode(length);
+      result = 31 * result + Long.hashCode(lastModified);
+      result = 31 * result + Long.hashCode(pos);
+      return result;
+    }
+  }
+
+}
@@ -6,6 +6,7 @@
 package ucar.nc2.grib.collection;
 
 import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import javax.annotation.Nonnull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,6 +29,13 @@ import ucar.unidata.io.RandomAccessFile;
 import javax.annotation.concurrent.Immutable;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Grib Data Reader.
@@ -236,11 +244,16 @@ public abstract class GribDataReader {
    */
   private void read(DataReceiverIF dataReceiver) throws IOException {
     Collections.sort(records);
+    if (!readConcurrently(dataReceiver, false))
+      read(records, dataReceiver);
+  }
 
+  // read these records, in order, with one file open at a time
+  private void read(List<DataRecord> drs, DataReceiverIF dataReceiver) throws IOException {
     int currFile = -1;
     RandomAccessFile rafData = null;
     try {
-      for (DataRecord dr : records) {
+      for (DataRecord dr : drs) {
         if (Grib.debugIndexOnly || Grib.debugGbxIndexOnly) {
           GribIosp.debugIndexOnlyCount++;
           currentDataRecord = dr.record;
@@ -270,7 +283,7 @@ public abstract class GribDataReader {
           show(rafData, dr.record.pos + dr.record.drsOffset);
         }
 
-        float[] data = readData(rafData, dr);
+        float[] data = readCached(rafData, dr);
         GdsHorizCoordSys hcs = vindex.group.getGdsHorizCoordSys();
         dataReceiver.addData(data, dr.resultIndex, hcs.nx);
       }
@@ -281,6 +294,11 @@ public abstract class GribDataReader {
     }
   }
 
+  // decoded records may be shared through the GribDataCache
+  private float[] readCached(RandomAccessFile rafData, DataRecord dr) throws IOException {
+    return GribDataCache.get(rafData, dr.record.pos + dr.record.drsOffset, () -> readData(rafData, dr));
+  }
+
   private void show(SubsetParams validation) {
     if (validation == null)
       return;
@@ -289,12 +307,16 @@ public abstract class GribDataReader {
 
   private void readPartitioned(DataReceiverIF dataReceiver) throws IOException {
     Collections.sort(records);
+    if (!readConcurrently(dataReceiver, true))
+      readPartitioned(records, dataReceiver);
+  }
 
+  private void readPartitioned(List<DataRecord> drs, DataReceiverIF dataReceiver) throws IOException {
     PartitionCollectionImmutable.DataRecord lastRecord = null;
     RandomAccessFile rafData = null;
     try {
 
-      for (DataRecord dr : records) {
+      for (DataRecord dr : drs) {
         PartitionCollectionImmutable.DataRecord drp = (PartitionCollectionImmutable.DataRecord) dr;
         if (Grib.debugIndexOnly || Grib.debugGbxIndexOnly) {
           GribIosp.debugIndexOnlyCount++;
@@ -322,7 +344,7 @@ public abstract class GribDataReader {
           show(rafData, dr.record.pos + dr.record.drsOffset);
         }
 
-        float[] data = readData(rafData, dr);
+        float[] data = readCached(rafData, dr);
         GdsHorizCoordSys hcs = dr.hcs;
         dataReceiver.addData(data, dr.resultIndex, hcs.nx);
       }
@@ -333,6 +355,136 @@ public abstract class GribDataReader {
     }
   }
 
+  /**
+   * Decode the sorted records concurrently, if more than one decode thread is configured.
+   * The records are split into contiguous runs, one for each thread, so each run still reads its files in order,
+   * using its own RandomAccessFile. The decoded records are sent to the dataReceiver one at a time.
+   *
+   * @return false if the records should be read on the calling thread
+   */
+  private boolean readConcurrently(DataReceiverIF dataReceiver, boolean partitioned) throws IOException {
+    if (records.size() < 2 || Grib.debugIndexOnly || Grib.debugGbxIndexOnly || validator != null || show)
+      return false;
+    ExecutorService exec = getDecodePool();
+    if (exec == null)
+      return false;
+
+    DataReceiverIF synchReceiver = new SynchronizedReceiver(dataReceiver);
+    int nruns = Math.min(records.size(), getDecodeThreads());
+    List<Future<Void>> futures = new ArrayList<>(nruns);
+    for (int run = 0; run < nruns; run++) {
+      List<DataRecord> drs = records.subList(run * records.size() / nruns, (run + 1) * records.size() / nruns);
+      Callable<Void> task = () -> {
+        if (partitioned)
+          readPartitioned(drs, synchReceiver);
+        else
+          read(drs, synchReceiver);
+        return null;
+      };
+      Future<Void> future = null;
+      if (exec != null) {
+        try {
+          future = exec.submit(task);
+        } catch (RejectedExecutionException e) { // pool was shut down by setDecodeThreads()
+          exec = null;
+        }
+      }
+      if (future == null) { // read the remaining runs on the calling thread
+        FutureTask<Void> inline = new FutureTask<>(task);
+        inline.run();
+        future = inline;
+      }
+      futures.add(future);
+    }
+
+    Throwable first = null;
+    for (Future<Void> future : futures) {
+      try {
+        future.get();
+      } catch (ExecutionException e) {
+        if (first == null)
+          first = e.getCause();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        if (first == null)
+          first = new IOException("GRIB decode was interrupted", e);
+      }
+    }
+    if (first instanceof IOException)
+      throw (IOException) first;
+    if (first instanceof RuntimeException)
+      throw (RuntimeException) first;
+    if (first instanceof Error)
+      throw (Error) first;
+    if (first != null)
+      throw new IOException(first);
+    return true;
+  }
+
+  private static final Object decodeLock = new Object();
+  private static ExecutorService decodePool; // lazily created
+  private static int decodeThreads = 1;
+
+  /**
+   * Set the number of threads used to decode the records of one read. Default is 1, meaning sequential.
+   * Useful for expensive packings like JPEG2000 (DRS template 5.40).
+   *
+   * @param n number of threads, values < 1 are set to 1
+   */
+  public static void setDecodeThreads(int n) {
+    synchronized (decodeLock) {
+      n = Math.max(1, n);
+      if (n == decodeThreads)
+        return;
+      decodeThreads = n;
+      if (decodePool != null) { // submitted runs finish, a read that is still submitting reads the rest itself
+        decodePool.shutdown();
+        decodePool = null;
+      }
+    }
+  }
+
+  public static int getDecodeThreads() {
+    synchronized (decodeLock) {
+      return decodeThreads;
+    }
+  }
+
+  private static ExecutorService getDecodePool() {
+    synchronized (decodeLock) {
+      if (decodeThreads <= 1)
+        return null;
+      if (decodePool == null)
+        decodePool = Executors.newFixedThreadPool(decodeThreads,
+            new ThreadFactoryBuilder().setNameFormat("GribDecode-%d").setDaemon(true).build());
+      return decodePool;
+    }
+  }
+
+  // the decode threads send their records to the receiver one at a time
+  private static class SynchronizedReceiver implements DataReceiverIF {
+    private final DataReceiverIF receiver;
+
+    SynchronizedReceiver(DataReceiverIF receiver) {
+      this.receiver = receiver;
+    }
+
+    @Override
+    public synchronized void addData(float[] data, int resultIndex, int nx) {
+      receiver.addData(data, resultIndex, nx);
+    }
+
+    @Override
+    public synchronized void setDataToZero() {
+      receiver.setDataToZero();
+    }
+
+    @Override
+    public synchronized Array getArray() {
+      return receiver.getArray();
+    }
+  }
+
   public static class DataRecord implements Comparable<DataRecord> {
     int resultIndex; // index into the result array
     final GribCollectionImmutable.Record record;
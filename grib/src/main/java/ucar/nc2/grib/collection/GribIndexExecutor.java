@@ -0,0 +1,247 @@
+/*
+ * Copyright (c) 1998-2018 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.grib.collection;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Formatter;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded thread pool for building GRIB indexes (gbx9 and ncx4) concurrently.
+ * By default there is one thread, and all tasks run on the calling thread, same as before.
+ * <p/>
+ * Tasks are independent units of work: indexing one data file, or building one child partition.
+ * invokeAll() always returns the results in the order the tasks were given, so the caller can merge them
+ * in a deterministic order, and the index files are identical to the ones made sequentially.
+ * Tasks submitted from a pool thread run inline, so nested partitions never wait on a full pool.
+ *
+ * @since 10/19/2026
+ */
+public class GribIndexExecutor {
+  private static final Logger logger = LoggerFactory.getLogger(GribIndexExecutor.class);
+
+  private static final ThreadLocal<Boolean> isPoolThread = ThreadLocal.withInitial(() -> false);
+  private static final Object lock = new Object();
+  private static ExecutorService pool; // lazily created
+  private static int nthreads = 1;
+
+  // progress and timing
+  private static final AtomicInteger submitted = new AtomicInteger();
+  private static final AtomicInteger completed = new AtomicInteger();
+  private static final AtomicInteger failed = new AtomicInteger();
+  private static final AtomicLong taskMsecs = new AtomicLong();
+
+  /**
+   * Set the number of threads used to build indexes. Default is 1, meaning sequential.
+   *
+   * @param n number of threads, values < 1 are set to 1
+   */
+  public static void setThreads(int n) {
+    synchronized (lock) {
+      n = Math.max(1, n);
+      if (n == nthreads)
+        return;
+      nthreads = n;
+      if (pool != null) { // running tasks finish, the rest of an invokeAll() runs on the calling thread
+        pool.shutdown();
+        pool = null;
+      }
+    }
+  }
+
+  public static int getThreads() {
+    synchronized (lock) {
+      return nthreads;
+    }
+  }
+
+  /**
+   * You must call shutdown() to shut down the background threads in order to get a clean process shutdown.
+   */
+  public static void shutdown() {
+    synchronized (lock) {
+      if (pool != null)
+        pool.shutdown();
+      pool = null;
+    }
+  }
+
+  private static ExecutorService getPool() {
+    synchronized (lock) {
+      if (nthreads <= 1 || isPoolThread.get())
+        return null;
+      if (pool == null)
+        pool = Executors.newFixedThreadPool(nthreads, new IndexThreadFactory());
+      return pool;
+    }
+  }
+
+  /**
+   * Run the tasks, concurrently if more than one thread is configured, and wait for them all to finish.
+   * If any task fails, the first failure (in task order) is rethrown after all tasks are done.
+   *
+   * @param what description for logging
+   * @param tasks the independent tasks
+   * @return the results, in the same order as the tasks
+   * @throws IOException if a task threw an IOException
+   */
+  public static <T> List<T> invokeAll(String what, List<? extends Callable<T>> tasks) throws IOException {
+    long start = System.currentTimeMillis();
+    List<T> result = new ArrayList<>(tasks.size());
+    ExecutorService exec = (tasks.size() > 1) ? getPool() : null;
+
+    if (exec == null) {
+      for (Callable<T> task : tasks)
+        result.add(get(what, new TimedTask<>(task), null));
+
+    } else {
+      List<Future<T>> futures = new ArrayList<>(tasks.size());
+      ExecutorService submitTo = exec;
+      for (Callable<T> task : tasks) {
+        Future<T> future = null;
+        if (submitTo != null) {
+          try {
+            future = submitTo.submit(new TimedTask<>(task));
+          } catch (RejectedExecutionException e) { // pool was shut down by setThreads() or shutdown()
+            submitTo = null;
+          }
+        }
+        if (future == null) {
+          FutureTask<T> inline = new FutureTask<>(new TimedTask<>(task));
+          inline.run();
+          future = inline;
+        }
+        futures.add(future);
+      }
+
+      Throwable first = null;
+      for (Future<T> future : futures) {
+        try {
+          result.add(get(what, null, future));
+        } catch (Throwable t) {
+          if (first == null)
+            first = t;
+          result.add(null);
+        }
+      }
+      if (first != null)
+        rethrow(first);
+    }
+
+    logger.debug("{}: {} tasks took {} msecs with {} threads", what, tasks.size(), System.currentTimeMillis() - start,
+        exec == null ? 1 : getThreads());
+    return result;
+  }
+
+  private static <T> T get(String what, Callable<T> task, Future<T> future) throws IOException {
+    try {
+      return (task != null) ? task.call() : future.get();
+
+    } catch (ExecutionException e) {
+      rethrow(e.getCause());
+      return null; // cant happen
+
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(what + " was interrupted", e);
+
+    } catch (IOException | RuntimeException | Error e) {
+      throw e;
+
+    } catch (Exception e) {
+      throw new IOException(e);
+    }
+  }
+
+  private static void rethrow(Throwable t) throws IOException {
+    if (t instanceof IOException)
+      throw (IOException) t;
+    if (t instanceof RuntimeException)
+      throw (RuntimeException) t;
+    if (t instanceof Error)
+      throw (Error) t;
+    throw new IOException(t);
+  }
+
+  /**
+   * Show progress and timing of the tasks run so far.
+   *
+   * @param f append to this
+   */
+  public static void showStatus(Formatter f) {
+    int done = completed.get();
+    f.format("GribIndexExecutor threads=%d tasks completed=%d/%d failed=%d", getThreads(), done, submitted.get(),
+        failed.get());
+    if (done > 0)
+      f.format(" avg=%d msecs/task", taskMsecs.get() / done);
+    f.format("%n");
+  }
+
+  public static int getTasksSubmitted() {
+    return submitted.get();
+  }
+
+  public static int getTasksCompleted() {
+    return completed.get();
+  }
+
+  public static void resetStatus() {
+    submitted.set(0);
+    completed.set(0);
+    failed.set(0);
+    taskMsecs.set(0);
+  }
+
+  private static class TimedTask<T> implements Callable<T> {
+    private final Callable<T> task;
+
+    TimedTask(Callable<T> task) {
+      this.task = task;
+      submitted.incrementAndGet();
+    }
+
+    @Override
+    public T call() throws Exception {
+      long start = System.currentTimeMillis();
+      try {
+        return task.call();
+      } catch (Throwable t) {
+        failed.incrementAndGet();
+        throw t;
+      } finally {
+        taskMsecs.addAndGet(System.currentTimeMillis() - start);
+        completed.incrementAndGet();
+      }
+    }
+  }
+
+  private static class IndexThreadFactory implements ThreadFactory {
+    private final AtomicInteger count = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable r) {
+      Thread t = new Thread(() -> {
+        isPoolThread.set(true);
+        r.run();
+      }, "GribIndexExecutor-" + count.incrementAndGet());
+      t.setDaemon(true);
+      return t;
+    }
+  }
+
+}
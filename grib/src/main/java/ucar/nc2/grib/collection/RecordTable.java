@@ -0,0 +1,267 @@
+/*
+ * Copyright (c) 1998-2018 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.grib.collection;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.WireFormat;
+import ucar.nc2.grib.coord.SparseArray;
+import javax.annotation.concurrent.Immutable;
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * The records of a GribCollectionImmutable.VariableIndex, stored as parallel primitive arrays.
+ * A Record object is only made when asked for in get(), so large collections dont keep
+ * millions of small objects in the collection cache.
+ *
+ * @since 10/19/2026
+ */
+@Immutable
+public class RecordTable extends AbstractList<GribCollectionImmutable.Record> implements RandomAccess {
+
+  /**
+   * Decode the serialized GribCollectionProto.SparseArray message directly into a SparseArray backed by a RecordTable.
+   * Equivalent to GribCollectionProto.SparseArray.parseFrom(b), but without making a protobuf object per record.
+   *
+   * <pre>
+   * message SparseArray {
+   *   repeated uint32 size = 2 [packed=true]; // multidim sizes = shape[]
+   *   repeated uint32 track = 3 [packed=true]; // 1-based index into record list, 0 == missing
+   *   repeated Record records = 4; // List<Record>
+   *   uint32 ndups = 5; // duplicates found when creating
+   * }
+   * </pre>
+   *
+   * @param b serialized message
+   * @return SparseArray of Records
+   * @throws IOException if the message is malformed
+   */
+  public static SparseArray<GribCollectionImmutable.Record> readSparseArray(byte[] b) throws IOException {
+    CodedInputStream input = CodedInputStream.newInstance(b);
+    IntList size = new IntList(8);
+    IntList track = new IntList(8);
+    Builder records = null;
+    int ndups = 0;
+
+    while (true) {
+      int tag = input.readTag();
+      if (tag == 0)
+        break;
+
+      switch (WireFormat.getTagFieldNumber(tag)) {
+        case 2:
+          readUInt32s(input, tag, size);
+          break;
+        case 3:
+          readUInt32s(input, tag, track);
+          break;
+        case 4:
+          if (records == null) // the number of records is at least the largest track value
+            records = new Builder(Math.max(track.max(), 16));
+          int length = input.readRawVarint32();
+          int oldLimit = input.pushLimit(length);
+          readRecord(input, records);
+          input.popLimit(oldLimit);
+          break;
+        case 5:
+          ndups = input.readUInt32();
+          break;
+        default:
+          input.skipField(tag);
+      }
+    }
+    return finish(size, track, records, ndups);
+  }
+
+  private static SparseArray<GribCollectionImmutable.Record> finish(IntList size, IntList track, Builder records,
+      int ndups) {
+    RecordTable table = (records == null) ? new Builder(0).build() : records.build();
+    return new SparseArray<>(size.toArray(), track.toArray(), table, ndups);
+  }
+
+  // handle both packed and unpacked encodings
+  private static void readUInt32s(CodedInputStream input, int tag, IntList result) throws IOException {
+    if (WireFormat.getTagWireType(tag) == WireFormat.WIRETYPE_LENGTH_DELIMITED) {
+      int length = input.readRawVarint32();
+      result.ensureCapacity(length); // at least one byte per value
+      int oldLimit = input.pushLimit(length);
+      while (input.getBytesUntilLimit() > 0)
+        result.add(input.readUInt32());
+      input.popLimit(oldLimit);
+    } else {
+      result.add(input.readUInt32());
+    }
+  }
+
+  /*
+   * message Record {
+   * uint32 fileno = 1; // which GRIB file ? key into GC.fileMap
+   * uint64 startPos = 2; // offset in GRIB file of the start of entire message
+   * uint32 bmsOffset = 3; // use alternate bms if non-zero (grib2 only). offset from start
+   * uint32 drsOffset = 4; // offset of drs from start (grib2 only)
+   * }
+   */
+  private static void readRecord(CodedInputStream input, Builder records) throws IOException {
+    int fileno = 0;
+    long pos = 0;
+    int bmsOffset = 0;
+    int drsOffset = 0;
+
+    while (true) {
+      int tag = input.readTag();
+      if (tag == 0)
+        break;
+      switch (WireFormat.getTagFieldNumber(tag)) {
+        case 1:
+          fileno = input.readUInt32();
+          break;
+        case 2:
+          pos = input.readUInt64();
+          break;
+        case 3:
+          bmsOffset = input.readUInt32();
+          break;
+        case 4:
+          drsOffset = input.readUInt32();
+          break;
+        default:
+          input.skipField(tag);
+      }
+    }
+    records.add(fileno, pos, bmsOffset, drsOffset);
+  }
+
+  ////////////////////////////////////////////////////////////////////////////////////
+
+  private final int[] fileno;
+  private final long[] pos;
+  private final int[] bmsOffset; // null if all zero
+  private final int[] drsOffset; // null if all zero
+
+  private RecordTable(int[] fileno, long[] pos, int[] bmsOffset, int[] drsOffset) {
+    this.fileno = fileno;
+    this.pos = pos;
+    this.bmsOffset = bmsOffset;
+    this.drsOffset = drsOffset;
+  }
+
+  @Override
+  public GribCollectionImmutable.Record get(int idx) {
+    return new GribCollectionImmutable.Record(fileno[idx], pos[idx], getBmsOffset(idx), getDrsOffset(idx));
+  }
+
+  @Override
+  public int size() {
+    return pos.length;
+  }
+
+  public int getFileno(int idx) {
+    return fileno[idx];
+  }
+
+  public long getPos(int idx) {
+    return pos[idx];
+  }
+
+  public int getBmsOffset(int idx) {
+    return bmsOffset == null ? 0 : bmsOffset[idx];
+  }
+
+  public int getDrsOffset(int idx) {
+    return drsOffset == null ? 0 : drsOffset[idx];
+  }
+
+  /** Approximate number of bytes used by the arrays. */
+  public long getSizeInBytes() {
+    long result = 4L * fileno.length + 8L * pos.length;
+    if (bmsOffset != null)
+      result += 4L * bmsOffset.length;
+    if (drsOffset != null)
+      result += 4L * drsOffset.length;
+    return result;
+  }
+
+  ////////////////////////////////////////////////////////////////////////////////////
+
+  public static class Builder {
+    private int[] fileno;
+    private long[] pos;
+    private int[] bmsOffset;
+    private int[] drsOffset;
+    private boolean hasBms, hasDrs;
+    private int count;
+
+    public Builder(int capacity) {
+      fileno = new int[capacity];
+      pos = new long[capacity];
+      bmsOffset = new int[capacity];
+      drsOffset = new int[capacity];
+    }
+
+    public Builder add(int fileno, long pos, int bmsOffset, int drsOffset) {
+      if (count == this.pos.length) {
+        int newCapacity = Math.max(16, count + (count >> 1));
+        this.fileno = Arrays.copyOf(this.fileno, newCapacity);
+        this.pos = Arrays.copyOf(this.pos, newCapacity);
+        this.bmsOffset = Arrays.copyOf(this.bmsOffset, newCapacity);
+        this.drsOffset = Arrays.copyOf(this.drsOffset, newCapacity);
+      }
+      this.fileno[count] = fileno;
+      this.pos[count] = pos;
+      this.bmsOffset[count] = bmsOffset;
+      this.drsOffset[count] = drsOffset;
+      if (bmsOffset != 0)
+        hasBms = true;
+      if (drsOffset != 0)
+        hasDrs = true;
+      count++;
+      return this;
+    }
+
+    public RecordTable build() {
+      return new RecordTable(trim(fileno), Arrays.copyOf(pos, count), hasBms ? trim(bmsOffset) : null,
+          hasDrs ? trim(drsOffset) : null);
+    }
+
+    private int[] trim(int[] a) {
+      return a.length == count ? a : Arrays.copyOf(a, count);
+    }
+  }
+
+  // growable int[]
+  private static class IntList {
+    private int[] values;
+    private int count;
+    private int max;
+
+    IntList(int capacity) {
+      values = new int[Math.max(capacity, 8)];
+    }
+
+    void ensureCapacity(int extra) {
+      if (count + extra > values.length)
+        values = Arrays.copyOf(values, count + extra);
+    }
+
+    void add(int value) {
+      if (count == values.length)
+        values = Arrays.copyOf(values, count + (count >> 1));
+      values[count++] = value;
+      if (value > max)
+        max = value;
+    }
+
+    int max() {
+      return max;
+    }
+
+    int[] toArray() {
+      return Arrays.copyOf(values, count);
+    }
+  }
+
+}
@@ -755,10 +755,11 @@ public class Grib2DataReader {
     Grib2JpegDecoder g2j = null;
     // try {
     if (nb != 0) { // there's data to decode
-      g2j = new Grib2JpegDecoder(nb, false);
-      byte[] buf = new byte[dataLength - 5];
-      raf.readFully(buf);
-      g2j.decode(buf);
+      // decoder and buffer are reused by this thread
+      g2j = Grib2JpegDecoder.getThreadDecoder(nb);
+      byte[] buf = Grib2JpegDecoder.getThreadBuffer(dataLength - 5);
+      raf.readFully(buf, 0, dataLength - 5);
+      g2j.decode(buf, dataLength - 5);
       gdrs.hasSignedProblem = g2j.hasSignedProblem();
     }
 
@@ -772,7 +773,7 @@ public class Grib2DataReader {
       return result;
     }
 
-    int[] idata = g2j.getGdata();
+    int[] idata = g2j.takeGdata();
     if (bitmap == null) { // must be one decoded value in idata for every expected data point
       if (idata.length != dataNPoints) {
         logger.debug("Number of points in the data record {} != {} expected from GDS", idata.length, dataNPoints);
@@ -827,14 +828,13 @@ public class Grib2DataReader {
     }
     int missing_value = (2 << nb - 1) - 1; // all ones - reserved for missing value
 
-    Grib2JpegDecoder g2j;
-    g2j = new Grib2JpegDecoder(nb, false);
-    byte[] buf = new byte[dataLength - 5];
-    raf.readFully(buf);
-    g2j.decode(buf);
+    Grib2JpegDecoder g2j = Grib2JpegDecoder.getThreadDecoder(nb);
+    byte[] buf = Grib2JpegDecoder.getThreadBuffer(dataLength - 5);
+    raf.readFully(buf, 0, dataLength - 5);
+    g2j.decode(buf, dataLength - 5);
     gdrs.hasSignedProblem = g2j.hasSignedProblem();
 
-    int[] idata = g2j.getGdata();
+    int[] idata = g2j.takeGdata();
 
     if (bitmap == null) { // must be one decoded value in idata for every expected data point
       if (idata.length != totalNPoints) {
@@ -894,9 +894,22 @@ public class Grib2DataReader {
     // X2 = scaled encoded value
     // data[ i ] = (R + ( X1 + X2) * EE)/DD ;
 
-    byte[] buf = new byte[dataLength - 5];
-    raf.readFully(buf);
-    InputStream in = new ByteArrayInputStream(buf);
+    Grib2PngDecoder png = Grib2PngDecoder.getThreadDecoder();
+    byte[] buf = png.getBuffer(dataLength - 5);
+    raf.readFully(buf, 0, dataLength - 5);
+
+    // decode directly into data
+    PngReceiver receiver = new PngReceiver(data, R, EE, DD);
+    if (png.decode(buf, dataLength - 5, receiver)) {
+      if (nb != png.getBitsPerPixel()) {
+        logger.debug("PNG pixel size {} disagrees with grib number of bits {}", png.getBitsPerPixel(), nb);
+      }
+      receiver.finish();
+      return data;
+    }
+
+    // formats that Grib2PngDecoder does not handle
+    InputStream in = new ByteArrayInputStream(buf, 0, dataLength - 5);
     BufferedImage image = ImageIO.read(in);
 
     if (nb != image.getColorModel().getPixelSize()) {
@@ -920,6 +933,49 @@ public class Grib2DataReader {
 
     return data;
   }
+  // scale the PNG rows into data, skipping the missing values in the bitmap
+  private class PngReceiver implements Grib2PngDecoder.RowReceiver {
+    private final float[] data;
+    private final float R, EE, DD;
+    private int bitPt; // next point in data
+
+    PngReceiver(float[] data, float R, float EE, float DD) {
+      this.data = data;
+      this.R = R;
+      this.EE = EE;
+      this.DD = DD;
+    }
+
+    @Override
+    public void addRow(int[] row, int width) {
+      if (bitmap == null) {
+        int n = Math.min(width, dataNPoints - bitPt);
+        for (int i = 0; i < n; i++) {
+          int value = row[i];
+          data[bitPt++] = (R + (value >= 0 ? value : (value & 0xffffffffL)) * EE) / DD;
+        }
+
+      } else {
+        for (int i = 0; i < width; i++) {
+          while (bitPt < totalNPoints && !GribNumbers.testBitIsSet(bitmap[bitPt / 8], bitPt % 8))
+            data[bitPt++] = staticMissingValue;
+          if (bitPt >= totalNPoints)
+            return;
+          int value = row[i];
+          data[bitPt++] = (R + (value >= 0 ? value : (value & 0xffffffffL)) * EE) / DD;
+        }
+      }
+    }
+
+    // the missing values after the last decoded value
+    void finish() {
+      if (bitmap != null) {
+        while (bitPt < totalNPoints)
+          data[bitPt++] = staticMissingValue;
+      }
+    }
+  }
+
 
   // by jkaehler@meteomatics.com
   // ported from
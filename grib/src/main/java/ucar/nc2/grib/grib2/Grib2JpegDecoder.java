@@ -37,7 +37,7 @@ public class Grib2JpegDecoder {
   private static final Logger logger = LoggerFactory.getLogger(Grib2JpegDecoder.class);
 
   private boolean debug;
-  private final int rate;
+  private int rate;
 
   /**
    * Return the packBytes ie number bytes / number 1,2 or 4
@@ -59,6 +59,64 @@ public class Grib2JpegDecoder {
    */
   private final ParameterList pl;
 
+  /**
+   * The default parameter list (with modules arguments), the same for all decoders.
+   */
+  private static final ParameterList defaultParameters = makeDefaultParameters();
+
+  // one decoder for each thread, only its parameter list is kept between records
+  private static final ThreadLocal<Grib2JpegDecoder> threadDecoder = new ThreadLocal<>();
+
+  // compressed bytes are read into a buffer that is reused by the thread, unless the record is larger than this
+  private static final int MAX_THREAD_BUFFER = 1000 * 1000;
+  private static final ThreadLocal<byte[]> threadBuffer = new ThreadLocal<>();
+
+  private static ParameterList makeDefaultParameters() {
+    ParameterList defpl = new ParameterList();
+    String[][] param = Grib2JpegDecoder.getAllParameters();
+    for (int i = param.length - 1; i >= 0; i--) {
+      if (param[i][3] != null)
+        defpl.put(param[i][0], param[i][3]);
+    }
+    return defpl;
+  }
+
+  /**
+   * Get a decoder for this number of bits that is only used by the calling thread.
+   * The decoder is reused, so use takeGdata() to get the result before the next decode on this thread.
+   *
+   * @param nbits number of bits in the packed data
+   * @return decoder owned by the calling thread
+   */
+  static Grib2JpegDecoder getThreadDecoder(int nbits) {
+    Grib2JpegDecoder decoder = threadDecoder.get();
+    if (decoder == null) {
+      decoder = new Grib2JpegDecoder(nbits, false);
+      threadDecoder.set(decoder);
+    } else {
+      decoder.setRate(nbits);
+    }
+    return decoder;
+  }
+
+  /**
+   * Get a byte buffer of at least len bytes. Buffers up to MAX_THREAD_BUFFER bytes are reused by the calling
+   * thread, larger ones are allocated for each call so they are not kept.
+   *
+   * @param len minimum length
+   * @return buffer only used by the calling thread, may be longer than len
+   */
+  static byte[] getThreadBuffer(int len) {
+    if (len > MAX_THREAD_BUFFER)
+      return new byte[len];
+    byte[] buf = threadBuffer.get();
+    if (buf == null || buf.length < len) {
+      buf = new byte[len];
+      threadBuffer.set(buf);
+    }
+    return buf;
+  }
+
   /**
    * Instantiates a decoder object, width the 'argv' command
    * line arguments. It also initializes the default parameters. If the
@@ -82,21 +140,8 @@ public class Grib2JpegDecoder {
     argv[4] = "-debug";
     argv[5] = "on";
 
-    // Initialize default parameters
-    // System.err.println("calling Grib2JpegDecoder with argv argument");
-    /*
-     * The default parameter list (with modules arguments)
-     */
-    ParameterList defpl = new ParameterList();
-    String[][] param = Grib2JpegDecoder.getAllParameters();
-
-    for (int i = param.length - 1; i >= 0; i--) {
-      if (param[i][3] != null)
-        defpl.put(param[i][0], param[i][3]);
-    }
-
     // Create parameter list using defaults
-    pl = new ParameterList(defpl);
+    pl = new ParameterList(defaultParameters);
 
     // Parse arguments from argv
     try {
@@ -106,6 +151,13 @@ public class Grib2JpegDecoder {
     }
   } // end Grib2JpegDecoder constructor
 
+  private void setRate(int nbits) {
+    if (nbits != rate) {
+      rate = nbits;
+      pl.put("rate", Integer.toString(nbits));
+    }
+  }
+
   /**
    * Returns the exit code of the class. This is only initialized after the
    * constructor and when the run method returns.
@@ -129,7 +181,23 @@ public class Grib2JpegDecoder {
    * @see #getExitCode
    */
   public void decode(byte[] buf) throws IOException {
-    // int dataSize = buf.length;
+    decode(buf, buf.length);
+  }
+
+  /**
+   * Runs the decoder on the first len bytes of buf. The decoder may be reused for another record
+   * after getGdata() has been consumed.
+   *
+   * @param buf codestream
+   * @param len number of bytes of the codestream in buf
+   */
+  public void decode(byte[] buf, int len) throws IOException {
+    // reset the state of the previous decode
+    data = null;
+    csMap = null;
+    exitCode = 0;
+    packBytes = 0;
+    hasSignedProblem = false;
     boolean verbose = false;
     int res; // resolution level to reconstruct
     FileFormatReader ff;
@@ -152,8 +220,8 @@ public class Grib2JpegDecoder {
     try {
 
       // create a ByteArrayInputStream from byte array for ISRandomAccessIO
-      ByteArrayInputStream bais = new ByteArrayInputStream(buf);
-      RandomAccessIO in = new ISRandomAccessIO(bais, buf.length, 1, buf.length);
+      ByteArrayInputStream bais = new ByteArrayInputStream(buf, 0, len);
+      RandomAccessIO in = new ISRandomAccessIO(bais, len, 1, len);
 
       // **** File Format ****
       // If the codestream is wrapped in the jp2 fileformat, Read the
@@ -342,6 +410,9 @@ public class Grib2JpegDecoder {
 
     } catch (Throwable e) {
       throw new IOException(e);
+
+    } finally {
+      csMap = null; // refers to the codestream
     }
   } // end decode
 
@@ -371,6 +442,15 @@ public class Grib2JpegDecoder {
     return data;
   }
 
+  /**
+   * Return the "raw" decoded data and release it, so a reused decoder does not keep the last record.
+   */
+  public int[] takeGdata() {
+    int[] result = data;
+    data = null;
+    return result;
+  }
+
   private int[] data;
 
   /**
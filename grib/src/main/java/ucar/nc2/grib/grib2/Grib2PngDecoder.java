@@ -0,0 +1,310 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.grib.grib2;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Decodes the PNG code stream of GRIB2 DRS template 5.41 (inflate and unfilter), without making a BufferedImage.
+ * Handles the formats GRIB2 uses: grayscale with 1, 2, 4, 8 or 16 bits, and 8 bit RGB (24 bits) or RGBA (32 bits).
+ * Each row of unpacked values is sent to a RowReceiver, so the caller can scale directly into its result array.
+ * <p/>
+ * A decoder keeps its Inflater and row buffers, and is not thread safe: use getThreadDecoder().
+ * Buffers larger than MAX_CACHED_BYTES are dropped after each decode, so a thread does not keep the largest record.
+ *
+ * @since 10/19/2026
+ */
+public class Grib2PngDecoder {
+  private static final byte[] signature = {(byte) 137, 80, 78, 71, 13, 10, 26, 10};
+  private static final int IHDR = 0x49484452;
+  private static final int IDAT = 0x49444154;
+  private static final int IEND = 0x49454e44;
+  static final int MAX_CACHED_BYTES = 1000 * 1000;
+
+  private static final ThreadLocal<Grib2PngDecoder> threadDecoder = ThreadLocal.withInitial(Grib2PngDecoder::new);
+
+  /**
+   * Get the decoder that is only used by the calling thread.
+   */
+  static Grib2PngDecoder getThreadDecoder() {
+    return threadDecoder.get();
+  }
+
+  /**
+   * Receives the decoded values one row at a time.
+   */
+  public interface RowReceiver {
+    /**
+     * @param row unpacked values; 32 bit values are unsigned, use (row[i] & 0xffffffffL)
+     * @param width number of values in the row
+     */
+    void addRow(int[] row, int width);
+  }
+
+  private final Inflater inflater = new Inflater();
+  private byte[] buffer; // compressed bytes
+  private byte[] prior, current; // filtered rows, with the filter type in the first byte
+  private int[] values; // unpacked row
+
+  // current image
+  private int width, height, bitDepth, colorType, bitsPerPixel;
+  private byte[] buf;
+  private int pos, end; // next chunk in buf
+
+  /**
+   * Get a byte buffer for the compressed bytes. Buffers up to MAX_CACHED_BYTES are owned by this decoder and reused,
+   * larger ones are allocated for each call.
+   *
+   * @param len minimum length
+   * @return buffer that may be longer than len
+   */
+  byte[] getBuffer(int len) {
+    if (len > MAX_CACHED_BYTES)
+      return new byte[len];
+    if (buffer == null || buffer.length < len)
+      buffer = new byte[len];
+    return buffer;
+  }
+
+  /**
+   * Number of bytes in the buffers kept between decodes.
+   */
+  long getCachedBytes() {
+    long result = (buffer == null) ? 0 : buffer.length;
+    if (current != null)
+      result += current.length + prior.length;
+    if (values != null)
+      result += 4L * values.length;
+    return result;
+  }
+
+  public int getWidth() {
+    return width;
+  }
+
+  public int getHeight() {
+    return height;
+  }
+
+  /**
+   * Number of bits in each value, 1, 2, 4, 8, 16, 24 or 32.
+   */
+  public int getBitsPerPixel() {
+    return bitsPerPixel;
+  }
+
+  /**
+   * Decode a PNG image.
+   *
+   * @param buf the PNG bytes
+   * @param len number of bytes in buf
+   * @param receiver gets the unpacked values, one row at a time
+   * @return false if this format is not handled (palette, gray with alpha, 16 bit color or interlaced),
+   *         then nothing has been sent to the receiver
+   * @throws IOException if the bytes are not a valid PNG image
+   */
+  public boolean decode(byte[] buf, int len, RowReceiver receiver) throws IOException {
+    this.buf = buf;
+    this.end = len;
+    try {
+      if (len < signature.length + 25)
+        throw new IOException("PNG data too short, len = " + len);
+      for (int i = 0; i < signature.length; i++) {
+        if (buf[i] != signature[i])
+          throw new IOException("Not a PNG image");
+      }
+      pos = signature.length;
+
+      // IHDR must be first
+      if (readInt(pos + 4) != IHDR)
+        throw new IOException("PNG IHDR chunk missing");
+      int start = pos + 8;
+      width = readInt(start);
+      height = readInt(start + 4);
+      bitDepth = buf[start + 8] & 0xff;
+      colorType = buf[start + 9] & 0xff;
+      int compression = buf[start + 10];
+      int filter = buf[start + 11];
+      int interlace = buf[start + 12];
+      pos = start + readInt(pos) + 4;
+      if (width <= 0 || height <= 0 || compression != 0 || filter != 0)
+        throw new IOException("PNG bad header: width=" + width + " height=" + height);
+
+      if (interlace != 0)
+        return false;
+      if (colorType == 0 && (bitDepth == 1 || bitDepth == 2 || bitDepth == 4 || bitDepth == 8 || bitDepth == 16))
+        bitsPerPixel = bitDepth;
+      else if (colorType == 2 && bitDepth == 8)
+        bitsPerPixel = 24;
+      else if (colorType == 6 && bitDepth == 8)
+        bitsPerPixel = 32;
+      else
+        return false;
+
+      readImage(receiver);
+      return true;
+
+    } finally {
+      this.buf = null;
+      inflater.reset(); // releases the input
+      if (current != null && current.length > MAX_CACHED_BYTES) {
+        current = null;
+        prior = null;
+      }
+      if (values != null && 4L * values.length > MAX_CACHED_BYTES)
+        values = null;
+    }
+  }
+
+  private void readImage(RowReceiver receiver) throws IOException {
+    int bpp = Math.max(1, bitsPerPixel / 8); // bytes per complete pixel, for unfiltering
+    long rowBytesL = ((long) width * bitsPerPixel + 7) / 8;
+    if (rowBytesL + 1 > Integer.MAX_VALUE - 8)
+      throw new IOException("PNG row too long: width=" + width);
+    int rowBytes = (int) rowBytesL;
+
+    if (current == null || current.length < rowBytes + 1) {
+      current = new byte[rowBytes + 1];
+      prior = new byte[rowBytes + 1];
+    }
+    if (values == null || values.length < width)
+      values = new int[width];
+    Arrays.fill(prior, 0, rowBytes + 1, (byte) 0);
+
+    inflater.reset();
+    try {
+      for (int row = 0; row < height; row++) {
+        inflateFully(current, rowBytes + 1);
+        unfilter(current, prior, rowBytes, bpp);
+        unpack(current, values);
+        receiver.addRow(values, width);
+
+        byte[] tmp = prior;
+        prior = current;
+        current = tmp;
+      }
+    } catch (DataFormatException e) {
+      throw new IOException("PNG bad compressed data", e);
+    }
+  }
+
+  private void inflateFully(byte[] b, int n) throws IOException, DataFormatException {
+    int off = 0;
+    while (off < n) {
+      int count = inflater.inflate(b, off, n - off);
+      if (count == 0) {
+        if (inflater.finished() || inflater.needsDictionary())
+          throw new IOException("PNG compressed data too short");
+        if (inflater.needsInput() && !nextIdat())
+          throw new IOException("PNG image data too short");
+      }
+      off += count;
+    }
+  }
+
+  // give the next IDAT chunk to the inflater
+  private boolean nextIdat() throws IOException {
+    while (pos + 8 <= end) {
+      int length = readInt(pos);
+      int type = readInt(pos + 4);
+      int start = pos + 8;
+      if (length < 0 || start + length > end)
+        throw new IOException("PNG bad chunk length " + length);
+      pos = start + length + 4; // skip crc
+      if (type == IDAT && length > 0) {
+        inflater.setInput(buf, start, length);
+        return true;
+      }
+      if (type == IEND)
+        return false;
+    }
+    return false;
+  }
+
+  private int readInt(int p) {
+    return ((buf[p] & 0xff) << 24) | ((buf[p + 1] & 0xff) << 16) | ((buf[p + 2] & 0xff) << 8) | (buf[p + 3] & 0xff);
+  }
+
+  // filtered bytes start at index 1, the filter type is in index 0
+  private void unfilter(byte[] cur, byte[] prev, int rowBytes, int bpp) throws IOException {
+    int type = cur[0];
+    switch (type) {
+      case 0: // None
+        break;
+
+      case 1: // Sub
+        for (int i = 1 + bpp; i <= rowBytes; i++)
+          cur[i] += cur[i - bpp];
+        break;
+
+      case 2: // Up
+        for (int i = 1; i <= rowBytes; i++)
+          cur[i] += prev[i];
+        break;
+
+      case 3: // Average
+        for (int i = 1; i <= bpp; i++)
+          cur[i] += (prev[i] & 0xff) >>> 1;
+        for (int i = 1 + bpp; i <= rowBytes; i++)
+          cur[i] += ((cur[i - bpp] & 0xff) + (prev[i] & 0xff)) >>> 1;
+        break;
+
+      case 4: // Paeth
+        for (int i = 1; i <= bpp; i++)
+          cur[i] += prev[i];
+        for (int i = 1 + bpp; i <= rowBytes; i++) {
+          int a = cur[i - bpp] & 0xff;
+          int b = prev[i] & 0xff;
+          int c = prev[i - bpp] & 0xff;
+          int p = a + b - c;
+          int pa = Math.abs(p - a);
+          int pb = Math.abs(p - b);
+          int pc = Math.abs(p - c);
+          cur[i] += (pa <= pb && pa <= pc) ? a : (pb <= pc) ? b : c;
+        }
+        break;
+
+      default:
+        throw new IOException("PNG unknown filter type " + type);
+    }
+  }
+
+  private void unpack(byte[] cur, int[] result) {
+    switch (bitsPerPixel) {
+      case 8:
+        for (int x = 0, i = 1; x < width; x++, i++)
+          result[x] = cur[i] & 0xff;
+        break;
+
+      case 16:
+        for (int x = 0, i = 1; x < width; x++, i += 2)
+          result[x] = ((cur[i] & 0xff) << 8) | (cur[i + 1] & 0xff);
+        break;
+
+      case 24:
+        for (int x = 0, i = 1; x < width; x++, i += 3)
+          result[x] = ((cur[i] & 0xff) << 16) | ((cur[i + 1] & 0xff) << 8) | (cur[i + 2] & 0xff);
+        break;
+
+      case 32:
+        for (int x = 0, i = 1; x < width; x++, i += 4)
+          result[x] =
+              ((cur[i] & 0xff) << 24) | ((cur[i + 1] & 0xff) << 16) | ((cur[i + 2] & 0xff) << 8) | (cur[i + 3] & 0xff);
+        break;
+
+      default: // 1, 2 or 4 bits, first value in the high bits
+        int perByte = 8 / bitsPerPixel;
+        int mask = (1 << bitsPerPixel) - 1;
+        for (int x = 0; x < width; x++) {
+          int shift = 8 - bitsPerPixel * (x % perByte + 1);
+          result[x] = (cur[1 + x / perByte] >> shift) & mask;
+        }
+    }
+  }
+
+}
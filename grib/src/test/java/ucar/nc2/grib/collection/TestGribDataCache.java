@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.grib.collection;
+
+import com.google.common.cache.CacheStats;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.Variable;
+import ucar.unidata.io.RandomAccessFile;
+import ucar.unidata.util.test.category.Slow;
+import java.io.File;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Formatter;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test the GribDataCache of decoded records.
+ *
+ * @since 10/19/2026
+ */
+public class TestGribDataCache {
+  private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private static final String[] testfiles = {"../grib/src/test/data/thinGrid.grib2",
+      "../grib/src/test/data/HLYA10.grib2", "../grib/src/test/data/ds.sky.grib2"};
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @Before
+  public void setup() {
+    GribDataCache.setMaxBytes(100L * 1000 * 1000);
+  }
+
+  @After
+  public void cleanup() {
+    GribDataCache.setMaxBytes(0);
+  }
+
+  // copy to the temp folder, so the indexes are made there
+  private File copy(String filename) throws IOException {
+    File file = new File(tempFolder.getRoot(), new File(filename).getName());
+    if (!file.exists())
+      Files.copy(new File(filename).toPath(), file.toPath());
+    return file;
+  }
+
+  private List<float[]> readAll(File file) throws IOException {
+    List<float[]> result = new ArrayList<>();
+    try (NetcdfFile ncfile = NetcdfFile.open(file.getPath())) {
+      for (Variable v : ncfile.getVariables()) {
+        if (v.getRank() >= 2 && v.getDataType() == DataType.FLOAT) {
+          Array data = v.read();
+          result.add((float[]) data.get1DJavaArray(DataType.FLOAT));
+        }
+      }
+    }
+    Assert.assertTrue(file.getPath(), result.size() > 0);
+    return result;
+  }
+
+  private void assertSame(List<float[]> expected, List<float[]> got) {
+    Assert.assertEquals(expected.size(), got.size());
+    for (int i = 0; i < expected.size(); i++)
+      Assert.assertArrayEquals(expected.get(i), got.get(i), 0.0f);
+  }
+
+  @Test
+  public void testHits() throws IOException {
+    for (String filename : testfiles) {
+      File file = copy(filename);
+      GribDataCache.setMaxBytes(0);
+      List<float[]> expected = readAll(file);
+
+      GribDataCache.setMaxBytes(100L * 1000 * 1000);
+      assertSame(expected, readAll(file));
+      CacheStats stats = GribDataCache.getStats();
+      Assert.assertEquals(0, stats.hitCount());
+      Assert.assertTrue(stats.missCount() > 0);
+
+      // another GribCollection for the same file
+      assertSame(expected, readAll(file));
+      Assert.assertEquals(stats.missCount(), GribDataCache.getStats().hitCount());
+      Assert.assertEquals(stats.missCount(), GribDataCache.getStats().missCount());
+      Assert.assertTrue(GribDataCache.getCachedBytes() > 0);
+    }
+    Formatter f = new Formatter();
+    GribDataCache.showStatus(f);
+    Assert.assertTrue(f.toString().contains("hits="));
+  }
+
+  @Test
+  public void testChangedFile() throws IOException {
+    File file = copy(testfiles[2]);
+    List<float[]> expected = readAll(file);
+    long misses = GribDataCache.getStats().missCount();
+    Assert.assertTrue(file.setLastModified(file.lastModified() + 10 * 1000));
+    assertSame(expected, readAll(file));
+    Assert.assertEquals(2 * misses, GribDataCache.getStats().missCount());
+  }
+
+  @Test
+  public void testEviction() throws IOException {
+    File file = copy(testfiles[0]);
+    readAll(file);
+    long bytes = GribDataCache.getCachedBytes();
+    Assert.assertTrue(bytes > 0);
+
+    // room for less than one record
+    GribDataCache.setMaxBytes(bytes / 2);
+    readAll(file);
+    Assert.assertTrue(GribDataCache.getCachedBytes() <= bytes / 2);
+    Assert.assertTrue(GribDataCache.getStats().evictionCount() > 0);
+  }
+
+  @Test
+  public void testOneDecodePerRecord() throws Exception {
+    File file = copy(testfiles[2]);
+    AtomicInteger decodes = new AtomicInteger();
+    CountDownLatch start = new CountDownLatch(1);
+    int nthreads = 8;
+    ExecutorService exec = Executors.newFixedThreadPool(nthreads);
+    try {
+      List<Future<float[]>> futures = new ArrayList<>();
+      for (int t = 0; t < nthreads; t++) {
+        futures.add(exec.submit(() -> {
+          try (RandomAccessFile raf = new RandomAccessFile(file.getPath(), "r")) {
+            start.await();
+            return GribDataCache.get(raf, 1234, () -> {
+              decodes.incrementAndGet();
+              Thread.sleep(100);
+              return new float[1000];
+            });
+          }
+        }));
+      }
+      start.countDown();
+      float[] first = futures.get(0).get();
+      for (Future<float[]> future : futures)
+        Assert.assertSame(first, future.get());
+      Assert.assertEquals(1, decodes.get());
+    } finally {
+      exec.shutdown();
+    }
+  }
+
+  @Test
+  public void testDecodeFails() throws IOException {
+    File file = copy(testfiles[2]);
+    try (RandomAccessFile raf = new RandomAccessFile(file.getPath(), "r")) {
+      try {
+        GribDataCache.get(raf, 0, () -> {
+          throw new IOException("bad record");
+        });
+        Assert.fail();
+      } catch (IOException e) {
+        Assert.assertEquals("bad record", e.getMessage());
+      }
+      Assert.assertEquals(0, GribDataCache.getSize()); // failures are not cached
+    }
+  }
+
+  // compare reading a field repeatedly, with and without the cache
+  @Test
+  @Category(Slow.class)
+  public void compareThroughput() throws IOException {
+    File file = copy(testfiles[0]);
+    int n = 20;
+    for (long maxBytes : new long[] {0, 0, 100L * 1000 * 1000}) { // the first is warm up
+      GribDataCache.setMaxBytes(maxBytes);
+      try (NetcdfFile ncfile = NetcdfFile.open(file.getPath())) {
+        Variable v = null;
+        for (Variable var : ncfile.getVariables()) {
+          if (v == null && var.getRank() >= 2 && var.getDataType() == DataType.FLOAT)
+            v = var;
+        }
+        Assert.assertNotNull(v);
+        long start = System.nanoTime();
+        for (int i = 0; i < n; i++)
+          v.read();
+        logger.debug("{} cache: {} {} reads {} msecs", maxBytes == 0 ? "no" : "with", v.getShortName(), n,
+            (System.nanoTime() - start) / 1000 / 1000);
+      }
+    }
+  }
+}
@@ -0,0 +1,96 @@
+package ucar.nc2.grib.collection;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Test GribIndexExecutor keeps task order and propagates failures.
+ *
+ * @since 10/19/2026
+ */
+public class TestGribIndexExecutor {
+
+  @After
+  public void cleanup() {
+    GribIndexExecutor.setThreads(1);
+    GribIndexExecutor.shutdown();
+  }
+
+  private List<Callable<Integer>> makeTasks(int n) {
+    List<Callable<Integer>> tasks = new ArrayList<>();
+    for (int i = 0; i < n; i++) {
+      int value = i;
+      tasks.add(() -> {
+        Thread.sleep((n - value) % 5); // finish out of order
+        return value;
+      });
+    }
+    return tasks;
+  }
+
+  @Test
+  public void testOrder() throws IOException {
+    for (int nthreads : new int[] {1, 4}) {
+      GribIndexExecutor.setThreads(nthreads);
+      List<Integer> result = GribIndexExecutor.invokeAll("testOrder", makeTasks(50));
+      Assert.assertEquals(50, result.size());
+      for (int i = 0; i < 50; i++)
+        Assert.assertEquals(i, (int) result.get(i));
+    }
+  }
+
+  @Test
+  public void testNested() throws IOException {
+    GribIndexExecutor.setThreads(2);
+    List<Callable<Integer>> outer = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      outer.add(() -> {
+        int sum = 0;
+        for (int v : GribIndexExecutor.invokeAll("inner", makeTasks(10)))
+          sum += v;
+        return sum;
+      });
+    }
+    for (int sum : GribIndexExecutor.invokeAll("outer", outer))
+      Assert.assertEquals(45, sum);
+  }
+
+  // the pool is shut down while tasks are being submitted
+  @Test
+  public void testShutdownWhileSubmitting() throws Exception {
+    GribIndexExecutor.setThreads(4);
+    AtomicBoolean done = new AtomicBoolean();
+    Thread reconfigure = new Thread(() -> {
+      while (!done.get())
+        GribIndexExecutor.shutdown();
+    });
+    reconfigure.start();
+    try {
+      for (int n = 0; n < 20; n++) {
+        List<Integer> result = GribIndexExecutor.invokeAll("testShutdownWhileSubmitting", makeTasks(20));
+        for (int i = 0; i < 20; i++)
+          Assert.assertEquals(i, (int) result.get(i));
+      }
+    } finally {
+      done.set(true);
+      reconfigure.join();
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void testFailure() throws IOException {
+    GribIndexExecutor.setThreads(4);
+    List<Callable<Integer>> tasks = makeTasks(10);
+    tasks.add(5, () -> {
+      throw new IOException("bad file");
+    });
+    GribIndexExecutor.invokeAll("testFailure", tasks);
+  }
+
+}
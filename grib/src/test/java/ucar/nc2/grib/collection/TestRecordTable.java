@@ -0,0 +1,78 @@
+package ucar.nc2.grib.collection;
+
+import org.junit.Assert;
+import org.junit.Test;
+import ucar.nc2.grib.coord.SparseArray;
+import java.io.IOException;
+
+/**
+ * Test that RecordTable decodes the SparseArray message the same as the protobuf generated code.
+ *
+ * @since 10/19/2026
+ */
+public class TestRecordTable {
+
+  private byte[] makeSparseArray(int nx, int ny, boolean grib2) {
+    GribCollectionProto.SparseArray.Builder builder = GribCollectionProto.SparseArray.newBuilder();
+    builder.addSize(nx);
+    builder.addSize(ny);
+
+    int count = 0;
+    for (int i = 0; i < nx * ny; i++) {
+      if (i % 7 == 3) {
+        builder.addTrack(0); // missing
+        continue;
+      }
+      builder.addTrack(++count);
+      GribCollectionProto.Record.Builder br = GribCollectionProto.Record.newBuilder();
+      br.setFileno(i % 5);
+      br.setStartPos(3000000000L + 1000L * i);
+      if (grib2) {
+        br.setBmsOffset(i % 3 == 0 ? 0 : 123);
+        br.setDrsOffset(456 + i);
+      }
+      builder.addRecords(br);
+    }
+    builder.setNdups(2);
+    return builder.build().toByteArray();
+  }
+
+  private void compare(byte[] b) throws IOException {
+    GribCollectionProto.SparseArray proto = GribCollectionProto.SparseArray.parseFrom(b);
+    SparseArray<GribCollectionImmutable.Record> sa = RecordTable.readSparseArray(b);
+
+    Assert.assertEquals(proto.getSizeCount(), sa.getRank());
+    for (int i = 0; i < proto.getSizeCount(); i++)
+      Assert.assertEquals(proto.getSize(i), sa.getShape()[i]);
+    Assert.assertEquals(proto.getTrackCount(), sa.getTrack().length);
+    for (int i = 0; i < proto.getTrackCount(); i++)
+      Assert.assertEquals(proto.getTrack(i), sa.getTrack(i));
+    Assert.assertEquals(proto.getNdups(), sa.getNdups());
+
+    Assert.assertEquals(proto.getRecordsCount(), sa.getContent().size());
+    for (int i = 0; i < proto.getRecordsCount(); i++) {
+      GribCollectionProto.Record pr = proto.getRecords(i);
+      GribCollectionImmutable.Record r = sa.getContent().get(i);
+      Assert.assertEquals(pr.getFileno(), r.fileno);
+      Assert.assertEquals(pr.getStartPos(), r.pos);
+      Assert.assertEquals(pr.getBmsOffset(), r.bmsOffset);
+      Assert.assertEquals(pr.getDrsOffset(), r.drsOffset);
+    }
+  }
+
+  @Test
+  public void testGrib1() throws IOException {
+    compare(makeSparseArray(10, 20, false));
+  }
+
+  @Test
+  public void testGrib2() throws IOException {
+    compare(makeSparseArray(31, 17, true));
+  }
+
+  @Test
+  public void testEmpty() throws IOException {
+    compare(makeSparseArray(1, 0, true));
+  }
+
+}
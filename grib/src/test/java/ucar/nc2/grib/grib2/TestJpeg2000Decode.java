@@ -0,0 +1,278 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.grib.grib2;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.Variable;
+import ucar.nc2.grib.collection.GribDataReader;
+import ucar.unidata.io.RandomAccessFile;
+import ucar.unidata.util.test.category.Slow;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandles;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Test reusing JPEG2000 decoders and buffers per thread (DRS template 5.40), and decoding records concurrently.
+ *
+ * @since 10/19/2026
+ */
+public class TestJpeg2000Decode {
+  private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private static final String[] testfiles = {"../grib/src/test/data/pdsScale.pds1.grib2",
+      "../grib/src/test/data/sref.pds2.grib2", "../grib/src/test/data/rugley.pds15.grib2",
+      "../grib/src/test/data/ofs_atl.grib2"};
+  private static final String[] timeSeriesFiles = {"../grib/src/test/data/pdsScale.pds1.grib2",
+      "../grib/src/test/data/sref_eta.grib2", "../grib/src/test/data/ofs_atl.grib2"};
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @After
+  public void cleanup() {
+    GribDataReader.setDecodeThreads(1);
+  }
+
+  private List<Grib2Record> readRecords(RandomAccessFile raf) throws IOException {
+    List<Grib2Record> records = new ArrayList<>();
+    Grib2RecordScanner scanner = new Grib2RecordScanner(raf);
+    while (scanner.hasNext()) {
+      Grib2Record gr = scanner.next();
+      if (gr.getDataRepresentationSection().getDataTemplate() == 40)
+        records.add(gr);
+    }
+    return records;
+  }
+
+  // decode with a new decoder and buffer
+  private int[] decodeFresh(RandomAccessFile raf, Grib2Record gr) throws IOException {
+    Grib2Drs.Type40 gdrs = (Grib2Drs.Type40) gr.getDataRepresentationSection().getDrs(raf);
+    Grib2SectionData dataSection = gr.getDataSection();
+    byte[] buf = new byte[dataSection.getMsgLength() - 5];
+    raf.seek(dataSection.getStartingPosition() + 5);
+    raf.readFully(buf);
+    Grib2JpegDecoder g2j = new Grib2JpegDecoder(gdrs.numberOfBits, false);
+    g2j.decode(buf);
+    return g2j.getGdata();
+  }
+
+  @Test
+  public void testThreadDecoderMatchesFresh() throws IOException {
+    for (String filename : testfiles) {
+      try (RandomAccessFile raf = new RandomAccessFile(filename, "r")) {
+        List<Grib2Record> records = readRecords(raf);
+        Assert.assertTrue(filename, records.size() > 0);
+        for (int pass = 0; pass < 2; pass++) { // second pass reuses the decoders
+          for (Grib2Record gr : records) {
+            if (gr.getBitmapSection().getBitMapIndicator() != 255)
+              continue; // raw data is not expanded
+            int[] expected = decodeFresh(raf, gr);
+            int[] got = gr.readRawData(raf);
+            Assert.assertArrayEquals(filename, expected, got);
+          }
+        }
+      }
+    }
+  }
+
+  // one decoder for each thread, which does not keep the last record
+  @Test
+  public void testThreadDecoderReleasesData() throws IOException {
+    try (RandomAccessFile raf = new RandomAccessFile(testfiles[0], "r")) {
+      Grib2Record gr = readRecords(raf).get(0);
+      Assert.assertNotNull(gr.readRawData(raf));
+      int nbits = ((Grib2Drs.Type40) gr.getDataRepresentationSection().getDrs(raf)).numberOfBits;
+      Grib2JpegDecoder g2j = Grib2JpegDecoder.getThreadDecoder(nbits);
+      Assert.assertNull(g2j.getGdata());
+      Assert.assertSame(g2j, Grib2JpegDecoder.getThreadDecoder(nbits + 1));
+    }
+    Assert.assertSame(Grib2JpegDecoder.getThreadBuffer(100), Grib2JpegDecoder.getThreadBuffer(10));
+    Assert.assertNotSame(Grib2JpegDecoder.getThreadBuffer(10 * 1000 * 1000),
+        Grib2JpegDecoder.getThreadBuffer(10 * 1000 * 1000));
+  }
+
+  @Test
+  public void testConcurrentRecords() throws Exception {
+    List<float[]> expected = new ArrayList<>();
+    List<Grib2Record> records = new ArrayList<>();
+    List<String> filenames = new ArrayList<>();
+    for (String filename : testfiles) {
+      try (RandomAccessFile raf = new RandomAccessFile(filename, "r")) {
+        for (Grib2Record gr : readRecords(raf)) {
+          records.add(gr);
+          filenames.add(filename);
+          expected.add(gr.readData(raf));
+        }
+      }
+    }
+
+    // every thread decodes all the records, in a different order, each with its own file
+    ExecutorService exec = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Boolean>> futures = new ArrayList<>();
+      for (int t = 0; t < 4; t++) {
+        int offset = t;
+        futures.add(exec.submit(() -> {
+          for (int i = 0; i < records.size(); i++) {
+            int idx = (i + offset * 7) % records.size();
+            try (RandomAccessFile raf = new RandomAccessFile(filenames.get(idx), "r")) {
+              if (!Arrays.equals(expected.get(idx), records.get(idx).readData(raf)))
+                return false;
+            }
+          }
+          return true;
+        }));
+      }
+      for (Future<Boolean> future : futures)
+        Assert.assertTrue(future.get());
+    } finally {
+      exec.shutdown();
+    }
+  }
+
+  // copy the message n times with forecast times 0..n-1, to make a variable with n records
+  private File makeTimeSeries(String filename, int ntimes) throws IOException {
+    ByteBuffer msg = ByteBuffer.wrap(Files.readAllBytes(Paths.get(filename)));
+    int len = (int) msg.getLong(8);
+    int pos = 16;
+    while (msg.get(pos + 4) != 4)
+      pos += msg.getInt(pos);
+    Assert.assertTrue(filename, msg.getShort(pos + 7) <= 1); // product template 4.0 or 4.1
+
+    File file = tempFolder.newFile(new File(filename).getName());
+    try (OutputStream out = new FileOutputStream(file)) {
+      for (int t = 0; t < ntimes; t++) {
+        msg.putInt(pos + 18, t);
+        out.write(msg.array(), 0, len);
+      }
+    }
+    return file;
+  }
+
+  private List<Array> readAll(File file) throws IOException {
+    List<Array> result = new ArrayList<>();
+    try (NetcdfFile ncfile = NetcdfFile.open(file.getPath())) {
+      for (Variable v : ncfile.getVariables()) {
+        if (v.getRank() > 2 && v.getDataType() == DataType.FLOAT)
+          result.add(v.read());
+      }
+    }
+    return result;
+  }
+
+  @Test
+  public void testDecodeThreads() throws IOException {
+    for (String filename : timeSeriesFiles) {
+      File file = makeTimeSeries(filename, 10);
+      List<Array> expected = readAll(file);
+      Assert.assertEquals(1, expected.size());
+      Assert.assertEquals(10, expected.get(0).getShape()[0]);
+      for (int threads : new int[] {2, 4, 16}) {
+        GribDataReader.setDecodeThreads(threads);
+        List<Array> got = readAll(file);
+        float[] want = (float[]) expected.get(0).get1DJavaArray(DataType.FLOAT);
+        Assert.assertArrayEquals(filename, want, (float[]) got.get(0).get1DJavaArray(DataType.FLOAT), 0.0f);
+      }
+    }
+  }
+
+  // the decode pool is replaced while records are being read
+  @Test
+  public void testReconfigureWhileReading() throws Exception {
+    File file = makeTimeSeries(timeSeriesFiles[0], 20);
+    float[] want = (float[]) readAll(file).get(0).get1DJavaArray(DataType.FLOAT);
+
+    AtomicBoolean done = new AtomicBoolean();
+    Thread reconfigure = new Thread(() -> {
+      for (int n = 2; !done.get(); n = 5 - n)
+        GribDataReader.setDecodeThreads(n);
+    });
+    reconfigure.start();
+    try {
+      for (int i = 0; i < 20; i++)
+        Assert.assertArrayEquals(want, (float[]) readAll(file).get(0).get1DJavaArray(DataType.FLOAT), 0.0f);
+    } finally {
+      done.set(true);
+      reconfigure.join();
+    }
+  }
+
+  // compare a new decoder for every record, reused decoders, and reused decoders with several decode threads
+  @Test
+  @Category(Slow.class)
+  public void compareThroughput() throws IOException {
+    List<Grib2Record> records = new ArrayList<>();
+    List<RandomAccessFile> rafs = new ArrayList<>(); // the file of each record
+    List<RandomAccessFile> opened = new ArrayList<>();
+    try {
+      for (String filename : testfiles) {
+        RandomAccessFile raf = new RandomAccessFile(filename, "r");
+        opened.add(raf);
+        for (Grib2Record gr : readRecords(raf)) {
+          if (gr.getBitmapSection().getBitMapIndicator() != 255)
+            continue; // raw data is not expanded
+          records.add(gr);
+          rafs.add(raf);
+        }
+      }
+
+      for (int pass = 0; pass < 2; pass++) { // the first is warm up
+        long start = System.nanoTime();
+        long npts = 0;
+        for (int i = 0; i < records.size(); i++)
+          npts += decodeFresh(rafs.get(i), records.get(i)).length;
+        long fresh = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        long npts2 = 0;
+        for (int i = 0; i < records.size(); i++)
+          npts2 += records.get(i).readRawData(rafs.get(i)).length;
+        long reused = System.nanoTime() - start;
+        Assert.assertEquals(npts, npts2);
+
+        if (pass > 0)
+          logger.debug("{} records, {} points: new decoder {} msecs, reused decoder {} msecs", records.size(), npts,
+              fresh / 1000 / 1000, reused / 1000 / 1000);
+      }
+    } finally {
+      for (RandomAccessFile raf : opened)
+        raf.close();
+    }
+
+    List<File> files = new ArrayList<>();
+    for (String filename : timeSeriesFiles)
+      files.add(makeTimeSeries(filename, 20));
+    int nthreads = Math.max(2, Runtime.getRuntime().availableProcessors());
+    for (int threads : new int[] {1, 1, nthreads}) { // the first is warm up
+      GribDataReader.setDecodeThreads(threads);
+      long start = System.nanoTime();
+      for (File file : files)
+        readAll(file);
+      logger.debug("read {} time series, {} decode threads: {} msecs", files.size(), threads,
+          (System.nanoTime() - start) / 1000 / 1000);
+    }
+  }
+}
@@ -0,0 +1,245 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.grib.grib2;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ucar.nc2.grib.GribNumbers;
+import ucar.unidata.io.RandomAccessFile;
+import ucar.unidata.util.test.category.Slow;
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.IndexColorModel;
+import java.awt.image.WritableRaster;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.util.Random;
+
+/**
+ * Test decoding the PNG code stream of DRS template 5.41 with Grib2PngDecoder, compared to ImageIO.
+ *
+ * @since 10/19/2026
+ */
+public class TestPngDecode {
+  private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private static final String[] testfiles = {"../grib/src/test/data/HLYA10.grib2",
+      "../grib/src/test/data/MRMS_LowLevelCompositeReflectivity_00.50_20141207-072038.grib2"};
+
+  // collects the decoded values
+  private static class Values implements Grib2PngDecoder.RowReceiver {
+    final int[] values;
+    int count;
+
+    Values(int n) {
+      values = new int[n];
+    }
+
+    @Override
+    public void addRow(int[] row, int width) {
+      System.arraycopy(row, 0, values, count, width);
+      count += width;
+    }
+  }
+
+  private byte[] writePng(BufferedImage image) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Assert.assertTrue(ImageIO.write(image, "png", out));
+    return out.toByteArray();
+  }
+
+  private BufferedImage makeGray(int bits, int width, int height, Random random) {
+    BufferedImage image;
+    if (bits < 8) {
+      int n = 1 << bits;
+      byte[] gray = new byte[n];
+      for (int i = 0; i < n; i++)
+        gray[i] = (byte) (i * 255 / (n - 1));
+      image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_BINARY,
+          new IndexColorModel(bits, n, gray, gray, gray));
+    } else {
+      image = new BufferedImage(width, height, bits == 8 ? BufferedImage.TYPE_BYTE_GRAY : BufferedImage.TYPE_USHORT_GRAY);
+    }
+    WritableRaster raster = image.getRaster();
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        // smooth with some noise, so the writer uses different filters
+        int value = (int) ((x + y) * 7 + random.nextInt(5)) % (1 << bits);
+        raster.setSample(x, y, 0, value);
+      }
+    }
+    return image;
+  }
+
+  @Test
+  public void testGrayBitDepths() throws IOException {
+    Random random = new Random(42);
+    Grib2PngDecoder decoder = new Grib2PngDecoder();
+    for (int bits : new int[] {1, 2, 4, 8, 16}) {
+      for (int width : new int[] {1, 13, 100}) {
+        int height = 17;
+        BufferedImage image = makeGray(bits, width, height, random);
+        byte[] png = writePng(image);
+
+        Values values = new Values(width * height);
+        Assert.assertTrue(decoder.decode(png, png.length, values));
+        Assert.assertEquals(bits, decoder.getBitsPerPixel());
+        Assert.assertEquals(width * height, values.count);
+
+        for (int i = 0; i < width * height; i++)
+          Assert.assertEquals(bits + " bits, index " + i, image.getRaster().getSample(i % width, i / width, 0),
+              values.values[i]);
+      }
+    }
+  }
+
+  @Test
+  public void testRgb() throws IOException {
+    Random random = new Random(17);
+    BufferedImage image = new BufferedImage(31, 7, BufferedImage.TYPE_INT_RGB);
+    for (int y = 0; y < 7; y++)
+      for (int x = 0; x < 31; x++)
+        image.setRGB(x, y, random.nextInt(1 << 24));
+    byte[] png = writePng(image);
+
+    Values values = new Values(31 * 7);
+    Grib2PngDecoder decoder = new Grib2PngDecoder();
+    Assert.assertTrue(decoder.decode(png, png.length, values));
+    Assert.assertEquals(24, decoder.getBitsPerPixel());
+    for (int i = 0; i < 31 * 7; i++)
+      Assert.assertEquals(image.getRGB(i % 31, i / 31) & 0xffffff, values.values[i]);
+  }
+
+  @Test
+  public void testPaletteNotHandled() throws IOException {
+    BufferedImage image = new BufferedImage(10, 10, BufferedImage.TYPE_BYTE_INDEXED);
+    byte[] png = writePng(image);
+    Values values = new Values(100);
+    Assert.assertFalse(new Grib2PngDecoder().decode(png, png.length, values));
+    Assert.assertEquals(0, values.count);
+  }
+
+  // a reused decoder keeps small buffers, but not the ones of a large image
+  @Test
+  public void testLargeBuffersNotKept() throws IOException {
+    Grib2PngDecoder decoder = new Grib2PngDecoder();
+    byte[] png = writePng(makeGray(8, 100, 10, new Random(3)));
+    Assert.assertSame(decoder.getBuffer(png.length), decoder.getBuffer(png.length));
+    Assert.assertTrue(decoder.decode(png, png.length, new Values(100 * 10)));
+    long small = decoder.getCachedBytes();
+    Assert.assertTrue(small > 0);
+
+    int width = Grib2PngDecoder.MAX_CACHED_BYTES;
+    png = writePng(makeGray(8, width, 2, new Random(4)));
+    Values values = new Values(width * 2);
+    Assert.assertTrue(decoder.decode(png, png.length, values));
+    Assert.assertEquals(width * 2, values.count);
+    Assert.assertTrue(decoder.getCachedBytes() <= small);
+
+    int len = Grib2PngDecoder.MAX_CACHED_BYTES + 1;
+    Assert.assertNotSame(decoder.getBuffer(len), decoder.getBuffer(len));
+  }
+
+  @Test(expected = IOException.class)
+  public void testTruncated() throws IOException {
+    byte[] png = writePng(makeGray(16, 100, 100, new Random(1)));
+    new Grib2PngDecoder().decode(png, png.length / 2, new Values(100 * 100));
+  }
+
+  // the original decoding with ImageIO
+  private float[] readImageIO(RandomAccessFile raf, Grib2Record gr) throws IOException {
+    Grib2Drs.Type0 gdrs = (Grib2Drs.Type0) gr.getDataRepresentationSection().getDrs(raf);
+    float DD = (float) Math.pow(10, gdrs.decimalScaleFactor);
+    float R = gdrs.referenceValue;
+    float EE = (float) Math.pow(2.0, gdrs.binaryScaleFactor);
+    Grib2SectionData dataSection = gr.getDataSection();
+    byte[] buf = new byte[dataSection.getMsgLength() - 5];
+    raf.seek(dataSection.getStartingPosition() + 5);
+    raf.readFully(buf);
+    DataBuffer db = ImageIO.read(new ByteArrayInputStream(buf)).getRaster().getDataBuffer();
+
+    int npoints = gr.getGDSsection().getNumberPoints();
+    float[] data = new float[npoints];
+    byte[] bitmap = gr.getBitmapSection().getBitmap(raf);
+    for (int bitPt = 0, dataPt = 0; bitPt < npoints; bitPt++) {
+      if (bitmap == null || GribNumbers.testBitIsSet(bitmap[bitPt / 8], bitPt % 8))
+        data[bitPt] = (R + db.getElem(dataPt++) * EE) / DD;
+      else
+        data[bitPt] = Float.NaN;
+    }
+    return data;
+  }
+
+  @Test
+  public void testGribFiles() throws IOException {
+    for (String filename : testfiles) {
+      try (RandomAccessFile raf = new RandomAccessFile(filename, "r")) {
+        Grib2RecordScanner scanner = new Grib2RecordScanner(raf);
+        int n = 0;
+        while (scanner.hasNext()) {
+          Grib2Record gr = scanner.next();
+          Assert.assertEquals(41, gr.getDataRepresentationSection().getDataTemplate());
+          float[] expected = readImageIO(raf, gr);
+          float[] got = gr.readData(raf);
+          Assert.assertArrayEquals(filename, expected, got, 0.0f);
+          n++;
+        }
+        Assert.assertTrue(n > 0);
+      }
+    }
+  }
+
+  // compare to ImageIO
+  @Test
+  @Category(Slow.class)
+  public void compareThroughput() throws IOException {
+    for (String filename : testfiles) {
+      byte[] png;
+      int npoints;
+      try (RandomAccessFile raf = new RandomAccessFile(filename, "r")) {
+        Grib2Record gr = new Grib2RecordScanner(raf).next();
+        Grib2SectionData dataSection = gr.getDataSection();
+        png = new byte[dataSection.getMsgLength() - 5];
+        raf.seek(dataSection.getStartingPosition() + 5);
+        raf.readFully(png);
+        npoints = gr.getDataRepresentationSection().getDataPoints();
+      }
+
+      Grib2PngDecoder decoder = new Grib2PngDecoder();
+      Values values = new Values(npoints);
+      for (int pass = 0; pass < 2; pass++) { // the first is warm up
+        int n = 10;
+        long start = System.nanoTime();
+        long sum1 = 0;
+        for (int i = 0; i < n; i++) {
+          DataBuffer db = ImageIO.read(new ByteArrayInputStream(png)).getRaster().getDataBuffer();
+          for (int j = 0; j < npoints; j++)
+            sum1 += db.getElem(j);
+        }
+        long imageIO = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        long sum2 = 0;
+        for (int i = 0; i < n; i++) {
+          values.count = 0;
+          Assert.assertTrue(decoder.decode(png, png.length, values));
+          for (int j = 0; j < npoints; j++)
+            sum2 += values.values[j];
+        }
+        long direct = System.nanoTime() - start;
+        Assert.assertEquals(sum1, sum2);
+
+        if (pass > 0)
+          logger.debug("{} {} points: ImageIO {} msecs, Grib2PngDecoder {} msecs", filename, npoints,
+              imageIO / 1000 / 1000 / n, direct / 1000 / 1000 / n);
+      }
+    }
+  }
+}
@@ -161,25 +161,7 @@ public class BytePrimitiveVector extends PrimitiveVector {
    */
   public synchronized void deserialize(DataInputStream source, ServerVersion sv, StatusUI statusUI)
       throws IOException, EOFException, DataReadException {
-
-    int modFour = vals.length % 4;
-    // number of bytes to pad
-    int pad = (modFour != 0) ? (4 - modFour) : 0;
-
-    for (int i = 0; i < vals.length; i++) {
-      vals[i] = source.readByte();
-      if (statusUI != null) {
-        statusUI.incrementByteCount(1);
-        if (statusUI.userCancelled())
-          throw new DataReadException("User cancelled");
-      }
-    }
-    // pad out to a multiple of four bytes
-    byte unused;
-    for (int i = 0; i < pad; i++)
-      unused = source.readByte();
-    if (statusUI != null)
-      statusUI.incrementByteCount(pad);
+    XdrVectorReader.readBytes(source, vals, statusUI);
   }
 
   /**
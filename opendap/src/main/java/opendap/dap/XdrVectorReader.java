@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package opendap.dap;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Reads XDR encoded vectors of primitives in bulk, directly into the PrimitiveVector's storage.
+ * The bytes are read a chunk at a time with readFully() and decoded with a (big endian) ByteBuffer,
+ * instead of calling DataInputStream.readFloat() etc for each value.
+ * The StatusUI is updated, and cancellation checked, once per chunk.
+ *
+ * @since 10/19/2026
+ */
+class XdrVectorReader {
+  static final int CHUNK_BYTES = 64 * 1024; // must be a multiple of 8
+
+  private XdrVectorReader() {}
+
+  static void readFloats(DataInputStream source, float[] vals, StatusUI statusUI)
+      throws IOException, DataReadException {
+    byte[] chunk = new byte[chunkSize(vals.length, 4)];
+    int done = 0;
+    while (done < vals.length) {
+      int n = Math.min(vals.length - done, chunk.length / 4);
+      ByteBuffer bb = read(source, chunk, n * 4, statusUI);
+      bb.asFloatBuffer().get(vals, done, n);
+      done += n;
+    }
+  }
+
+  static void readDoubles(DataInputStream source, double[] vals, StatusUI statusUI)
+      throws IOException, DataReadException {
+    byte[] chunk = new byte[chunkSize(vals.length, 8)];
+    int done = 0;
+    while (done < vals.length) {
+      int n = Math.min(vals.length - done, chunk.length / 8);
+      ByteBuffer bb = read(source, chunk, n * 8, statusUI);
+      bb.asDoubleBuffer().get(vals, done, n);
+      done += n;
+    }
+  }
+
+  static void readInts(DataInputStream source, int[] vals, StatusUI statusUI) throws IOException, DataReadException {
+    byte[] chunk = new byte[chunkSize(vals.length, 4)];
+    int done = 0;
+    while (done < vals.length) {
+      int n = Math.min(vals.length - done, chunk.length / 4);
+      ByteBuffer bb = read(source, chunk, n * 4, statusUI);
+      bb.asIntBuffer().get(vals, done, n);
+      done += n;
+    }
+  }
+
+  // XDR sends each short as 4 bytes
+  static void readShorts(DataInputStream source, short[] vals, StatusUI statusUI)
+      throws IOException, DataReadException {
+    byte[] chunk = new byte[chunkSize(vals.length, 4)];
+    int done = 0;
+    while (done < vals.length) {
+      int n = Math.min(vals.length - done, chunk.length / 4);
+      ByteBuffer bb = read(source, chunk, n * 4, statusUI);
+      for (int i = 0; i < n; i++)
+        vals[done + i] = (short) bb.getInt();
+      done += n;
+    }
+  }
+
+  // XDR pads opaque bytes to a multiple of 4
+  static void readBytes(DataInputStream source, byte[] vals, StatusUI statusUI) throws IOException, DataReadException {
+    int done = 0;
+    while (done < vals.length) {
+      int n = Math.min(vals.length - done, CHUNK_BYTES);
+      source.readFully(vals, done, n);
+      done += n;
+      progress(n, statusUI);
+    }
+
+    int modFour = vals.length % 4;
+    int pad = (modFour != 0) ? (4 - modFour) : 0;
+    for (int i = 0; i < pad; i++)
+      source.readByte();
+    if (statusUI != null)
+      statusUI.incrementByteCount(pad);
+  }
+
+  private static int chunkSize(int nvals, int size) {
+    return (int) Math.min((long) nvals * size, CHUNK_BYTES);
+  }
+
+  private static ByteBuffer read(DataInputStream source, byte[] chunk, int nbytes, StatusUI statusUI)
+      throws IOException, DataReadException {
+    source.readFully(chunk, 0, nbytes);
+    progress(nbytes, statusUI);
+    return ByteBuffer.wrap(chunk, 0, nbytes); // XDR is big endian, same as ByteBuffer default
+  }
+
+  private static void progress(int nbytes, StatusUI statusUI) throws DataReadException {
+    if (statusUI != null) {
+      statusUI.incrementByteCount(nbytes);
+      if (statusUI.userCancelled())
+        throw new DataReadException("User cancelled");
+    }
+  }
+
+}
@@ -0,0 +1,170 @@
+package opendap.dap;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ucar.unidata.util.test.category.Slow;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+
+/**
+ * Test bulk XDR decoding of PrimitiveVectors, by round trip through externalize() and deserialize().
+ * Also compares the time against decoding one value at a time.
+ *
+ * @since 10/19/2026
+ */
+public class TestXdrVectorReader {
+  private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  private static byte[] externalize(PrimitiveVector pv) throws IOException {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bos)) {
+      pv.externalize(out);
+      out.writeInt(12345); // make sure deserialize doesnt read past the end
+    }
+    return bos.toByteArray();
+  }
+
+  private static DataInputStream source(byte[] b) {
+    return new DataInputStream(new ByteArrayInputStream(b));
+  }
+
+  private static class CountingStatus implements StatusUI {
+    int nbytes;
+
+    public void incrementByteCount(int bytes) {
+      nbytes += bytes;
+    }
+
+    public boolean userCancelled() {
+      return false;
+    }
+
+    public void finished() {}
+  }
+
+  @Test
+  public void testFloat32() throws Exception {
+    int n = 100 * 1000 + 3; // not a multiple of the chunk size
+    Float32PrimitiveVector pv = new Float32PrimitiveVector(new DFloat32());
+    pv.setLength(n);
+    for (int i = 0; i < n; i++)
+      pv.setValue(i, i * 1.5f - 17);
+    byte[] b = externalize(pv);
+
+    Float32PrimitiveVector result = new Float32PrimitiveVector(new DFloat32());
+    result.setLength(n);
+    CountingStatus status = new CountingStatus();
+    DataInputStream in = source(b);
+    result.deserialize(in, null, status);
+    Assert.assertEquals(12345, in.readInt());
+    Assert.assertEquals(4 * n, status.nbytes);
+    Assert.assertArrayEquals((float[]) pv.getInternalStorage(), (float[]) result.getInternalStorage(), 0.0f);
+  }
+
+  @Test
+  public void testFloat64() throws Exception {
+    int n = 10001;
+    Float64PrimitiveVector pv = new Float64PrimitiveVector(new DFloat64());
+    pv.setLength(n);
+    for (int i = 0; i < n; i++)
+      pv.setValue(i, i / 3.0);
+    byte[] b = externalize(pv);
+
+    Float64PrimitiveVector result = new Float64PrimitiveVector(new DFloat64());
+    result.setLength(n);
+    DataInputStream in = source(b);
+    result.deserialize(in, null, null);
+    Assert.assertEquals(12345, in.readInt());
+    Assert.assertArrayEquals((double[]) pv.getInternalStorage(), (double[]) result.getInternalStorage(), 0.0);
+  }
+
+  @Test
+  public void testIntegers() throws Exception {
+    int n = 20003;
+    Int32PrimitiveVector ipv = new Int32PrimitiveVector(new DInt32());
+    Int16PrimitiveVector spv = new Int16PrimitiveVector(new DInt16());
+    BytePrimitiveVector bpv = new BytePrimitiveVector(new DByte());
+    ipv.setLength(n);
+    spv.setLength(n);
+    bpv.setLength(n);
+    for (int i = 0; i < n; i++) {
+      ipv.setValue(i, i * 1001 - 5000000);
+      spv.setValue(i, (short) (i - 10000));
+      bpv.setValue(i, (byte) i);
+    }
+
+    Int32PrimitiveVector iresult = new Int32PrimitiveVector(new DInt32());
+    iresult.setLength(n);
+    DataInputStream in = source(externalize(ipv));
+    iresult.deserialize(in, null, null);
+    Assert.assertEquals(12345, in.readInt());
+    Assert.assertArrayEquals((int[]) ipv.getInternalStorage(), (int[]) iresult.getInternalStorage());
+
+    Int16PrimitiveVector sresult = new Int16PrimitiveVector(new DInt16());
+    sresult.setLength(n);
+    in = source(externalize(spv));
+    sresult.deserialize(in, null, null);
+    Assert.assertEquals(12345, in.readInt());
+    Assert.assertArrayEquals((short[]) spv.getInternalStorage(), (short[]) sresult.getInternalStorage());
+
+    BytePrimitiveVector bresult = new BytePrimitiveVector(new DByte());
+    bresult.setLength(n); // needs padding
+    in = source(externalize(bpv));
+    bresult.deserialize(in, null, null);
+    Assert.assertEquals(12345, in.readInt());
+    Assert.assertArrayEquals((byte[]) bpv.getInternalStorage(), (byte[]) bresult.getInternalStorage());
+  }
+
+  @Test
+  public void testCancel() throws Exception {
+    Float32PrimitiveVector pv = new Float32PrimitiveVector(new DFloat32());
+    pv.setLength(100);
+    byte[] b = externalize(pv);
+    StatusUI cancelled = new CountingStatus() {
+      public boolean userCancelled() {
+        return true;
+      }
+    };
+    try {
+      pv.deserialize(source(b), null, cancelled);
+      Assert.fail();
+    } catch (DataReadException e) {
+      // expected
+    }
+  }
+
+  @Test
+  @Category(Slow.class)
+  public void compareTiming() throws Exception {
+    int n = 4 * 1000 * 1000;
+    Float32PrimitiveVector pv = new Float32PrimitiveVector(new DFloat32());
+    pv.setLength(n);
+    for (int i = 0; i < n; i++)
+      pv.setValue(i, i);
+    byte[] b = externalize(pv);
+    float[] vals = new float[n];
+
+    for (int pass = 0; pass < 3; pass++) {
+      long start = System.nanoTime();
+      DataInputStream in = source(b);
+      for (int i = 0; i < n; i++)
+        vals[i] = in.readFloat();
+      long oneAtATime = System.nanoTime() - start;
+
+      start = System.nanoTime();
+      XdrVectorReader.readFloats(source(b), vals, null);
+      long bulk = System.nanoTime() - start;
+
+      logger.debug("{} floats: readFloat() {} msecs, bulk {} msecs", n, oneAtATime / 1000000, bulk / 1000000);
+    }
+    Assert.assertEquals(n - 1, vals[n - 1], 0.0f);
+  }
+
+}
@@ -4,6 +4,8 @@
  */
 package ucar.units;
 
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * Provides support for implementations of unit converters. A unit converter
  * class may be created by subclassing this class and implementing the methods
@@ -26,15 +28,55 @@ public abstract class ConverterImpl implements Converter {
       throw new ConversionException(fromUnit, toUnit);
   }
 
+  private static final int MAX_CONVERTERS = 10000;
+  private static final ConcurrentHashMap<UnitPair, Converter> converters = new ConcurrentHashMap<>();
+
+  // equal units of the same class convert the same way
+  private static final class UnitPair {
+    private final Unit fromUnit, toUnit;
+    private final int hashCode;
+
+    UnitPair(Unit fromUnit, Unit toUnit) {
+      this.fromUnit = fromUnit;
+      this.toUnit = toUnit;
+      this.hashCode = 31 * fromUnit.hashCode() + toUnit.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o)
+        return true;
+      if (!(o instanceof UnitPair))
+        return false;
+      UnitPair that = (UnitPair) o;
+      return fromUnit.getClass() == that.fromUnit.getClass() && toUnit.getClass() == that.toUnit.getClass()
+          && fromUnit.equals(that.fromUnit) && toUnit.equals(that.toUnit);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+
   /**
-   * Factory method for creating a unit converter.
+   * Factory method for creating a unit converter. Converters are immutable, and are remembered for each
+   * pair of units, so this is cheaper than fromUnit.getConverterTo(toUnit) when called repeatedly.
    * 
    * @param fromUnit The unit from which to convert.
    * @param toUnit The unit to which to convert.
    * @throws ConversionException The units are not convertible.
    */
   public static Converter create(Unit fromUnit, Unit toUnit) throws ConversionException {
-    return fromUnit.getConverterTo(toUnit);
+    UnitPair key = new UnitPair(fromUnit, toUnit);
+    Converter converter = converters.get(key);
+    if (converter == null) {
+      converter = fromUnit.getConverterTo(toUnit);
+      if (converters.size() >= MAX_CONVERTERS)
+        converters.clear();
+      converters.put(key, converter);
+    }
+    return converter;
   }
 
   /**
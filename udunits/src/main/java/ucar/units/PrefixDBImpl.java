@@ -66,6 +66,7 @@ public class PrefixDBImpl implements PrefixDB, Serializable {
   public void addName(final String name, final double value) throws PrefixExistsException {
     final Prefix prefix = new PrefixName(name, value);
     nameSet.add(prefix);
+    UnitFormatImpl.unitDBChanged();
   }
 
   /**
@@ -83,6 +84,7 @@ public class PrefixDBImpl implements PrefixDB, Serializable {
     final Prefix prefix = new PrefixSymbol(symbol, value);
     symbolSet.add(prefix);
     valueMap.put(value, prefix);
+    UnitFormatImpl.unitDBChanged();
   }
 
   /**
@@ -40,5 +40,6 @@ public final class PrefixDBManager implements Serializable {
    */
   public static synchronized void setInstance(final PrefixDB instance) {
     PrefixDBManager.instance = instance;
+    UnitFormatImpl.unitDBChanged();
   }
 }
@@ -81,6 +81,17 @@ public final class StandardUnitFormat extends UnitFormatImpl implements Standard
   }
 
 
+  /**
+   * The parsers of each thread, so that parsing needs no lock.
+   */
+  private static final ThreadLocal<StandardUnitFormat> threadParser = ThreadLocal.withInitial(StandardUnitFormat::new);
+
+  @Override
+  protected UnitFormatImpl getThreadParser() {
+    return threadParser.get();
+  }
+
+
   /**
    * Indicates if a unit is a time unit.
    *
@@ -67,6 +67,7 @@ public class UnitDBImpl implements UnitDB, Serializable {
     unitSet.addAll(that.unitSet);
     nameMap.putAll(that.nameMap);
     symbolMap.putAll(that.symbolMap);
+    UnitFormatImpl.unitDBChanged();
   }
 
   /**
@@ -331,6 +332,7 @@ public class UnitDBImpl implements UnitDB, Serializable {
   private static void addUnique(final Map<String, Unit> map, final String key, final Unit newUnit)
       throws UnitExistsException {
     final Unit oldUnit = map.put(key, newUnit);
+    UnitFormatImpl.unitDBChanged();
     if (oldUnit != null && !oldUnit.equals(newUnit)) {
       throw new UnitExistsException(oldUnit, newUnit);
     }
@@ -43,5 +43,6 @@ public final class UnitDBManager implements Serializable {
    */
   public static synchronized void setInstance(final UnitDB instance) {
     UnitDBManager.instance = instance;
+    UnitFormatImpl.unitDBChanged();
   }
 }
@@ -4,6 +4,8 @@
  */
 package ucar.units;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Provides support for classes that parse and format unit specifications.
@@ -16,9 +18,33 @@ public abstract class UnitFormatImpl implements UnitFormat {
 
   private static final long serialVersionUID = 1L;
   private static final Object MUTEX = new Object();
+  private static final int MAX_PARSED = 10000;
+  private static final AtomicInteger dbVersion = new AtomicInteger();
+
+  /**
+   * Invalidates the parsed units of all formats. Must be called when the unit or prefix database is changed;
+   * UnitDBImpl, UnitDBManager and PrefixDBManager do this already.
+   */
+  public static void unitDBChanged() {
+    dbVersion.incrementAndGet();
+  }
+
+  // parsed units for one version of the databases
+  private static final class Parsed {
+    final int version;
+    final ConcurrentHashMap<String, Unit> units = new ConcurrentHashMap<>();
+
+    Parsed(int version) {
+      this.version = version;
+    }
+  }
+
+  private transient volatile Parsed parsed;
 
   /**
    * Parses a unit specification. This method is thread-safe.
+   * Parsed units are remembered by specification, until the unit database changes. Units are immutable, so
+   * the same instance may be returned to all callers.
    * 
    * @param spec
    *        The unit specification (e.g. "m/s");
@@ -39,9 +65,44 @@ public abstract class UnitFormatImpl implements UnitFormat {
    */
   public final Unit parse(final String spec) throws NoSuchUnitException, UnitParseException, SpecificationException,
       UnitDBException, PrefixDBException, UnitSystemException {
-    synchronized (MUTEX) {
-      return parse(spec, UnitDBManager.instance());
+    if (spec == null) {
+      synchronized (MUTEX) {
+        return parse(null, UnitDBManager.instance());
+      }
     }
+
+    int version = dbVersion.get();
+    Parsed memo = parsed;
+    if (memo == null || memo.version != version) {
+      memo = new Parsed(version);
+      parsed = memo;
+    }
+    Unit unit = memo.units.get(spec);
+    if (unit != null)
+      return unit;
+
+    UnitFormatImpl parser = getThreadParser();
+    if (parser != null) {
+      unit = parser.parse(spec, UnitDBManager.instance());
+    } else {
+      synchronized (MUTEX) {
+        unit = parse(spec, UnitDBManager.instance());
+      }
+    }
+    if (memo.units.size() >= MAX_PARSED)
+      memo.units.clear();
+    memo.units.put(spec, unit);
+    return unit;
+  }
+
+  /**
+   * A parser that is only used by the calling thread, so that parse(String, UnitDB) may be called on it without
+   * synchronization. Returns null by default, which means this instance is used, one thread at a time.
+   *
+   * @return a parser for the calling thread, or null
+   */
+  protected UnitFormatImpl getThreadParser() {
+    return null;
   }
 
   /**
@@ -278,7 +278,7 @@ public abstract class UnitImpl implements Unit, Serializable {
    *         The units aren't convertible.
    */
   public double convertTo(final double amount, final Unit outputUnit) throws ConversionException {
-    return getConverterTo(outputUnit).convert(amount);
+    return ConverterImpl.create(this, outputUnit).convert(amount);
   }
 
   /**
@@ -327,7 +327,7 @@ public abstract class UnitImpl implements Unit, Serializable {
    */
   public float[] convertTo(final float[] input, final Unit outputUnit, final float[] output)
       throws ConversionException {
-    return getConverterTo(outputUnit).convert(input, output);
+    return ConverterImpl.create(this, outputUnit).convert(input, output);
   }
 
   /**
@@ -346,7 +346,7 @@ public abstract class UnitImpl implements Unit, Serializable {
    */
   public double[] convertTo(final double[] input, final Unit outputUnit, final double[] output)
       throws ConversionException {
-    return getConverterTo(outputUnit).convert(input, output);
+    return ConverterImpl.create(this, outputUnit).convert(input, output);
   }
 
   /**
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.units;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ucar.unidata.util.test.category.Slow;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Test the memoized, thread-safe UnitFormatImpl.parse() and ConverterImpl.create().
+ */
+public class TestUnitParseCache {
+  private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  private static final String[] specs = {"m", "km", "m/s", "K", "degC", "Pa", "hPa", "millibar", "kg m-2 s-1", "1",
+      "percent", "degrees_north", "degrees_east", "W m-2", "hours since 2018-01-01 00:00", "days since 1970-01-01",
+      "seconds since 1992-10-8 15:15:42.5 -6:00", "sec", "ms since 1970-01-01", "gpm", "kg/kg", "m2 s-2", "3 m"};
+
+  @Test
+  public void testMemo() throws Exception {
+    UnitFormat format = UnitFormatManager.instance();
+    for (String spec : specs) {
+      Unit unit = format.parse(spec);
+      Assert.assertSame(unit, format.parse(spec));
+      Assert.assertEquals(StandardUnitFormat.instance().parse(spec, UnitDBManager.instance()), unit);
+    }
+
+    // changing the database invalidates parsed units
+    Unit before = format.parse("xyzzy");
+    Assert.assertTrue(before instanceof UnknownUnit);
+    UnitDB unitDB = UnitDBManager.instance();
+    unitDB.addUnit(format.parse("201.168 m").clone(UnitName.newUnitName("xyzzy")));
+    Unit after = format.parse("xyzzy");
+    Assert.assertFalse(after instanceof UnknownUnit);
+    Assert.assertEquals(201.168, after.convertTo(1.0, format.parse("m")), 1.0e-9);
+  }
+
+  @Test
+  public void testConcurrent() throws Exception {
+    List<Unit> expected = new ArrayList<>();
+    for (String spec : specs)
+      expected.add(StandardUnitFormat.instance().parse(spec, UnitDBManager.instance()));
+
+    ExecutorService pool = Executors.newFixedThreadPool(16);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 16; t++) {
+        final int start = t;
+        futures.add(pool.submit(() -> {
+          UnitFormat format = UnitFormatManager.instance();
+          for (int i = 0; i < 1000; i++) {
+            int k = (start + i) % specs.length;
+            if (i % 100 == 0)
+              UnitFormatImpl.unitDBChanged(); // force some parsing
+            Assert.assertEquals(specs[k], expected.get(k), format.parse(specs[k]));
+          }
+          return null;
+        }));
+      }
+      for (Future<?> f : futures)
+        f.get();
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void testConverter() throws Exception {
+    UnitFormat format = UnitFormatManager.instance();
+    Unit km = format.parse("km");
+    Unit m = format.parse("m");
+    Converter c = ConverterImpl.create(km, m);
+    Assert.assertSame(c, ConverterImpl.create(km, m));
+    Assert.assertEquals(1000.0, c.convert(1.0), 0.0);
+    Assert.assertEquals(0.001, ConverterImpl.create(m, km).convert(1.0), 1.0e-12);
+
+    Unit hours = format.parse("hours since 2018-01-01 00:00");
+    Unit days = format.parse("days since 2018-01-02");
+    Assert.assertEquals(-1.0, hours.convertTo(0.0, days), 1.0e-12);
+    Assert.assertEquals(48.0, days.convertTo(1.0, hours), 1.0e-9);
+
+    try {
+      ConverterImpl.create(km, format.parse("s"));
+      Assert.fail();
+    } catch (ConversionException e) {
+      // expected
+    }
+  }
+
+  // unit strings as they would be found in a dataset with many variables
+  @Test
+  @Category(Slow.class)
+  public void compareTiming() throws Exception {
+    int nvars = 20000;
+    UnitFormat format = UnitFormatManager.instance();
+    UnitDB unitDB = UnitDBManager.instance();
+    StandardUnitFormat parser = StandardUnitFormat.instance();
+    for (int pass = 0; pass < 3; pass++) {
+      long start = System.nanoTime();
+      for (int i = 0; i < nvars; i++)
+        parser.parse(specs[i % specs.length], unitDB);
+      long took = System.nanoTime() - start;
+
+      UnitFormatImpl.unitDBChanged();
+      start = System.nanoTime();
+      for (int i = 0; i < nvars; i++)
+        format.parse(specs[i % specs.length]);
+      long tookMemo = System.nanoTime() - start;
+      logger.debug("parse units of {} variables: no cache {} ms, cache {} ms", nvars, took / 1000000,
+          tookMemo / 1000000);
+    }
+  }
+
+}